@@ -0,0 +1,44 @@
+package com.example.exsql.legacy.newland;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Password decryption as done for every UIG response, single-threaded and contended. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeUtilBenchmark {
+
+  private static final String KEY = "12345678abcdefg";
+
+  private String encrypted;
+
+  @Setup
+  public void setUp() throws Exception {
+    encrypted = DecodeUtil.encrypt("Tiger#2024_passw0rd", KEY);
+  }
+
+  @Benchmark
+  public String decrypt() throws Exception {
+    return DecodeUtil.decrypt(encrypted, KEY);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public String decryptContended() throws Exception {
+    return DecodeUtil.decrypt(encrypted, KEY);
+  }
+}
@@ -0,0 +1,69 @@
+package com.example.exsql.legacy.newland;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the dom4j request/response path of {@link DealXMLMgr} with {@link UigXmlCodec}. Run with
+ * {@code -prof gc} to see the allocation rate of each.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UigXmlCodecBenchmark {
+
+  private final DealXMLMgr dealXMLMgr = new DealXMLMgr();
+  private ReqInfoBean request;
+  private String response;
+
+  @Setup
+  public void setUp() {
+    request = new ReqInfoBean();
+    request.setDbType(2);
+    request.setDbTns("ORCL");
+    request.setDbUser("scott");
+    request.setDbUserpwd("tiger");
+    request.setHostName("app-server-01");
+    request.setHostIp("10.32.40.15");
+    request.setHostApp("测试应用");
+    request.setAppCode("abcdefg");
+    request.setCfgFileFlag("1");
+    response =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<operation_out>\n  <content>\n"
+            + "    <resultcode>1</resultcode>\n    <dbtns>ORCL</dbtns>\n"
+            + "    <dbuser>scott</dbuser>\n    <dbuserpwd>9A3C58E1F0B2D4C6</dbuserpwd>\n"
+            + "    <randomcode>12345678</randomcode>\n  </content>\n</operation_out>";
+  }
+
+  @Benchmark
+  public String encodeDom4j() throws Exception {
+    return dealXMLMgr.encodeXML(request);
+  }
+
+  @Benchmark
+  public String encodeCodec() {
+    return UigXmlCodec.encode(request);
+  }
+
+  @Benchmark
+  public ResInfoBean decodeDom4j() throws Exception {
+    return dealXMLMgr.decodeXML(XMLUtil.fromXML(response, "UTF-8"));
+  }
+
+  @Benchmark
+  public ResInfoBean decodeCodec() throws Exception {
+    return UigXmlCodec.decode(response);
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.exsql.script;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Statement classification on the upper-cased statement headers the lexer collects. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClassifyBenchmark {
+
+  @Param({
+    "INSERT INTO ORDERS (ID, CUSTOMER) VALUES ",
+    "DECLARE V_COUNT NUMBER ",
+    "BEGIN WORK",
+    "CREATE OR REPLACE EDITIONABLE PACKAGE BODY ORDERS_PKG AS ",
+    "CREATE TABLE ORDERS (ID NUMBER PRIMARY KEY, "
+  })
+  private String header;
+
+  @Benchmark
+  public SqlStatementType classify() {
+    return SqlScriptReader.classify(header);
+  }
+}
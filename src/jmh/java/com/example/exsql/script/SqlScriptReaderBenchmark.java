@@ -0,0 +1,70 @@
+package com.example.exsql.script;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Splits generated scripts of 1 KB to 100 MB. The scripts mix plain DML, literals holding
+ * semicolons, comments and PL/SQL blocks, so every lexer state is exercised.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+public class SqlScriptReaderBenchmark {
+
+  private static final String[] STATEMENTS = {
+    "INSERT INTO orders (id, customer, note) VALUES (%d, 'C-%1$d', 'a; b -- not a comment');\n",
+    "UPDATE orders SET status = q'[it's; done]' WHERE id = %d; -- trailing comment\n",
+    "/* batch %d */ DELETE FROM order_lines WHERE order_id = %1$d;\n",
+    "CREATE OR REPLACE PROCEDURE touch_%d AS\nBEGIN\n"
+        + "  UPDATE orders SET touched = SYSDATE WHERE id = %1$d;\n  COMMIT;\nEND;\n/\n",
+    "SELECT \"Id\", customer FROM orders WHERE id = %d;\n",
+  };
+
+  @Param({"1024", "1048576", "104857600"})
+  private int scriptBytes;
+
+  private byte[] script;
+
+  @Setup
+  public void setUp() {
+    script = generate(scriptBytes);
+  }
+
+  @Benchmark
+  public int split(Blackhole blackhole) throws IOException {
+    int count = 0;
+    try (SqlScriptReader reader = SqlScriptReader.forUtf8(new ByteArrayInputStream(script))) {
+      for (SqlStatement statement = reader.next(); statement != null; statement = reader.next()) {
+        blackhole.consume(statement);
+        count++;
+      }
+    }
+    return count;
+  }
+
+  static byte[] generate(int size) {
+    StringBuilder text = new StringBuilder(size + 256);
+    for (int i = 0; text.length() < size; i++) {
+      text.append(String.format(STATEMENTS[i % STATEMENTS.length], i));
+    }
+    return text.toString().getBytes(StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,183 @@
+package com.example.exsql.service;
+
+import com.example.exsql.config.DataSourcesProperties;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.script.ScriptSource;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * End-to-end {@link SqlExecutionService#executeScripts} against an in-memory H2 database: script
+ * splitting, pooled connection handling, batching and result collection, without the UIG server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExecuteScriptsBenchmark {
+
+  private static final String DATA_SOURCE = "bench";
+  private static final String PASSWORD = "bench";
+
+  @Param({"100", "10000"})
+  private int statements;
+
+  // "single" runs each INSERT alone, "batch" sends them as JDBC batches of literal SQL and "bind"
+  // binds their values into prepared batches.
+  @Param({"single", "batch", "bind"})
+  private String mode;
+
+  private DataSourceRegistry registry;
+  private ParallelScriptExecutor parallelScriptExecutor;
+  private SqlExecutionService service;
+  private DataSource dataSource;
+  private ScriptSource script;
+  private ExecutionOptions options;
+
+  @Setup
+  public void setUp() throws Exception {
+    DataSourceDefinition definition =
+        new DataSourceDefinition(
+            DATA_SOURCE,
+            "jdbc:h2:mem:exsql_bench;DB_CLOSE_DELAY=-1",
+            "sa",
+            "org.h2.Driver",
+            "",
+            0,
+            "",
+            "",
+            "");
+    registry = new DataSourceRegistry();
+    ReflectionTestUtils.setField(registry, "maximumPoolSize", 4);
+    ReflectionTestUtils.setField(registry, "connectionTimeoutMs", 30000L);
+    ReflectionTestUtils.setField(registry, "idleTimeoutMs", 600000L);
+    ReflectionTestUtils.setField(registry, "maxLifetimeMs", 1800000L);
+    parallelScriptExecutor = new ParallelScriptExecutor(registry);
+    DataSourcesProperties properties = new DataSourcesProperties();
+    properties.setDatasources(Collections.singletonList(definition));
+    DataSourceCatalog catalog =
+        new DataSourceCatalog(properties, registry, new StandardEnvironment());
+    catalog.initialize();
+    service =
+        new SqlExecutionService(
+            catalog,
+            new FixedPasswordService(),
+            registry,
+            parallelScriptExecutor,
+            ExecutionMetrics.noop());
+    dataSource = registry.getDataSource(definition, PASSWORD);
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE orders (id INT PRIMARY KEY, customer VARCHAR(40))");
+    }
+    script = new InMemoryScript(generate(statements));
+    options = new ExecutionOptions();
+    options.setBatchDml(!"single".equals(mode));
+    options.setBindInsertValues("bind".equals(mode));
+  }
+
+  @Setup(Level.Invocation)
+  public void truncate() throws Exception {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("TRUNCATE TABLE orders");
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    try (Connection connection = dataSource.getConnection();
+        Statement statement = connection.createStatement()) {
+      statement.execute("DROP TABLE orders");
+    }
+    parallelScriptExecutor.shutdown();
+    registry.closeAll();
+  }
+
+  @Benchmark
+  public List<ScriptExecutionResult> executeScripts() {
+    List<ScriptExecutionResult> results =
+        service.executeScripts(
+            Collections.singletonList(script), DATA_SOURCE, options, ScriptExecutionListener.NONE);
+    if (!results.get(0).isSuccess()) {
+      throw new IllegalStateException(results.get(0).getMessage());
+    }
+    return results;
+  }
+
+  private static byte[] generate(int count) {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      text.append("INSERT INTO orders (id, customer) VALUES (")
+          .append(i)
+          .append(", 'customer; ")
+          .append(i)
+          .append("');\n");
+    }
+    return text.toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /** Hands out the fixed H2 password instead of asking the UIG server. */
+  private static final class FixedPasswordService extends CustomPasswordRetrievalService {
+    @Override
+    public String retrievePassword(
+        String username,
+        int nDbType,
+        String tns,
+        String getPasswdUrl,
+        String dummyPassword,
+        String dsName,
+        String authFilePath) {
+      return PASSWORD;
+    }
+  }
+
+  private static final class InMemoryScript implements ScriptSource {
+    private final byte[] content;
+
+    InMemoryScript(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public String getFileName() {
+      return "bench.sql";
+    }
+
+    @Override
+    public long getSize() {
+      return content.length;
+    }
+
+    @Override
+    public InputStream openStream() {
+      return new ByteArrayInputStream(content);
+    }
+  }
+}
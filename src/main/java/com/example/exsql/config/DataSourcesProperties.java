@@ -0,0 +1,25 @@
+package com.example.exsql.config;
+
+import com.example.exsql.model.DataSourceDefinition;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * The {@code app.datasources} list, one entry per data source, e.g. {@code
+ * app.datasources[0].name=tenant_a}. Entries are registered with {@link
+ * com.example.exsql.service.DataSourceCatalog}, which can bind the list again at runtime.
+ */
+@ConfigurationProperties(prefix = "app")
+public class DataSourcesProperties {
+
+  private List<DataSourceDefinition> datasources = new ArrayList<>();
+
+  public List<DataSourceDefinition> getDatasources() {
+    return datasources;
+  }
+
+  public void setDatasources(List<DataSourceDefinition> datasources) {
+    this.datasources = datasources;
+  }
+}
@@ -0,0 +1,26 @@
+package com.example.exsql.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ExecutionSchedulerConfig {
+
+  /**
+   * Runs asynchronous upload jobs, so script execution no longer holds a Tomcat worker thread. Jobs
+   * beyond the pool size wait in a bounded queue; further submissions are rejected.
+   */
+  @Bean
+  public ThreadPoolTaskExecutor scriptExecutionScheduler(
+      @Value("${app.jobs.scheduler.pool-size:4}") int poolSize,
+      @Value("${app.jobs.scheduler.queue-capacity:100}") int queueCapacity) {
+    ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+    executor.setCorePoolSize(poolSize);
+    executor.setMaxPoolSize(poolSize);
+    executor.setQueueCapacity(queueCapacity);
+    executor.setThreadNamePrefix("exsql-job-");
+    return executor;
+  }
+}
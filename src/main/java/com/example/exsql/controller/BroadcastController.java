@@ -0,0 +1,137 @@
+package com.example.exsql.controller;
+
+import com.example.exsql.model.BroadcastJob;
+import com.example.exsql.model.BroadcastOptions;
+import com.example.exsql.model.BroadcastTarget;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.service.BroadcastService;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Runs one upload on several data sources, chosen by name ({@code dataSourceNames}, repeated or
+ * comma separated) and/or by tag ({@code dataSourceTag}). Accepts the same execution options as
+ * {@code POST /api/jobs}.
+ */
+@RestController
+@RequestMapping("/api/broadcasts")
+public class BroadcastController {
+
+  private static final Logger logger = LoggerFactory.getLogger(BroadcastController.class);
+
+  private final BroadcastService broadcastService;
+
+  @Autowired
+  public BroadcastController(BroadcastService broadcastService) {
+    this.broadcastService = broadcastService;
+  }
+
+  /** Answers 202 with the queued broadcast; poll it with {@code GET /api/broadcasts/{id}}. */
+  @PostMapping
+  public ResponseEntity<BroadcastJob> submit(
+      @RequestParam("files") MultipartFile[] files,
+      BroadcastOptions broadcast,
+      ExecutionOptions options) {
+    List<MultipartFile> nonEmptyFiles =
+        Arrays.stream(files).filter(file -> !file.isEmpty()).collect(Collectors.toList());
+    if (nonEmptyFiles.isEmpty()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Please select one or more SQL script files to upload.");
+    }
+    BroadcastJob job;
+    try {
+      job = broadcastService.submit(nonEmptyFiles, broadcast, options);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    } catch (TaskRejectedException e) {
+      logger.warn("Rejected broadcast, execution queue is full: {}", e.getMessage());
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE, "Too many queued uploads, please retry later.");
+    } catch (IOException e) {
+      logger.error("Could not store uploaded files: {}", e.getMessage(), e);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Could not store uploaded files: " + e.getMessage());
+    }
+    URI location =
+        ServletUriComponentsBuilder.fromCurrentRequest()
+            .path("/{id}")
+            .buildAndExpand(job.getId())
+            .toUri();
+    return ResponseEntity.accepted().location(location).body(job);
+  }
+
+  @GetMapping("/{id}")
+  public BroadcastJob get(@PathVariable String id) {
+    return find(id);
+  }
+
+  /**
+   * The result matrix as CSV: a row per data source with its state, then the outcome of each file
+   * ({@code succeeded}, {@code failed}, or empty if it has not run).
+   */
+  @GetMapping("/{id}/matrix")
+  public ResponseEntity<String> matrix(@PathVariable String id) {
+    BroadcastJob job = find(id);
+    return ResponseEntity.ok()
+        .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ExecutionJobController.attachment("broadcast-" + id + ".csv"))
+        .body(toCsv(job));
+  }
+
+  static String toCsv(BroadcastJob job) {
+    StringBuilder csv = new StringBuilder("data_source,status,elapsed_ms");
+    for (String fileName : job.getFileNames()) {
+      csv.append(',').append(ExecutionJobController.csvField(fileName));
+    }
+    csv.append("\r\n");
+    for (BroadcastTarget target : job.getTargets()) {
+      csv.append(ExecutionJobController.csvField(target.getDataSourceName()))
+          .append(',')
+          .append(target.getStatus().name().toLowerCase())
+          .append(',')
+          .append(target.getElapsedMs());
+      List<ScriptExecutionResult> results = target.getResults();
+      for (int i = 0; i < job.getFileNames().size(); i++) {
+        csv.append(',');
+        if (i < results.size()) {
+          csv.append(results.get(i).isSuccess() ? "succeeded" : "failed");
+        }
+      }
+      csv.append("\r\n");
+    }
+    return csv.toString();
+  }
+
+  private BroadcastJob find(String id) {
+    BroadcastJob job = broadcastService.getBroadcast(id);
+    if (job == null) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "Unknown or expired broadcast: " + id);
+    }
+    return job;
+  }
+}
@@ -0,0 +1,83 @@
+package com.example.exsql.controller;
+
+import com.example.exsql.model.DataSourcePoolStats;
+import com.example.exsql.model.DataSourceReadiness;
+import com.example.exsql.model.DataSourceReloadResult;
+import com.example.exsql.service.DataSourceCatalog;
+import com.example.exsql.service.DataSourceRegistry;
+import com.example.exsql.service.DataSourceWarmupHealthIndicator;
+import com.example.exsql.service.DataSourceWarmupService;
+import java.util.List;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/api/datasources")
+public class DataSourceStatusController {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourceStatusController.class);
+
+  private final DataSourceCatalog dataSourceCatalog;
+  private final DataSourceRegistry dataSourceRegistry;
+  private final DataSourceWarmupService dataSourceWarmupService;
+
+  @Autowired
+  public DataSourceStatusController(
+      DataSourceCatalog dataSourceCatalog,
+      DataSourceRegistry dataSourceRegistry,
+      DataSourceWarmupService dataSourceWarmupService) {
+    this.dataSourceCatalog = dataSourceCatalog;
+    this.dataSourceRegistry = dataSourceRegistry;
+    this.dataSourceWarmupService = dataSourceWarmupService;
+  }
+
+  @GetMapping
+  public Set<String> names() {
+    return dataSourceCatalog.getNames();
+  }
+
+  /**
+   * Reads the data source list again without a restart. Pools of unchanged data sources keep their
+   * connections; pools of changed or removed ones are drained.
+   */
+  @PostMapping("/reload")
+  public DataSourceReloadResult reload() {
+    try {
+      return dataSourceCatalog.reload();
+    } catch (RuntimeException e) {
+      logger.error("Data source reload failed: {}", e.getMessage(), e);
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Data source reload failed: " + e.getMessage());
+    }
+  }
+
+  @GetMapping("/pools")
+  public List<DataSourcePoolStats> poolStats() {
+    return dataSourceRegistry.getPoolStats();
+  }
+
+  /**
+   * The warm-up readiness with every data source's state: 503 while the start-up warm-up is still
+   * running, 200 otherwise. The status matches the {@code dataSourceWarmup} component of {@code
+   * /actuator/health}, which deployment tooling should prefer.
+   */
+  @GetMapping("/health")
+  public ResponseEntity<DataSourceReadiness> health() {
+    DataSourceReadiness readiness = dataSourceWarmupService.getReadiness();
+    HttpStatus status =
+        Status.UP.equals(DataSourceWarmupHealthIndicator.toHealth(readiness).getStatus())
+            ? HttpStatus.OK
+            : HttpStatus.SERVICE_UNAVAILABLE;
+    return ResponseEntity.status(status).body(readiness);
+  }
+}
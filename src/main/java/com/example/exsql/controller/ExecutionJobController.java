@@ -0,0 +1,261 @@
+package com.example.exsql.controller;
+
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.model.SlowStatement;
+import com.example.exsql.script.SpooledScriptSource;
+import com.example.exsql.service.DataSourceCatalog;
+import com.example.exsql.service.ExecutionJobService;
+import com.example.exsql.service.JobEventPublisher;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Asynchronous alternative to {@code POST /upload}: the upload is accepted as a job whose progress
+ * is polled with {@code GET /api/jobs/{id}} or streamed from {@code GET /api/jobs/{id}/events}.
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class ExecutionJobController {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExecutionJobController.class);
+
+  private final ExecutionJobService executionJobService;
+  private final JobEventPublisher jobEventPublisher;
+  private final DataSourceCatalog dataSourceCatalog;
+
+  @Autowired
+  public ExecutionJobController(
+      ExecutionJobService executionJobService,
+      JobEventPublisher jobEventPublisher,
+      DataSourceCatalog dataSourceCatalog) {
+    this.executionJobService = executionJobService;
+    this.jobEventPublisher = jobEventPublisher;
+    this.dataSourceCatalog = dataSourceCatalog;
+  }
+
+  /** Accepts the same form fields as {@code POST /upload} and answers 202 with the new job. */
+  @PostMapping
+  public ResponseEntity<ExecutionJob> submit(
+      @RequestParam("files") MultipartFile[] files,
+      @RequestParam(name = "dataSourceName", required = false) String dataSourceName,
+      ExecutionOptions options) {
+    List<MultipartFile> nonEmptyFiles =
+        Arrays.stream(files).filter(file -> !file.isEmpty()).collect(Collectors.toList());
+    if (nonEmptyFiles.isEmpty()) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Please select one or more SQL script files to upload.");
+    }
+    ExecutionJob job;
+    try {
+      job =
+          executionJobService.submit(
+              nonEmptyFiles, dataSourceCatalog.resolveName(dataSourceName), options);
+    } catch (TaskRejectedException e) {
+      logger.warn("Rejected upload, execution queue is full: {}", e.getMessage());
+      throw new ResponseStatusException(
+          HttpStatus.SERVICE_UNAVAILABLE, "Too many queued uploads, please retry later.");
+    } catch (IOException e) {
+      logger.error("Could not store uploaded files: {}", e.getMessage(), e);
+      throw new ResponseStatusException(
+          HttpStatus.INTERNAL_SERVER_ERROR, "Could not store uploaded files: " + e.getMessage());
+    }
+    URI location =
+        ServletUriComponentsBuilder.fromCurrentRequest()
+            .path("/{id}")
+            .buildAndExpand(job.getId())
+            .toUri();
+    return ResponseEntity.accepted().location(location).body(job);
+  }
+
+  @GetMapping("/{id}")
+  public ExecutionJob getJob(@PathVariable("id") String id) {
+    ExecutionJob job = executionJobService.getJob(id);
+    if (job == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired job: " + id);
+    }
+    return job;
+  }
+
+  /** Holds the job before its next statement; answers 409 if it has finished. */
+  @PostMapping("/{id}/pause")
+  public ExecutionJob pause(@PathVariable("id") String id) {
+    return setPaused(id, true);
+  }
+
+  /** Lets a paused job continue; answers 409 if it has finished. */
+  @PostMapping("/{id}/resume")
+  public ExecutionJob resume(@PathVariable("id") String id) {
+    return setPaused(id, false);
+  }
+
+  private ExecutionJob setPaused(String id, boolean paused) {
+    ExecutionJob job;
+    try {
+      job = paused ? executionJobService.pause(id) : executionJobService.resume(id);
+    } catch (IllegalStateException e) {
+      throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+    }
+    if (job == null) {
+      throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown or expired job: " + id);
+    }
+    return job;
+  }
+
+  /** Serves the full text of one uploaded file, which results only carry excerpts of. */
+  @GetMapping("/{id}/files/{index}/content")
+  public ResponseEntity<Resource> fileContent(
+      @PathVariable("id") String id, @PathVariable("index") int index) {
+    SpooledScriptSource script = executionJobService.getScript(id, index);
+    if (script == null) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "Unknown or expired file " + index + " of job " + id);
+    }
+    return ResponseEntity.ok()
+        .contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8))
+        .contentLength(script.getSize())
+        .header(
+            HttpHeaders.CONTENT_DISPOSITION,
+            ContentDisposition.inline()
+                .filename(script.getFileName(), StandardCharsets.UTF_8)
+                .build()
+                .toString())
+        .body(new FileSystemResource(script.getPath()));
+  }
+
+  /**
+   * Downloads the slow-statement report of one file as JSON or CSV.
+   *
+   * @param sort {@code duration} (slowest first, the default), {@code index} or {@code rows}.
+   */
+  @GetMapping("/{id}/files/{index}/slow-statements")
+  public ResponseEntity<?> slowStatements(
+      @PathVariable("id") String id,
+      @PathVariable("index") int index,
+      @RequestParam(name = "format", defaultValue = "json") String format,
+      @RequestParam(name = "sort", defaultValue = "duration") String sort) {
+    ExecutionJob job = getJob(id);
+    List<ScriptExecutionResult> results = job.getResults();
+    if (index < 0 || index >= results.size()) {
+      throw new ResponseStatusException(
+          HttpStatus.NOT_FOUND, "No result yet for file " + index + " of job " + id);
+    }
+    ScriptExecutionResult result = results.get(index);
+    List<SlowStatement> report = new ArrayList<>(result.getSlowStatements());
+    report.sort(reportOrder(sort));
+    String baseName = result.getFileName() + "-slow-statements";
+    if ("csv".equalsIgnoreCase(format)) {
+      return ResponseEntity.ok()
+          .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+          .header(HttpHeaders.CONTENT_DISPOSITION, attachment(baseName + ".csv"))
+          .body(toCsv(report));
+    }
+    if (!"json".equalsIgnoreCase(format)) {
+      throw new ResponseStatusException(
+          HttpStatus.BAD_REQUEST, "Unsupported format " + format + ", use json or csv.");
+    }
+    return ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .header(HttpHeaders.CONTENT_DISPOSITION, attachment(baseName + ".json"))
+        .body(report);
+  }
+
+  private static Comparator<SlowStatement> reportOrder(String sort) {
+    switch (sort.toLowerCase()) {
+      case "duration":
+        return Comparator.comparingLong(SlowStatement::getDurationMs).reversed();
+      case "index":
+        return Comparator.comparingInt(SlowStatement::getStatementIndex);
+      case "rows":
+        return Comparator.comparingLong(SlowStatement::getRowsAffected).reversed();
+      default:
+        throw new ResponseStatusException(
+            HttpStatus.BAD_REQUEST, "Unsupported sort " + sort + ", use duration, index or rows.");
+    }
+  }
+
+  static String attachment(String fileName) {
+    return ContentDisposition.attachment()
+        .filename(fileName, StandardCharsets.UTF_8)
+        .build()
+        .toString();
+  }
+
+  static String toCsv(List<SlowStatement> report) {
+    StringBuilder csv =
+        new StringBuilder(
+            "statement_index,line,keyword,duration_ms,rows_affected,batch_number,batch_size,"
+                + "success,sql,plan\r\n");
+    for (SlowStatement statement : report) {
+      csv.append(statement.getStatementIndex())
+          .append(',')
+          .append(statement.getLine())
+          .append(',')
+          .append(csvField(statement.getKeyword()))
+          .append(',')
+          .append(statement.getDurationMs())
+          .append(',')
+          .append(statement.getRowsAffected())
+          .append(',')
+          .append(statement.getBatchNumber() != null ? statement.getBatchNumber() : "")
+          .append(',')
+          .append(statement.getBatchSize())
+          .append(',')
+          .append(statement.isSuccess())
+          .append(',')
+          .append(csvField(statement.getSqlExcerpt()))
+          .append(',')
+          .append(csvField(statement.getPlan()))
+          .append("\r\n");
+    }
+    return csv.toString();
+  }
+
+  /** Quotes a CSV field (RFC 4180) when it holds a separator, quote or line break. */
+  static String csvField(String value) {
+    if (value == null) {
+      return "";
+    }
+    if (value.indexOf(',') < 0
+        && value.indexOf('"') < 0
+        && value.indexOf('\n') < 0
+        && value.indexOf('\r') < 0) {
+      return value;
+    }
+    return '"' + value.replace("\"", "\"\"") + '"';
+  }
+
+  /** Streams the job's statement, file and job events; see {@link JobEventPublisher}. */
+  @GetMapping(path = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter events(@PathVariable("id") String id) {
+    return jobEventPublisher.subscribe(getJob(id));
+  }
+}
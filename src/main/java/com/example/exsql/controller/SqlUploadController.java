@@ -1,12 +1,14 @@
 package com.example.exsql.controller;
 
-import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
 import com.example.exsql.model.ScriptExecutionResult;
-import com.example.exsql.service.SqlExecutionService;
+import com.example.exsql.model.TransactionMode;
+import com.example.exsql.service.DataSourceCatalog;
+import com.example.exsql.service.ExecutionJobService;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
@@ -25,15 +27,14 @@ public class SqlUploadController {
 
   private static final Logger logger = LoggerFactory.getLogger(SqlUploadController.class);
 
-  private final SqlExecutionService sqlExecutionService;
-  private final Map<String, DataSourceDefinition> dataSourceDefinitions;
+  private final ExecutionJobService executionJobService;
+  private final DataSourceCatalog dataSourceCatalog;
 
   @Autowired
   public SqlUploadController(
-      SqlExecutionService sqlExecutionService,
-      Map<String, DataSourceDefinition> dataSourceDefinitions) {
-    this.sqlExecutionService = sqlExecutionService;
-    this.dataSourceDefinitions = dataSourceDefinitions;
+      ExecutionJobService executionJobService, DataSourceCatalog dataSourceCatalog) {
+    this.executionJobService = executionJobService;
+    this.dataSourceCatalog = dataSourceCatalog;
   }
 
   @GetMapping("/")
@@ -48,8 +49,8 @@ public class SqlUploadController {
     if (!model.containsAttribute("successMessage")) {
       model.addAttribute("successMessage", null);
     }
-    // Add data source names from the keys of the dataSourceDefinitions map
-    Set<String> dsNames = dataSourceDefinitions.keySet();
+    // Data source names in configuration order; the first one is selected by default
+    Set<String> dsNames = dataSourceCatalog.getNames();
     logger.info("Available data source names for UI: {}", dsNames);
     model.addAttribute("dataSourceNames", dsNames);
     return "upload";
@@ -58,7 +59,21 @@ public class SqlUploadController {
   @PostMapping("/upload")
   public String uploadAndExecuteSql(
       @RequestParam("files") MultipartFile[] files,
-      @RequestParam(name = "dataSourceName", defaultValue = "primary") String dataSourceName,
+      @RequestParam(name = "dataSourceName", required = false) String dataSourceName,
+      @RequestParam(name = "batchDml", defaultValue = "false") boolean batchDml,
+      @RequestParam(name = "batchSize", defaultValue = "0") int batchSize,
+      @RequestParam(name = "parallelFiles", defaultValue = "false") boolean parallelFiles,
+      @RequestParam(name = "fileDependencies", required = false) String fileDependencies,
+      @RequestParam(name = "transactionMode", defaultValue = "AUTO_COMMIT")
+          TransactionMode transactionMode,
+      @RequestParam(name = "commitInterval", defaultValue = "0") int commitInterval,
+      @RequestParam(name = "slowStatementThresholdMs", defaultValue = "0")
+          long slowStatementThresholdMs,
+      @RequestParam(name = "capturePlans", defaultValue = "false") boolean capturePlans,
+      @RequestParam(name = "pipelineStatements", defaultValue = "false") boolean pipelineStatements,
+      @RequestParam(name = "resume", defaultValue = "false") boolean resume,
+      @RequestParam(name = "throttled", defaultValue = "false") boolean throttled,
+      @RequestParam(name = "bindInsertValues", defaultValue = "false") boolean bindInsertValues,
       RedirectAttributes redirectAttributes,
       Model model) {
     if (files == null
@@ -73,21 +88,43 @@ public class SqlUploadController {
     List<MultipartFile> nonEmptyFiles =
         Arrays.stream(files).filter(file -> !file.isEmpty()).collect(Collectors.toList());
 
+    dataSourceName = dataSourceCatalog.resolveName(dataSourceName);
     try {
       logger.info("Received request to execute scripts on data source: {}", dataSourceName);
-      List<ScriptExecutionResult> results =
-          sqlExecutionService.executeSqlScripts(
-              nonEmptyFiles.toArray(new MultipartFile[0]), dataSourceName);
+      ExecutionOptions options = new ExecutionOptions();
+      options.setBatchDml(batchDml);
+      options.setBatchSize(batchSize);
+      options.setParallelFiles(parallelFiles);
+      options.setFileDependencies(fileDependencies);
+      options.setTransactionMode(transactionMode);
+      options.setCommitInterval(commitInterval);
+      options.setSlowStatementThresholdMs(slowStatementThresholdMs);
+      options.setCapturePlans(capturePlans);
+      options.setPipelineStatements(pipelineStatements);
+      options.setResume(resume);
+      options.setThrottled(throttled);
+      options.setBindInsertValues(bindInsertValues);
+      ExecutionJob job = executionJobService.execute(nonEmptyFiles, dataSourceName, options);
+      List<ScriptExecutionResult> results = job.getResults();
+      // Results only hold bounded excerpts; the full scripts are linked through the job id.
       redirectAttributes.addFlashAttribute("results", results);
+      redirectAttributes.addFlashAttribute("jobId", job.getId());
       boolean allSuccess = results.stream().allMatch(ScriptExecutionResult::isSuccess);
-      if (allSuccess) {
+      if (job.getError() != null) {
+        redirectAttributes.addFlashAttribute(
+            "error", "An unexpected error occurred: " + job.getError());
+      } else if (allSuccess) {
         redirectAttributes.addFlashAttribute(
             "successMessage", "All scripts processed. See details below.");
       } else {
         redirectAttributes.addFlashAttribute(
             "error", "Some scripts failed to execute. See details below.");
       }
-      logger.info("SQL execution results: {}", results);
+      logger.info(
+          "Job {} finished: {} of {} script(s) succeeded",
+          job.getId(),
+          results.stream().filter(ScriptExecutionResult::isSuccess).count(),
+          results.size());
     } catch (Exception e) {
       logger.error("Error during SQL script execution: {}", e.getMessage(), e);
       redirectAttributes.addFlashAttribute(
@@ -1,7 +1,6 @@
 package com.example.exsql.legacy.newland;
 
-import java.io.UnsupportedEncodingException;
-import java.security.SecureRandom;
+import java.security.GeneralSecurityException;
 import java.util.Base64;
 import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
@@ -30,6 +29,13 @@ public class DecodeUtil {
   /** 加密算法,可用 DES,DESede,Blowfish. */
   private static final String ALGORITHM = "DES";
 
+  // Cipher and SecretKeyFactory are not thread-safe but are costly to look up, so each thread keeps
+  // its own. DES/ECB needs no random source, so none is created per call.
+  private static final ThreadLocal<SecretKeyFactory> KEY_FACTORY =
+      ThreadLocal.withInitial(() -> newInstance(() -> SecretKeyFactory.getInstance(ALGORITHM)));
+  private static final ThreadLocal<Cipher> CIPHER =
+      ThreadLocal.withInitial(() -> newInstance(() -> Cipher.getInstance(ALGORITHM)));
+
   /**
    * DES解密算法
    *
@@ -54,64 +60,57 @@ public class DecodeUtil {
   }
 
   private static byte[] encrypt(byte[] data, byte[] key) throws Exception {
-    // DES算法要求有一个可信任的随机数源
-    SecureRandom sr = new SecureRandom();
-    // 从原始密匙数据创建DESKeySpec对象
-    DESKeySpec dks = new DESKeySpec(key);
-    // 创建一个密匙工厂，然后用它把DESKeySpec转换成
-    // 一个SecretKey对象
-    SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(ALGORITHM);
-    SecretKey securekey = keyFactory.generateSecret(dks);
-    // Cipher对象实际完成加密操作
-    Cipher cipher = Cipher.getInstance(ALGORITHM);
-    // 用密匙初始化Cipher对象
-    cipher.init(Cipher.ENCRYPT_MODE, securekey, sr);
-    // 现在，获取数据并加密
-    // 正式执行加密操作
-    return cipher.doFinal(data);
+    return doFinal(Cipher.ENCRYPT_MODE, data, key);
   }
 
   private static byte[] decrypt(byte[] data, byte[] key) throws Exception {
-    // DES算法要求有一个可信任的随机数源
-    SecureRandom sr = new SecureRandom();
-    // 从原始密匙数据创建一个DESKeySpec对象
-    DESKeySpec dks = new DESKeySpec(key);
-    // 创建一个密匙工厂，然后用它把DESKeySpec对象转换成
-    // 一个SecretKey对象
-    SecretKeyFactory keyFactory = SecretKeyFactory.getInstance(ALGORITHM);
-    SecretKey securekey = keyFactory.generateSecret(dks);
-    // Cipher对象实际完成解密操作
-    Cipher cipher = Cipher.getInstance(ALGORITHM);
-    // 用密匙初始化Cipher对象
-    cipher.init(Cipher.DECRYPT_MODE, securekey, sr);
-    // 现在，获取数据并解密
-    // 正式执行解密操作
+    return doFinal(Cipher.DECRYPT_MODE, data, key);
+  }
+
+  private static byte[] doFinal(int mode, byte[] data, byte[] key) throws Exception {
+    // 从原始密匙数据创建DESKeySpec对象，再用密匙工厂把它转换成SecretKey对象
+    SecretKey securekey = KEY_FACTORY.get().generateSecret(new DESKeySpec(key));
+    // Cipher对象实际完成加密/解密操作; init() resets any state left by a previous call
+    Cipher cipher = CIPHER.get();
+    cipher.init(mode, securekey);
     return cipher.doFinal(data);
   }
 
-  private static byte[] hex2byte(byte[] byteDate) throws UnsupportedEncodingException {
+  private static <T> T newInstance(CryptoSupplier<T> supplier) {
+    try {
+      return supplier.get();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(ALGORITHM + " is not available", e);
+    }
+  }
+
+  private interface CryptoSupplier<T> {
+    T get() throws GeneralSecurityException;
+  }
+
+  private static byte[] hex2byte(byte[] byteDate) {
     if ((byteDate.length % 2) != 0) {
       throw new IllegalArgumentException("长度不是偶数");
     }
     byte[] b2 = new byte[byteDate.length / 2];
     for (int n = 0; n < byteDate.length; n += 2) {
-      String item = new String(byteDate, n, 2, "utf-8");
-      b2[n / 2] = (byte) Integer.parseInt(item, 16);
+      int high = Character.digit(byteDate[n], 16);
+      int low = Character.digit(byteDate[n + 1], 16);
+      if (high < 0 || low < 0) {
+        throw new NumberFormatException(
+            "Invalid hex digits: " + (char) byteDate[n] + (char) byteDate[n + 1]);
+      }
+      b2[n / 2] = (byte) ((high << 4) | low);
     }
     return b2;
   }
 
   private static String byte2hex(byte[] byteDateArray) {
-    String hs = "";
-    String stmp;
+    StringBuilder hs = new StringBuilder(byteDateArray.length * 2);
     for (byte byteDate : byteDateArray) {
-      stmp = (Integer.toHexString(byteDate & 0XFF));
-      if (stmp.length() == 1) {
-        hs = hs + "0" + stmp;
-      } else {
-        hs = hs + stmp;
-      }
+      hs.append(Character.forDigit((byteDate >> 4) & 0xF, 16))
+          .append(Character.forDigit(byteDate & 0xF, 16));
     }
-    return hs.toUpperCase();
+    return hs.toString().toUpperCase();
   }
 }
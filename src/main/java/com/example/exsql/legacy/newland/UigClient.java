@@ -1,16 +1,50 @@
 package com.example.exsql.legacy.newland;
 
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
 import org.apache.commons.httpclient.params.HttpClientParams;
+import org.apache.commons.httpclient.params.HttpConnectionManagerParams;
+import org.apache.commons.httpclient.util.IdleConnectionTimeoutThread;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Client for UIG service invocation.
  *
+ * <p>All instances share one pooled, keep-alive HTTP client, so repeated password requests reuse
+ * open connections instead of paying TCP setup each time. Failed attempts are retried with jittered
+ * exponential backoff. A circuit breaker per service address fails calls immediately after repeated
+ * failures, until a trial call succeeds again. Timeouts, pool size, retry and breaker settings are
+ * applied process-wide through {@link #configure(Settings)}.
+ *
+ * <p>{@link #requestServiceAsync(String)} runs the same attempts on a small pool of the shared
+ * client, which is only started on first use and is stopped together with the client.
+ *
  * @author zxy
  */
 public class UigClient {
+  private static final Logger logger = LoggerFactory.getLogger(UigClient.class);
+
+  private static volatile Transport transport = new Transport(new Settings());
+
+  // Process-wide counters, read by the metrics of the application
+  private static final AtomicLong retries = new AtomicLong();
+  private static final AtomicLong circuitRejections = new AtomicLong();
+
   // HTTP service address
   private String url;
 
@@ -24,56 +58,438 @@ public class UigClient {
     this.url = url;
   }
 
+  /**
+   * Replaces the shared HTTP client with one built from {@code settings}. Connections of the
+   * previous client are closed and circuit breaker state is reset.
+   */
+  public static synchronized void configure(Settings settings) {
+    Transport previous = transport;
+    transport = new Transport(settings);
+    previous.shutdown();
+  }
+
+  /** Closes pooled connections and stops the background threads of the shared client. */
+  public static synchronized void shutdown() {
+    transport.shutdown();
+  }
+
+  /** Number of failed attempts that were retried since start-up. */
+  public static long getRetryCount() {
+    return retries.get();
+  }
+
+  /** Number of calls failed immediately because the circuit of their address was open. */
+  public static long getCircuitRejectionCount() {
+    return circuitRejections.get();
+  }
+
   /**
    * Requests the service.
    *
    * @param xml The request XML string.
    * @return String The response XML string.
-   * @throws Exception If an error occurs during the request.
+   * @throws Exception If every attempt failed, or the circuit for this address is open.
    */
   public String requestService(String xml) throws Exception {
-    return postMessage(xml, 0);
+    Transport current = transport;
+    CircuitBreaker breaker = current.breakerFor(url);
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return attempt(current, breaker, xml);
+      } catch (IOException e) {
+        if (!retryable(current, breaker, attempt, e)) {
+          throw e;
+        }
+        Thread.sleep(current.backoffMs(attempt));
+      }
+    }
   }
 
-  private String postMessage(String xml, int sendTimes) throws Exception {
-    sendTimes = sendTimes + 1;
+  /**
+   * Requests the service without blocking the caller. The request and its retries run on the shared
+   * client's background threads; backoff delays are scheduled rather than slept. At most {@link
+   * Settings#getAsyncQueueCapacity()} requests may be pending at a time; further ones fail at once.
+   *
+   * @param xml The request XML string.
+   * @return Completes with the response XML string, or exceptionally once every attempt failed.
+   */
+  public CompletableFuture<String> requestServiceAsync(String xml) {
+    Transport current = transport;
+    CompletableFuture<String> future = new CompletableFuture<>();
+    current.asyncRequests.add(future);
+    if (current.asyncRequests.size() > current.settings.asyncQueueCapacity) {
+      current.asyncRequests.remove(future);
+      future.completeExceptionally(
+          new RejectedExecutionException(
+              "More than "
+                  + current.settings.asyncQueueCapacity
+                  + " UIG requests pending for "
+                  + url));
+      return future;
+    }
+    future.whenComplete((response, error) -> current.asyncRequests.remove(future));
+    submitAttempt(current, current.breakerFor(url), xml, 1, 0, future);
+    return future;
+  }
+
+  private void submitAttempt(
+      Transport current,
+      CircuitBreaker breaker,
+      String xml,
+      int attempt,
+      long delayMs,
+      CompletableFuture<String> future) {
+    Runnable task =
+        () -> {
+          if (future.isDone()) {
+            // Cancelled by the caller or failed by shutdown.
+            return;
+          }
+          try {
+            future.complete(attempt(current, breaker, xml));
+          } catch (IOException e) {
+            if (retryable(current, breaker, attempt, e)) {
+              submitAttempt(current, breaker, xml, attempt + 1, current.backoffMs(attempt), future);
+            } else {
+              future.completeExceptionally(e);
+            }
+          } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+          }
+        };
+    try {
+      current.asyncExecutor().schedule(task, delayMs, TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      // The client was shut down or reconfigured.
+      future.completeExceptionally(e);
+    }
+  }
+
+  private boolean retryable(Transport current, CircuitBreaker breaker, int attempt, IOException e) {
+    if (e instanceof CircuitOpenException || attempt >= current.settings.maxAttempts) {
+      return false;
+    }
+    logger.warn(
+        "UIG request to {} failed (attempt {} of {}): {}",
+        url,
+        attempt,
+        current.settings.maxAttempts,
+        e.getMessage());
+    if (!breaker.allowsRequest()) {
+      return false;
+    }
+    retries.incrementAndGet();
+    return true;
+  }
+
+  /** Sends one request; every failure, including a non-200 status, counts against the breaker. */
+  private String attempt(Transport current, CircuitBreaker breaker, String xml) throws IOException {
+    if (!breaker.tryAcquire()) {
+      circuitRejections.incrementAndGet();
+      throw new CircuitOpenException(
+          "UIG circuit open for "
+              + url
+              + " after repeated failures; retry in "
+              + breaker.remainingOpenMs()
+              + " ms");
+    }
     PostMethod post = null;
-    String resultMsg = "";
     try {
       post = new PostMethod(url);
-      post.setRequestHeader("Content-type", "text/xml; charset=" + charSet);
-      post.setRequestHeader("Connection", "close");
       // 设置期望返回的报文头编码
       post.setRequestHeader("Accept", "text/plain;charset=utf-8");
-
-      post.setRequestBody(xml);
-      HttpClient httpclient = new HttpClient();
-      httpclient.getHttpConnectionManager().getParams().setConnectionTimeout(15000);
-      httpclient.getHttpConnectionManager().getParams().setSoTimeout(15000);
-      HttpClientParams hp = new HttpClientParams();
-      hp.setContentCharset(charSet);
-      httpclient.setParams(hp);
-      int result = httpclient.executeMethod(post);
-      switch (result) {
-        case HttpStatus.SC_OK:
-          resultMsg = post.getResponseBodyAsString();
-          break;
-        default:
-          break;
-      }
-      if (null != post) {
-        post.releaseConnection();
+      post.setRequestEntity(new StringRequestEntity(xml, "text/xml", charSet));
+      int result = current.httpClient.executeMethod(post);
+      if (result != HttpStatus.SC_OK) {
+        throw new IOException("UIG service " + url + " returned HTTP " + result);
       }
+      String resultMsg = post.getResponseBodyAsString();
+      breaker.recordSuccess();
       return resultMsg;
-    } catch (Exception e) {
-      if (null != post) {
+    } catch (IOException | RuntimeException e) {
+      // Also frees the trial slot, whatever the failure.
+      breaker.recordFailure();
+      throw e;
+    } finally {
+      if (post != null) {
+        // Returns the connection to the pool for reuse.
         post.releaseConnection();
       }
-      if (sendTimes < 3) {
-        return postMessage(xml, sendTimes);
-      } else {
-        throw e;
+    }
+  }
+
+  /** Settings of the shared client. Defaults match the previous fixed 15s timeouts. */
+  public static class Settings {
+    private int connectTimeoutMs = 15000;
+    private int readTimeoutMs = 15000;
+    private int maxConnectionsPerHost = 20;
+    private int maxTotalConnections = 50;
+    private long idleConnectionTimeoutMs = 60000;
+    private int maxAttempts = 3;
+    private long initialBackoffMs = 200;
+    private long maxBackoffMs = 5000;
+    private int circuitFailureThreshold = 5;
+    private long circuitOpenMs = 30000;
+    private int asyncThreads = 4;
+    private int asyncQueueCapacity = 100;
+
+    public int getConnectTimeoutMs() {
+      return connectTimeoutMs;
+    }
+
+    public void setConnectTimeoutMs(int connectTimeoutMs) {
+      this.connectTimeoutMs = connectTimeoutMs;
+    }
+
+    public int getReadTimeoutMs() {
+      return readTimeoutMs;
+    }
+
+    public void setReadTimeoutMs(int readTimeoutMs) {
+      this.readTimeoutMs = readTimeoutMs;
+    }
+
+    public int getMaxConnectionsPerHost() {
+      return maxConnectionsPerHost;
+    }
+
+    public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+      this.maxConnectionsPerHost = maxConnectionsPerHost;
+    }
+
+    public int getMaxTotalConnections() {
+      return maxTotalConnections;
+    }
+
+    public void setMaxTotalConnections(int maxTotalConnections) {
+      this.maxTotalConnections = maxTotalConnections;
+    }
+
+    public long getIdleConnectionTimeoutMs() {
+      return idleConnectionTimeoutMs;
+    }
+
+    public void setIdleConnectionTimeoutMs(long idleConnectionTimeoutMs) {
+      this.idleConnectionTimeoutMs = idleConnectionTimeoutMs;
+    }
+
+    public int getMaxAttempts() {
+      return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+      this.maxAttempts = maxAttempts;
+    }
+
+    public long getInitialBackoffMs() {
+      return initialBackoffMs;
+    }
+
+    public void setInitialBackoffMs(long initialBackoffMs) {
+      this.initialBackoffMs = initialBackoffMs;
+    }
+
+    public long getMaxBackoffMs() {
+      return maxBackoffMs;
+    }
+
+    public void setMaxBackoffMs(long maxBackoffMs) {
+      this.maxBackoffMs = maxBackoffMs;
+    }
+
+    public int getCircuitFailureThreshold() {
+      return circuitFailureThreshold;
+    }
+
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+      this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public long getCircuitOpenMs() {
+      return circuitOpenMs;
+    }
+
+    public void setCircuitOpenMs(long circuitOpenMs) {
+      this.circuitOpenMs = circuitOpenMs;
+    }
+
+    public int getAsyncThreads() {
+      return asyncThreads;
+    }
+
+    public void setAsyncThreads(int asyncThreads) {
+      this.asyncThreads = asyncThreads;
+    }
+
+    public int getAsyncQueueCapacity() {
+      return asyncQueueCapacity;
+    }
+
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+      this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+  }
+
+  /** Thrown without contacting the service while the circuit for its address is open. */
+  public static class CircuitOpenException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+      super(message);
+    }
+  }
+
+  /** The pooled HTTP client, breakers and async threads built from one {@link Settings}. */
+  private static final class Transport {
+    private final Settings settings;
+    private final MultiThreadedHttpConnectionManager connectionManager;
+    private final HttpClient httpClient;
+    private final IdleConnectionTimeoutThread idleConnectionCloser;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    // Async requests not yet completed; failed by shutdown, which drops their queued attempts.
+    private final Set<CompletableFuture<String>> asyncRequests = ConcurrentHashMap.newKeySet();
+    // Created by the first async request; null until then and after shutdown.
+    private ScheduledThreadPoolExecutor asyncExecutor;
+    private boolean shutDown;
+
+    private Transport(Settings settings) {
+      this.settings = settings;
+      connectionManager = new MultiThreadedHttpConnectionManager();
+      HttpConnectionManagerParams params = connectionManager.getParams();
+      params.setConnectionTimeout(settings.connectTimeoutMs);
+      params.setSoTimeout(settings.readTimeoutMs);
+      params.setDefaultMaxConnectionsPerHost(settings.maxConnectionsPerHost);
+      params.setMaxTotalConnections(settings.maxTotalConnections);
+      // Detects connections the server closed while they sat idle in the pool.
+      params.setStaleCheckingEnabled(true);
+      HttpClientParams clientParams = new HttpClientParams();
+      clientParams.setContentCharset("utf-8");
+      // Wait no longer for a pooled connection than for a new one.
+      clientParams.setConnectionManagerTimeout(settings.connectTimeoutMs);
+      httpClient = new HttpClient(clientParams, connectionManager);
+
+      idleConnectionCloser = new IdleConnectionTimeoutThread();
+      idleConnectionCloser.setName("uig-idle-connections");
+      idleConnectionCloser.setConnectionTimeout(settings.idleConnectionTimeoutMs);
+      idleConnectionCloser.setTimeoutInterval(Math.max(1000, settings.idleConnectionTimeoutMs / 2));
+      idleConnectionCloser.addConnectionManager(connectionManager);
+      idleConnectionCloser.start();
+    }
+
+    private CircuitBreaker breakerFor(String url) {
+      return breakers.computeIfAbsent(
+          url,
+          key -> new CircuitBreaker(key, settings.circuitFailureThreshold, settings.circuitOpenMs));
+    }
+
+    /** Full-jitter backoff: a random delay up to the exponentially growing cap. */
+    private long backoffMs(int attempt) {
+      long cap = settings.initialBackoffMs << Math.min(attempt - 1, 20);
+      cap = Math.min(Math.max(cap, 0), settings.maxBackoffMs);
+      return cap <= 0 ? 0 : ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+    /** Returns the async pool, starting it on first use; its idle threads end after a minute. */
+    private synchronized ScheduledThreadPoolExecutor asyncExecutor() {
+      if (shutDown) {
+        throw new RejectedExecutionException("UIG client has been shut down");
+      }
+      if (asyncExecutor == null) {
+        AtomicInteger counter = new AtomicInteger();
+        asyncExecutor =
+            new ScheduledThreadPoolExecutor(
+                Math.max(1, settings.asyncThreads),
+                runnable -> {
+                  Thread thread = new Thread(runnable, "uig-client-" + counter.incrementAndGet());
+                  thread.setDaemon(true);
+                  return thread;
+                });
+        asyncExecutor.setKeepAliveTime(1, TimeUnit.MINUTES);
+        asyncExecutor.allowCoreThreadTimeOut(true);
+      }
+      return asyncExecutor;
+    }
+
+    private synchronized void shutdown() {
+      shutDown = true;
+      if (asyncExecutor != null) {
+        asyncExecutor.shutdownNow();
+        asyncExecutor = null;
+      }
+      for (CompletableFuture<String> request : asyncRequests) {
+        request.completeExceptionally(
+            new RejectedExecutionException("UIG client was shut down before the request finished"));
+      }
+      idleConnectionCloser.shutdown();
+      connectionManager.shutdown();
+    }
+  }
+
+  /**
+   * Consecutive-failure circuit breaker. Opens after {@code failureThreshold} failures in a row;
+   * once {@code openMs} has passed a single trial request is let through, which closes the circuit
+   * on success or opens it again on failure.
+   */
+  private static final class CircuitBreaker {
+    private final String url;
+    private final int failureThreshold;
+    private final long openMs;
+    private int consecutiveFailures;
+    private long openUntil;
+    private boolean trialInFlight;
+
+    private CircuitBreaker(String url, int failureThreshold, long openMs) {
+      this.url = url;
+      this.failureThreshold = failureThreshold;
+      this.openMs = openMs;
+    }
+
+    /** Whether a request may be sent now; claims the trial slot when the open period is over. */
+    private synchronized boolean tryAcquire() {
+      if (!isOpen()) {
+        return true;
+      }
+      if (System.currentTimeMillis() < openUntil || trialInFlight) {
+        return false;
+      }
+      trialInFlight = true;
+      return true;
+    }
+
+    /** Whether a retry is worth scheduling, without claiming the trial slot. */
+    private synchronized boolean allowsRequest() {
+      return !isOpen() || (!trialInFlight && System.currentTimeMillis() >= openUntil);
+    }
+
+    private synchronized long remainingOpenMs() {
+      return Math.max(0, openUntil - System.currentTimeMillis());
+    }
+
+    private synchronized void recordSuccess() {
+      if (isOpen()) {
+        logger.info("UIG service {} recovered, closing circuit", url);
+      }
+      consecutiveFailures = 0;
+      trialInFlight = false;
+    }
+
+    private synchronized void recordFailure() {
+      consecutiveFailures++;
+      if (trialInFlight || consecutiveFailures == failureThreshold) {
+        logger.warn(
+            "UIG service {} failed {} time(s) in a row, opening circuit for {} ms",
+            url,
+            consecutiveFailures,
+            openMs);
+      }
+      trialInFlight = false;
+      if (isOpen()) {
+        openUntil = System.currentTimeMillis() + openMs;
       }
     }
+
+    private boolean isOpen() {
+      return failureThreshold > 0 && consecutiveFailures >= failureThreshold;
+    }
   }
 }
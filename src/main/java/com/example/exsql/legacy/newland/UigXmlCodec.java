@@ -0,0 +1,175 @@
+package com.example.exsql.legacy.newland;
+
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming codec for the UIG password request and response messages, producing and accepting the
+ * same documents as {@link DealXMLMgr} without building a dom4j tree.
+ *
+ * <p>Requests are written from a fixed template with every value escaped. Responses are read with a
+ * StAX reader from a shared factory, which has DTDs and external entities switched off. Both
+ * methods are thread-safe.
+ *
+ * @author zxy
+ */
+public final class UigXmlCodec {
+
+  private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+  // Rough size of an encoded request, so the builder rarely has to grow.
+  private static final int REQUEST_CAPACITY = 512;
+
+  private UigXmlCodec() {}
+
+  // Build request XML
+  public static String encode(ReqInfoBean bean) {
+    StringBuilder xml = new StringBuilder(REQUEST_CAPACITY);
+    xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<operation_in><content>");
+    element(xml, "dbtype", String.valueOf(bean.getDbType()));
+    element(xml, "dbtns", bean.getDbTns());
+    element(xml, "dbuser", bean.getDbUser());
+    element(xml, "hostname", bean.getHostName());
+    element(xml, "hostip", bean.getHostIp());
+    element(xml, "hostapp", bean.getHostApp());
+    element(xml, "appcode", bean.getAppCode());
+    element(xml, "dbuserpwd", bean.getDbUserpwd());
+    element(xml, "remark", bean.getCfgFileFlag());
+    return xml.append("</content></operation_in>").toString();
+  }
+
+  // Parse response XML
+  public static ResInfoBean decode(String xml) throws DecodeException {
+    Map<String, String> fields = readContent(xml);
+    ResInfoBean resInfoBean = new ResInfoBean();
+    int resultCodeInt;
+    try {
+      resultCodeInt = Integer.parseInt(required(fields, "resultcode"));
+    } catch (NumberFormatException e) {
+      throw new DecodeException("Invalid resultcode in UIG response: " + e.getMessage(), e);
+    }
+    resInfoBean.setResultCode(resultCodeInt);
+    if (resultCodeInt == 0) {
+      resInfoBean.setErrorMsg(required(fields, "errormsg"));
+    } else {
+      resInfoBean.setDbTns(required(fields, "dbtns"));
+      resInfoBean.setDbUser(required(fields, "dbuser"));
+      resInfoBean.setDbUserpwd(required(fields, "dbuserpwd"));
+      resInfoBean.setRandomCode(required(fields, "randomcode"));
+    }
+    return resInfoBean;
+  }
+
+  /** Collects the text of each child of the root's {@code content} element, by element name. */
+  private static Map<String, String> readContent(String xml) throws DecodeException {
+    XMLStreamReader reader = null;
+    try {
+      reader = INPUT_FACTORY.createXMLStreamReader(new StringReader(xml));
+      reader.nextTag();
+      String rootNamespace = reader.getNamespaceURI();
+      int depth = 1;
+      boolean inContent = false;
+      boolean sawContent = false;
+      Map<String, String> fields = new HashMap<>();
+      while (depth > 0 && reader.hasNext()) {
+        int event = reader.next();
+        if (event == XMLStreamConstants.START_ELEMENT) {
+          depth++;
+          if (depth == 2
+              && !sawContent
+              && "content".equals(reader.getLocalName())
+              && sameNamespace(rootNamespace, reader.getNamespaceURI())) {
+            inContent = true;
+            sawContent = true;
+          } else if (depth == 3 && inContent) {
+            fields.putIfAbsent(reader.getLocalName(), reader.getElementText());
+            // getElementText() consumed the end tag.
+            depth--;
+          }
+        } else if (event == XMLStreamConstants.END_ELEMENT) {
+          if (depth == 2) {
+            inContent = false;
+          }
+          depth--;
+        }
+      }
+      if (!sawContent) {
+        throw new DecodeException("UIG response has no <content> element");
+      }
+      return fields;
+    } catch (XMLStreamException e) {
+      throw new DecodeException("Malformed UIG response: " + e.getMessage(), e);
+    } finally {
+      if (reader != null) {
+        try {
+          reader.close();
+        } catch (XMLStreamException e) {
+          // Nothing to release for an in-memory source.
+        }
+      }
+    }
+  }
+
+  private static String required(Map<String, String> fields, String name) throws DecodeException {
+    String value = fields.get(name);
+    if (value == null) {
+      throw new DecodeException("UIG response has no <" + name + "> element");
+    }
+    return value;
+  }
+
+  private static boolean sameNamespace(String expected, String actual) {
+    return (expected == null ? "" : expected).equals(actual == null ? "" : actual);
+  }
+
+  private static void element(StringBuilder xml, String name, String value) {
+    xml.append('<').append(name).append('>');
+    escape(xml, value);
+    xml.append("</").append(name).append('>');
+  }
+
+  private static void escape(StringBuilder xml, String value) {
+    if (value == null) {
+      return;
+    }
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '&':
+          xml.append("&amp;");
+          break;
+        case '<':
+          xml.append("&lt;");
+          break;
+        case '>':
+          xml.append("&gt;");
+          break;
+        case '"':
+          xml.append("&quot;");
+          break;
+        case '\'':
+          xml.append("&apos;");
+          break;
+        default:
+          if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+            throw new IllegalArgumentException(
+                "Control character U+" + Integer.toHexString(c) + " cannot be sent in XML");
+          }
+          xml.append(c);
+      }
+    }
+  }
+
+  private static XMLInputFactory newInputFactory() {
+    XMLInputFactory factory = XMLInputFactory.newInstance();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+    return factory;
+  }
+}
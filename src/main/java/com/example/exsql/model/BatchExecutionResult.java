@@ -0,0 +1,20 @@
+package com.example.exsql.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchExecutionResult {
+  private int batchNumber;
+  private int firstStatementIndex; // 1-based index of the first statement in the script
+  private int lastStatementIndex;
+  private long rowsAffected; // Sum of the update counts the driver reported, if any
+  private long durationMs;
+  private boolean success;
+  private Integer failedStatementIndex; // Null if the batch succeeded or the driver did not say
+  // Parameterised INSERT the batch bound its values to; null if statements were sent as text
+  private String boundSql;
+}
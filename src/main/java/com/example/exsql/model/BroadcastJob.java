@@ -0,0 +1,40 @@
+package com.example.exsql.model;
+
+import java.util.List;
+import lombok.Data;
+
+/**
+ * One upload run on several data sources. {@code targets} is the result matrix: a row per data
+ * source, and within each row a result per file of {@code fileNames}.
+ */
+@Data
+public class BroadcastJob {
+
+  private final String id;
+  private final List<String> fileNames;
+  private final List<BroadcastTarget> targets;
+  private final BroadcastPolicy failurePolicy;
+  private final int parallelism;
+  private final long submittedAt = System.currentTimeMillis();
+  private volatile ExecutionJob.Status status = ExecutionJob.Status.QUEUED;
+  private volatile long startedAt;
+  private volatile long finishedAt;
+  // Set when the broadcast could not run at all; failures on a data source are in its row.
+  private volatile String error;
+
+  public boolean isDone() {
+    return status == ExecutionJob.Status.COMPLETED || status == ExecutionJob.Status.FAILED;
+  }
+
+  public long getElapsedMs() {
+    if (startedAt == 0) {
+      return 0;
+    }
+    return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+  }
+
+  /** Number of data sources in the given state. */
+  public long count(BroadcastTarget.Status targetStatus) {
+    return targets.stream().filter(target -> target.getStatus() == targetStatus).count();
+  }
+}
@@ -0,0 +1,19 @@
+package com.example.exsql.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Which data sources a broadcast upload runs on, and how. */
+@Data
+@NoArgsConstructor
+public class BroadcastOptions {
+  // Data sources selected by name
+  private List<String> dataSourceNames = new ArrayList<>();
+  // Also every data source with this tag, see app.datasources[N].tags
+  private String dataSourceTag;
+  private BroadcastPolicy failurePolicy = BroadcastPolicy.CONTINUE;
+  // Data sources running at the same time; 0 means use app.execution.broadcast.parallelism.
+  private int parallelism;
+}
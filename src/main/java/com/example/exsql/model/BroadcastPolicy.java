@@ -0,0 +1,11 @@
+package com.example.exsql.model;
+
+/** What a broadcast does with the remaining data sources once one of them fails. */
+public enum BroadcastPolicy {
+  /** Every selected data source runs the upload, whatever happened on the others. */
+  CONTINUE,
+  /**
+   * Data sources that have not started yet are skipped; those already running finish their files.
+   */
+  FAIL_FAST
+}
@@ -0,0 +1,35 @@
+package com.example.exsql.model;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * One data source of a {@link BroadcastJob}: a row of the result matrix, with one result per file
+ * in upload order once it has run.
+ */
+@Data
+public class BroadcastTarget {
+
+  public enum Status {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED,
+    // Not run because another data source failed under FAIL_FAST.
+    SKIPPED
+  }
+
+  private final String dataSourceName;
+  private volatile Status status = Status.PENDING;
+  private volatile long startedAt;
+  private volatile long finishedAt;
+  private volatile List<ScriptExecutionResult> results = Collections.emptyList();
+
+  public long getElapsedMs() {
+    if (startedAt == 0) {
+      return 0;
+    }
+    return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+  }
+}
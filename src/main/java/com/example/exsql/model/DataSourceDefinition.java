@@ -1,5 +1,14 @@
 package com.example.exsql.model;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * One entry of {@code app.datasources}: where a data source is and how its password is fetched. Two
+ * definitions are equal when every setting is, which is how a reload tells changed entries from
+ * unchanged ones.
+ */
 public class DataSourceDefinition {
 
   private String name;
@@ -11,8 +20,14 @@ public class DataSourceDefinition {
   private String cndlTns;
   private String cndlGetPasswdUrl;
   private String cndlGetPasswdDummyPassword;
-  private String httpPasswordUrl; // Optional, only for primary in current setup
-  private int httpPasswordRequestTimeoutMs; // Optional
+  // Groups a broadcast can target, e.g. app.datasources[0].tags=tenant,east
+  private List<String> tags = new ArrayList<>();
+  // Caps of throttled uploads; 0 means use app.execution.throttle.*
+  private int throttleStatementsPerSecond;
+  private int throttleRowsPerSecond;
+
+  // For binding from configuration properties
+  public DataSourceDefinition() {}
 
   // Constructor
   public DataSourceDefinition(
@@ -73,20 +88,108 @@ public class DataSourceDefinition {
     return cndlGetPasswdDummyPassword;
   }
 
-  public String getHttpPasswordUrl() {
-    return httpPasswordUrl;
+  public List<String> getTags() {
+    return tags;
+  }
+
+  public int getThrottleStatementsPerSecond() {
+    return throttleStatementsPerSecond;
+  }
+
+  public int getThrottleRowsPerSecond() {
+    return throttleRowsPerSecond;
+  }
+
+  /** Whether this data source carries the given tag, ignoring case. */
+  public boolean hasTag(String tag) {
+    for (String t : tags) {
+      if (t.trim().equalsIgnoreCase(tag.trim())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  // Setters
+  public void setName(String name) {
+    this.name = name;
+  }
+
+  public void setUrl(String url) {
+    this.url = url;
+  }
+
+  public void setUsername(String username) {
+    this.username = username;
+  }
+
+  public void setDriverClassName(String driverClassName) {
+    this.driverClassName = driverClassName;
+  }
+
+  public void setCndlAuthFilePath(String cndlAuthFilePath) {
+    this.cndlAuthFilePath = cndlAuthFilePath;
+  }
+
+  public void setCndlNdbType(int cndlNdbType) {
+    this.cndlNdbType = cndlNdbType;
+  }
+
+  public void setCndlTns(String cndlTns) {
+    this.cndlTns = cndlTns;
+  }
+
+  public void setCndlGetPasswdUrl(String cndlGetPasswdUrl) {
+    this.cndlGetPasswdUrl = cndlGetPasswdUrl;
+  }
+
+  public void setCndlGetPasswdDummyPassword(String cndlGetPasswdDummyPassword) {
+    this.cndlGetPasswdDummyPassword = cndlGetPasswdDummyPassword;
+  }
+
+  public void setTags(List<String> tags) {
+    this.tags = tags != null ? tags : new ArrayList<>();
+  }
+
+  public void setThrottleStatementsPerSecond(int throttleStatementsPerSecond) {
+    this.throttleStatementsPerSecond = throttleStatementsPerSecond;
+  }
+
+  public void setThrottleRowsPerSecond(int throttleRowsPerSecond) {
+    this.throttleRowsPerSecond = throttleRowsPerSecond;
   }
 
-  public int getHttpPasswordRequestTimeoutMs() {
-    return httpPasswordRequestTimeoutMs;
+  /** Whether a pool built for {@code other} would connect exactly like one built for this. */
+  public boolean sameConnectionAs(DataSourceDefinition other) {
+    return other != null
+        && cndlNdbType == other.cndlNdbType
+        && Objects.equals(name, other.name)
+        && Objects.equals(url, other.url)
+        && Objects.equals(username, other.username)
+        && Objects.equals(driverClassName, other.driverClassName)
+        && Objects.equals(cndlAuthFilePath, other.cndlAuthFilePath)
+        && Objects.equals(cndlTns, other.cndlTns)
+        && Objects.equals(cndlGetPasswdUrl, other.cndlGetPasswdUrl)
+        && Objects.equals(cndlGetPasswdDummyPassword, other.cndlGetPasswdDummyPassword);
   }
 
-  // Setters for optional HTTP password fields
-  public void setHttpPasswordUrl(String httpPasswordUrl) {
-    this.httpPasswordUrl = httpPasswordUrl;
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof DataSourceDefinition)) {
+      return false;
+    }
+    DataSourceDefinition other = (DataSourceDefinition) o;
+    return sameConnectionAs(other)
+        && tags.equals(other.tags)
+        && throttleStatementsPerSecond == other.throttleStatementsPerSecond
+        && throttleRowsPerSecond == other.throttleRowsPerSecond;
   }
 
-  public void setHttpPasswordRequestTimeoutMs(int httpPasswordRequestTimeoutMs) {
-    this.httpPasswordRequestTimeoutMs = httpPasswordRequestTimeoutMs;
+  @Override
+  public int hashCode() {
+    return Objects.hash(name, url, username, driverClassName, cndlTns);
   }
 }
@@ -0,0 +1,16 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class DataSourcePoolStats {
+  private String name;
+  private int maximumPoolSize;
+  private int totalConnections;
+  private int activeConnections;
+  private int idleConnections;
+  private int threadsAwaitingConnection; // Borrowers currently waiting for a free connection
+  private int passwordRotations;
+}
@@ -0,0 +1,23 @@
+package com.example.exsql.model;
+
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Overall readiness after start-up, with the warm-up state of every data source. */
+@Data
+@NoArgsConstructor
+public class DataSourceReadiness {
+
+  public enum Status {
+    // Warm-up is switched off; data sources are prepared by their first upload.
+    DISABLED,
+    WARMING,
+    READY,
+    // Warm-up finished but at least one data source failed; the others can be used.
+    DEGRADED
+  }
+
+  private Status status;
+  private List<DataSourceWarmupStatus> dataSources;
+}
@@ -0,0 +1,20 @@
+package com.example.exsql.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** What a reload of the data source list changed, by data source name. */
+@Data
+@NoArgsConstructor
+public class DataSourceReloadResult {
+  private List<String> added = new ArrayList<>();
+  // Definitions that differ from the loaded ones; pools whose connection settings changed were
+  // drained.
+  private List<String> changed = new ArrayList<>();
+  private List<String> removed = new ArrayList<>();
+  private List<String> unchanged = new ArrayList<>();
+  // Configured entries that were left out, with the reason.
+  private List<String> rejected = new ArrayList<>();
+}
@@ -0,0 +1,24 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+
+/**
+ * Warm-up state of one data source: whether its credentials were fetched and its pool opened before
+ * the first upload. Written by the warm-up threads and read by readiness requests.
+ */
+@Data
+public class DataSourceWarmupStatus {
+
+  public enum State {
+    PENDING,
+    WARMING,
+    READY,
+    FAILED
+  }
+
+  private final String name;
+  private volatile State state = State.PENDING;
+  private volatile int openedConnections;
+  private volatile long durationMs;
+  private volatile String error;
+}
@@ -0,0 +1,17 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** How far one script got on one data source, kept so a later upload of it can resume. */
+@Data
+@NoArgsConstructor
+public class ExecutionCheckpoint {
+  private String dataSourceName;
+  private String contentHash; // SHA-256 of the script, as in ScriptExecutionResult
+  private String fileName; // Name of the upload that wrote the checkpoint, for information only
+  private int lastCommittedStatementIndex; // Statements up to this index are committed
+  private Integer failedStatementIndex; // Null while running, or if the run was interrupted
+  private String error; // Start of the failure message, bounded
+  private long updatedAt; // Epoch milliseconds
+}
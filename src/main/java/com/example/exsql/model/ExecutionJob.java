@@ -0,0 +1,44 @@
+package com.example.exsql.model;
+
+import java.util.Collections;
+import java.util.List;
+import lombok.Data;
+
+/**
+ * An upload accepted for asynchronous execution. Progress is tracked per file; the full results are
+ * available once the job is done.
+ */
+@Data
+public class ExecutionJob {
+
+  public enum Status {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED
+  }
+
+  private final String id;
+  private final String dataSourceName;
+  private final List<FileProgress> files;
+  private final long submittedAt = System.currentTimeMillis();
+  private volatile Status status = Status.QUEUED;
+  // Set while the job is held before its next statement; see POST /api/jobs/{id}/pause.
+  private volatile boolean paused;
+  private volatile long startedAt;
+  private volatile long finishedAt;
+  // Set when the job could not run at all; per-file failures are reported in the results.
+  private volatile String error;
+  private volatile List<ScriptExecutionResult> results = Collections.emptyList();
+
+  public boolean isDone() {
+    return status == Status.COMPLETED || status == Status.FAILED;
+  }
+
+  public long getElapsedMs() {
+    if (startedAt == 0) {
+      return 0;
+    }
+    return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+  }
+}
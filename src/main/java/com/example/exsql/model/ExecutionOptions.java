@@ -0,0 +1,39 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Per-upload execution settings chosen on the upload page. */
+@Data
+@NoArgsConstructor
+public class ExecutionOptions {
+  // Group consecutive INSERT/UPDATE/DELETE/MERGE statements into JDBC batches.
+  private boolean batchDml;
+  // Statements per batch; 0 means use app.execution.batch-size.
+  private int batchSize;
+  // Run the uploaded files concurrently instead of one after another.
+  private boolean parallelFiles;
+  // Optional ordering for parallel mode, e.g. "b.sql: a.sql; c.sql: a.sql, b.sql".
+  private String fileDependencies;
+  // Commit behaviour of each script; every mode pins one connection per script.
+  private TransactionMode transactionMode = TransactionMode.AUTO_COMMIT;
+  // Statements per commit in COMMIT_EVERY_N mode; 0 means use app.execution.commit-interval.
+  private int commitInterval;
+  // Report statements at least this slow; 0 means use app.execution.profile.slow-threshold-ms.
+  private long slowStatementThresholdMs;
+  // Capture the execution plan of reported statements with EXPLAIN.
+  private boolean capturePlans;
+  // Send consecutive DDL, DML and session statements as multi-statement packets; needs a data
+  // source URL with allowMultiQueries=true.
+  private boolean pipelineStatements;
+  // Largest packet in bytes; 0 means use app.execution.pipeline.max-bytes.
+  private int pipelineMaxBytes;
+  // Skip the statements an earlier run of the same script on the same data source committed, and
+  // save this run's progress while it runs.
+  private boolean resume;
+  // Keep this upload under its data source's throttle caps, shared with other throttled uploads.
+  private boolean throttled;
+  // Send runs of same-shaped single-row INSERT ... VALUES as PreparedStatement batches with the
+  // values bound; implies DML batching.
+  private boolean bindInsertValues;
+}
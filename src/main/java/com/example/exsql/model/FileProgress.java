@@ -0,0 +1,35 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+
+/**
+ * Live progress of one file of an {@link ExecutionJob}. Written by the thread executing the file
+ * and read by status requests, hence the volatile fields.
+ */
+@Data
+public class FileProgress {
+
+  public enum Status {
+    PENDING,
+    RUNNING,
+    SUCCEEDED,
+    FAILED
+  }
+
+  private final String fileName;
+  private volatile Status status = Status.PENDING;
+  // -1 until the statements of the file have been counted.
+  private volatile int statementsTotal = -1;
+  private volatile int statementsDone;
+  // Start of the statement currently executing, trimmed for display.
+  private volatile String currentStatement;
+  private volatile long startedAt;
+  private volatile long finishedAt;
+
+  public long getElapsedMs() {
+    if (startedAt == 0) {
+      return 0;
+    }
+    return (finishedAt != 0 ? finishedAt : System.currentTimeMillis()) - startedAt;
+  }
+}
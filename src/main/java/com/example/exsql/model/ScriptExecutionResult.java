@@ -1,15 +1,43 @@
 package com.example.exsql.model;
 
-import lombok.AllArgsConstructor;
+import java.util.ArrayList;
+import java.util.List;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+/**
+ * Outcome of one uploaded file. Only bounded excerpts of the script are kept here; the full text
+ * stays in the job's spool directory and is served by {@code GET
+ * /api/jobs/{id}/files/{index}/content}.
+ */
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class ScriptExecutionResult {
   private String fileName;
   private boolean success;
   private String message;
-  private String sqlExecuted; // Optional: to show what was executed
+  private String sqlPreview; // First statements of the script, at most ~1000 characters
+  private String contentHash; // SHA-256 of the uploaded bytes, hex encoded
+  private int statementCount; // Statements found in the file, executed or not
+  private Integer failedStatementIndex; // Null unless a statement failed
+  private Integer failedStatementLine;
+  private String failedStatementExcerpt; // Start of the failed statement, bounded
+  private Integer lastCommittedStatementIndex; // Null if nothing from this file was committed
+  private List<BatchExecutionResult> batches = new ArrayList<>(); // Only filled in batch mode
+  private Integer resumedAfterStatementIndex; // Null unless an earlier run's checkpoint was used
+  // Statements at or above the threshold, slowest first, at most app.execution.profile.top-n
+  private List<SlowStatement> slowStatements = new ArrayList<>();
+  private long slowStatementThresholdMs;
+  // Failed attempts of statements that were retried, in execution order
+  private List<StatementRetry> retries = new ArrayList<>();
+  private long throttledMs; // Time spent waiting for the throttle
+  private long pausedMs; // Time spent paused
+
+  public ScriptExecutionResult(
+      String fileName, boolean success, String message, String sqlPreview) {
+    this.fileName = fileName;
+    this.success = success;
+    this.message = message;
+    this.sqlPreview = sqlPreview;
+  }
 }
@@ -0,0 +1,20 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A statement, or JDBC batch, that took at least the slow-statement threshold to execute. */
+@Data
+@NoArgsConstructor
+public class SlowStatement {
+  private int statementIndex; // 1-based index in the script; the first statement of a batch
+  private int line;
+  private String keyword;
+  private long durationMs; // For a batch, the duration of the whole batch
+  private long rowsAffected = -1; // -1 for queries, or when the driver did not report a count
+  private Integer batchNumber; // Null unless the statement was sent in a JDBC batch
+  private int batchSize = 1; // Statements sent together with this one, including itself
+  private boolean success;
+  private String sqlExcerpt; // Start of the statement, bounded
+  private String plan; // Execution plan, if plan capture was requested and the database gave one
+}
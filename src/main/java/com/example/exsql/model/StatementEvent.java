@@ -0,0 +1,20 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Outcome of one executed statement, reported as soon as the statement finishes. */
+@Data
+@NoArgsConstructor
+public class StatementEvent {
+  private int fileIndex; // Position of the file in the upload
+  private String fileName;
+  private int statementIndex; // 1-based index of the statement in the script
+  private int line; // Line the statement starts on
+  private String keyword; // First keyword, e.g. INSERT or BEGIN
+  private int rowsAffected = -1; // -1 for queries, or when the driver did not report a count
+  private long durationMs; // For batched statements, the duration of the whole batch
+  private Integer batchNumber; // Null unless the statement was sent in a JDBC batch
+  private boolean success;
+  private String error; // Null on success
+}
@@ -0,0 +1,19 @@
+package com.example.exsql.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** A failed attempt at a statement that was sent again. */
+@Data
+@NoArgsConstructor
+public class StatementRetry {
+  private int statementIndex; // 1-based index in the script
+  private int line;
+  private int attempt; // 1 for the first attempt, which failed
+  private String category; // SqlErrorClassifier.Category of the failure
+  private String sqlState;
+  private int errorCode;
+  private String error; // Driver's message
+  private long backoffMs; // Wait before the next attempt
+  private boolean reconnected; // The next attempt ran on a new connection
+}
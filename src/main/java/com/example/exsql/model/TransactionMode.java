@@ -0,0 +1,16 @@
+package com.example.exsql.model;
+
+/**
+ * How the statements of one script are committed. Every mode runs the whole script on a single
+ * pinned connection, so session state such as ALTER SESSION settings or temporary tables carries
+ * over between statements. Oracle and OceanBase commit implicitly around DDL, so a script that
+ * mixes DDL and DML is only partially rolled back in the transactional modes.
+ */
+public enum TransactionMode {
+  /** Every statement is committed as soon as it succeeds. */
+  AUTO_COMMIT,
+  /** The whole script is one transaction, rolled back if any statement fails. */
+  SINGLE_TRANSACTION,
+  /** A commit after every N successful statements; a failure rolls back the uncommitted tail. */
+  COMMIT_EVERY_N
+}
@@ -0,0 +1,164 @@
+package com.example.exsql.script;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A single-row {@code INSERT INTO t [(columns)] VALUES (...)} whose values are all plain literals,
+ * split into a parameterised statement and the values to bind to it. Consecutive inserts with the
+ * same {@link #getShape() shape} can be sent as one PreparedStatement batch, so the server parses
+ * the statement once instead of once per row.
+ */
+public final class InsertValues {
+
+  private static final String IDENTIFIER = "(?:[A-Za-z_][A-Za-z0-9_$#]*|\"[^\"]+\"|`[^`]+`)";
+  private static final Pattern PREFIX =
+      Pattern.compile(
+          "\\s*INSERT\\s+INTO\\s+"
+              + IDENTIFIER
+              + "(?:\\s*\\.\\s*"
+              + IDENTIFIER
+              + ")?"
+              + "(?:\\s*\\(\\s*"
+              + IDENTIFIER
+              + "(?:\\s*,\\s*"
+              + IDENTIFIER
+              + ")*\\s*\\))?"
+              + "\\s*(?=VALUES\\s*\\()",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern VALUES = Pattern.compile("VALUES\\s*\\(", Pattern.CASE_INSENSITIVE);
+  private static final Pattern NUMBER =
+      Pattern.compile("[-+]?(?:\\d+(?:\\.\\d*)?|\\.\\d+)(?:[eE][-+]?\\d+)?");
+  private static final Pattern NULL = Pattern.compile("NULL\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+  private final String shape;
+  private final String sql;
+  private final List<Object> values;
+
+  private InsertValues(String shape, String sql, List<Object> values) {
+    this.shape = shape;
+    this.sql = sql;
+    this.values = values;
+  }
+
+  /**
+   * Splits an insert into its parameterised statement and values.
+   *
+   * @return The split insert, or null if the statement is anything else: a multi-row or {@code
+   *     INSERT ... SELECT}, a value that is an expression or function call, a comment, or a string
+   *     literal with a backslash, which MySQL-mode servers would read as an escape.
+   */
+  public static InsertValues parse(SqlStatement statement) {
+    if (statement.getType() != SqlStatementType.DML || !"INSERT".equals(statement.getKeyword())) {
+      return null;
+    }
+    String text = statement.getText();
+    Matcher prefix = PREFIX.matcher(text);
+    if (!prefix.lookingAt()) {
+      return null;
+    }
+    Matcher values = VALUES.matcher(text).region(prefix.end(), text.length());
+    if (!values.lookingAt()) {
+      return null;
+    }
+    List<Object> bound = new ArrayList<>();
+    int pos = values.end();
+    while (true) {
+      pos = skipWhitespace(text, pos);
+      if (pos >= text.length()) {
+        return null;
+      }
+      if (text.charAt(pos) == '\'') {
+        StringBuilder literal = new StringBuilder();
+        pos = readString(text, pos, literal);
+        if (pos < 0) {
+          return null;
+        }
+        bound.add(literal.toString());
+      } else {
+        Matcher number = NUMBER.matcher(text).region(pos, text.length());
+        Matcher nullLiteral = NULL.matcher(text).region(pos, text.length());
+        if (number.lookingAt()) {
+          bound.add(new BigDecimal(number.group()));
+          pos = number.end();
+        } else if (nullLiteral.lookingAt()) {
+          bound.add(null);
+          pos = nullLiteral.end();
+        } else {
+          return null;
+        }
+      }
+      pos = skipWhitespace(text, pos);
+      if (pos >= text.length()) {
+        return null;
+      }
+      char c = text.charAt(pos++);
+      if (c == ')') {
+        break;
+      }
+      if (c != ',') {
+        return null;
+      }
+    }
+    if (skipWhitespace(text, pos) != text.length()) {
+      return null;
+    }
+    String head = text.substring(0, prefix.end()).trim();
+    StringBuilder sql = new StringBuilder(head.length() + 10 + 3 * bound.size());
+    sql.append(head).append(" VALUES (");
+    for (int i = 0; i < bound.size(); i++) {
+      sql.append(i == 0 ? "?" : ", ?");
+    }
+    sql.append(')');
+    String shape = WHITESPACE.matcher(head).replaceAll(" ") + " #" + bound.size();
+    return new InsertValues(shape, sql.toString(), Collections.unmodifiableList(bound));
+  }
+
+  /** Table, column list and number of values; inserts of one shape share one statement. */
+  public String getShape() {
+    return shape;
+  }
+
+  /** The insert with a {@code ?} placeholder for each value. */
+  public String getSql() {
+    return sql;
+  }
+
+  /** The values in order: a {@link String}, a {@link BigDecimal}, or null for {@code NULL}. */
+  public List<Object> getValues() {
+    return values;
+  }
+
+  private static int skipWhitespace(String text, int pos) {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  /** Reads a quoted string starting at {@code pos}; returns the position after it, or -1. */
+  private static int readString(String text, int pos, StringBuilder literal) {
+    for (int i = pos + 1; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c == '\\') {
+        return -1;
+      }
+      if (c == '\'') {
+        if (i + 1 < text.length() && text.charAt(i + 1) == '\'') {
+          literal.append('\'');
+          i++;
+        } else {
+          return i + 1;
+        }
+      } else {
+        literal.append(c);
+      }
+    }
+    return -1;
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.exsql.script;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Reads a script straight from the multipart upload. Only valid while the upload request is being
+ * handled, since the container deletes the part afterwards.
+ */
+public class MultipartScriptSource implements ScriptSource {
+
+  private final MultipartFile file;
+
+  public MultipartScriptSource(MultipartFile file) {
+    this.file = file;
+  }
+
+  @Override
+  public String getFileName() {
+    return file.getOriginalFilename();
+  }
+
+  @Override
+  public long getSize() {
+    return file.getSize();
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    return file.getInputStream();
+  }
+}
@@ -0,0 +1,17 @@
+package com.example.exsql.script;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** An uploaded SQL script that can be opened for reading, possibly more than once. */
+public interface ScriptSource {
+
+  /** The file name the script was uploaded under. */
+  String getFileName();
+
+  /** Size of the script in bytes. */
+  long getSize();
+
+  /** Opens a new stream over the script's raw bytes; the caller closes it. */
+  InputStream openStream() throws IOException;
+}
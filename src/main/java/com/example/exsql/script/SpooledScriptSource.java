@@ -0,0 +1,39 @@
+package com.example.exsql.script;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/** A script copied to local disk so it can be executed after the upload request has returned. */
+public class SpooledScriptSource implements ScriptSource {
+
+  private final String fileName;
+  private final Path path;
+  private final long size;
+
+  public SpooledScriptSource(String fileName, Path path, long size) {
+    this.fileName = fileName;
+    this.path = path;
+    this.size = size;
+  }
+
+  @Override
+  public String getFileName() {
+    return fileName;
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Override
+  public InputStream openStream() throws IOException {
+    return Files.newInputStream(path);
+  }
+
+  public Path getPath() {
+    return path;
+  }
+}
@@ -0,0 +1,441 @@
+package com.example.exsql.script;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Single-pass lexer that reads SQL statements one at a time from a character stream.
+ *
+ * <p>Statements end at a {@code ;} outside of string literals, quoted identifiers and comments.
+ * PL/SQL units (anonymous {@code DECLARE}/{@code BEGIN} blocks and {@code CREATE [OR REPLACE]
+ * PROCEDURE/FUNCTION/PACKAGE/TRIGGER/TYPE}) keep their inner semicolons and end at a line holding
+ * only {@code /}, or at end of input. The lexer understands {@code '...'} literals with doubled
+ * quotes, {@code "..."} identifiers, Oracle {@code q'[...]'} literals, {@code --} line comments and
+ * {@code /* *}{@code /} block comments. Only the statement currently being read is held in memory.
+ *
+ * <p>Each statement is classified as a {@link SqlStatementType} from an upper-cased copy of its
+ * first 128 characters outside literals and comments, never from the whole text.
+ */
+public class SqlScriptReader implements Closeable {
+
+  private static final int EOF = -1;
+  private static final int NONE = -2;
+  private static final int HEADER_LIMIT = 128;
+  // Characters decoded per read from the underlying stream.
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final Pattern WORD_SEPARATOR = Pattern.compile("[^A-Z0-9_$#]+");
+
+  private final Reader reader;
+  private int pushedBack = NONE;
+  private boolean started;
+  private boolean eof;
+  private int line = 1;
+  private boolean lineHasContent;
+  private int statementCount;
+
+  public SqlScriptReader(Reader reader) {
+    this.reader = reader instanceof BufferedReader ? reader : new BufferedReader(reader);
+  }
+
+  /**
+   * Reads a UTF-8 encoded script directly from a byte stream. Invalid UTF-8 fails the read instead
+   * of being replaced, so a wrongly encoded file is not executed with corrupted literals.
+   */
+  public static SqlScriptReader forUtf8(InputStream in) {
+    CharsetDecoder decoder =
+        StandardCharsets.UTF_8
+            .newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+    return new SqlScriptReader(new BufferedReader(new InputStreamReader(in, decoder), BUFFER_SIZE));
+  }
+
+  /**
+   * Reads the next statement.
+   *
+   * @return The next non-empty statement, or {@code null} at end of input.
+   * @throws IOException If the underlying reader fails.
+   */
+  public SqlStatement next() throws IOException {
+    while (!eof) {
+      SqlStatement statement = readStatement();
+      if (statement != null) {
+        return statement;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  /** Reads up to the next terminator; returns null if nothing but whitespace/comments was seen. */
+  private SqlStatement readStatement() throws IOException {
+    StringBuilder text = new StringBuilder();
+    StringBuilder header = new StringBuilder();
+    boolean significant = false;
+    SqlStatementType type = null;
+    int slashCandidate = -1;
+    int lastSignificant = 0;
+    int startLine = line;
+
+    while (true) {
+      int c = read();
+      if (c == EOF) {
+        eof = true;
+        if (slashCandidate >= 0) {
+          text.setLength(slashCandidate);
+        }
+        return toStatement(text, header, type, significant, startLine);
+      }
+      if (c == '\n') {
+        line++;
+        lineHasContent = false;
+        if (slashCandidate >= 0) {
+          text.setLength(slashCandidate);
+          return toStatement(text, header, type, significant, startLine);
+        }
+        if (significant) {
+          text.append('\n');
+        }
+        appendHeaderSpace(header);
+        continue;
+      }
+      if (Character.isWhitespace(c)) {
+        if (significant) {
+          text.append((char) c);
+        }
+        appendHeaderSpace(header);
+        continue;
+      }
+
+      // Anything other than whitespace after a '/' means it was not a terminator.
+      slashCandidate = -1;
+      boolean lineWasEmpty = !lineHasContent;
+      lineHasContent = true;
+
+      if (c == '-' && peek() == '-') {
+        read();
+        readLineComment(significant ? text : null);
+        appendHeaderSpace(header);
+        continue;
+      }
+      if (c == '/' && peek() == '*') {
+        read();
+        readBlockComment(significant ? text : null);
+        appendHeaderSpace(header);
+        continue;
+      }
+      if (c == '/'
+          && (lineWasEmpty || (type != null && type.isBlock() && lastSignificant == ';'))) {
+        // Possibly a "/" terminator line; confirmed if only whitespace follows on this line.
+        slashCandidate = text.length();
+        if (significant) {
+          text.append('/');
+        }
+        continue;
+      }
+
+      if (!significant) {
+        significant = true;
+        startLine = line;
+      }
+      lastSignificant = c;
+
+      if (c == ';') {
+        if (type == null) {
+          type = classify(header.toString().trim());
+        }
+        if (!type.isBlock()) {
+          return toStatement(text, header, type, true, startLine);
+        }
+        text.append(';');
+        continue;
+      }
+      if (c == '\'') {
+        text.append('\'');
+        readQuoted(text, '\'', true);
+        appendHeaderSpace(header);
+        continue;
+      }
+      if (c == '"') {
+        text.append('"');
+        readQuoted(text, '"', false);
+        appendHeaderSpace(header);
+        continue;
+      }
+      if ((c == 'q' || c == 'Q') && startsQQuote(text) && peek() == '\'') {
+        text.append((char) c).append((char) read());
+        readQQuote(text);
+        appendHeaderSpace(header);
+        continue;
+      }
+
+      text.append((char) c);
+      if (header.length() < HEADER_LIMIT) {
+        header.append(Character.toUpperCase((char) c));
+      }
+    }
+  }
+
+  private SqlStatement toStatement(
+      StringBuilder text,
+      StringBuilder header,
+      SqlStatementType type,
+      boolean significant,
+      int startLine) {
+    if (!significant) {
+      return null;
+    }
+    String trimmed = text.toString().trim();
+    if (trimmed.isEmpty()) {
+      return null;
+    }
+    String leading = header.toString().trim();
+    return new SqlStatement(
+        trimmed,
+        ++statementCount,
+        startLine,
+        type != null ? type : classify(leading),
+        firstWord(leading));
+  }
+
+  private void readLineComment(StringBuilder text) throws IOException {
+    if (text != null) {
+      text.append("--");
+    }
+    int c;
+    while ((c = peek()) != EOF && c != '\n') {
+      read();
+      if (text != null) {
+        text.append((char) c);
+      }
+    }
+  }
+
+  private void readBlockComment(StringBuilder text) throws IOException {
+    if (text != null) {
+      text.append("/*");
+    }
+    int previous = 0;
+    int c;
+    while ((c = read()) != EOF) {
+      if (c == '\n') {
+        line++;
+      }
+      if (text != null) {
+        text.append((char) c);
+      }
+      if (previous == '*' && c == '/') {
+        return;
+      }
+      previous = c;
+    }
+  }
+
+  private void readQuoted(StringBuilder text, char quote, boolean doubledQuoteEscapes)
+      throws IOException {
+    int c;
+    while ((c = read()) != EOF) {
+      if (c == '\n') {
+        line++;
+      }
+      text.append((char) c);
+      if (c == quote) {
+        if (doubledQuoteEscapes && peek() == quote) {
+          text.append((char) read());
+          continue;
+        }
+        return;
+      }
+    }
+  }
+
+  /** Reads the rest of a q'&lt;delim&gt;...&lt;delim&gt;' literal after the opening quote. */
+  private void readQQuote(StringBuilder text) throws IOException {
+    int open = read();
+    if (open == EOF) {
+      return;
+    }
+    text.append((char) open);
+    int close = closingDelimiter(open);
+    int previous = 0;
+    int c;
+    while ((c = read()) != EOF) {
+      if (c == '\n') {
+        line++;
+      }
+      text.append((char) c);
+      if (previous == close && c == '\'') {
+        return;
+      }
+      previous = c;
+    }
+  }
+
+  private static int closingDelimiter(int open) {
+    switch (open) {
+      case '[':
+        return ']';
+      case '{':
+        return '}';
+      case '(':
+        return ')';
+      case '<':
+        return '>';
+      default:
+        return open;
+    }
+  }
+
+  /** A q/Q starts a quote-delimited literal only as a standalone prefix, or after N (nq'...'). */
+  private static boolean startsQQuote(StringBuilder text) {
+    int length = text.length();
+    if (length == 0 || !Character.isJavaIdentifierPart(text.charAt(length - 1))) {
+      return true;
+    }
+    char previous = text.charAt(length - 1);
+    return (previous == 'n' || previous == 'N')
+        && (length == 1 || !Character.isJavaIdentifierPart(text.charAt(length - 2)));
+  }
+
+  private static void appendHeaderSpace(StringBuilder header) {
+    if (header.length() > 0
+        && header.length() < HEADER_LIMIT
+        && header.charAt(header.length() - 1) != ' ') {
+      header.append(' ');
+    }
+  }
+
+  private static String firstWord(String header) {
+    for (String word : WORD_SEPARATOR.split(header)) {
+      if (!word.isEmpty()) {
+        return word;
+      }
+    }
+    return "";
+  }
+
+  /** Decides from the leading keywords what kind of unit the statement is. */
+  static SqlStatementType classify(String header) {
+    String[] words = WORD_SEPARATOR.split(header);
+    if (words.length == 0) {
+      return SqlStatementType.OTHER;
+    }
+    String second = words.length > 1 ? words[1] : "";
+    switch (words[0]) {
+      case "SELECT":
+      case "WITH":
+        return SqlStatementType.QUERY;
+      case "INSERT":
+      case "UPDATE":
+      case "DELETE":
+      case "MERGE":
+        return SqlStatementType.DML;
+      case "DECLARE":
+        return SqlStatementType.PLSQL_BLOCK;
+      case "BEGIN":
+        // "BEGIN;" / "BEGIN WORK;" start a transaction in MySQL mode, they are not blocks.
+        return second.isEmpty() || "WORK".equals(second)
+            ? SqlStatementType.TRANSACTION_CONTROL
+            : SqlStatementType.PLSQL_BLOCK;
+      case "CREATE":
+        return isStoredProgram(words) ? SqlStatementType.STORED_PROGRAM : SqlStatementType.DDL;
+      case "ALTER":
+        return "SESSION".equals(second) ? SqlStatementType.SESSION : SqlStatementType.DDL;
+      case "DROP":
+      case "TRUNCATE":
+      case "RENAME":
+      case "COMMENT":
+      case "GRANT":
+      case "REVOKE":
+      case "ANALYZE":
+      case "PURGE":
+      case "FLASHBACK":
+        return SqlStatementType.DDL;
+      case "CALL":
+        return SqlStatementType.CALL;
+      case "COMMIT":
+      case "ROLLBACK":
+      case "SAVEPOINT":
+        return SqlStatementType.TRANSACTION_CONTROL;
+      case "START":
+        return "TRANSACTION".equals(second)
+            ? SqlStatementType.TRANSACTION_CONTROL
+            : SqlStatementType.OTHER;
+      case "SET":
+        // SET TRANSACTION only applies to the transaction it starts.
+        return "TRANSACTION".equals(second)
+            ? SqlStatementType.TRANSACTION_CONTROL
+            : SqlStatementType.SESSION;
+      case "USE":
+        return SqlStatementType.SESSION;
+      default:
+        return SqlStatementType.OTHER;
+    }
+  }
+
+  private static boolean isStoredProgram(String[] words) {
+    int i = 1;
+    if (i + 1 < words.length && "OR".equals(words[i]) && "REPLACE".equals(words[i + 1])) {
+      i += 2;
+    }
+    if (i < words.length && ("EDITIONABLE".equals(words[i]) || "NONEDITIONABLE".equals(words[i]))) {
+      i++;
+    }
+    if (i >= words.length) {
+      return false;
+    }
+    switch (words[i]) {
+      case "PROCEDURE":
+      case "FUNCTION":
+      case "PACKAGE":
+      case "TRIGGER":
+      case "TYPE":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private int read() throws IOException {
+    int c;
+    if (pushedBack != NONE) {
+      c = pushedBack;
+      pushedBack = NONE;
+    } else {
+      try {
+        c = reader.read();
+      } catch (CharacterCodingException e) {
+        // Decoding runs ahead of the lexer by up to one buffer, so the line is approximate.
+        throw new IOException(
+            "Invalid character data near line " + line + "; scripts must be UTF-8 encoded", e);
+      }
+    }
+    if (!started) {
+      started = true;
+      if (c == '\uFEFF') {
+        return read();
+      }
+    }
+    return c;
+  }
+
+  private int peek() throws IOException {
+    if (pushedBack == NONE) {
+      pushedBack = read();
+    }
+    return pushedBack;
+  }
+}
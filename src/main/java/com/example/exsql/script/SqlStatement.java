@@ -0,0 +1,62 @@
+package com.example.exsql.script;
+
+/** One executable unit read from an uploaded script by {@link SqlScriptReader}. */
+public class SqlStatement {
+
+  private final String text;
+  private final int index;
+  private final int startLine;
+  private final SqlStatementType type;
+  private final String keyword;
+
+  /**
+   * @param text The statement text, without the terminating semicolon for plain statements.
+   * @param index 1-based position of the statement in the script.
+   * @param startLine 1-based line on which the statement starts.
+   * @param type What kind of unit the statement is; blocks end at {@code /} or end of input.
+   * @param keyword The statement's first keyword in upper case, e.g. {@code INSERT}.
+   */
+  public SqlStatement(
+      String text, int index, int startLine, SqlStatementType type, String keyword) {
+    this.text = text;
+    this.index = index;
+    this.startLine = startLine;
+    this.type = type;
+    this.keyword = keyword;
+  }
+
+  public String getText() {
+    return text;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public int getStartLine() {
+    return startLine;
+  }
+
+  public SqlStatementType getType() {
+    return type;
+  }
+
+  /** Whether this is a PL/SQL unit: an anonymous block or a stored program definition. */
+  public boolean isBlock() {
+    return type.isBlock();
+  }
+
+  public String getKeyword() {
+    return keyword;
+  }
+
+  /** Whether this is a plain INSERT/UPDATE/DELETE/MERGE that can be sent in a JDBC batch. */
+  public boolean isDml() {
+    return type == SqlStatementType.DML;
+  }
+
+  @Override
+  public String toString() {
+    return "#" + index + " (line " + startLine + "): " + text;
+  }
+}
@@ -0,0 +1,28 @@
+package com.example.exsql.script;
+
+/** What kind of unit a {@link SqlStatement} is, decided by the lexer from its leading keywords. */
+public enum SqlStatementType {
+  /** {@code SELECT} or {@code WITH}; a script only needs to know that it ran, not its rows. */
+  QUERY,
+  /** {@code INSERT}, {@code UPDATE}, {@code DELETE} or {@code MERGE}; can be sent in a batch. */
+  DML,
+  /** {@code CREATE}, {@code ALTER}, {@code DROP} and the other definition statements. */
+  DDL,
+  /** An anonymous {@code DECLARE}/{@code BEGIN} block. */
+  PLSQL_BLOCK,
+  /** {@code CREATE [OR REPLACE] PROCEDURE/FUNCTION/PACKAGE/TRIGGER/TYPE}. */
+  STORED_PROGRAM,
+  /** {@code CALL} of a stored procedure. */
+  CALL,
+  /** {@code COMMIT}, {@code ROLLBACK}, {@code SAVEPOINT} and the like. */
+  TRANSACTION_CONTROL,
+  /** {@code SET}, {@code ALTER SESSION} or {@code USE}, which change the connection's state. */
+  SESSION,
+  /** Anything else; executed as it is. */
+  OTHER;
+
+  /** Whether the unit keeps its inner semicolons and ends at a {@code /} line. */
+  public boolean isBlock() {
+    return this == PLSQL_BLOCK || this == STORED_PROGRAM;
+  }
+}
@@ -0,0 +1,254 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.BroadcastJob;
+import com.example.exsql.model.BroadcastOptions;
+import com.example.exsql.model.BroadcastPolicy;
+import com.example.exsql.model.BroadcastTarget;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.script.ScriptSource;
+import com.example.exsql.script.SpooledScriptSource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs one upload on several data sources at once, e.g. to roll the same DDL out to every tenant.
+ * The files are spooled once and read by every data source. At most {@code parallelism} data
+ * sources run at the same time, each exactly like a single-data-source upload with the same
+ * options. Broadcasts are queued on the {@code scriptExecutionScheduler} and kept for polling until
+ * {@code app.jobs.retention-ms} after they finish.
+ */
+@Service
+public class BroadcastService {
+
+  private static final Logger logger = LoggerFactory.getLogger(BroadcastService.class);
+
+  private final SqlExecutionService sqlExecutionService;
+  private final DataSourceCatalog dataSourceCatalog;
+  private final ScriptSpool scriptSpool;
+  private final TaskExecutor scheduler;
+  private final ConcurrentMap<String, BroadcastJob> broadcasts = new ConcurrentHashMap<>();
+
+  @Value("${app.execution.broadcast.parallelism:4}")
+  private int defaultParallelism = 4;
+
+  @Value("${app.execution.broadcast.max-parallelism:16}")
+  private int maxParallelism = 16;
+
+  @Value("${app.jobs.retention-ms:3600000}")
+  private long retentionMs = 3600000;
+
+  @Autowired
+  public BroadcastService(
+      SqlExecutionService sqlExecutionService,
+      DataSourceCatalog dataSourceCatalog,
+      ScriptSpool scriptSpool,
+      @Qualifier("scriptExecutionScheduler") TaskExecutor scheduler) {
+    this.sqlExecutionService = sqlExecutionService;
+    this.dataSourceCatalog = dataSourceCatalog;
+    this.scriptSpool = scriptSpool;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Spools the files and queues them for execution on every selected data source.
+   *
+   * @param files The uploaded files, in upload order.
+   * @param broadcast The data sources to run on and the failure policy.
+   * @param options Batching, transaction and other options applied on every data source.
+   * @return The queued broadcast.
+   * @throws IllegalArgumentException If no data source, or an unknown one, is selected.
+   * @throws IOException If the files cannot be spooled.
+   * @throws TaskRejectedException If the scheduler queue is full.
+   */
+  public BroadcastJob submit(
+      List<MultipartFile> files, BroadcastOptions broadcast, ExecutionOptions options)
+      throws IOException {
+    List<String> dataSourceNames = resolveTargets(broadcast);
+    int parallelism =
+        Math.min(
+            broadcast.getParallelism() > 0 ? broadcast.getParallelism() : defaultParallelism,
+            maxParallelism);
+    purgeExpiredBroadcasts();
+    String id = UUID.randomUUID().toString();
+    List<SpooledScriptSource> scripts = scriptSpool.spool(id, files);
+    BroadcastJob job =
+        new BroadcastJob(
+            id,
+            scripts.stream().map(ScriptSource::getFileName).collect(Collectors.toList()),
+            dataSourceNames.stream().map(BroadcastTarget::new).collect(Collectors.toList()),
+            broadcast.getFailurePolicy(),
+            Math.max(1, parallelism));
+    broadcasts.put(id, job);
+    try {
+      scheduler.execute(() -> run(job, scripts, options));
+    } catch (TaskRejectedException e) {
+      broadcasts.remove(id);
+      scriptSpool.delete(id);
+      throw e;
+    }
+    logger.info(
+        "Queued broadcast {} of {} file(s) to {} data source(s): {}",
+        id,
+        scripts.size(),
+        dataSourceNames.size(),
+        dataSourceNames);
+    return job;
+  }
+
+  /** Returns the broadcast with the given id, or null if it is unknown or has expired. */
+  public BroadcastJob getBroadcast(String id) {
+    return broadcasts.get(id);
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    broadcasts.keySet().forEach(scriptSpool::delete);
+    broadcasts.clear();
+  }
+
+  /** The named data sources followed by the tagged ones, each once, in that order. */
+  List<String> resolveTargets(BroadcastOptions broadcast) {
+    Set<String> names = new LinkedHashSet<>();
+    for (String requested : broadcast.getDataSourceNames()) {
+      if (!StringUtils.hasText(requested)) {
+        continue;
+      }
+      DataSourceDefinition definition = dataSourceCatalog.get(requested);
+      if (definition == null) {
+        throw new IllegalArgumentException("Data source definition not found: " + requested);
+      }
+      names.add(definition.getName());
+    }
+    if (StringUtils.hasText(broadcast.getDataSourceTag())) {
+      List<DataSourceDefinition> tagged = dataSourceCatalog.getByTag(broadcast.getDataSourceTag());
+      if (tagged.isEmpty()) {
+        throw new IllegalArgumentException(
+            "No data source is tagged " + broadcast.getDataSourceTag());
+      }
+      tagged.forEach(definition -> names.add(definition.getName()));
+    }
+    if (names.isEmpty()) {
+      throw new IllegalArgumentException("Select at least one data source or tag to broadcast to.");
+    }
+    return new ArrayList<>(names);
+  }
+
+  private void run(BroadcastJob job, List<SpooledScriptSource> scripts, ExecutionOptions options) {
+    job.setStartedAt(System.currentTimeMillis());
+    job.setStatus(ExecutionJob.Status.RUNNING);
+    AtomicBoolean failed = new AtomicBoolean();
+    AtomicInteger threadCounter = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.min(job.getParallelism(), job.getTargets().size()),
+            runnable -> {
+              Thread thread = new Thread(runnable, "broadcast-" + threadCounter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (BroadcastTarget target : job.getTargets()) {
+        tasks.add(
+            CompletableFuture.runAsync(
+                () -> runTarget(job, target, scripts, options, failed), executor));
+      }
+      CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+      job.setStatus(ExecutionJob.Status.COMPLETED);
+    } catch (Exception e) {
+      logger.error("Broadcast {} failed: {}", job.getId(), e.getMessage(), e);
+      job.setError(e.getMessage());
+      job.setStatus(ExecutionJob.Status.FAILED);
+    } finally {
+      executor.shutdown();
+      job.setFinishedAt(System.currentTimeMillis());
+      logger.info(
+          "Broadcast {} finished in {} ms: {} succeeded, {} failed, {} skipped",
+          job.getId(),
+          job.getElapsedMs(),
+          job.count(BroadcastTarget.Status.SUCCEEDED),
+          job.count(BroadcastTarget.Status.FAILED),
+          job.count(BroadcastTarget.Status.SKIPPED));
+    }
+  }
+
+  private void runTarget(
+      BroadcastJob job,
+      BroadcastTarget target,
+      List<SpooledScriptSource> scripts,
+      ExecutionOptions options,
+      AtomicBoolean failed) {
+    if (job.getFailurePolicy() == BroadcastPolicy.FAIL_FAST && failed.get()) {
+      target.setStatus(BroadcastTarget.Status.SKIPPED);
+      return;
+    }
+    target.setStartedAt(System.currentTimeMillis());
+    target.setStatus(BroadcastTarget.Status.RUNNING);
+    boolean success = false;
+    try {
+      List<ScriptExecutionResult> results =
+          sqlExecutionService.executeScripts(
+              scripts, target.getDataSourceName(), options, ScriptExecutionListener.NONE);
+      target.setResults(results);
+      success = results.stream().allMatch(ScriptExecutionResult::isSuccess);
+    } catch (RuntimeException e) {
+      logger.error(
+          "Broadcast {} failed on data source {}: {}",
+          job.getId(),
+          target.getDataSourceName(),
+          e.getMessage(),
+          e);
+      List<ScriptExecutionResult> results = new ArrayList<>();
+      for (String fileName : job.getFileNames()) {
+        results.add(new ScriptExecutionResult(fileName, false, e.getMessage(), ""));
+      }
+      target.setResults(results);
+    } finally {
+      target.setFinishedAt(System.currentTimeMillis());
+      target.setStatus(success ? BroadcastTarget.Status.SUCCEEDED : BroadcastTarget.Status.FAILED);
+      if (!success) {
+        failed.set(true);
+      }
+    }
+  }
+
+  private void purgeExpiredBroadcasts() {
+    long cutoff = System.currentTimeMillis() - retentionMs;
+    broadcasts
+        .values()
+        .removeIf(
+            job -> {
+              if (job.isDone() && job.getFinishedAt() < cutoff) {
+                scriptSpool.delete(job.getId());
+                return true;
+              }
+              return false;
+            });
+  }
+}
@@ -0,0 +1,216 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.ExecutionCheckpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps one {@link ExecutionCheckpoint} per data source and script content as a small JSON file, so
+ * an upload of the same script can resume after its last committed statement, also after a restart.
+ * It is always saved when the script fails and removed when it succeeds. Storage errors are logged
+ * and never fail an execution.
+ *
+ * <p>While a script runs, its checkpoint is saved on every commit of a script that runs in its own
+ * transactions, where commits are rare. In auto-commit mode it is saved at most every {@code
+ * app.execution.checkpoint.save-interval-ms}, so after a crash a resumed run may execute again the
+ * statements committed during the last interval; 0 saves after every statement. Progress is only
+ * saved while the script runs if its content hash is known up front, which uploads that ask to
+ * resume compute first; other runs save their checkpoint when they fail.
+ */
+@Service
+public class CheckpointStore {
+
+  private static final Logger logger = LoggerFactory.getLogger(CheckpointStore.class);
+
+  // Longest failure message kept in a checkpoint.
+  private static final int ERROR_LIMIT = 500;
+
+  private final ObjectMapper objectMapper;
+
+  @Value("${app.execution.checkpoint.enabled:true}")
+  private boolean enabled = true;
+
+  @Value("${app.execution.checkpoint.dir:data/checkpoints}")
+  private String directory = "data/checkpoints";
+
+  @Value("${app.execution.checkpoint.save-interval-ms:1000}")
+  private long saveIntervalMs = 1000;
+
+  @Autowired
+  public CheckpointStore(ObjectMapper objectMapper) {
+    this.objectMapper = objectMapper;
+  }
+
+  /** A store that keeps nothing, for code built outside the Spring context. */
+  public static CheckpointStore disabled() {
+    CheckpointStore store = new CheckpointStore(new ObjectMapper());
+    store.enabled = false;
+    return store;
+  }
+
+  @PostConstruct
+  public void initialize() throws IOException {
+    if (enabled) {
+      Files.createDirectories(Paths.get(directory));
+    }
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Looks up the checkpoint of a script.
+   *
+   * @return The checkpoint, or null if there is none or it cannot be read.
+   */
+  public ExecutionCheckpoint find(String dataSourceName, String contentHash) {
+    if (!enabled) {
+      return null;
+    }
+    Path path = path(dataSourceName, contentHash);
+    if (!Files.exists(path)) {
+      return null;
+    }
+    try {
+      return objectMapper.readValue(path.toFile(), ExecutionCheckpoint.class);
+    } catch (IOException e) {
+      logger.warn("Ignoring unreadable checkpoint {}: {}", path, e.getMessage());
+      return null;
+    }
+  }
+
+  /** Writes a checkpoint, replacing the previous one of the same script in a single move. */
+  public void save(ExecutionCheckpoint checkpoint) {
+    if (!enabled) {
+      return;
+    }
+    Path path = path(checkpoint.getDataSourceName(), checkpoint.getContentHash());
+    Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+    try {
+      objectMapper.writeValue(temporary.toFile(), checkpoint);
+      try {
+        Files.move(
+            temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      logger.warn("Could not save checkpoint {}: {}", path, e.getMessage());
+    }
+  }
+
+  public void delete(String dataSourceName, String contentHash) {
+    if (!enabled) {
+      return;
+    }
+    try {
+      Files.deleteIfExists(path(dataSourceName, contentHash));
+    } catch (IOException e) {
+      logger.warn("Could not delete checkpoint of {}: {}", contentHash, e.getMessage());
+    }
+  }
+
+  /**
+   * Starts recording the progress of one run of a script.
+   *
+   * @param checkpoint Where the run starts; its last committed index is the point it resumes after.
+   *     Without a content hash nothing is saved until {@link Tracker#identify} supplies one.
+   * @param saveEveryCommit Save on every commit instead of at most once per save interval.
+   */
+  Tracker track(ExecutionCheckpoint checkpoint, boolean saveEveryCommit) {
+    return new Tracker(this, checkpoint, saveEveryCommit);
+  }
+
+  /** A tracker that records nothing, for runs whose content hash is unknown. */
+  Tracker untracked() {
+    return new Tracker(this, null, false);
+  }
+
+  private Path path(String dataSourceName, String contentHash) {
+    // Hashes are hex; data source names come from configuration but are kept to safe characters.
+    String name = dataSourceName.replaceAll("[^A-Za-z0-9_.-]", "_") + "-" + contentHash + ".json";
+    return Paths.get(directory, name);
+  }
+
+  /** Saves a script's checkpoint as its committed progress moves, without writing on every step. */
+  static final class Tracker {
+    private final CheckpointStore store;
+    private final ExecutionCheckpoint checkpoint;
+    private final int resumeAfter;
+    private final boolean saveEveryCommit;
+    private long savedAt;
+
+    private Tracker(
+        CheckpointStore store, ExecutionCheckpoint checkpoint, boolean saveEveryCommit) {
+      this.store = store;
+      this.checkpoint = checkpoint;
+      this.resumeAfter = checkpoint != null ? checkpoint.getLastCommittedStatementIndex() : 0;
+      this.saveEveryCommit = saveEveryCommit;
+    }
+
+    /** Statements up to this index were committed by an earlier run and are skipped. */
+    int getResumeAfter() {
+      return resumeAfter;
+    }
+
+    /** Records that statements up to {@code index} are committed. */
+    void committed(int index) {
+      if (checkpoint == null || index <= checkpoint.getLastCommittedStatementIndex()) {
+        return;
+      }
+      checkpoint.setLastCommittedStatementIndex(index);
+      long now = System.currentTimeMillis();
+      if (saveEveryCommit || now - savedAt >= store.saveIntervalMs) {
+        save(now);
+      }
+    }
+
+    /** Supplies the content hash of a run that started without one, once the script was read. */
+    void identify(String contentHash) {
+      if (checkpoint != null && checkpoint.getContentHash() == null) {
+        checkpoint.setContentHash(contentHash);
+      }
+    }
+
+    /** Saves where a failed run stopped, so the next upload can resume there. */
+    void failed(int lastCommittedIndex, Integer failedStatementIndex, String error) {
+      if (checkpoint == null) {
+        return;
+      }
+      checkpoint.setLastCommittedStatementIndex(
+          Math.max(lastCommittedIndex, checkpoint.getLastCommittedStatementIndex()));
+      checkpoint.setFailedStatementIndex(failedStatementIndex);
+      checkpoint.setError(
+          error != null && error.length() > ERROR_LIMIT ? error.substring(0, ERROR_LIMIT) : error);
+      save(System.currentTimeMillis());
+    }
+
+    /** Removes the checkpoint of a script that ran to the end. */
+    void finished() {
+      if (checkpoint != null && checkpoint.getContentHash() != null) {
+        store.delete(checkpoint.getDataSourceName(), checkpoint.getContentHash());
+      }
+    }
+
+    private void save(long now) {
+      if (checkpoint.getContentHash() == null) {
+        return;
+      }
+      checkpoint.setUpdatedAt(now);
+      store.save(checkpoint);
+      savedAt = now;
+    }
+  }
+}
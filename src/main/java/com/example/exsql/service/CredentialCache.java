@@ -0,0 +1,296 @@
+package com.example.exsql.service;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TTL cache for database passwords keyed by (data source name, TNS, user).
+ *
+ * <p>Concurrent misses for the same key share a single load. Entries that are close to expiry are
+ * reloaded by a background thread while the cached value keeps being served, so once a password has
+ * been fetched the request path no longer waits for the UIG security server. Only entries read
+ * within the last TTL are reloaded; the others are dropped once they expire, so data sources that
+ * were removed or renamed stop being fetched. Entries can be invalidated explicitly, e.g. when the
+ * database rejects the cached password; a load that was already running when its key was
+ * invalidated does not put its value back into the cache.
+ */
+public class CredentialCache {
+
+  private static final Logger logger = LoggerFactory.getLogger(CredentialCache.class);
+
+  private final long ttlMs;
+  private final long refreshAheadMs;
+  private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Key, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+  // Generation of each invalidated key; a load only caches its value if it did not change.
+  private final ConcurrentMap<Key, Long> generations = new ConcurrentHashMap<>();
+  private final AtomicLong invalidations = new AtomicLong();
+  private final ScheduledExecutorService refresher;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @param ttlMs How long a loaded password is served before it must be fetched again.
+   * @param refreshAheadMs Entries with less than this much time left are reloaded in the
+   *     background.
+   * @param refreshCheckIntervalMs How often the background thread looks for entries to reload.
+   */
+  public CredentialCache(long ttlMs, long refreshAheadMs, long refreshCheckIntervalMs) {
+    this.ttlMs = ttlMs;
+    this.refreshAheadMs = refreshAheadMs;
+    this.refresher =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "credential-refresh");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.refresher.scheduleWithFixedDelay(
+        this::refreshDueEntries,
+        refreshCheckIntervalMs,
+        refreshCheckIntervalMs,
+        TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Returns the cached password for the key, loading it with {@code loader} on a miss. Only one
+   * load per key runs at a time; concurrent callers wait for and share its result. Failed loads are
+   * not cached.
+   */
+  public String get(Key key, Supplier<String> loader) {
+    Entry entry = entries.get(key);
+    long now = System.currentTimeMillis();
+    if (entry != null && now < entry.expiresAt) {
+      hits.incrementAndGet();
+      entry.lastAccessedAt = now;
+      return entry.value;
+    }
+    misses.incrementAndGet();
+    return load(key, loader, now);
+  }
+
+  /**
+   * Non-blocking variant of {@link #get}: a miss starts {@code asyncLoader} instead of waiting for
+   * {@code loader}, which is kept for the background refresh. A load of the key that is already
+   * running is shared as well.
+   */
+  public CompletableFuture<String> getAsync(
+      Key key, Supplier<CompletableFuture<String>> asyncLoader, Supplier<String> loader) {
+    Entry entry = entries.get(key);
+    long now = System.currentTimeMillis();
+    if (entry != null && now < entry.expiresAt) {
+      hits.incrementAndGet();
+      entry.lastAccessedAt = now;
+      return CompletableFuture.completedFuture(entry.value);
+    }
+    misses.incrementAndGet();
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      logger.debug("Sharing in-flight password load for {}", key);
+      return existing.thenApply(value -> value);
+    }
+    long generation = generations.getOrDefault(key, 0L);
+    CompletableFuture<String> load;
+    try {
+      load = asyncLoader.get();
+    } catch (RuntimeException e) {
+      load = new CompletableFuture<>();
+      load.completeExceptionally(e);
+    }
+    load.whenComplete(
+        (value, error) -> {
+          try {
+            if (error == null) {
+              store(key, value, loader, now, generation);
+            }
+          } finally {
+            inFlight.remove(key, future);
+          }
+          if (error == null) {
+            future.complete(value);
+          } else {
+            future.completeExceptionally(
+                error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause()
+                    : error);
+          }
+        });
+    return future.thenApply(value -> value);
+  }
+
+  /**
+   * Drops every cached password for the given data source and user. Loads of those keys that are
+   * still running complete for their callers but are not cached.
+   */
+  public void invalidate(String dsName, String username) {
+    long generation = invalidations.incrementAndGet();
+    for (Key key : entries.keySet()) {
+      if (key.matches(dsName, username)) {
+        generations.put(key, generation);
+      }
+    }
+    for (Key key : inFlight.keySet()) {
+      if (key.matches(dsName, username)) {
+        generations.put(key, generation);
+      }
+    }
+    entries.keySet().removeIf(key -> key.matches(dsName, username));
+    // Later callers start a new load instead of waiting for one that read the old password.
+    inFlight.keySet().removeIf(key -> key.matches(dsName, username));
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  public void shutdown() {
+    refresher.shutdownNow();
+  }
+
+  /**
+   * Loads and caches the password of a key.
+   *
+   * @param lastAccessedAt When the key was last read by a caller; kept as is by background
+   *     refreshes, which are not reads.
+   */
+  private String load(Key key, Supplier<String> loader, long lastAccessedAt) {
+    CompletableFuture<String> future = new CompletableFuture<>();
+    CompletableFuture<String> existing = inFlight.putIfAbsent(key, future);
+    if (existing != null) {
+      logger.debug("Waiting for in-flight password load for {}", key);
+      return await(existing);
+    }
+    try {
+      long generation = generations.getOrDefault(key, 0L);
+      String value = loader.get();
+      store(key, value, loader, lastAccessedAt, generation);
+      future.complete(value);
+      return value;
+    } catch (RuntimeException e) {
+      future.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, future);
+    }
+  }
+
+  /** Caches a loaded password unless its key was invalidated since the load started. */
+  private void store(
+      Key key, String value, Supplier<String> loader, long lastAccessedAt, long generation) {
+    Entry entry = new Entry(value, loader, System.currentTimeMillis() + ttlMs, lastAccessedAt);
+    entries.put(key, entry);
+    // Checked after the put as well, so an invalidation in between cannot be missed.
+    if (generations.getOrDefault(key, 0L) != generation) {
+      logger.debug("Discarding password of {} loaded before it was invalidated", key);
+      entries.remove(key, entry);
+    }
+  }
+
+  private void refreshDueEntries() {
+    long now = System.currentTimeMillis();
+    entries.forEach(
+        (key, entry) -> {
+          if (now >= entry.expiresAt) {
+            logger.debug("Dropping expired password of {}", key);
+            entries.remove(key, entry);
+            generations.remove(key);
+            return;
+          }
+          if (entry.expiresAt - now > refreshAheadMs) {
+            return;
+          }
+          if (now - entry.lastAccessedAt > ttlMs) {
+            // Not used for a whole TTL, e.g. the data source was removed; let it expire.
+            return;
+          }
+          try {
+            logger.info("Refreshing cached password ahead of expiry for {}", key);
+            load(key, entry.loader, entry.lastAccessedAt);
+          } catch (RuntimeException e) {
+            // Keep serving the current value until it expires; the next cycle retries.
+            logger.warn("Background password refresh failed for {}: {}", key, e.getMessage());
+          }
+        });
+  }
+
+  private static String await(CompletableFuture<String> future) {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw e;
+    }
+  }
+
+  private static final class Entry {
+    private final String value;
+    private final Supplier<String> loader;
+    private final long expiresAt;
+    private volatile long lastAccessedAt;
+
+    private Entry(String value, Supplier<String> loader, long expiresAt, long lastAccessedAt) {
+      this.value = value;
+      this.loader = loader;
+      this.expiresAt = expiresAt;
+      this.lastAccessedAt = lastAccessedAt;
+    }
+  }
+
+  /** Cache key: one password per data source, TNS and database user. */
+  public static final class Key {
+    private final String dsName;
+    private final String tns;
+    private final String username;
+
+    public Key(String dsName, String tns, String username) {
+      this.dsName = dsName;
+      this.tns = tns;
+      this.username = username;
+    }
+
+    private boolean matches(String dsName, String username) {
+      return this.dsName.equals(dsName) && Objects.equals(this.username, username);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return dsName.equals(other.dsName)
+          && Objects.equals(tns, other.tns)
+          && Objects.equals(username, other.username);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(dsName, tns, username);
+    }
+
+    @Override
+    public String toString() {
+      return dsName + "/" + tns + "/" + username;
+    }
+  }
+}
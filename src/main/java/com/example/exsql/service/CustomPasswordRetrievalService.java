@@ -1,10 +1,27 @@
 package com.example.exsql.service;
 
+import com.example.exsql.legacy.newland.UigClient;
 import com.newland.computer.boss.bossbiz.bosscomponent.cachestore.datasource.CNLDBConnectMgr;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
@@ -14,105 +31,251 @@ public class CustomPasswordRetrievalService {
   private static final Logger logger =
       LoggerFactory.getLogger(CustomPasswordRetrievalService.class);
 
-  @Value("${app.datasource.cndl.auth-file-path}")
-  private String cndlAuthFilePath; // This will be used for the primary datasource init
+  @Value("${app.credentials.cache.enabled:true}")
+  private boolean credentialCacheEnabled;
 
-  // Primary datasource CNLDB parameters - kept for @PostConstruct initialization
-  @Value("${app.datasource.cndl.ndbtype}")
-  private int primaryCndlNDbType;
+  @Value("${app.credentials.cache.ttl-ms:1800000}")
+  private long credentialCacheTtlMs;
 
-  @Value("${app.datasource.cndl.tns}")
-  private String primaryCndlTns;
+  @Value("${app.credentials.cache.refresh-ahead-ms:300000}")
+  private long credentialCacheRefreshAheadMs;
 
-  @Value("${app.datasource.cndl.getpasswd-url:}")
-  private String primaryCndlGetPasswdUrl;
+  @Value("${app.credentials.cache.refresh-check-interval-ms:30000}")
+  private long credentialCacheRefreshCheckIntervalMs;
 
-  @Value("${app.datasource.cndl.getpasswd-dummy-password:}")
-  private String primaryCndlGetPasswdDummyPassword;
+  @Value("${app.uig.http.connect-timeout-ms:15000}")
+  private int uigConnectTimeoutMs = 15000;
+
+  @Value("${app.uig.http.read-timeout-ms:15000}")
+  private int uigReadTimeoutMs = 15000;
+
+  @Value("${app.uig.http.max-connections:20}")
+  private int uigMaxConnections = 20;
+
+  @Value("${app.uig.http.max-attempts:3}")
+  private int uigMaxAttempts = 3;
+
+  @Value("${app.uig.http.initial-backoff-ms:200}")
+  private long uigInitialBackoffMs = 200;
+
+  @Value("${app.uig.http.max-backoff-ms:5000}")
+  private long uigMaxBackoffMs = 5000;
+
+  @Value("${app.uig.http.circuit-failure-threshold:5}")
+  private int uigCircuitFailureThreshold = 5;
+
+  @Value("${app.uig.http.circuit-open-ms:30000}")
+  private long uigCircuitOpenMs = 30000;
+
+  @Value("${app.uig.http.async-threads:4}")
+  private int uigAsyncThreads = 4;
+
+  @Value("${app.uig.http.async-queue-capacity:100}")
+  private int uigAsyncQueueCapacity = 100;
 
   private boolean cndlMgrInitialized = false;
 
+  private CredentialCache credentialCache;
+
+  @Autowired(required = false)
+  private ExecutionMetrics metrics = ExecutionMetrics.noop();
+
+  // One CNLDBConnectMgr per auth file; instances are immutable and shared between threads.
+  private final ConcurrentMap<String, CNLDBConnectMgr> cndlManagers = new ConcurrentHashMap<>();
+
+  private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
   @PostConstruct
   public void initialize() {
-    // Initialize CNLDBConnectMgr using properties for the primary datasource's auth file.
-    // This assumes CNLDBConnectMgr.init() is a one-time global setup and subsequent
-    // getPasswd calls can target different TNS/users if the underlying auth mechanism supports it.
-    // If different auth files *must* be loaded by init() for different datasources,
-    // this approach will need significant change (e.g. multiple CNLDBConnectMgr instances or
-    // re-init capability).
-    logger.info("Initializing CNLDBConnectMgr with primary auth file path: {}", cndlAuthFilePath);
-    try {
-      // Assuming cndlAuthFilePath is correctly injected for the primary datasource's init file
-      // If CNLDBConnectMgr uses this path internally after init, it might be an issue.
-      // For now, we proceed with the assumption that init() is for global setup.
-      CNLDBConnectMgr
-          .init(); // This might need to be called with auth-file path if the lib supports it
-      cndlMgrInitialized = true;
-      logger.info("CNLDBConnectMgr initialized successfully.");
-    } catch (Exception e) {
-      logger.error("Failed to initialize CNLDBConnectMgr. Error: {}", e.getMessage(), e);
-      throw new RuntimeException("Failed to initialize CNLDBConnectMgr: " + e.getMessage(), e);
+    UigClient.configure(uigSettings());
+    // Each data source's auth file is loaded on its first password request.
+    cndlMgrInitialized = true;
+    if (credentialCacheEnabled) {
+      credentialCache =
+          new CredentialCache(
+              credentialCacheTtlMs,
+              credentialCacheRefreshAheadMs,
+              credentialCacheRefreshCheckIntervalMs);
+      metrics.bindCredentialCache(credentialCache);
+      logger.info(
+          "Password cache enabled with TTL {} ms, refresh-ahead {} ms.",
+          credentialCacheTtlMs,
+          credentialCacheRefreshAheadMs);
     }
   }
 
-  // Method for primary datasource, using fields initialized by @Value
-  public String retrievePrimaryPassword(String username) {
-    if (!cndlMgrInitialized) {
-      logger.error(
-          "CNLDBConnectMgr was not initialized. Cannot retrieve password for primary datasource.");
-      throw new IllegalStateException("CNLDBConnectMgr not initialized for primary datasource.");
+  @PreDestroy
+  public void shutdown() {
+    if (credentialCache != null) {
+      credentialCache.shutdown();
     }
+    UigClient.shutdown();
+  }
+
+  private UigClient.Settings uigSettings() {
+    UigClient.Settings settings = new UigClient.Settings();
+    settings.setConnectTimeoutMs(uigConnectTimeoutMs);
+    settings.setReadTimeoutMs(uigReadTimeoutMs);
+    settings.setMaxConnectionsPerHost(uigMaxConnections);
+    settings.setMaxTotalConnections(Math.max(uigMaxConnections, settings.getMaxTotalConnections()));
+    settings.setMaxAttempts(uigMaxAttempts);
+    settings.setInitialBackoffMs(uigInitialBackoffMs);
+    settings.setMaxBackoffMs(uigMaxBackoffMs);
+    settings.setCircuitFailureThreshold(uigCircuitFailureThreshold);
+    settings.setCircuitOpenMs(uigCircuitOpenMs);
+    settings.setAsyncThreads(uigAsyncThreads);
+    settings.setAsyncQueueCapacity(uigAsyncQueueCapacity);
     logger.info(
-        "Retrieving password for primary datasource user: {}, tns: {}, nDbType: {}",
-        username,
-        primaryCndlTns,
-        primaryCndlNDbType);
-    logger.info(
-        "Primary Parameters for CNLDBConnectMgr.getPasswd -> url: '{}', dummyPassword: '{}'",
-        primaryCndlGetPasswdUrl,
-        "*****");
+        "UIG client: connect timeout {} ms, read timeout {} ms, up to {} pooled connection(s), {}"
+            + " attempt(s)",
+        uigConnectTimeoutMs,
+        uigReadTimeoutMs,
+        uigMaxConnections,
+        uigMaxAttempts);
+    return settings;
+  }
 
-    try {
-      String password =
-          CNLDBConnectMgr.getPasswd(
-              primaryCndlNDbType,
-              primaryCndlTns,
-              username,
-              primaryCndlGetPasswdUrl,
-              primaryCndlGetPasswdDummyPassword);
-      if (password == null) {
-        logger.error("CNLDBConnectMgr.getPasswd returned null for primary user: {}", username);
-        throw new RuntimeException(
-            "Failed to retrieve password for primary datasource, CNLDBConnectMgr returned null.");
+  /**
+   * Forgets any cached password for the given data source and user, so the next retrieval goes to
+   * CNLDBConnectMgr again. Call this when the database rejects the cached password.
+   */
+  public void invalidatePassword(String dsName, String username) {
+    if (credentialCache != null) {
+      logger.info("Invalidating cached password for {} user: {}", dsName, username);
+      credentialCache.invalidate(dsName, username);
+    }
+  }
+
+  /** Returns the CNLDBConnectMgr for the given auth file, loading the file on first use. */
+  private CNLDBConnectMgr cndlManager(String authFilePath) {
+    String key = StringUtils.hasText(authFilePath) ? authFilePath.trim() : "";
+    return cndlManagers.computeIfAbsent(key, this::loadCndlManager);
+  }
+
+  /**
+   * Builds the CNLDBConnectMgr of an auth file. Only a data source without an auth file uses the
+   * built-in application settings; a configured file that is missing fails the password request, so
+   * a mistyped path never sends requests with those settings. The failure is not cached, so the
+   * file is looked for again on the next request.
+   */
+  private CNLDBConnectMgr loadCndlManager(String authFilePath) {
+    Properties properties = new Properties();
+    if (!StringUtils.hasText(authFilePath)) {
+      logger.warn("No CNLDB auth file configured; using the built-in application settings.");
+    } else {
+      Resource resource = resourceLoader.getResource(authFilePath);
+      if (!resource.exists()) {
+        logger.error("CNLDB auth file '{}' not found", authFilePath);
+        throw new IllegalStateException("CNLDB auth file not found: " + authFilePath);
       }
-      logger.info("Password retrieved successfully for primary user: {}", username);
-      return password;
-    } catch (Exception e) {
-      logger.error(
-          "Error retrieving password for primary user {} using CNLDBConnectMgr: {}",
-          username,
-          e.getMessage(),
-          e);
-      throw new RuntimeException(
-          "Error retrieving password for primary datasource via CNLDBConnectMgr: " + e.getMessage(),
-          e);
+      try (Reader reader =
+          new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot read CNLDB auth file " + authFilePath, e);
+      }
+    }
+    CNLDBConnectMgr manager = CNLDBConnectMgr.fromProperties(properties);
+    logger.info(
+        "Loaded CNLDB auth file '{}' (UIG server {})", authFilePath, manager.getServerUrl());
+    return manager;
+  }
+
+  private String cached(String dsName, String tns, String username, Supplier<String> loader) {
+    if (credentialCache == null) {
+      return loader.get();
     }
+    return credentialCache.get(new CredentialCache.Key(dsName, tns, username), loader);
   }
 
-  // Overloaded method to accept specific CNLDB parameters for any datasource
+  // Fetches a password with the CNLDB parameters of the given datasource
   public String retrievePassword(
       String username,
       int nDbType,
       String tns,
       String getPasswdUrl,
       String dummyPassword,
-      String dsName) {
+      String dsName,
+      String authFilePath) {
     if (!cndlMgrInitialized) {
       logger.error(
           "CNLDBConnectMgr was not initialized. Cannot retrieve password for datasource: {}",
           dsName);
       throw new IllegalStateException("CNLDBConnectMgr not initialized for datasource: " + dsName);
     }
+    return cached(
+        dsName,
+        tns,
+        username,
+        () ->
+            metrics.timePasswordFetch(
+                dsName,
+                () ->
+                    loadPassword(
+                        username,
+                        nDbType,
+                        tns,
+                        getPasswdUrl,
+                        dummyPassword,
+                        dsName,
+                        authFilePath)));
+  }
+
+  /**
+   * Non-blocking variant of {@link #retrievePassword}: the UIG request runs on the background
+   * threads of the shared UIG client, so the passwords of several data sources can be fetched at
+   * once without a thread each. Cached passwords are returned as already completed futures.
+   */
+  public CompletableFuture<String> retrievePasswordAsync(
+      String username,
+      int nDbType,
+      String tns,
+      String getPasswdUrl,
+      String dummyPassword,
+      String dsName,
+      String authFilePath) {
+    if (!cndlMgrInitialized) {
+      logger.error(
+          "CNLDBConnectMgr was not initialized. Cannot retrieve password for datasource: {}",
+          dsName);
+      throw new IllegalStateException("CNLDBConnectMgr not initialized for datasource: " + dsName);
+    }
+    Supplier<CompletableFuture<String>> fetch =
+        () ->
+            metrics.timePasswordFetchAsync(
+                dsName,
+                () ->
+                    loadPasswordAsync(
+                        username, nDbType, tns, getPasswdUrl, dummyPassword, dsName, authFilePath));
+    if (credentialCache == null) {
+      return fetch.get();
+    }
+    // The blocking loader is kept for the background refresh of the cached entry.
+    return credentialCache.getAsync(
+        new CredentialCache.Key(dsName, tns, username),
+        fetch,
+        () ->
+            metrics.timePasswordFetch(
+                dsName,
+                () ->
+                    loadPassword(
+                        username,
+                        nDbType,
+                        tns,
+                        getPasswdUrl,
+                        dummyPassword,
+                        dsName,
+                        authFilePath)));
+  }
+
+  private String loadPassword(
+      String username,
+      int nDbType,
+      String tns,
+      String getPasswdUrl,
+      String dummyPassword,
+      String dsName,
+      String authFilePath) {
     logger.info(
         "Retrieving password for {} datasource user: {}, tns: {}, nDbType: {}",
         dsName,
@@ -127,13 +290,16 @@ public class CustomPasswordRetrievalService {
 
     try {
       String password =
-          CNLDBConnectMgr.getPasswd(nDbType, tns, username, getPasswdUrl, dummyPassword);
+          cndlManager(authFilePath).getPasswd(nDbType, tns, username, getPasswdUrl, dummyPassword);
       if (password == null) {
         logger.error("CNLDBConnectMgr.getPasswd returned null for {} user: {}", dsName, username);
         throw new RuntimeException(
             "Failed to retrieve password for "
                 + dsName
-                + " datasource, CNLDBConnectMgr returned null.");
+                + " datasource, CNLDBConnectMgr returned null for "
+                + dsName
+                + " user: "
+                + username);
       }
       logger.info("Password retrieved successfully for {} user: {}", dsName, username);
       return password;
@@ -152,4 +318,63 @@ public class CustomPasswordRetrievalService {
           e);
     }
   }
+
+  private CompletableFuture<String> loadPasswordAsync(
+      String username,
+      int nDbType,
+      String tns,
+      String getPasswdUrl,
+      String dummyPassword,
+      String dsName,
+      String authFilePath) {
+    logger.info(
+        "Retrieving password for {} datasource user: {}, tns: {}, nDbType: {} (async)",
+        dsName,
+        username,
+        tns,
+        nDbType);
+    CompletableFuture<String> request;
+    try {
+      request =
+          cndlManager(authFilePath)
+              .getPasswdAsync(nDbType, tns, username, getPasswdUrl, dummyPassword);
+    } catch (RuntimeException e) {
+      request = new CompletableFuture<>();
+      request.completeExceptionally(e);
+    }
+    return request.handle(
+        (password, error) -> {
+          Throwable cause =
+              error instanceof CompletionException && error.getCause() != null
+                  ? error.getCause()
+                  : error;
+          if (cause != null) {
+            logger.error(
+                "Error retrieving password for {} user {} using CNLDBConnectMgr: {}",
+                dsName,
+                username,
+                cause.getMessage(),
+                cause);
+            throw new RuntimeException(
+                "Error retrieving password for "
+                    + dsName
+                    + " datasource via CNLDBConnectMgr: "
+                    + cause.getMessage(),
+                cause);
+          }
+          if (password == null) {
+            logger.error(
+                "CNLDBConnectMgr.getPasswdAsync returned null for {} user: {}", dsName, username);
+            throw new RuntimeException(
+                "Failed to retrieve password for "
+                    + dsName
+                    + " datasource, CNLDBConnectMgr returned null for "
+                    + dsName
+                    + " user: "
+                    + username);
+          }
+          logger.info("Password retrieved successfully for {} user: {}", dsName, username);
+          return password;
+        });
+  }
 }
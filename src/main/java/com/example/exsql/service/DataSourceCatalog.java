@@ -0,0 +1,266 @@
+package com.example.exsql.service;
+
+import com.example.exsql.config.DataSourcesProperties;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.DataSourceReloadResult;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySource;
+import org.springframework.boot.context.properties.source.ConfigurationPropertySources;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.core.io.support.EncodedResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * The configured data sources, by lower-case name and in configuration order. Lookups read an
+ * immutable snapshot and never wait; {@link #reload()} binds {@code app.datasources} again and
+ * swaps in a new snapshot. Pools of entries that changed or were removed are drained, and pools of
+ * unchanged entries are kept with their open connections.
+ *
+ * <p>Entries are read from {@code app.datasource.reload.file} when it is set, falling back to the
+ * application's own configuration, so data sources can be added, changed and removed by editing
+ * that file. With {@code app.datasource.reload.check-interval-ms} the file is also watched.
+ */
+@Service
+public class DataSourceCatalog {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourceCatalog.class);
+
+  private final DataSourcesProperties properties;
+  private final DataSourceRegistry dataSourceRegistry;
+  private final ConfigurableEnvironment environment;
+  private final ResourceLoader resourceLoader = new DefaultResourceLoader();
+
+  @Value("${app.datasource.reload.file:}")
+  private String reloadFile = "";
+
+  @Value("${app.datasource.reload.check-interval-ms:0}")
+  private long reloadCheckIntervalMs;
+
+  private volatile Map<String, DataSourceDefinition> definitions = Collections.emptyMap();
+  private volatile long reloadFileModified;
+  private ScheduledExecutorService watcher;
+
+  @Autowired
+  public DataSourceCatalog(
+      DataSourcesProperties properties,
+      DataSourceRegistry dataSourceRegistry,
+      ConfigurableEnvironment environment) {
+    this.properties = properties;
+    this.dataSourceRegistry = dataSourceRegistry;
+    this.environment = environment;
+  }
+
+  @PostConstruct
+  public void initialize() {
+    apply(StringUtils.hasText(reloadFile) ? bind() : properties.getDatasources());
+    if (definitions.isEmpty()) {
+      logger.warn(
+          "No data sources are configured. Check the app.datasources entries in"
+              + " application.properties.");
+    }
+    if (StringUtils.hasText(reloadFile) && reloadCheckIntervalMs > 0) {
+      watcher =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "datasource-reload");
+                thread.setDaemon(true);
+                return thread;
+              });
+      watcher.scheduleWithFixedDelay(
+          this::reloadIfModified,
+          reloadCheckIntervalMs,
+          reloadCheckIntervalMs,
+          TimeUnit.MILLISECONDS);
+      logger.info(
+          "Watching {} for data source changes every {} ms", reloadFile, reloadCheckIntervalMs);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    if (watcher != null) {
+      watcher.shutdownNow();
+    }
+  }
+
+  /** Returns the named data source, or {@code null} if there is none. */
+  public DataSourceDefinition get(String name) {
+    return name == null ? null : definitions.get(name.trim().toLowerCase(Locale.ROOT));
+  }
+
+  /** Names of the configured data sources, in configuration order. */
+  public Set<String> getNames() {
+    return definitions.keySet();
+  }
+
+  public Collection<DataSourceDefinition> getAll() {
+    return definitions.values();
+  }
+
+  /** Data sources carrying the given tag, in configuration order. */
+  public List<DataSourceDefinition> getByTag(String tag) {
+    List<DataSourceDefinition> tagged = new ArrayList<>();
+    for (DataSourceDefinition definition : definitions.values()) {
+      if (definition.hasTag(tag)) {
+        tagged.add(definition);
+      }
+    }
+    return tagged;
+  }
+
+  /**
+   * Returns the name a request should run on: the requested one in lower case, or the first
+   * configured data source when none was given.
+   */
+  public String resolveName(String requested) {
+    if (StringUtils.hasText(requested)) {
+      return requested.trim().toLowerCase(Locale.ROOT);
+    }
+    Map<String, DataSourceDefinition> current = definitions;
+    return current.isEmpty() ? null : current.keySet().iterator().next();
+  }
+
+  /**
+   * Binds {@code app.datasources} again and applies the differences.
+   *
+   * @return The names that were added, changed, removed or left unchanged.
+   */
+  public DataSourceReloadResult reload() {
+    return apply(bind());
+  }
+
+  /** Replaces the loaded definitions with the given ones and drains the pools that went stale. */
+  synchronized DataSourceReloadResult apply(List<DataSourceDefinition> configured) {
+    DataSourceReloadResult result = new DataSourceReloadResult();
+    Map<String, DataSourceDefinition> previous = definitions;
+    Map<String, DataSourceDefinition> next = new LinkedHashMap<>();
+    List<String> stale = new ArrayList<>();
+    for (int i = 0; i < configured.size(); i++) {
+      DataSourceDefinition definition = configured.get(i);
+      String problem = validate(definition);
+      String name =
+          StringUtils.hasText(definition.getName())
+              ? definition.getName().trim().toLowerCase(Locale.ROOT)
+              : "app.datasources[" + i + "]";
+      if (problem == null && next.containsKey(name)) {
+        problem = "the name is used by an earlier entry";
+      }
+      if (problem != null) {
+        logger.error("Skipping data source {}: {}", name, problem);
+        result.getRejected().add(name + ": " + problem);
+        continue;
+      }
+      definition.setName(name);
+      DataSourceDefinition current = previous.get(name);
+      if (current == null) {
+        result.getAdded().add(name);
+        next.put(name, definition);
+      } else if (current.equals(definition)) {
+        result.getUnchanged().add(name);
+        next.put(name, current);
+      } else {
+        result.getChanged().add(name);
+        next.put(name, definition);
+        if (!current.sameConnectionAs(definition)) {
+          stale.add(name);
+        }
+      }
+    }
+    for (String name : previous.keySet()) {
+      if (!next.containsKey(name)) {
+        result.getRemoved().add(name);
+        stale.add(name);
+      }
+    }
+    definitions = Collections.unmodifiableMap(next);
+    // Borrowers already holding the old definition finish on the old pool.
+    stale.forEach(dataSourceRegistry::drain);
+    logger.info(
+        "Data sources loaded: {} added, {} changed, {} removed, {} unchanged, {} rejected",
+        result.getAdded().size(),
+        result.getChanged().size(),
+        result.getRemoved().size(),
+        result.getUnchanged().size(),
+        result.getRejected().size());
+    return result;
+  }
+
+  private static String validate(DataSourceDefinition definition) {
+    if (!StringUtils.hasText(definition.getName())) {
+      return "name is missing";
+    }
+    if (!StringUtils.hasText(definition.getUrl())
+        || !StringUtils.hasText(definition.getUsername())
+        || !StringUtils.hasText(definition.getDriverClassName())) {
+      return "url, username and driver-class-name are required";
+    }
+    return null;
+  }
+
+  private List<DataSourceDefinition> bind() {
+    List<ConfigurationPropertySource> sources = new ArrayList<>();
+    if (StringUtils.hasText(reloadFile)) {
+      sources.add(new MapConfigurationPropertySource(readReloadFile()));
+    }
+    ConfigurationPropertySources.get(environment).forEach(sources::add);
+    return new Binder(sources)
+        .bind("app", Bindable.of(DataSourcesProperties.class))
+        .orElseGet(DataSourcesProperties::new)
+        .getDatasources();
+  }
+
+  private Map<Object, Object> readReloadFile() {
+    Resource resource = resourceLoader.getResource(reloadFile);
+    try {
+      reloadFileModified = resource.exists() ? resource.lastModified() : 0;
+      if (!resource.exists()) {
+        logger.warn("Data source file {} not found; using application.properties", reloadFile);
+        return Collections.emptyMap();
+      }
+      return PropertiesLoaderUtils.loadProperties(
+          new EncodedResource(resource, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot read data source file " + reloadFile, e);
+    }
+  }
+
+  private void reloadIfModified() {
+    try {
+      Resource resource = resourceLoader.getResource(reloadFile);
+      long modified = resource.exists() ? resource.lastModified() : 0;
+      if (modified != reloadFileModified) {
+        logger.info("Data source file {} changed, reloading", reloadFile);
+        reload();
+      }
+    } catch (Exception e) {
+      logger.error("Could not reload data sources from {}: {}", reloadFile, e.getMessage(), e);
+    }
+  }
+}
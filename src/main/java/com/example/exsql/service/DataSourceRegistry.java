@@ -0,0 +1,278 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.DataSourcePoolStats;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Owns one long-lived, bounded connection pool per {@link DataSourceDefinition}, keyed by the
+ * definition name. Pools are created on first use and start empty; connections are opened lazily up
+ * to the configured maximum. When the password supplied for a data source changes (e.g. after a
+ * rotation on the UIG security server) the pool is updated in place and its existing connections
+ * are evicted as they are returned, instead of building a new pool. When the definition itself
+ * changes the pool is replaced: the old one is drained, and closed once its borrowed connections
+ * are back.
+ */
+@Service
+public class DataSourceRegistry {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourceRegistry.class);
+
+  // How often a draining pool is checked for connections still in use.
+  private static final long DRAIN_CHECK_MS = 1000;
+
+  @Value("${app.datasource.pool.maximum-pool-size:10}")
+  private int maximumPoolSize;
+
+  @Value("${app.datasource.pool.minimum-idle:0}")
+  private int minimumIdle;
+
+  @Value("${app.datasource.pool.connection-timeout-ms:30000}")
+  private long connectionTimeoutMs;
+
+  @Value("${app.datasource.pool.idle-timeout-ms:600000}")
+  private long idleTimeoutMs;
+
+  @Value("${app.datasource.pool.max-lifetime-ms:1800000}")
+  private long maxLifetimeMs;
+
+  @Value("${app.datasource.pool.drain-timeout-ms:3600000}")
+  private long drainTimeoutMs = 3600000;
+
+  @Autowired(required = false)
+  private ExecutionMetrics metrics = ExecutionMetrics.noop();
+
+  private final ConcurrentMap<String, PooledDataSource> pools = new ConcurrentHashMap<>();
+
+  // Minimum idle connections kept by warmed pools, also applied to their replacements.
+  private final ConcurrentMap<String, Integer> warmMinimumIdle = new ConcurrentHashMap<>();
+
+  // Pools created per data source name, so a replacement does not share its predecessor's meters.
+  private final ConcurrentMap<String, Integer> generations = new ConcurrentHashMap<>();
+
+  // Replaced pools whose connections are still borrowed.
+  private final Set<HikariDataSource> draining = ConcurrentHashMap.newKeySet();
+
+  // Its thread is only started by the first drain.
+  private final ScheduledExecutorService drainer =
+      Executors.newSingleThreadScheduledExecutor(
+          runnable -> {
+            Thread thread = new Thread(runnable, "datasource-drain");
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /**
+   * Returns the pooled DataSource for the given definition, creating the pool on first use. If the
+   * password differs from the one the pool was last configured with, the pool credentials are
+   * rotated in place; if the connection settings differ, the pool is replaced.
+   *
+   * @param definition The data source definition.
+   * @param password The current password for the definition's user.
+   * @return The shared, pooled DataSource.
+   */
+  public DataSource getDataSource(DataSourceDefinition definition, String password) {
+    PooledDataSource pooled = pools.get(definition.getName());
+    if (pooled == null || !pooled.definition.sameConnectionAs(definition)) {
+      pooled =
+          pools.compute(
+              definition.getName(),
+              (name, existing) -> {
+                if (existing != null && existing.definition.sameConnectionAs(definition)) {
+                  return existing;
+                }
+                if (existing != null) {
+                  retire(existing);
+                }
+                return createPool(definition, password);
+              });
+    }
+    pooled.rotatePasswordIfChanged(password);
+    return pooled.dataSource;
+  }
+
+  /**
+   * Returns the maximum number of connections the named data source's pool may open, whether or not
+   * the pool has been created yet.
+   */
+  public int getMaximumPoolSize(String dataSourceName) {
+    PooledDataSource pooled = pools.get(dataSourceName);
+    return pooled != null ? pooled.dataSource.getMaximumPoolSize() : maximumPoolSize;
+  }
+
+  /**
+   * Makes the named data source's pool keep at least {@code connections} idle connections, so
+   * connections opened by the start-up warm-up are not closed by the idle timeout. Never lowers the
+   * configured minimum, and never exceeds the maximum pool size.
+   */
+  public void keepWarm(String dataSourceName, int connections) {
+    warmMinimumIdle.merge(dataSourceName, connections, Math::max);
+    PooledDataSource pooled = pools.get(dataSourceName);
+    if (pooled == null) {
+      return;
+    }
+    HikariDataSource dataSource = pooled.dataSource;
+    int target = Math.min(minimumIdle(dataSourceName), dataSource.getMaximumPoolSize());
+    if (target > dataSource.getMinimumIdle()) {
+      logger.info("Pool {} keeps {} warm connection(s)", dataSource.getPoolName(), target);
+      dataSource.getHikariConfigMXBean().setMinimumIdle(target);
+    }
+  }
+
+  /**
+   * Returns a snapshot of size, idle and wait metrics for every pool created so far.
+   *
+   * @return One entry per pooled data source.
+   */
+  public List<DataSourcePoolStats> getPoolStats() {
+    List<DataSourcePoolStats> stats = new ArrayList<>();
+    pools.forEach(
+        (name, pooled) -> {
+          DataSourcePoolStats entry = new DataSourcePoolStats();
+          entry.setName(name);
+          entry.setMaximumPoolSize(pooled.dataSource.getMaximumPoolSize());
+          entry.setPasswordRotations(pooled.passwordRotations);
+          HikariPoolMXBean pool = pooled.dataSource.getHikariPoolMXBean();
+          if (pool != null) {
+            entry.setTotalConnections(pool.getTotalConnections());
+            entry.setActiveConnections(pool.getActiveConnections());
+            entry.setIdleConnections(pool.getIdleConnections());
+            entry.setThreadsAwaitingConnection(pool.getThreadsAwaitingConnection());
+          }
+          stats.add(entry);
+        });
+    return stats;
+  }
+
+  /**
+   * Stops handing out the named data source's pool. Idle connections are closed at once and the
+   * pool itself once every borrowed connection is returned, or after {@code
+   * app.datasource.pool.drain-timeout-ms}. The next request creates a new pool.
+   */
+  public void drain(String dataSourceName) {
+    PooledDataSource pooled = pools.remove(dataSourceName);
+    if (pooled != null) {
+      retire(pooled);
+    }
+  }
+
+  @PreDestroy
+  public void closeAll() {
+    drainer.shutdownNow();
+    pools.forEach(
+        (name, pooled) -> {
+          logger.info("Closing connection pool for data source: {}", name);
+          pooled.dataSource.close();
+        });
+    pools.clear();
+    draining.forEach(HikariDataSource::close);
+    draining.clear();
+  }
+
+  private void retire(PooledDataSource pooled) {
+    HikariDataSource dataSource = pooled.dataSource;
+    logger.info("Draining connection pool {}", dataSource.getPoolName());
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    if (pool != null) {
+      pool.softEvictConnections();
+    }
+    draining.add(dataSource);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+    drainer.execute(() -> closeWhenIdle(dataSource, deadline));
+  }
+
+  private void closeWhenIdle(HikariDataSource dataSource, long deadline) {
+    HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+    boolean idle = pool == null || pool.getActiveConnections() == 0;
+    if (!idle && System.nanoTime() - deadline < 0) {
+      drainer.schedule(
+          () -> closeWhenIdle(dataSource, deadline), DRAIN_CHECK_MS, TimeUnit.MILLISECONDS);
+      return;
+    }
+    if (!idle) {
+      logger.warn(
+          "Closing pool {} with {} connection(s) still in use after the drain timeout",
+          dataSource.getPoolName(),
+          pool.getActiveConnections());
+    }
+    dataSource.close();
+    draining.remove(dataSource);
+    logger.info("Closed drained connection pool {}", dataSource.getPoolName());
+  }
+
+  private PooledDataSource createPool(DataSourceDefinition definition, String password) {
+    HikariConfig config = new HikariConfig();
+    int generation = generations.merge(definition.getName(), 1, Integer::sum);
+    config.setPoolName("exsql-" + definition.getName() + (generation > 1 ? "-" + generation : ""));
+    config.setJdbcUrl(definition.getUrl());
+    config.setUsername(definition.getUsername());
+    config.setPassword(password);
+    config.setDriverClassName(definition.getDriverClassName());
+    config.setMaximumPoolSize(maximumPoolSize);
+    int poolMinimumIdle = Math.min(minimumIdle(definition.getName()), maximumPoolSize);
+    config.setMinimumIdle(poolMinimumIdle);
+    config.setConnectionTimeout(connectionTimeoutMs);
+    config.setIdleTimeout(idleTimeoutMs);
+    config.setMaxLifetime(maxLifetimeMs);
+    // Do not open a connection while building the pool; it is warmed by the first borrower.
+    config.setInitializationFailTimeout(-1);
+    metrics.bindPool(config);
+    HikariDataSource dataSource = new HikariDataSource(config);
+    logger.info(
+        "Created connection pool for data source: {} (max size {}, min idle {})",
+        definition.getName(),
+        maximumPoolSize,
+        poolMinimumIdle);
+    return new PooledDataSource(definition, dataSource, password);
+  }
+
+  private int minimumIdle(String dataSourceName) {
+    return Math.max(minimumIdle, warmMinimumIdle.getOrDefault(dataSourceName, 0));
+  }
+
+  private static final class PooledDataSource {
+    private final DataSourceDefinition definition;
+    private final HikariDataSource dataSource;
+    private String password;
+    private int passwordRotations;
+
+    private PooledDataSource(
+        DataSourceDefinition definition, HikariDataSource dataSource, String password) {
+      this.definition = definition;
+      this.dataSource = dataSource;
+      this.password = password;
+    }
+
+    private synchronized void rotatePasswordIfChanged(String newPassword) {
+      if (newPassword == null || newPassword.equals(password)) {
+        return;
+      }
+      logger.info("Password changed for pool {}, rotating credentials.", dataSource.getPoolName());
+      dataSource.getHikariConfigMXBean().setPassword(newPassword);
+      HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+      if (pool != null) {
+        // Connections opened with the old password are closed as soon as they are idle.
+        pool.softEvictConnections();
+      }
+      password = newPassword;
+      passwordRotations++;
+    }
+  }
+}
@@ -0,0 +1,43 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.DataSourceReadiness;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the start-up warm-up as the {@code dataSourceWarmup} component of {@code
+ * /actuator/health}, so the standard health and readiness endpoints hold traffic back until it has
+ * finished. While the warm-up runs the component is OUT_OF_SERVICE, which the health endpoint
+ * answers with 503. Data sources that failed to warm up are listed but keep the component UP, as
+ * the others can still be used.
+ */
+@Component
+public class DataSourceWarmupHealthIndicator implements HealthIndicator {
+
+  private final DataSourceWarmupService dataSourceWarmupService;
+
+  @Autowired
+  public DataSourceWarmupHealthIndicator(DataSourceWarmupService dataSourceWarmupService) {
+    this.dataSourceWarmupService = dataSourceWarmupService;
+  }
+
+  @Override
+  public Health health() {
+    return toHealth(dataSourceWarmupService.getReadiness());
+  }
+
+  /** Maps a warm-up readiness to its health; also used by {@code /api/datasources/health}. */
+  public static Health toHealth(DataSourceReadiness readiness) {
+    Status status =
+        readiness.getStatus() == DataSourceReadiness.Status.WARMING
+            ? Status.OUT_OF_SERVICE
+            : Status.UP;
+    return Health.status(status)
+        .withDetail("warmup", readiness.getStatus())
+        .withDetail("dataSources", readiness.getDataSources())
+        .build();
+  }
+}
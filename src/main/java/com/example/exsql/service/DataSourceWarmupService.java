@@ -0,0 +1,205 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.DataSourceReadiness;
+import com.example.exsql.model.DataSourceWarmupStatus;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+/**
+ * Optional start-up warm-up. Once the application is ready, fetches the password of every
+ * configured data source concurrently through the non-blocking UIG client and opens a minimum
+ * number of pooled connections, so the first upload after a restart does not wait for the UIG
+ * security server or for new connections. Progress is exposed through {@link #getReadiness()}.
+ */
+@Service
+public class DataSourceWarmupService {
+
+  private static final Logger logger = LoggerFactory.getLogger(DataSourceWarmupService.class);
+
+  private final DataSourceCatalog dataSourceCatalog;
+  private final SqlExecutionService sqlExecutionService;
+  private final DataSourceRegistry dataSourceRegistry;
+
+  @Value("${app.datasource.warmup.enabled:false}")
+  private boolean enabled;
+
+  @Value("${app.datasource.warmup.min-connections:1}")
+  private int minConnections = 1;
+
+  @Value("${app.datasource.warmup.parallelism:4}")
+  private int parallelism = 4;
+
+  private final ConcurrentMap<String, DataSourceWarmupStatus> statuses = new ConcurrentHashMap<>();
+  private volatile boolean finished;
+
+  @Autowired
+  public DataSourceWarmupService(
+      DataSourceCatalog dataSourceCatalog,
+      SqlExecutionService sqlExecutionService,
+      DataSourceRegistry dataSourceRegistry) {
+    this.dataSourceCatalog = dataSourceCatalog;
+    this.sqlExecutionService = sqlExecutionService;
+    this.dataSourceRegistry = dataSourceRegistry;
+  }
+
+  /** Starts the warm-up in the background so start-up and the readiness endpoint are not held. */
+  @EventListener(ApplicationReadyEvent.class)
+  public void onApplicationReady() {
+    if (!enabled) {
+      logger.info("Data source warm-up is disabled.");
+      return;
+    }
+    for (String name : dataSourceCatalog.getNames()) {
+      statuses.put(name, new DataSourceWarmupStatus(name));
+    }
+    Thread thread = new Thread(this::warmUpAll, "datasource-warmup");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Warms up every configured data source and returns once all of them have finished. The passwords
+   * are requested from the UIG security server all at once without blocking; each data source's
+   * connections are opened on a pool thread as soon as its password arrives.
+   */
+  public void warmUpAll() {
+    long start = System.nanoTime();
+    List<DataSourceDefinition> definitions = new ArrayList<>(dataSourceCatalog.getAll());
+    AtomicInteger threadCounter = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            Math.max(1, Math.min(parallelism, definitions.size())),
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "datasource-warmup-" + threadCounter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<CompletableFuture<Void>> tasks = new ArrayList<>();
+      for (DataSourceDefinition definition : definitions) {
+        DataSourceWarmupStatus status =
+            statuses.computeIfAbsent(definition.getName(), DataSourceWarmupStatus::new);
+        long taskStart = System.nanoTime();
+        status.setState(DataSourceWarmupStatus.State.WARMING);
+        tasks.add(
+            fetchPassword(definition)
+                .thenAcceptAsync(password -> warmUp(definition, status, password), executor)
+                .handle(
+                    (ignored, error) -> {
+                      finish(definition, status, error, taskStart);
+                      return null;
+                    }));
+      }
+      CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+    } finally {
+      executor.shutdown();
+      finished = true;
+    }
+    logger.info(
+        "Data source warm-up finished in {} ms: {}",
+        (System.nanoTime() - start) / 1_000_000,
+        getReadiness().getStatus());
+  }
+
+  public DataSourceReadiness getReadiness() {
+    DataSourceReadiness readiness = new DataSourceReadiness();
+    List<DataSourceWarmupStatus> dataSources = new ArrayList<>(statuses.values());
+    dataSources.sort(Comparator.comparing(DataSourceWarmupStatus::getName));
+    readiness.setDataSources(dataSources);
+    if (!enabled) {
+      readiness.setStatus(DataSourceReadiness.Status.DISABLED);
+    } else if (!finished) {
+      readiness.setStatus(DataSourceReadiness.Status.WARMING);
+    } else if (dataSources.stream()
+        .allMatch(status -> status.getState() == DataSourceWarmupStatus.State.READY)) {
+      readiness.setStatus(DataSourceReadiness.Status.READY);
+    } else {
+      readiness.setStatus(DataSourceReadiness.Status.DEGRADED);
+    }
+    return readiness;
+  }
+
+  private CompletableFuture<String> fetchPassword(DataSourceDefinition definition) {
+    try {
+      return sqlExecutionService.retrievePasswordAsync(definition);
+    } catch (RuntimeException e) {
+      CompletableFuture<String> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+  }
+
+  private void warmUp(
+      DataSourceDefinition definition, DataSourceWarmupStatus status, String password) {
+    DataSource dataSource = dataSourceRegistry.getDataSource(definition, password);
+    int target =
+        Math.min(minConnections, dataSourceRegistry.getMaximumPoolSize(definition.getName()));
+    try {
+      status.setOpenedConnections(openConnections(dataSource, target));
+    } catch (SQLException e) {
+      throw new CompletionException(e);
+    }
+    // Otherwise the idle timeout closes them again while the data source still reports READY.
+    dataSourceRegistry.keepWarm(definition.getName(), status.getOpenedConnections());
+  }
+
+  private static void finish(
+      DataSourceDefinition definition, DataSourceWarmupStatus status, Throwable error, long start) {
+    status.setDurationMs((System.nanoTime() - start) / 1_000_000);
+    Throwable cause =
+        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    if (cause == null) {
+      status.setState(DataSourceWarmupStatus.State.READY);
+      logger.info(
+          "Warmed up data source {} with {} connection(s)",
+          definition.getName(),
+          status.getOpenedConnections());
+    } else {
+      status.setError(cause.getMessage());
+      status.setState(DataSourceWarmupStatus.State.FAILED);
+      logger.warn("Warm-up of data source {} failed: {}", definition.getName(), cause.getMessage());
+    }
+  }
+
+  /**
+   * Borrows {@code count} connections at the same time, so the pool has to open that many, then
+   * returns them to the pool as idle connections.
+   */
+  private static int openConnections(DataSource dataSource, int count) throws SQLException {
+    List<Connection> connections = new ArrayList<>();
+    try {
+      for (int i = 0; i < count; i++) {
+        connections.add(dataSource.getConnection());
+      }
+      return connections.size();
+    } finally {
+      for (Connection connection : connections) {
+        try {
+          connection.close();
+        } catch (SQLException e) {
+          logger.debug("Could not return warm-up connection: {}", e.getMessage());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.exsql.service;
+
+/**
+ * Lets a running upload be paused between statements and resumed. Statements already sent finish;
+ * the next one waits until the gate is opened again. Thread-safe.
+ */
+public final class ExecutionGate {
+
+  private boolean paused;
+
+  /** Pauses before the next statement. */
+  public synchronized void pause() {
+    paused = true;
+  }
+
+  /** Lets waiting scripts continue. */
+  public synchronized void resume() {
+    paused = false;
+    notifyAll();
+  }
+
+  public synchronized boolean isPaused() {
+    return paused;
+  }
+
+  /**
+   * Returns at once if the gate is open, otherwise waits until it is.
+   *
+   * @throws InterruptedException If the thread is interrupted while waiting.
+   */
+  public synchronized void awaitOpen() throws InterruptedException {
+    while (paused) {
+      wait();
+    }
+  }
+}
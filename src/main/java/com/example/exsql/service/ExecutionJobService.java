@@ -0,0 +1,320 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.FileProgress;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.model.StatementEvent;
+import com.example.exsql.script.ScriptSource;
+import com.example.exsql.script.SpooledScriptSource;
+import com.example.exsql.script.SqlScriptReader;
+import com.example.exsql.script.SqlStatement;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs uploads as background jobs on the {@code scriptExecutionScheduler} and keeps their progress
+ * in memory for polling. Finished jobs, and their spooled files, are dropped after {@code
+ * app.jobs.retention-ms}.
+ */
+@Service
+public class ExecutionJobService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExecutionJobService.class);
+
+  // Longest statement excerpt reported as the current statement.
+  private static final int CURRENT_STATEMENT_LIMIT = 200;
+
+  private final SqlExecutionService sqlExecutionService;
+  private final ScriptSpool scriptSpool;
+  private final JobEventPublisher jobEventPublisher;
+  private final TaskExecutor scheduler;
+  private final ConcurrentMap<String, ExecutionJob> jobs = new ConcurrentHashMap<>();
+  // Gates of jobs that have not finished yet
+  private final ConcurrentMap<String, ExecutionGate> gates = new ConcurrentHashMap<>();
+
+  @Value("${app.jobs.retention-ms:3600000}")
+  private long retentionMs = 3600000;
+
+  @Autowired
+  public ExecutionJobService(
+      SqlExecutionService sqlExecutionService,
+      ScriptSpool scriptSpool,
+      JobEventPublisher jobEventPublisher,
+      @Qualifier("scriptExecutionScheduler") TaskExecutor scheduler) {
+    this.sqlExecutionService = sqlExecutionService;
+    this.scriptSpool = scriptSpool;
+    this.jobEventPublisher = jobEventPublisher;
+    this.scheduler = scheduler;
+  }
+
+  /**
+   * Spools the files and queues them for execution.
+   *
+   * @param files The uploaded files, in upload order.
+   * @param dataSourceName The data source to run on.
+   * @param options Batching and parallelism options.
+   * @return The queued job.
+   * @throws IOException If the files cannot be spooled.
+   * @throws TaskRejectedException If the scheduler queue is full.
+   */
+  public ExecutionJob submit(
+      List<MultipartFile> files, String dataSourceName, ExecutionOptions options)
+      throws IOException {
+    String jobId = UUID.randomUUID().toString();
+    List<SpooledScriptSource> scripts = scriptSpool.spool(jobId, files);
+    ExecutionJob job = register(jobId, dataSourceName, scripts);
+    try {
+      scheduler.execute(() -> run(job, scripts, options, true));
+    } catch (TaskRejectedException e) {
+      jobs.remove(jobId);
+      gates.remove(jobId);
+      scriptSpool.delete(jobId);
+      throw e;
+    }
+    logger.info(
+        "Queued job {} with {} file(s) for data source: {}", jobId, scripts.size(), dataSourceName);
+    return job;
+  }
+
+  /**
+   * Spools the files and executes them on the calling thread. The finished job is retained like a
+   * submitted one, so the full script text stays available for download.
+   *
+   * @return The finished job.
+   * @throws IOException If the files cannot be spooled.
+   */
+  public ExecutionJob execute(
+      List<MultipartFile> files, String dataSourceName, ExecutionOptions options)
+      throws IOException {
+    String jobId = UUID.randomUUID().toString();
+    List<SpooledScriptSource> scripts = scriptSpool.spool(jobId, files);
+    ExecutionJob job = register(jobId, dataSourceName, scripts);
+    // Nobody polls a synchronous job, so statement totals are not worth an extra pass.
+    run(job, scripts, options, false);
+    return job;
+  }
+
+  /** Returns the job with the given id, or null if it is unknown or has expired. */
+  public ExecutionJob getJob(String jobId) {
+    return jobs.get(jobId);
+  }
+
+  /**
+   * Holds a queued or running job before its next statement. Statements already sent finish, and in
+   * COMMIT_EVERY_N mode pending work is committed first.
+   *
+   * @return The job, or null if it is unknown or has expired.
+   * @throws IllegalStateException If the job has already finished.
+   */
+  public ExecutionJob pause(String jobId) {
+    return setPaused(jobId, true);
+  }
+
+  /**
+   * Lets a paused job continue.
+   *
+   * @return The job, or null if it is unknown or has expired.
+   * @throws IllegalStateException If the job has already finished.
+   */
+  public ExecutionJob resume(String jobId) {
+    return setPaused(jobId, false);
+  }
+
+  private ExecutionJob setPaused(String jobId, boolean paused) {
+    ExecutionJob job = jobs.get(jobId);
+    if (job == null) {
+      return null;
+    }
+    ExecutionGate gate = gates.get(jobId);
+    if (gate == null || job.isDone()) {
+      throw new IllegalStateException("Job " + jobId + " has already finished.");
+    }
+    if (paused) {
+      gate.pause();
+    } else {
+      gate.resume();
+    }
+    job.setPaused(paused);
+    logger.info("Job {} {}", jobId, paused ? "paused" : "resumed");
+    return job;
+  }
+
+  /**
+   * Returns the spooled copy of one file of a job.
+   *
+   * @return The script, or null if the job is unknown or expired or has no such file.
+   */
+  public SpooledScriptSource getScript(String jobId, int fileIndex) {
+    ExecutionJob job = jobs.get(jobId);
+    if (job == null || fileIndex < 0 || fileIndex >= job.getFiles().size()) {
+      return null;
+    }
+    return scriptSpool.find(jobId, fileIndex, job.getFiles().get(fileIndex).getFileName());
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    jobs.keySet().forEach(scriptSpool::delete);
+    jobs.clear();
+    // Let paused scripts finish rather than hold their connections until the JVM exits.
+    gates.values().forEach(ExecutionGate::resume);
+    gates.clear();
+  }
+
+  private ExecutionJob register(
+      String jobId, String dataSourceName, List<SpooledScriptSource> scripts) {
+    purgeExpiredJobs();
+    List<FileProgress> progress = new ArrayList<>();
+    for (ScriptSource script : scripts) {
+      progress.add(new FileProgress(script.getFileName()));
+    }
+    ExecutionJob job = new ExecutionJob(jobId, dataSourceName, progress);
+    gates.put(jobId, new ExecutionGate());
+    jobs.put(jobId, job);
+    return job;
+  }
+
+  private void run(
+      ExecutionJob job,
+      List<SpooledScriptSource> scripts,
+      ExecutionOptions options,
+      boolean countStatements) {
+    job.setStartedAt(System.currentTimeMillis());
+    job.setStatus(ExecutionJob.Status.RUNNING);
+    logger.info("Starting job {} on data source: {}", job.getId(), job.getDataSourceName());
+    try {
+      if (countStatements) {
+        countStatements(job, scripts);
+      }
+      List<ScriptExecutionResult> results =
+          sqlExecutionService.executeScripts(
+              scripts,
+              job.getDataSourceName(),
+              options,
+              new ProgressListener(job, jobEventPublisher),
+              gates.get(job.getId()));
+      for (int i = 0; i < results.size(); i++) {
+        FileProgress file = job.getFiles().get(i);
+        if (results.get(i).getStatementCount() > 0) {
+          file.setStatementsTotal(results.get(i).getStatementCount());
+        }
+        // Files that never started (missing data source, failed dependency) only appear here.
+        if (file.getStatus() == FileProgress.Status.PENDING) {
+          file.setStatus(
+              results.get(i).isSuccess()
+                  ? FileProgress.Status.SUCCEEDED
+                  : FileProgress.Status.FAILED);
+        }
+      }
+      job.setResults(results);
+      job.setStatus(ExecutionJob.Status.COMPLETED);
+    } catch (Exception e) {
+      logger.error("Job {} failed: {}", job.getId(), e.getMessage(), e);
+      job.setError(e.getMessage());
+      job.setStatus(ExecutionJob.Status.FAILED);
+    } finally {
+      gates.remove(job.getId());
+      job.setPaused(false);
+      job.setFinishedAt(System.currentTimeMillis());
+      logger.info("Job {} finished in {} ms", job.getId(), job.getElapsedMs());
+      jobEventPublisher.jobFinished(job);
+    }
+  }
+
+  /**
+   * Counts the statements of every file up front so progress can be reported as done/total. This
+   * lexes each file twice but needs no database access.
+   */
+  private static void countStatements(ExecutionJob job, List<SpooledScriptSource> scripts) {
+    for (int i = 0; i < scripts.size(); i++) {
+      int count = 0;
+      try (SqlScriptReader reader = SqlScriptReader.forUtf8(scripts.get(i).openStream())) {
+        while (reader.next() != null) {
+          count++;
+        }
+        job.getFiles().get(i).setStatementsTotal(count);
+      } catch (IOException e) {
+        // Leave the total unknown; the execution itself reports the read error.
+        logger.warn(
+            "Could not count statements of {}: {}", scripts.get(i).getFileName(), e.getMessage());
+      }
+    }
+  }
+
+  private void purgeExpiredJobs() {
+    long cutoff = System.currentTimeMillis() - retentionMs;
+    jobs.values()
+        .removeIf(
+            job -> {
+              if (job.isDone() && job.getFinishedAt() < cutoff) {
+                scriptSpool.delete(job.getId());
+                return true;
+              }
+              return false;
+            });
+  }
+
+  /** Mirrors execution callbacks into the job's per-file progress and its event stream. */
+  private static final class ProgressListener implements ScriptExecutionListener {
+    private final ExecutionJob job;
+    private final JobEventPublisher publisher;
+
+    private ProgressListener(ExecutionJob job, JobEventPublisher publisher) {
+      this.job = job;
+      this.publisher = publisher;
+    }
+
+    @Override
+    public void scriptStarted(int fileIndex) {
+      FileProgress file = job.getFiles().get(fileIndex);
+      file.setStartedAt(System.currentTimeMillis());
+      file.setStatus(FileProgress.Status.RUNNING);
+    }
+
+    @Override
+    public void statementStarted(int fileIndex, SqlStatement statement) {
+      String text = statement.getText();
+      job.getFiles()
+          .get(fileIndex)
+          .setCurrentStatement(
+              text.length() > CURRENT_STATEMENT_LIMIT
+                  ? text.substring(0, CURRENT_STATEMENT_LIMIT) + "..."
+                  : text);
+    }
+
+    @Override
+    public void statementFinished(StatementEvent event) {
+      if (event.isSuccess()) {
+        FileProgress file = job.getFiles().get(event.getFileIndex());
+        // Only the thread executing the file writes this counter.
+        file.setStatementsDone(file.getStatementsDone() + 1);
+      }
+      publisher.statementFinished(job.getId(), event);
+    }
+
+    @Override
+    public void scriptFinished(int fileIndex, ScriptExecutionResult result) {
+      FileProgress file = job.getFiles().get(fileIndex);
+      file.setCurrentStatement(null);
+      file.setFinishedAt(System.currentTimeMillis());
+      file.setStatus(
+          result.isSuccess() ? FileProgress.Status.SUCCEEDED : FileProgress.Status.FAILED);
+      publisher.fileFinished(job.getId(), file);
+    }
+  }
+}
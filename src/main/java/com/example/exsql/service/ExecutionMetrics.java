@@ -0,0 +1,309 @@
+package com.example.exsql.service;
+
+import com.example.exsql.legacy.newland.UigClient;
+import com.example.exsql.script.SqlStatement;
+import com.zaxxer.hikari.HikariConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Micrometer meters of the execution and credential paths, exported through the actuator's {@code
+ * /actuator/prometheus} endpoint. Statements per second is the rate of {@code
+ * exsql.statements.executed}; connection pool wait time comes from the HikariCP meters ({@code
+ * hikaricp.connections.acquire}) of the pools configured through {@link #bindPool}.
+ *
+ * <p>The statement and batch meters are recorded once per statement, so each is registered on first
+ * use and then looked up in a local map by its tags, without building a new meter ID each time.
+ */
+@Component
+public class ExecutionMetrics {
+
+  // Statement keywords reported as their own type; anything else is "other".
+  private static final Set<String> STATEMENT_TYPES =
+      new HashSet<>(
+          Arrays.asList(
+              "SELECT",
+              "INSERT",
+              "UPDATE",
+              "DELETE",
+              "MERGE",
+              "CREATE",
+              "ALTER",
+              "DROP",
+              "TRUNCATE",
+              "GRANT",
+              "REVOKE",
+              "COMMENT",
+              "CALL",
+              "SET",
+              "COMMIT",
+              "ROLLBACK"));
+
+  private final MeterRegistry registry;
+
+  // Registered meters by name and tags; Micrometer 1.9 has no meter provider API for this.
+  private final ConcurrentMap<MeterKey, Timer> timers = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MeterKey, Counter> counters = new ConcurrentHashMap<>();
+  private final ConcurrentMap<MeterKey, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ExecutionMetrics(MeterRegistry registry) {
+    this.registry = registry;
+    FunctionCounter.builder("exsql.uig.retries", UigClient.class, c -> UigClient.getRetryCount())
+        .description("Failed UIG requests that were retried")
+        .register(registry);
+    FunctionCounter.builder(
+            "exsql.uig.circuit.rejections",
+            UigClient.class,
+            c -> UigClient.getCircuitRejectionCount())
+        .description("UIG requests failed immediately by an open circuit breaker")
+        .register(registry);
+  }
+
+  /** Metrics that are recorded nowhere, for code built outside the Spring context. */
+  public static ExecutionMetrics noop() {
+    return new ExecutionMetrics(new CompositeMeterRegistry());
+  }
+
+  /** Records one statement executed on its own, outside a JDBC batch. */
+  public void recordStatement(
+      String dataSourceName, SqlStatement statement, long durationNanos, boolean success) {
+    String type = statementType(statement);
+    String outcome = outcome(success);
+    MeterKey key = new MeterKey("exsql.statement.duration", dataSourceName, type, outcome);
+    Timer timer = timers.get(key);
+    if (timer == null) {
+      timer =
+          timers.computeIfAbsent(
+              key,
+              k ->
+                  Timer.builder(k.name)
+                      .description("Execution time of statements run one at a time")
+                      .tag("datasource", dataSourceName)
+                      .tag("type", type)
+                      .tag("outcome", outcome)
+                      .register(registry));
+    }
+    timer.record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Records one JDBC batch of {@code size} statements. */
+  public void recordBatch(String dataSourceName, int size, long durationNanos, boolean success) {
+    MeterKey sizeKey = new MeterKey("exsql.batch.size", dataSourceName, null, null);
+    DistributionSummary sizes = summaries.get(sizeKey);
+    if (sizes == null) {
+      sizes =
+          summaries.computeIfAbsent(
+              sizeKey,
+              k ->
+                  DistributionSummary.builder(k.name)
+                      .description("Statements per JDBC batch")
+                      .baseUnit("statements")
+                      .tag("datasource", dataSourceName)
+                      .register(registry));
+    }
+    sizes.record(size);
+    String outcome = outcome(success);
+    MeterKey durationKey = new MeterKey("exsql.batch.duration", dataSourceName, outcome, null);
+    Timer timer = timers.get(durationKey);
+    if (timer == null) {
+      timer =
+          timers.computeIfAbsent(
+              durationKey,
+              k ->
+                  Timer.builder(k.name)
+                      .description("Execution time of JDBC batches")
+                      .tag("datasource", dataSourceName)
+                      .tag("outcome", outcome)
+                      .register(registry));
+    }
+    timer.record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Counts statements that completed successfully, whether alone or in a batch. */
+  public void statementsExecuted(String dataSourceName, int count) {
+    if (count <= 0) {
+      return;
+    }
+    MeterKey key = new MeterKey("exsql.statements.executed", dataSourceName, null, null);
+    Counter counter = counters.get(key);
+    if (counter == null) {
+      counter =
+          counters.computeIfAbsent(
+              key,
+              k ->
+                  Counter.builder(k.name)
+                      .description("Statements executed successfully")
+                      .tag("datasource", dataSourceName)
+                      .register(registry));
+    }
+    counter.increment(count);
+  }
+
+  /** Counts a failed statement or batch by the SQLState the database reported. */
+  public void recordFailure(String dataSourceName, Throwable error) {
+    Counter.builder("exsql.statement.failures")
+        .description("Failed statements and batches by SQLState")
+        .tag("datasource", dataSourceName)
+        .tag("sqlstate", sqlState(error))
+        .register(registry)
+        .increment();
+  }
+
+  /** Counts a failed statement that is sent again, by the classifier's category of the error. */
+  public void recordRetry(String dataSourceName, String category) {
+    Counter.builder("exsql.statement.retries")
+        .description("Failed statement attempts that were retried")
+        .tag("datasource", dataSourceName)
+        .tag("category", category.toLowerCase(Locale.ROOT))
+        .register(registry)
+        .increment();
+  }
+
+  /** Records the time a whole script took, from borrowing its connection to its result. */
+  public void recordScript(String dataSourceName, long durationNanos, boolean success) {
+    Timer.builder("exsql.script.duration")
+        .description("Execution time of whole scripts")
+        .tag("datasource", dataSourceName)
+        .tag("outcome", outcome(success))
+        .register(registry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Runs a password fetch from the UIG security server and records its latency. */
+  public String timePasswordFetch(String dataSourceName, Supplier<String> fetch) {
+    long start = System.nanoTime();
+    boolean success = false;
+    try {
+      String password = fetch.get();
+      success = true;
+      return password;
+    } finally {
+      recordPasswordFetch(dataSourceName, System.nanoTime() - start, success);
+    }
+  }
+
+  /** Starts a non-blocking password fetch and records its latency once it completes. */
+  public CompletableFuture<String> timePasswordFetchAsync(
+      String dataSourceName, Supplier<CompletableFuture<String>> fetch) {
+    long start = System.nanoTime();
+    CompletableFuture<String> future;
+    try {
+      future = fetch.get();
+    } catch (RuntimeException e) {
+      recordPasswordFetch(dataSourceName, System.nanoTime() - start, false);
+      throw e;
+    }
+    return future.whenComplete(
+        (password, error) ->
+            recordPasswordFetch(dataSourceName, System.nanoTime() - start, error == null));
+  }
+
+  private void recordPasswordFetch(String dataSourceName, long durationNanos, boolean success) {
+    Timer.builder("exsql.credentials.fetch")
+        .description("Time to fetch a password from the UIG security server")
+        .tag("datasource", dataSourceName)
+        .tag("outcome", outcome(success))
+        .register(registry)
+        .record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** Exposes the hit and miss counts of the password cache. */
+  public void bindCredentialCache(CredentialCache cache) {
+    FunctionCounter.builder("exsql.credentials.cache", cache, CredentialCache::getHitCount)
+        .description("Password cache lookups")
+        .tag("result", "hit")
+        .register(registry);
+    FunctionCounter.builder("exsql.credentials.cache", cache, CredentialCache::getMissCount)
+        .description("Password cache lookups")
+        .tag("result", "miss")
+        .register(registry);
+  }
+
+  /** Makes a connection pool publish its HikariCP meters, including connection wait time. */
+  public void bindPool(HikariConfig config) {
+    config.setMetricRegistry(registry);
+  }
+
+  static String statementType(SqlStatement statement) {
+    if (statement.isBlock()) {
+      return "plsql";
+    }
+    String keyword = statement.getKeyword();
+    if ("WITH".equals(keyword)) {
+      return "select";
+    }
+    return keyword != null && STATEMENT_TYPES.contains(keyword)
+        ? keyword.toLowerCase(Locale.ROOT)
+        : "other";
+  }
+
+  static String sqlState(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof SQLException && ((SQLException) t).getSQLState() != null) {
+        return ((SQLException) t).getSQLState();
+      }
+    }
+    return "unknown";
+  }
+
+  private static String outcome(boolean success) {
+    return success ? "success" : "failure";
+  }
+
+  /** Name and tag values of a cached meter; unused tags are null. */
+  private static final class MeterKey {
+    private final String name;
+    private final String dataSourceName;
+    private final String tag1;
+    private final String tag2;
+
+    private MeterKey(String name, String dataSourceName, String tag1, String tag2) {
+      this.name = name;
+      this.dataSourceName = dataSourceName;
+      this.tag1 = tag1;
+      this.tag2 = tag2;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof MeterKey)) {
+        return false;
+      }
+      MeterKey other = (MeterKey) o;
+      return name.equals(other.name)
+          && Objects.equals(dataSourceName, other.dataSourceName)
+          && Objects.equals(tag1, other.tag1)
+          && Objects.equals(tag2, other.tag2);
+    }
+
+    @Override
+    public int hashCode() {
+      // Computed by hand; Objects.hash would allocate an array per lookup.
+      int hash = name.hashCode();
+      hash = 31 * hash + Objects.hashCode(dataSourceName);
+      hash = 31 * hash + Objects.hashCode(tag1);
+      return 31 * hash + Objects.hashCode(tag2);
+    }
+  }
+}
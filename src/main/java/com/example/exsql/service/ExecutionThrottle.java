@@ -0,0 +1,162 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.DataSourceDefinition;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Rate limits of throttled uploads, one {@link Limiter} per data source shared by every throttled
+ * script running on it. A data source's caps come from {@code
+ * app.datasources[N].throttle-statements-per-second} and {@code throttle-rows-per-second}, or from
+ * the {@code app.execution.throttle.*} defaults.
+ *
+ * <p>The caps are lowered further while statements are slow: when the average statement latency
+ * exceeds {@code target-latency-ms} the allowed rate is halved, and it recovers step by step once
+ * latency is back under the target.
+ */
+@Component
+public class ExecutionThrottle {
+
+  private static final Logger logger = LoggerFactory.getLogger(ExecutionThrottle.class);
+
+  @Value("${app.execution.throttle.statements-per-second:200}")
+  private double statementsPerSecond = 200;
+
+  @Value("${app.execution.throttle.rows-per-second:10000}")
+  private double rowsPerSecond = 10000;
+
+  @Value("${app.execution.throttle.target-latency-ms:250}")
+  private long targetLatencyMs = 250;
+
+  private final ConcurrentMap<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+  /** Returns the limiter of a data source, applying its current caps. */
+  public Limiter limiter(DataSourceDefinition definition) {
+    Limiter limiter =
+        limiters.computeIfAbsent(
+            definition.getName().toLowerCase(Locale.ROOT),
+            name -> new Limiter(definition.getName(), System::nanoTime));
+    limiter.configure(
+        definition.getThrottleStatementsPerSecond() > 0
+            ? definition.getThrottleStatementsPerSecond()
+            : statementsPerSecond,
+        definition.getThrottleRowsPerSecond() > 0
+            ? definition.getThrottleRowsPerSecond()
+            : rowsPerSecond,
+        TimeUnit.MILLISECONDS.toNanos(targetLatencyMs));
+    return limiter;
+  }
+
+  /**
+   * Spaces out the statements and rows of one data source. Statements are admitted before they are
+   * sent; the rows they touched are only known afterwards, so they delay the statements that come
+   * after them. Thread-safe.
+   */
+  public static final class Limiter {
+    // Lowest share of the caps the latency feedback can throttle down to.
+    private static final double MIN_LOAD_FACTOR = 0.05;
+    private static final double RECOVERY_STEP = 0.1;
+    // Weight of the newest sample in the average latency.
+    private static final double LATENCY_WEIGHT = 0.2;
+    private static final long ADJUST_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String dataSourceName;
+    private final LongSupplier nanoClock;
+    private double statementsPerSecond; // 0 means no cap
+    private double rowsPerSecond; // 0 means no cap
+    private long targetLatencyNanos; // 0 means no latency feedback
+    private long nextStatementAt;
+    private long nextRowAt;
+    private double averageLatencyNanos = -1;
+    private double loadFactor = 1.0;
+    private long lastAdjustedAt;
+
+    Limiter(String dataSourceName, LongSupplier nanoClock) {
+      this.dataSourceName = dataSourceName;
+      this.nanoClock = nanoClock;
+      this.nextStatementAt = nanoClock.getAsLong();
+      this.nextRowAt = nextStatementAt;
+      this.lastAdjustedAt = nextStatementAt;
+    }
+
+    synchronized void configure(
+        double statementsPerSecond, double rowsPerSecond, long targetLatencyNanos) {
+      this.statementsPerSecond = Math.max(0, statementsPerSecond);
+      this.rowsPerSecond = Math.max(0, rowsPerSecond);
+      this.targetLatencyNanos = Math.max(0, targetLatencyNanos);
+    }
+
+    /**
+     * Waits until {@code statements} more statements may be sent.
+     *
+     * @return The time waited, in nanoseconds.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    public long acquire(int statements) throws InterruptedException {
+      long waitNanos = reserve(statements);
+      if (waitNanos > 0) {
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+      }
+      return waitNanos;
+    }
+
+    /** Books the next free slot for {@code statements} statements and returns the wait for it. */
+    synchronized long reserve(int statements) {
+      long now = nanoClock.getAsLong();
+      long start = Math.max(now, Math.max(nextStatementAt, nextRowAt));
+      if (statementsPerSecond > 0) {
+        nextStatementAt = start + nanosFor(statements, statementsPerSecond);
+      }
+      return start - now;
+    }
+
+    /** Accounts for statements that returned, with the rows they touched and the time they took. */
+    public synchronized void completed(int statements, long rows, long latencyNanos) {
+      long now = nanoClock.getAsLong();
+      if (rowsPerSecond > 0 && rows > 0) {
+        nextRowAt = Math.max(nextRowAt, now) + nanosFor(rows, rowsPerSecond);
+      }
+      if (targetLatencyNanos <= 0 || statements <= 0) {
+        return;
+      }
+      double latency = (double) latencyNanos / statements;
+      averageLatencyNanos =
+          averageLatencyNanos < 0
+              ? latency
+              : averageLatencyNanos + LATENCY_WEIGHT * (latency - averageLatencyNanos);
+      if (now - lastAdjustedAt < ADJUST_INTERVAL_NANOS) {
+        return;
+      }
+      lastAdjustedAt = now;
+      double previous = loadFactor;
+      if (averageLatencyNanos > targetLatencyNanos) {
+        loadFactor = Math.max(MIN_LOAD_FACTOR, loadFactor / 2);
+      } else {
+        loadFactor = Math.min(1.0, loadFactor + RECOVERY_STEP);
+      }
+      if (loadFactor != previous) {
+        logger.info(
+            "Throttle of {} now at {}% of its caps, average statement latency {} ms",
+            dataSourceName,
+            Math.round(loadFactor * 100),
+            Math.round(averageLatencyNanos / 1_000_000));
+      }
+    }
+
+    /** Share of the configured caps currently allowed, between 0.05 and 1. */
+    public synchronized double getLoadFactor() {
+      return loadFactor;
+    }
+
+    private long nanosFor(long units, double perSecond) {
+      return (long) (units * 1_000_000_000d / (perSecond * loadFactor));
+    }
+  }
+}
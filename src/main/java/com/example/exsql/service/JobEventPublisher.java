@@ -0,0 +1,231 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.FileProgress;
+import com.example.exsql.model.StatementEvent;
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Streams job progress to Server-Sent Events subscribers. Events are written to the subscribers as
+ * they happen and are not retained, so a subscriber only sees what happens after it connected:
+ *
+ * <ul>
+ *   <li>{@code job}: a snapshot of the job, sent on connect and once more when the job is done,
+ *       after which the stream ends.
+ *   <li>{@code statement}: a {@link StatementEvent} for every statement that finished.
+ *   <li>{@code file}: the {@link FileProgress} of a file that finished.
+ * </ul>
+ *
+ * <p>Publishing only queues an event; each subscriber's queue is written out by a thread of the
+ * publisher's pool, so a slow or stalled browser never holds up the thread running the script. When
+ * a subscriber falls more than {@code app.jobs.events.queue-capacity} events behind, further {@code
+ * statement} events are dropped for it until it catches up; {@code job} and {@code file} events are
+ * always delivered.
+ */
+@Service
+public class JobEventPublisher {
+
+  private static final Logger logger = LoggerFactory.getLogger(JobEventPublisher.class);
+
+  @Value("${app.jobs.events.timeout-ms:3600000}")
+  private long timeoutMs = 3600000;
+
+  @Value("${app.jobs.events.queue-capacity:1000}")
+  private int queueCapacity = 1000;
+
+  private final ConcurrentMap<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+  private final AtomicInteger writerCounter = new AtomicInteger();
+
+  // One thread per subscriber that has events to write; idle threads end after a minute.
+  private final ExecutorService writers =
+      Executors.newCachedThreadPool(
+          runnable -> {
+            Thread thread = new Thread(runnable, "job-events-" + writerCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+
+  /** Opens an event stream for the job, starting with a snapshot of its current state. */
+  public SseEmitter subscribe(ExecutionJob job) {
+    String jobId = job.getId();
+    SseEmitter emitter = new SseEmitter(timeoutMs);
+    Subscriber subscriber = new Subscriber(jobId, emitter);
+    List<Subscriber> jobSubscribers =
+        subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+    jobSubscribers.add(subscriber);
+    emitter.onCompletion(() -> unsubscribe(subscriber));
+    emitter.onTimeout(() -> unsubscribe(subscriber));
+    emitter.onError(e -> unsubscribe(subscriber));
+    subscriber.offer(new Event("job", job, false));
+    // The job may have finished before this subscriber was registered.
+    if (job.isDone() && jobSubscribers.remove(subscriber)) {
+      subscriber.offer(Event.COMPLETE);
+    }
+    return emitter;
+  }
+
+  public void statementFinished(String jobId, StatementEvent event) {
+    broadcast(jobId, new Event("statement", event, true));
+  }
+
+  public void fileFinished(String jobId, FileProgress file) {
+    broadcast(jobId, new Event("file", file, false));
+  }
+
+  /** Sends the final job snapshot and closes every stream of the job. */
+  public void jobFinished(ExecutionJob job) {
+    List<Subscriber> jobSubscribers = subscribers.remove(job.getId());
+    if (jobSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : jobSubscribers) {
+      subscriber.offer(new Event("job", job, false));
+      subscriber.offer(Event.COMPLETE);
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    writers.shutdownNow();
+  }
+
+  private void broadcast(String jobId, Event event) {
+    List<Subscriber> jobSubscribers = subscribers.get(jobId);
+    if (jobSubscribers == null) {
+      return;
+    }
+    for (Subscriber subscriber : jobSubscribers) {
+      subscriber.offer(event);
+    }
+  }
+
+  private void unsubscribe(Subscriber subscriber) {
+    subscribers.computeIfPresent(
+        subscriber.jobId,
+        (id, jobSubscribers) -> {
+          jobSubscribers.remove(subscriber);
+          return jobSubscribers.isEmpty() ? null : jobSubscribers;
+        });
+  }
+
+  /** An event waiting to be written, or the marker that ends the stream. */
+  private static final class Event {
+    private static final Event COMPLETE = new Event(null, null, false);
+
+    private final String name;
+    private final Object data;
+    private final boolean droppable;
+
+    private Event(String name, Object data, boolean droppable) {
+      this.name = name;
+      this.data = data;
+      this.droppable = droppable;
+    }
+  }
+
+  /** One event stream with the events not yet written to it. */
+  private final class Subscriber {
+    private final String jobId;
+    private final SseEmitter emitter;
+    private final Queue<Event> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean writing = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    private Subscriber(String jobId, SseEmitter emitter) {
+      this.jobId = jobId;
+      this.emitter = emitter;
+    }
+
+    private void offer(Event event) {
+      if (closed) {
+        return;
+      }
+      if (event.droppable && queued.get() >= queueCapacity) {
+        if (dropped.getAndIncrement() == 0) {
+          logger.debug("Subscriber of job {} is falling behind; dropping statement events", jobId);
+        }
+        return;
+      }
+      queue.add(event);
+      queued.incrementAndGet();
+      scheduleWrite();
+    }
+
+    private void scheduleWrite() {
+      if (!writing.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        writers.execute(this::write);
+      } catch (RejectedExecutionException e) {
+        // Shutting down.
+        writing.set(false);
+      }
+    }
+
+    /** Writes queued events until the queue is empty; runs on one writer thread at a time. */
+    private void write() {
+      try {
+        Event event;
+        while (!closed && (event = queue.poll()) != null) {
+          queued.decrementAndGet();
+          if (event == Event.COMPLETE) {
+            close();
+            emitter.complete();
+          } else {
+            send(event);
+          }
+        }
+      } finally {
+        writing.set(false);
+      }
+      // An event may have been queued after the last poll but before the flag was cleared.
+      if (!closed && !queue.isEmpty()) {
+        scheduleWrite();
+      }
+    }
+
+    /** Sends one event; a subscriber that cannot be written to is dropped. */
+    private void send(Event event) {
+      try {
+        emitter.send(
+            SseEmitter.event().name(event.name).data(event.data, MediaType.APPLICATION_JSON));
+      } catch (IOException | IllegalStateException e) {
+        logger.debug("Dropping event subscriber of job {}: {}", jobId, e.getMessage());
+        close();
+        unsubscribe(this);
+        emitter.completeWithError(e);
+      }
+    }
+
+    private void close() {
+      closed = true;
+      queue.clear();
+      if (dropped.get() > 0) {
+        logger.debug("Dropped {} statement event(s) for a subscriber of job {}", dropped, jobId);
+      }
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.example.exsql.service;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Default {@link SqlErrorClassifier} for the Oracle (ojdbc8) and OceanBase drivers, in both of
+ * OceanBase's Oracle and MySQL modes. Errors are recognised by vendor code, then by SQLState and
+ * exception type. OceanBase reports its own errors with the positive form of the internal code
+ * (e.g. 4012 for {@code OB_TIMEOUT}), which does not clash with the ORA- numbers below.
+ */
+public class OceanBaseOracleErrorClassifier implements SqlErrorClassifier {
+
+  private static final Set<Integer> TRANSIENT_CODES =
+      codes(
+          // ORA-00060 deadlock, ORA-00054 / ORA-30006 resource busy, ORA-04021 library lock
+          // timeout, ORA-04068 package state discarded, ORA-08177 cannot serialize access,
+          // ORA-01555 snapshot too old
+          60,
+          54,
+          30006,
+          4021,
+          4068,
+          8177,
+          1555,
+          // MySQL mode: 1205 lock wait timeout, 1213 deadlock
+          1205,
+          1213,
+          // OceanBase: 4012 timeout, 4038 not master, 4653 / 4654 location or leader not found,
+          // 6002 transaction needs rollback, 6003 / 6005 row lock conflict, 6210 transaction
+          // timeout, 6211 transaction killed, 6212 statement timeout, 6213 transaction context
+          // missing, 6224 transaction rolled back
+          4012,
+          4038,
+          4653,
+          4654,
+          6002,
+          6003,
+          6005,
+          6210,
+          6211,
+          6212,
+          6213,
+          6224);
+
+  private static final Set<Integer> CONNECTION_CODES =
+      codes(
+          // ORA-00028 session killed, ORA-01012 not logged on, ORA-01033 / ORA-01034 / ORA-01089
+          // instance starting or stopping, ORA-03113 / ORA-03114 / ORA-03135 connection lost,
+          // ORA-12514 / ORA-12528 / ORA-12537 / ORA-12541 listener errors
+          28,
+          1012,
+          1033,
+          1034,
+          1089,
+          3113,
+          3114,
+          3135,
+          12514,
+          12528,
+          12537,
+          12541,
+          // ojdbc: 17002 I/O error, 17008 closed connection, 17410 no more data from socket
+          17002,
+          17008,
+          17410,
+          // MySQL mode: 2006 server has gone away, 2013 lost connection during query
+          2006,
+          2013);
+
+  @Override
+  public Category classify(SQLException error) {
+    int code = Math.abs(error.getErrorCode());
+    if (CONNECTION_CODES.contains(code)) {
+      return Category.CONNECTION_LOST;
+    }
+    if (TRANSIENT_CODES.contains(code)) {
+      return Category.TRANSIENT;
+    }
+    String sqlState = error.getSQLState();
+    if (error instanceof SQLRecoverableException
+        || error instanceof SQLTransientConnectionException
+        || (sqlState != null && sqlState.startsWith("08"))) {
+      return Category.CONNECTION_LOST;
+    }
+    // 40001 serialization failure, 40P01 deadlock
+    if (error instanceof SQLTransactionRollbackException
+        || "40001".equals(sqlState)
+        || "40P01".equals(sqlState)) {
+      return Category.TRANSIENT;
+    }
+    return Category.FATAL;
+  }
+
+  private static Set<Integer> codes(Integer... codes) {
+    return Collections.unmodifiableSet(new HashSet<>(Arrays.asList(codes)));
+  }
+}
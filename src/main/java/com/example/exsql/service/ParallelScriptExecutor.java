@@ -0,0 +1,273 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.ScriptExecutionResult;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs the files of one upload concurrently on a bounded executor per data source. Each executor
+ * has as many threads as the data source's connection pool, so parallel files never queue for
+ * connections inside the pool.
+ *
+ * <p>Ordering constraints come from two places:
+ *
+ * <ul>
+ *   <li>A numeric file-name prefix such as {@code 01_} or {@code 2-}: a file waits for every file
+ *       with the next lower prefix. Files sharing a prefix, and files without one, run freely.
+ *   <li>An explicit list of {@code file: dependency, dependency} entries separated by {@code ;} or
+ *       new lines.
+ * </ul>
+ *
+ * A file whose dependency failed is not executed and is reported as skipped. Results are always
+ * returned in upload order.
+ */
+@Service
+public class ParallelScriptExecutor {
+
+  private static final Logger logger = LoggerFactory.getLogger(ParallelScriptExecutor.class);
+
+  private static final Pattern ORDER_PREFIX = Pattern.compile("^(\\d+)[_\\-.]");
+
+  private final DataSourceRegistry dataSourceRegistry;
+  private final ConcurrentMap<String, ExecutorService> executors = new ConcurrentHashMap<>();
+
+  @Autowired
+  public ParallelScriptExecutor(DataSourceRegistry dataSourceRegistry) {
+    this.dataSourceRegistry = dataSourceRegistry;
+  }
+
+  /**
+   * Executes {@code task} for every file index, honouring the ordering constraints.
+   *
+   * @param dataSourceName Data source the files run against; selects the executor.
+   * @param fileNames Original file names, in upload order.
+   * @param explicitDependencies Optional dependency list, may be empty.
+   * @param task Executes the file at the given index and never throws.
+   * @return One result per file, in upload order.
+   */
+  public List<ScriptExecutionResult> execute(
+      String dataSourceName,
+      List<String> fileNames,
+      String explicitDependencies,
+      IntFunction<ScriptExecutionResult> task) {
+    List<Set<Integer>> dependencies;
+    List<Integer> order;
+    try {
+      dependencies = resolveDependencies(fileNames, explicitDependencies);
+      order = topologicalOrder(fileNames, dependencies);
+    } catch (IllegalArgumentException e) {
+      logger.error("Invalid file ordering for parallel execution: {}", e.getMessage());
+      List<ScriptExecutionResult> results = new ArrayList<>();
+      for (String fileName : fileNames) {
+        results.add(
+            new ScriptExecutionResult(
+                fileName, false, "Invalid file ordering: " + e.getMessage(), ""));
+      }
+      return results;
+    }
+
+    ExecutorService executor = executorFor(dataSourceName);
+    logger.info(
+        "Executing {} file(s) in parallel on data source: {}", fileNames.size(), dataSourceName);
+    List<CompletableFuture<ScriptExecutionResult>> futures = new ArrayList<>();
+    for (int i = 0; i < fileNames.size(); i++) {
+      futures.add(null);
+    }
+    for (int index : order) {
+      Set<Integer> required = dependencies.get(index);
+      CompletableFuture<?>[] upstream =
+          required.stream().map(futures::get).toArray(CompletableFuture[]::new);
+      futures.set(
+          index,
+          CompletableFuture.allOf(upstream)
+              .thenApplyAsync(
+                  ignored -> {
+                    for (int dependency : required) {
+                      if (!futures.get(dependency).join().isSuccess()) {
+                        return new ScriptExecutionResult(
+                            fileNames.get(index),
+                            false,
+                            "Skipped: dependency "
+                                + fileNames.get(dependency)
+                                + " did not complete successfully.",
+                            "");
+                      }
+                    }
+                    return task.apply(index);
+                  },
+                  executor)
+              .exceptionally(
+                  e ->
+                      new ScriptExecutionResult(
+                          fileNames.get(index),
+                          false,
+                          "Failed to execute script on " + dataSourceName + ": " + e.getMessage(),
+                          "")));
+    }
+
+    List<ScriptExecutionResult> results = new ArrayList<>();
+    for (CompletableFuture<ScriptExecutionResult> future : futures) {
+      results.add(future.join());
+    }
+    return results;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executors.values().forEach(ExecutorService::shutdownNow);
+  }
+
+  private ExecutorService executorFor(String dataSourceName) {
+    return executors.computeIfAbsent(
+        dataSourceName,
+        name -> {
+          int threads = dataSourceRegistry.getMaximumPoolSize(name);
+          AtomicInteger counter = new AtomicInteger();
+          ThreadPoolExecutor executor =
+              new ThreadPoolExecutor(
+                  threads,
+                  threads,
+                  60,
+                  TimeUnit.SECONDS,
+                  new LinkedBlockingQueue<>(),
+                  runnable -> {
+                    Thread thread =
+                        new Thread(runnable, "script-" + name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                  });
+          executor.allowCoreThreadTimeOut(true);
+          logger.info(
+              "Created script executor for data source {} with {} thread(s)", name, threads);
+          return executor;
+        });
+  }
+
+  /** Returns, for each file index, the indexes of the files it must wait for. */
+  static List<Set<Integer>> resolveDependencies(
+      List<String> fileNames, String explicitDependencies) {
+    List<Set<Integer>> dependencies = new ArrayList<>();
+    Map<String, Integer> indexByName = new HashMap<>();
+    TreeSet<Long> prefixes = new TreeSet<>();
+    Long[] prefixOf = new Long[fileNames.size()];
+    for (int i = 0; i < fileNames.size(); i++) {
+      dependencies.add(new LinkedHashSet<>());
+      indexByName.putIfAbsent(fileNames.get(i), i);
+      Matcher matcher = ORDER_PREFIX.matcher(fileNames.get(i));
+      if (matcher.find()) {
+        prefixOf[i] = Long.parseLong(matcher.group(1));
+        prefixes.add(prefixOf[i]);
+      }
+    }
+
+    // Numeric prefixes: each file waits for the stage directly before its own.
+    for (int i = 0; i < fileNames.size(); i++) {
+      if (prefixOf[i] == null) {
+        continue;
+      }
+      Long previousStage = prefixes.lower(prefixOf[i]);
+      for (int j = 0; previousStage != null && j < fileNames.size(); j++) {
+        if (previousStage.equals(prefixOf[j])) {
+          dependencies.get(i).add(j);
+        }
+      }
+    }
+
+    if (explicitDependencies == null) {
+      return dependencies;
+    }
+    for (String entry : explicitDependencies.split("[;\\n]")) {
+      if (entry.trim().isEmpty()) {
+        continue;
+      }
+      int colon = entry.indexOf(':');
+      if (colon < 0) {
+        throw new IllegalArgumentException(
+            "Expected 'file: dependency, ...' but got '" + entry.trim() + "'");
+      }
+      int dependent = lookup(indexByName, entry.substring(0, colon).trim());
+      for (String name : entry.substring(colon + 1).split("[,\\s]+")) {
+        if (!name.isEmpty()) {
+          dependencies.get(dependent).add(lookup(indexByName, name));
+        }
+      }
+    }
+    return dependencies;
+  }
+
+  private static int lookup(Map<String, Integer> indexByName, String fileName) {
+    Integer index = indexByName.get(fileName);
+    if (index == null) {
+      throw new IllegalArgumentException("Unknown file in dependency list: " + fileName);
+    }
+    return index;
+  }
+
+  /** Orders file indexes so every file comes after its dependencies (Kahn's algorithm). */
+  private static List<Integer> topologicalOrder(
+      List<String> fileNames, List<Set<Integer>> dependencies) {
+    int[] pending = new int[dependencies.size()];
+    List<List<Integer>> dependents = new ArrayList<>();
+    for (int i = 0; i < dependencies.size(); i++) {
+      dependents.add(new ArrayList<>());
+    }
+    for (int i = 0; i < dependencies.size(); i++) {
+      for (int dependency : dependencies.get(i)) {
+        if (dependency == i) {
+          throw new IllegalArgumentException(fileNames.get(i) + " depends on itself");
+        }
+        pending[i]++;
+        dependents.get(dependency).add(i);
+      }
+    }
+    Deque<Integer> ready = new ArrayDeque<>();
+    for (int i = 0; i < pending.length; i++) {
+      if (pending[i] == 0) {
+        ready.add(i);
+      }
+    }
+    List<Integer> order = new ArrayList<>();
+    while (!ready.isEmpty()) {
+      int next = ready.poll();
+      order.add(next);
+      for (int dependent : dependents.get(next)) {
+        if (--pending[dependent] == 0) {
+          ready.add(dependent);
+        }
+      }
+    }
+    if (order.size() < dependencies.size()) {
+      List<String> cyclic = new ArrayList<>();
+      for (int i = 0; i < pending.length; i++) {
+        if (pending[i] > 0) {
+          cyclic.add(fileNames.get(i));
+        }
+      }
+      throw new IllegalArgumentException("Circular dependency between files: " + cyclic);
+    }
+    return order;
+  }
+}
@@ -0,0 +1,37 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.model.StatementEvent;
+import com.example.exsql.script.SqlStatement;
+
+/**
+ * Receives progress callbacks while {@link SqlExecutionService} runs an upload. Files are
+ * identified by their index in the upload. In parallel mode callbacks for different files arrive
+ * concurrently on different threads; callbacks for one file always come from a single thread.
+ */
+public interface ScriptExecutionListener {
+
+  /** A listener that ignores every callback. */
+  ScriptExecutionListener NONE = new ScriptExecutionListener() {};
+
+  default void scriptStarted(int fileIndex) {}
+
+  /**
+   * Called right before a statement is sent. The statements of a JDBC batch are all reported before
+   * the batch is sent.
+   */
+  default void statementStarted(int fileIndex, SqlStatement statement) {}
+
+  /**
+   * Called as soon as a statement has succeeded or failed. Statements of a JDBC batch are reported
+   * when the batch returns; if the batch fails, only the statements the driver reports as executed
+   * and the failed statement are reported.
+   */
+  default void statementFinished(StatementEvent event) {}
+
+  /**
+   * Called when a file has been executed. Files that never start (e.g. because the data source is
+   * unavailable or a dependency failed) are only reported through the returned results.
+   */
+  default void scriptFinished(int fileIndex, ScriptExecutionResult result) {}
+}
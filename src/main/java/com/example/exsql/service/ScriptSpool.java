@@ -0,0 +1,106 @@
+package com.example.exsql.service;
+
+import com.example.exsql.script.SpooledScriptSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Keeps uploaded scripts on local disk for the lifetime of their job. The servlet container deletes
+ * multipart files when the request ends, so they are moved into a directory per job first. With
+ * {@code spring.servlet.multipart.location} on the same file system the move is a rename.
+ */
+@Service
+public class ScriptSpool {
+
+  private static final Logger logger = LoggerFactory.getLogger(ScriptSpool.class);
+
+  @Value("${app.jobs.spool-dir:${java.io.tmpdir}/exsql-spool}")
+  private String spoolDir;
+
+  /** Creates the spool directory, which also serves as the multipart upload location. */
+  @PostConstruct
+  public void initialize() throws IOException {
+    Files.createDirectories(Paths.get(spoolDir));
+  }
+
+  /**
+   * Stores the files of one job.
+   *
+   * @param jobId The job the files belong to; names the spool directory.
+   * @param files The uploaded files, in upload order.
+   * @return The spooled scripts, in upload order.
+   * @throws IOException If a file cannot be written; nothing is left behind in that case.
+   */
+  public List<SpooledScriptSource> spool(String jobId, List<MultipartFile> files)
+      throws IOException {
+    Path directory = Files.createDirectories(Paths.get(spoolDir, jobId).toAbsolutePath());
+    List<SpooledScriptSource> scripts = new ArrayList<>();
+    try {
+      for (int i = 0; i < files.size(); i++) {
+        MultipartFile file = files.get(i);
+        // Files are stored by position, the client-supplied name is never used as a path.
+        Path target = directory.resolve(fileName(i));
+        // For disk-backed parts this moves the container's temp file instead of copying it.
+        file.transferTo(target.toFile());
+        scripts.add(
+            new SpooledScriptSource(file.getOriginalFilename(), target, Files.size(target)));
+      }
+    } catch (IOException | RuntimeException e) {
+      delete(jobId);
+      throw e;
+    }
+    logger.info("Spooled {} file(s) for job {} to {}", scripts.size(), jobId, directory);
+    return scripts;
+  }
+
+  /**
+   * Looks up a file spooled earlier.
+   *
+   * @return The spooled script, or null if it no longer exists.
+   */
+  public SpooledScriptSource find(String jobId, int fileIndex, String originalFileName) {
+    Path path = Paths.get(spoolDir, jobId, fileName(fileIndex)).toAbsolutePath();
+    try {
+      return new SpooledScriptSource(originalFileName, path, Files.size(path));
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  /** Removes the spooled files of a job, if any. */
+  public void delete(String jobId) {
+    Path directory = Paths.get(spoolDir, jobId);
+    if (!Files.exists(directory)) {
+      return;
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(ScriptSpool::deleteQuietly);
+    } catch (IOException e) {
+      logger.warn("Could not clean up spool directory {}: {}", directory, e.getMessage());
+    }
+  }
+
+  private static String fileName(int fileIndex) {
+    return fileIndex + ".sql";
+  }
+
+  private static void deleteQuietly(Path path) {
+    try {
+      Files.deleteIfExists(path);
+    } catch (IOException e) {
+      logger.warn("Could not delete spooled file {}: {}", path, e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.example.exsql.service;
+
+import java.sql.SQLException;
+
+/**
+ * Decides whether a failed statement may be sent again. {@link SqlExecutionService} uses {@link
+ * OceanBaseOracleErrorClassifier} unless the application context holds a bean of this type.
+ * Implementations must be thread-safe.
+ */
+public interface SqlErrorClassifier {
+
+  /** What a failure says about the statement and the connection it ran on. */
+  enum Category {
+    /**
+     * The statement was rolled back by the database (deadlock, lock wait timeout, leader switch,
+     * killed transaction) and can be sent again on the same connection.
+     */
+    TRANSIENT,
+    /**
+     * The connection is gone. Whether the statement took effect is unknown, so only statements that
+     * can safely run twice are sent again, on a new connection.
+     */
+    CONNECTION_LOST,
+    /** Anything else; the script fails at this statement. */
+    FATAL
+  }
+
+  /**
+   * Classifies one exception of a failed statement. The service passes each {@link SQLException} of
+   * the cause chain in turn, outermost first, and uses the first answer other than {@link
+   * Category#FATAL}.
+   */
+  Category classify(SQLException error);
+}
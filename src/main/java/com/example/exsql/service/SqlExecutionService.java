@@ -1,20 +1,53 @@
 package com.example.exsql.service;
 
+import com.example.exsql.model.BatchExecutionResult;
 import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionCheckpoint;
+import com.example.exsql.model.ExecutionOptions;
 import com.example.exsql.model.ScriptExecutionResult;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import com.example.exsql.model.SlowStatement;
+import com.example.exsql.model.StatementEvent;
+import com.example.exsql.model.StatementRetry;
+import com.example.exsql.model.TransactionMode;
+import com.example.exsql.script.InsertValues;
+import com.example.exsql.script.MultipartScriptSource;
+import com.example.exsql.script.ScriptSource;
+import com.example.exsql.script.SqlScriptReader;
+import com.example.exsql.script.SqlStatement;
+import com.example.exsql.script.SqlStatementType;
+import com.zaxxer.hikari.HikariDataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
 import javax.sql.DataSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlProvider;
+import org.springframework.jdbc.core.StatementCallback;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
@@ -24,33 +57,133 @@ public class SqlExecutionService {
 
   private static final Logger logger = LoggerFactory.getLogger(SqlExecutionService.class);
 
-  private final Map<String, DataSourceDefinition> dataSourceDefinitions;
+  // Matches the amount of executed SQL the upload page shows per file.
+  private static final int SQL_PREVIEW_LIMIT = 1000;
+  // Longest part of a failed statement echoed in the result and the log.
+  private static final int FAILED_STATEMENT_EXCERPT_LIMIT = 500;
+  // Ends each statement of a multi-statement packet. The line break first ends a trailing --
+  // comment.
+  private static final String PIPELINE_SEPARATOR = "\n;\n";
+  // Longest execution plan kept for a slow statement.
+  private static final int PLAN_LIMIT = 4000;
+  private static final Pattern ALLOW_MULTI_QUERIES =
+      Pattern.compile("[?&;]allowMultiQueries=true\\b", Pattern.CASE_INSENSITIVE);
+  private static final Pattern ROLLBACK_TO_SAVEPOINT =
+      Pattern.compile("ROLLBACK(\\s+WORK)?\\s+TO\\b", Pattern.CASE_INSENSITIVE);
+  // Queries whose effect goes beyond their rows, so every row must still be read.
+  private static final Pattern ROWS_MATTER =
+      Pattern.compile(
+          "\\bFOR\\s+(UPDATE|SHARE)\\b|\\bLOCK\\s+IN\\s+SHARE\\s+MODE\\b|\\bINTO\\b",
+          Pattern.CASE_INSENSITIVE);
+
+  private final DataSourceCatalog dataSourceCatalog;
   private final CustomPasswordRetrievalService passwordRetrievalService;
+  private final DataSourceRegistry dataSourceRegistry;
+  private final ParallelScriptExecutor parallelScriptExecutor;
+  private final ExecutionMetrics metrics;
+
+  @Autowired(required = false)
+  private CheckpointStore checkpointStore = CheckpointStore.disabled();
+
+  @Autowired(required = false)
+  private SqlErrorClassifier errorClassifier = new OceanBaseOracleErrorClassifier();
+
+  @Autowired(required = false)
+  private ExecutionThrottle executionThrottle = new ExecutionThrottle();
+
+  @Value("${app.execution.batch-size:500}")
+  private int defaultBatchSize = 500;
+
+  @Value("${app.execution.commit-interval:1000}")
+  private int defaultCommitInterval = 1000;
+
+  @Value("${app.execution.pipeline.max-bytes:65536}")
+  private int defaultPipelineMaxBytes = 65536;
+
+  @Value("${app.execution.profile.slow-threshold-ms:1000}")
+  private long defaultSlowThresholdMs = 1000;
+
+  @Value("${app.execution.profile.top-n:50}")
+  private int slowStatementLimit = 50;
+
+  @Value("${app.execution.retry.max-attempts:3}")
+  private int retryMaxAttempts = 3;
+
+  @Value("${app.execution.retry.initial-backoff-ms:200}")
+  private long retryInitialBackoffMs = 200;
+
+  @Value("${app.execution.retry.max-backoff-ms:5000}")
+  private long retryMaxBackoffMs = 5000;
 
   @Autowired
   public SqlExecutionService(
-      Map<String, DataSourceDefinition> dataSourceDefinitions,
-      CustomPasswordRetrievalService passwordRetrievalService) {
-    this.dataSourceDefinitions = dataSourceDefinitions;
+      DataSourceCatalog dataSourceCatalog,
+      CustomPasswordRetrievalService passwordRetrievalService,
+      DataSourceRegistry dataSourceRegistry,
+      ParallelScriptExecutor parallelScriptExecutor,
+      ExecutionMetrics metrics) {
+    this.dataSourceCatalog = dataSourceCatalog;
     this.passwordRetrievalService = passwordRetrievalService;
+    this.dataSourceRegistry = dataSourceRegistry;
+    this.parallelScriptExecutor = parallelScriptExecutor;
+    this.metrics = metrics;
   }
 
   public List<ScriptExecutionResult> executeSqlScripts(
       MultipartFile[] files, String dataSourceName) {
+    return executeSqlScripts(files, dataSourceName, new ExecutionOptions());
+  }
+
+  public List<ScriptExecutionResult> executeSqlScripts(
+      MultipartFile[] files, String dataSourceName, ExecutionOptions options) {
+    List<ScriptSource> scripts = new ArrayList<>();
+    for (MultipartFile file : files) {
+      scripts.add(new MultipartScriptSource(file));
+    }
+    return executeScripts(scripts, dataSourceName, options, ScriptExecutionListener.NONE);
+  }
+
+  /**
+   * Executes the given scripts on the named data source.
+   *
+   * @param scripts The scripts, in upload order.
+   * @param dataSourceName The data source to run on; defaults to the first configured one when
+   *     blank.
+   * @param options Batching and parallelism options.
+   * @param listener Notified as files and statements progress.
+   * @return One result per script, in upload order.
+   */
+  public List<ScriptExecutionResult> executeScripts(
+      List<? extends ScriptSource> scripts,
+      String dataSourceName,
+      ExecutionOptions options,
+      ScriptExecutionListener listener) {
+    return executeScripts(scripts, dataSourceName, options, listener, new ExecutionGate());
+  }
+
+  /**
+   * Executes the given scripts on the named data source, holding each script before its next
+   * statement while the gate is paused.
+   */
+  public List<ScriptExecutionResult> executeScripts(
+      List<? extends ScriptSource> scripts,
+      String dataSourceName,
+      ExecutionOptions options,
+      ScriptExecutionListener listener,
+      ExecutionGate gate) {
     List<ScriptExecutionResult> results = new ArrayList<>();
 
-    String effectiveDataSourceName =
-        StringUtils.hasText(dataSourceName) ? dataSourceName.toLowerCase() : "primary";
+    String effectiveDataSourceName = dataSourceCatalog.resolveName(dataSourceName);
     logger.info("Attempting to execute scripts on data source: {}", effectiveDataSourceName);
 
-    DataSourceDefinition definition = dataSourceDefinitions.get(effectiveDataSourceName);
+    DataSourceDefinition definition = dataSourceCatalog.get(effectiveDataSourceName);
 
     if (definition == null) {
       logger.error("Data source definition not found for name: {}", effectiveDataSourceName);
-      for (MultipartFile file : files) {
+      for (ScriptSource script : scripts) {
         results.add(
             new ScriptExecutionResult(
-                file.getOriginalFilename(),
+                script.getFileName(),
                 false,
                 "Data source definition not found: " + effectiveDataSourceName,
                 ""));
@@ -61,43 +194,17 @@ public class SqlExecutionService {
     logger.info("Found data source definition for: {}", definition.getName());
     String password;
     try {
-      if ("primary".equals(definition.getName())) {
-        logger.info(
-            "Retrieving password for primary data source using its specific CNLDB/HTTP mechanism.");
-        // This relies on CustomPasswordRetrievalService.retrievePrimaryPassword using its own
-        // @Value injected CNLDB params.
-        // If primary also had HTTP password definition, that logic would be inside
-        // retrievePrimaryPassword or called from here.
-        password = passwordRetrievalService.retrievePrimaryPassword(definition.getUsername());
-      } else {
-        logger.info(
-            "Retrieving password for data source '{}' using CNLDB parameters from its definition.",
-            definition.getName());
-        password =
-            passwordRetrievalService.retrievePassword(
-                definition.getUsername(),
-                definition.getCndlNdbType(),
-                definition.getCndlTns(),
-                definition.getCndlGetPasswdUrl(),
-                definition.getCndlGetPasswdDummyPassword(),
-                definition.getName());
-      }
-      if (!StringUtils.hasText(password)) {
-        logger.error("Retrieved password was empty for data source: {}", definition.getName());
-        throw new RuntimeException(
-            "Retrieved password was empty for data source " + definition.getName() + ".");
-      }
-      logger.info("Password retrieved successfully for data source: {}", definition.getName());
+      password = retrievePassword(definition);
     } catch (Exception e) {
       logger.error(
           "Failed to retrieve password for data source {}: {}",
           definition.getName(),
           e.getMessage(),
           e);
-      for (MultipartFile file : files) {
+      for (ScriptSource script : scripts) {
         results.add(
             new ScriptExecutionResult(
-                file.getOriginalFilename(),
+                script.getFileName(),
                 false,
                 "Failed to retrieve password for data source "
                     + definition.getName()
@@ -108,23 +215,17 @@ public class SqlExecutionService {
       return results;
     }
 
-    DataSource dynamicDataSource;
+    DataSource pooledDataSource;
     try {
-      dynamicDataSource =
-          DataSourceBuilder.create()
-              .url(definition.getUrl())
-              .username(definition.getUsername())
-              .password(password)
-              .driverClassName(definition.getDriverClassName())
-              .build();
-      logger.info("Dynamically created DataSource for: {}", definition.getName());
+      pooledDataSource = dataSourceRegistry.getDataSource(definition, password);
+      logger.info("Using pooled DataSource for: {}", definition.getName());
     } catch (Exception e) {
       logger.error(
           "Failed to create DataSource for {}: {}", definition.getName(), e.getMessage(), e);
-      for (MultipartFile file : files) {
+      for (ScriptSource script : scripts) {
         results.add(
             new ScriptExecutionResult(
-                file.getOriginalFilename(),
+                script.getFileName(),
                 false,
                 "Failed to create DataSource for " + definition.getName() + ": " + e.getMessage(),
                 ""));
@@ -132,120 +233,1577 @@ public class SqlExecutionService {
       return results;
     }
 
-    JdbcTemplate jdbcTemplate = new JdbcTemplate(dynamicDataSource);
+    JdbcTemplate jdbcTemplate = new JdbcTemplate(pooledDataSource);
     logger.info("JdbcTemplate created for data source: {}", definition.getName());
 
-    for (MultipartFile file : files) {
-      results.add(executeSingleScript(file, jdbcTemplate, definition.getName()));
+    ScriptSettings settings = resolveSettings(options, definition, gate);
+    CredentialRefresh credentials = new CredentialRefresh(definition);
+    if (options.isParallelFiles() && scripts.size() > 1) {
+      List<String> fileNames = new ArrayList<>();
+      for (ScriptSource script : scripts) {
+        fileNames.add(script.getFileName());
+      }
+      return parallelScriptExecutor.execute(
+          definition.getName(),
+          fileNames,
+          options.getFileDependencies(),
+          index ->
+              executeSingleScript(
+                  scripts.get(index),
+                  index,
+                  jdbcTemplate,
+                  definition.getName(),
+                  settings,
+                  listener,
+                  credentials));
+    }
+    for (int i = 0; i < scripts.size(); i++) {
+      results.add(
+          executeSingleScript(
+              scripts.get(i),
+              i,
+              jdbcTemplate,
+              definition.getName(),
+              settings,
+              listener,
+              credentials));
     }
     return results;
   }
 
-  private ScriptExecutionResult executeSingleScript(
-      MultipartFile file, JdbcTemplate jdbcTemplate, String dataSourceName) {
-    String fileName = file.getOriginalFilename();
-    String sqlContent = null;
-    try {
-      // Read script content
-      try (BufferedReader reader =
-          new BufferedReader(
-              new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8))) {
-        sqlContent = reader.lines().collect(Collectors.joining(System.lineSeparator()));
+  /** Applies the configured defaults to the options chosen for this upload. */
+  private ScriptSettings resolveSettings(
+      ExecutionOptions options, DataSourceDefinition definition, ExecutionGate gate) {
+    int batchSize = 0;
+    if (options.isBatchDml() || options.isBindInsertValues()) {
+      batchSize = options.getBatchSize() > 0 ? options.getBatchSize() : defaultBatchSize;
+      logger.info(
+          "DML batching enabled with batch size {}{}",
+          batchSize,
+          options.isBindInsertValues() ? ", binding the values of INSERT ... VALUES runs" : "");
+    }
+    TransactionMode mode =
+        options.getTransactionMode() != null
+            ? options.getTransactionMode()
+            : TransactionMode.AUTO_COMMIT;
+    int commitInterval =
+        options.getCommitInterval() > 0 ? options.getCommitInterval() : defaultCommitInterval;
+    if (mode != TransactionMode.AUTO_COMMIT) {
+      logger.info(
+          "Transaction mode {}{}",
+          mode,
+          mode == TransactionMode.COMMIT_EVERY_N ? " with interval " + commitInterval : "");
+    }
+    long slowThresholdMs =
+        options.getSlowStatementThresholdMs() > 0
+            ? options.getSlowStatementThresholdMs()
+            : defaultSlowThresholdMs;
+    int pipelineMaxBytes = 0;
+    if (options.isPipelineStatements()) {
+      if (allowsMultiQueries(definition.getUrl())) {
+        pipelineMaxBytes =
+            options.getPipelineMaxBytes() > 0
+                ? options.getPipelineMaxBytes()
+                : defaultPipelineMaxBytes;
+        logger.info(
+            "Statement pipelining enabled with packets of up to {} bytes", pipelineMaxBytes);
+      } else {
+        logger.warn(
+            "Statement pipelining needs allowMultiQueries=true in the URL of {}; "
+                + "sending statements one at a time",
+            definition.getName());
       }
+    }
+    ExecutionThrottle.Limiter throttle = null;
+    if (options.isThrottled()) {
+      throttle = executionThrottle.limiter(definition);
+      logger.info(
+          "Throttled execution on {} at {}% of its caps",
+          definition.getName(), Math.round(throttle.getLoadFactor() * 100));
+    }
+    return new ScriptSettings(
+        batchSize,
+        mode,
+        commitInterval,
+        slowThresholdMs,
+        options.isCapturePlans(),
+        pipelineMaxBytes,
+        options.isResume(),
+        Math.max(1, retryMaxAttempts),
+        retryInitialBackoffMs,
+        retryMaxBackoffMs,
+        throttle,
+        gate,
+        options.isBindInsertValues());
+  }
+
+  private static boolean allowsMultiQueries(String url) {
+    return url != null && ALLOW_MULTI_QUERIES.matcher(url).find();
+  }
+
+  /** Fetches the current password of a data source. */
+  String retrievePassword(DataSourceDefinition definition) {
+    logger.info(
+        "Retrieving password for data source '{}' using CNLDB parameters from its definition.",
+        definition.getName());
+    String password =
+        passwordRetrievalService.retrievePassword(
+            definition.getUsername(),
+            definition.getCndlNdbType(),
+            definition.getCndlTns(),
+            definition.getCndlGetPasswdUrl(),
+            definition.getCndlGetPasswdDummyPassword(),
+            definition.getName(),
+            definition.getCndlAuthFilePath());
+    if (!StringUtils.hasText(password)) {
+      logger.error("Retrieved password was empty for data source: {}", definition.getName());
+      throw new RuntimeException(
+          "Retrieved password was empty for data source " + definition.getName() + ".");
+    }
+    logger.info("Password retrieved successfully for data source: {}", definition.getName());
+    return password;
+  }
 
-      if (sqlContent == null || sqlContent.trim().isEmpty()) {
-        return new ScriptExecutionResult(
-            fileName, false, "File is empty or could not be read.", "");
+  /**
+   * Non-blocking variant of {@link #retrievePassword(DataSourceDefinition)}, used by the start-up
+   * warm-up to fetch the passwords of all data sources at once.
+   */
+  CompletableFuture<String> retrievePasswordAsync(DataSourceDefinition definition) {
+    return passwordRetrievalService
+        .retrievePasswordAsync(
+            definition.getUsername(),
+            definition.getCndlNdbType(),
+            definition.getCndlTns(),
+            definition.getCndlGetPasswdUrl(),
+            definition.getCndlGetPasswdDummyPassword(),
+            definition.getName(),
+            definition.getCndlAuthFilePath())
+        .thenApply(
+            password -> {
+              if (!StringUtils.hasText(password)) {
+                logger.error(
+                    "Retrieved password was empty for data source: {}", definition.getName());
+                throw new RuntimeException(
+                    "Retrieved password was empty for data source " + definition.getName() + ".");
+              }
+              return password;
+            });
+  }
+
+  private static boolean isAuthenticationFailure(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof SQLException) {
+        SQLException sqlException = (SQLException) t;
+        // SQLState 28000 = invalid authorization; ORA-01017 / MySQL-mode 1045 = bad credentials
+        if ("28000".equals(sqlException.getSQLState())
+            || sqlException.getErrorCode() == 1017
+            || sqlException.getErrorCode() == 1045) {
+          return true;
+        }
       }
+    }
+    return false;
+  }
 
-      // Sanitize and prepare SQL content - remove potential Byte Order Mark (BOM)
-      if (sqlContent.startsWith("\uFEFF")) {
-        sqlContent = sqlContent.substring(1);
+  private ScriptExecutionResult executeSingleScript(
+      ScriptSource script,
+      int fileIndex,
+      JdbcTemplate jdbcTemplate,
+      String dataSourceName,
+      ScriptSettings settings,
+      ScriptExecutionListener listener,
+      CredentialRefresh credentials) {
+    listener.scriptStarted(fileIndex);
+    long start = System.nanoTime();
+    ScriptExecutionResult result;
+    DataSource dataSource = jdbcTemplate.getDataSource();
+    Connection connection;
+    try {
+      try {
+        connection = DataSourceUtils.getConnection(dataSource);
+      } catch (RuntimeException e) {
+        if (!isAuthenticationFailure(e)) {
+          throw e;
+        }
+        // The cached password is stale (e.g. rotated on the security server); fetch it again
+        // and let the registry rotate the pool credentials in place.
+        logger.warn(
+            "Data source {} rejected the current password: {}", dataSourceName, e.getMessage());
+        dataSource = credentials.refresh();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        connection = DataSourceUtils.getConnection(dataSource);
       }
+    } catch (RuntimeException e) {
+      logger.error(
+          "Failed to obtain a connection for script: {} on data source: {}. Error: {}",
+          script.getFileName(),
+          dataSourceName,
+          e.getMessage(),
+          e);
+      result =
+          new ScriptExecutionResult(
+              script.getFileName(),
+              false,
+              "Failed to execute script on " + dataSourceName + ": " + e.getMessage(),
+              "");
+      metrics.recordScript(dataSourceName, System.nanoTime() - start, false);
+      listener.scriptFinished(fileIndex, result);
+      return result;
+    }
 
-      // Trim leading/trailing whitespace from the whole script
-      sqlContent = sqlContent.trim();
+    CheckpointStore.Tracker checkpoint = openCheckpoint(script, dataSourceName, settings);
+    ScriptRun run =
+        new ScriptRun(
+            script.getFileName(),
+            dataSourceName,
+            jdbcTemplate,
+            connection,
+            settings,
+            fileIndex,
+            listener,
+            metrics,
+            errorClassifier,
+            new StatementProfiler(settings.slowThresholdMs, slowStatementLimit),
+            checkpoint);
+    try {
+      result = executeStatements(script, run, settings.batchSize);
+    } finally {
+      run.restoreAutoCommit();
+      // A retry may have replaced the connection; null if it was lost and not replaced.
+      Connection held = run.connection;
+      if (held != null && run.sessionModified && dataSource instanceof HikariDataSource) {
+        // Do not hand ALTER SESSION / SET changes to the next upload that borrows this connection.
+        logger.info(
+            "Evicting connection of {} after session settings were changed", dataSourceName);
+        ((HikariDataSource) dataSource).evictConnection(held);
+      } else if (held != null) {
+        DataSourceUtils.releaseConnection(held, dataSource);
+      }
+    }
+    metrics.recordScript(dataSourceName, System.nanoTime() - start, result.isSuccess());
+    listener.scriptFinished(fileIndex, result);
+    return result;
+  }
 
+  private ScriptExecutionResult executeStatements(
+      ScriptSource script, ScriptRun run, int batchSize) {
+    String fileName = script.getFileName();
+    String dataSourceName = run.dataSourceName;
+    // Only a bounded preview of the executed SQL is kept for the result page.
+    StringBuilder sqlPreview = new StringBuilder();
+    MessageDigest digest = newContentDigest();
+    try (InputStream content = new DigestInputStream(script.openStream(), digest);
+        SqlScriptReader reader = SqlScriptReader.forUtf8(content)) {
       logger.info(
-          "Executing script: {} on data source: {}. Content length: {}",
+          "Executing script: {} on data source: {}. File size: {} bytes",
           fileName,
           dataSourceName,
-          sqlContent.length());
+          script.getSize());
 
-      // Determine execution type (simple heuristic)
-      boolean isPlSqlBlock =
-          sqlContent.toUpperCase().contains("DECLARE")
-              || sqlContent.toUpperCase().contains("BEGIN")
-              || sqlContent.trim().endsWith("/");
-
-      if (isPlSqlBlock) {
-        logger.info(
-            "Detected PL/SQL block for file: {} on data source: {}", fileName, dataSourceName);
-        jdbcTemplate.execute(sqlContent);
-        return new ScriptExecutionResult(
-            fileName,
-            true,
-            "PL/SQL block executed successfully on " + dataSourceName + ".",
-            sqlContent);
-      } else {
-        logger.info(
-            "Detected plain SQL statements for file: {} on data source: {}",
-            fileName,
-            dataSourceName);
-        String[] statements =
-            sqlContent.split(
-                ";(?=(?:[^']*'[^']*')*[^']*$)"); // Split by semicolon, ignoring those inside quotes
-
-        int executedCount = 0;
-        for (String stmt : statements) {
-          String trimmedStmt = stmt.trim();
-          if (!trimmedStmt.isEmpty()) {
-            try {
-              logger.debug("Executing statement on {}: {}", dataSourceName, trimmedStmt);
-              jdbcTemplate.execute(trimmedStmt);
-              executedCount++;
-            } catch (Exception e) {
-              logger.error(
-                  "Error executing statement in file {} on data source {}: {}\nStatement: {}",
-                  fileName,
-                  dataSourceName,
-                  e.getMessage(),
-                  trimmedStmt,
-                  e);
-              return new ScriptExecutionResult(
-                  fileName,
-                  false,
-                  "Error on "
-                      + dataSourceName
-                      + ": "
-                      + e.getMessage()
-                      + "\nProblematic statement: "
-                      + trimmedStmt,
-                  sqlContent);
+      List<SqlStatement> pendingBatch = new ArrayList<>();
+      // Values of the queued inserts if the batch binds them, otherwise empty.
+      List<InsertValues> pendingInserts = new ArrayList<>();
+      List<SqlStatement> pendingPipeline = new ArrayList<>();
+      int pipelineBytes = 0;
+      int statementCount = 0;
+      StatementFailureException failure = null;
+      SqlStatement statement;
+      try {
+        run.beginTransaction();
+        while ((statement = reader.next()) != null) {
+          statementCount = statement.getIndex();
+          if (statement.getIndex() <= run.resumeAfter) {
+            // Committed by an earlier run of the same script. Session settings do not carry over
+            // to this connection, so they are applied again.
+            if (statement.getType() == SqlStatementType.SESSION) {
+              run.replaySession(statement);
+            }
+            continue;
+          }
+          appendPreview(sqlPreview, statement);
+          // Only one of the two queues holds statements at a time, so script order is kept.
+          if (batchSize > 1 && statement.isDml()) {
+            run.executePipeline(pendingPipeline);
+            pipelineBytes = 0;
+            InsertValues insert = run.bindInsertValues ? InsertValues.parse(statement) : null;
+            // A batch either binds inserts of a single shape or sends every statement as text.
+            boolean sameKind =
+                insert == null
+                    ? pendingInserts.isEmpty()
+                    : !pendingInserts.isEmpty()
+                        && insert.getShape().equals(pendingInserts.get(0).getShape());
+            if (!pendingBatch.isEmpty() && !sameKind) {
+              run.executeBatch(pendingBatch, pendingInserts);
             }
+            pendingBatch.add(statement);
+            if (insert != null) {
+              pendingInserts.add(insert);
+            }
+            if (pendingBatch.size() >= batchSize) {
+              run.executeBatch(pendingBatch, pendingInserts);
+            }
+            continue;
           }
+          run.executeBatch(pendingBatch, pendingInserts);
+          if (run.pipelineMaxBytes > 0 && isPipelined(statement)) {
+            int bytes = utf8Length(statement.getText()) + PIPELINE_SEPARATOR.length();
+            if (pipelineBytes + bytes > run.pipelineMaxBytes) {
+              run.executePipeline(pendingPipeline);
+              pipelineBytes = 0;
+            }
+            pendingPipeline.add(statement);
+            pipelineBytes += bytes;
+            continue;
+          }
+          run.executePipeline(pendingPipeline);
+          pipelineBytes = 0;
+          run.executeStatement(statement);
         }
-        return new ScriptExecutionResult(
-            fileName,
-            true,
-            executedCount
-                + " plain SQL statement(s) executed successfully on "
-                + dataSourceName
-                + ".",
-            sqlContent);
+        run.executeBatch(pendingBatch, pendingInserts);
+        run.executePipeline(pendingPipeline);
+        run.commit();
+      } catch (StatementFailureException e) {
+        failure = e;
+        run.rollback();
+        // Lex the rest of the file so the statement count and content hash cover all of it.
+        while ((statement = reader.next()) != null) {
+          statementCount = statement.getIndex();
+        }
+      } catch (RuntimeException e) {
+        // Hash the rest of the file, so the checkpoint of the failed run can still be saved.
+        run.checkpoint.identify(drain(content, digest));
+        throw e;
+      }
+      String contentHash = toHex(digest.digest());
+      run.checkpoint.identify(contentHash);
+
+      ScriptExecutionResult result;
+      if (failure != null) {
+        SqlStatement failed = failure.statement;
+        String excerpt = excerpt(failed.getText(), FAILED_STATEMENT_EXCERPT_LIMIT);
+        // Report the driver's message; Spring's wrapper would repeat the whole statement.
+        result =
+            new ScriptExecutionResult(
+                fileName,
+                false,
+                "Error on "
+                    + dataSourceName
+                    + ": "
+                    + rootCauseMessage(failure.getCause())
+                    + "\n"
+                    + failure.getMessage()
+                    + " (#"
+                    + failed.getIndex()
+                    + ", line "
+                    + failed.getStartLine()
+                    + "): "
+                    + excerpt,
+                sqlPreview.toString());
+        result.setMessage(result.getMessage() + run.rollbackNote());
+        result.setFailedStatementIndex(failed.getIndex());
+        result.setFailedStatementLine(failed.getStartLine());
+        result.setFailedStatementExcerpt(excerpt);
+        run.checkpoint.failed(
+            run.lastCommittedIndex, failed.getIndex(), rootCauseMessage(failure.getCause()));
+      } else if (run.executedCount == 0 && run.resumeAfter > 0) {
+        result =
+            new ScriptExecutionResult(
+                fileName,
+                true,
+                "All "
+                    + statementCount
+                    + " statement(s) were committed by an earlier run; nothing left to execute.",
+                "");
+        run.checkpoint.finished();
+      } else if (run.executedCount == 0) {
+        result =
+            new ScriptExecutionResult(fileName, false, "File is empty or could not be read.", "");
+      } else {
+        String message =
+            run.blockCount == 0
+                ? run.executedCount
+                    + " plain SQL statement(s) executed successfully on "
+                    + dataSourceName
+                : run.executedCount
+                    + " statement(s) executed successfully on "
+                    + dataSourceName
+                    + ", including "
+                    + run.blockCount
+                    + " PL/SQL block(s)";
+        if (!run.batches.isEmpty()) {
+          message += ", " + run.batches.size() + " JDBC batch(es)";
+        }
+        if (!run.retries.isEmpty()) {
+          message += ", " + run.retries.size() + " retried attempt(s)";
+        }
+        if (run.throttle != null) {
+          message += ", throttled for " + run.throttledNanos / 1_000_000 + " ms";
+        }
+        if (run.replayedSessionCount > 0) {
+          message += ", " + run.replayedSessionCount + " session statement(s) applied again";
+        }
+        if (run.mode == TransactionMode.SINGLE_TRANSACTION) {
+          message += ", in a single transaction";
+        } else if (run.mode == TransactionMode.COMMIT_EVERY_N) {
+          message += ", " + run.commitCount + " commit(s)";
+        }
+        result = new ScriptExecutionResult(fileName, true, message + ".", sqlPreview.toString());
+        run.checkpoint.finished();
       }
+      if (run.resumeAfter > 0) {
+        result.setResumedAfterStatementIndex(run.resumeAfter);
+        result.setMessage(
+            "Resumed after statement #"
+                + run.resumeAfter
+                + ", committed by an earlier run.\n"
+                + result.getMessage());
+      }
+      result.setStatementCount(statementCount);
+      result.setLastCommittedStatementIndex(
+          run.lastCommittedIndex > 0 ? run.lastCommittedIndex : null);
+      result.setContentHash(contentHash);
+      result.setBatches(run.batches);
+      result.setRetries(run.retries);
+      result.setThrottledMs(run.throttledNanos / 1_000_000);
+      result.setPausedMs(run.pausedNanos / 1_000_000);
+      result.setSlowStatements(run.profiler.report());
+      result.setSlowStatementThresholdMs(run.slowThresholdMs);
+      return result;
     } catch (Exception e) {
+      run.rollback();
+      run.checkpoint.failed(run.lastCommittedIndex, null, e.getMessage());
       logger.error(
           "Failed to execute script: {} on data source: {}. Error: {}",
           fileName,
           dataSourceName,
           e.getMessage(),
           e);
-      return new ScriptExecutionResult(
+      ScriptExecutionResult result =
+          new ScriptExecutionResult(
+              fileName,
+              false,
+              "Failed to execute script on "
+                  + dataSourceName
+                  + ": "
+                  + e.getMessage()
+                  + run.rollbackNote(),
+              sqlPreview.length() > 0 ? sqlPreview.toString() : "Could not read content");
+      result.setLastCommittedStatementIndex(
+          run.lastCommittedIndex > 0 ? run.lastCommittedIndex : null);
+      result.setRetries(run.retries);
+      result.setThrottledMs(run.throttledNanos / 1_000_000);
+      result.setPausedMs(run.pausedNanos / 1_000_000);
+      result.setSlowStatements(run.profiler.report());
+      result.setSlowStatementThresholdMs(run.slowThresholdMs);
+      return result;
+    }
+  }
+
+  /**
+   * Looks up where a script should resume and starts recording its progress. Only an upload that
+   * asks to resume hashes the script first, which costs one extra read of it; that hash also lets
+   * its progress be saved while it runs, so it can be resumed after a crash. Other runs learn their
+   * hash from the execution pass and save their checkpoint if they fail.
+   */
+  private CheckpointStore.Tracker openCheckpoint(
+      ScriptSource script, String dataSourceName, ScriptSettings settings) {
+    if (!checkpointStore.isEnabled()) {
+      return checkpointStore.untracked();
+    }
+    ExecutionCheckpoint checkpoint = new ExecutionCheckpoint();
+    checkpoint.setDataSourceName(dataSourceName);
+    checkpoint.setFileName(script.getFileName());
+    // Commits of a script in its own transactions are rare enough to save each one.
+    boolean saveEveryCommit = settings.transactionMode != TransactionMode.AUTO_COMMIT;
+    if (settings.resume) {
+      String contentHash;
+      try {
+        contentHash = contentHash(script);
+      } catch (IOException e) {
+        // The execution itself reports the read error.
+        return checkpointStore.untracked();
+      }
+      checkpoint.setContentHash(contentHash);
+      ExecutionCheckpoint previous = checkpointStore.find(dataSourceName, contentHash);
+      if (previous != null && previous.getLastCommittedStatementIndex() > 0) {
+        logger.info(
+            "Resuming {} on {} after statement #{}",
+            script.getFileName(),
+            dataSourceName,
+            previous.getLastCommittedStatementIndex());
+        checkpoint.setLastCommittedStatementIndex(previous.getLastCommittedStatementIndex());
+      } else {
+        logger.info(
+            "No checkpoint for {} on {}; running it from the start",
+            script.getFileName(),
+            dataSourceName);
+      }
+    }
+    return checkpointStore.track(checkpoint, saveEveryCommit);
+  }
+
+  /**
+   * Reads the rest of a script into its content digest and returns the hash, or null if the rest
+   * cannot be read.
+   */
+  private static String drain(InputStream content, MessageDigest digest) {
+    byte[] buffer = new byte[64 * 1024];
+    try {
+      while (content.read(buffer) != -1) {
+        // The digest sees every byte read.
+      }
+    } catch (IOException e) {
+      return null;
+    }
+    return toHex(digest.digest());
+  }
+
+  private static String contentHash(ScriptSource script) throws IOException {
+    MessageDigest digest = newContentDigest();
+    byte[] buffer = new byte[64 * 1024];
+    try (InputStream in = script.openStream()) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest newContentDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // Every Java platform is required to support SHA-256.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return hex.toString();
+  }
+
+  private static String excerpt(String text, int limit) {
+    return text.length() > limit ? text.substring(0, limit) + "..." : text;
+  }
+
+  private static void appendPreview(StringBuilder sqlPreview, SqlStatement statement) {
+    if (sqlPreview.length() >= SQL_PREVIEW_LIMIT) {
+      return;
+    }
+    String text = statement.isBlock() ? statement.getText() + "\n/\n" : statement.getText() + ";\n";
+    sqlPreview.append(text, 0, Math.min(text.length(), SQL_PREVIEW_LIMIT - sqlPreview.length()));
+    if (sqlPreview.length() >= SQL_PREVIEW_LIMIT) {
+      sqlPreview.append("...");
+    }
+  }
+
+  /** Index of the first failed statement in a batch, or -1 if the driver did not report it. */
+  private static int failedBatchOffset(Throwable error, int batchSize) {
+    int[] counts = batchUpdateCounts(error);
+    if (counts == null) {
+      return -1;
+    }
+    if (counts.length < batchSize) {
+      // The driver stopped at the first failure; everything before it succeeded.
+      return counts.length;
+    }
+    for (int i = 0; i < counts.length; i++) {
+      if (counts[i] == Statement.EXECUTE_FAILED) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /** Update counts carried by a BatchUpdateException in the cause chain, or null. */
+  private static int[] batchUpdateCounts(Throwable error) {
+    for (Throwable t = error; t != null; t = t.getCause()) {
+      if (t instanceof BatchUpdateException) {
+        return ((BatchUpdateException) t).getUpdateCounts();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Fetches a data source's password again after the database rejected the cached one. The scripts
+   * of one upload share a single refresh, even when they run in parallel.
+   */
+  private final class CredentialRefresh {
+    private final DataSourceDefinition definition;
+    private DataSource refreshed;
+
+    private CredentialRefresh(DataSourceDefinition definition) {
+      this.definition = definition;
+    }
+
+    private synchronized DataSource refresh() {
+      if (refreshed == null) {
+        passwordRetrievalService.invalidatePassword(definition.getName(), definition.getUsername());
+        refreshed = dataSourceRegistry.getDataSource(definition, retrievePassword(definition));
+      }
+      return refreshed;
+    }
+  }
+
+  /** Per-upload execution settings with the configured defaults applied. */
+  private static final class ScriptSettings {
+    private final int batchSize; // 0 if DML batching is off
+    private final TransactionMode transactionMode;
+    private final int commitInterval;
+    private final long slowThresholdMs;
+    private final boolean capturePlans;
+    private final int pipelineMaxBytes; // 0 if pipelining is off
+    private final boolean resume;
+    private final int retryMaxAttempts; // 1 if failed statements are never retried
+    private final long retryInitialBackoffMs;
+    private final long retryMaxBackoffMs;
+    private final ExecutionThrottle.Limiter throttle; // Null unless the upload is throttled
+    private final ExecutionGate gate;
+    private final boolean bindInsertValues;
+
+    private ScriptSettings(
+        int batchSize,
+        TransactionMode transactionMode,
+        int commitInterval,
+        long slowThresholdMs,
+        boolean capturePlans,
+        int pipelineMaxBytes,
+        boolean resume,
+        int retryMaxAttempts,
+        long retryInitialBackoffMs,
+        long retryMaxBackoffMs,
+        ExecutionThrottle.Limiter throttle,
+        ExecutionGate gate,
+        boolean bindInsertValues) {
+      this.batchSize = batchSize;
+      this.transactionMode = transactionMode;
+      this.commitInterval = commitInterval;
+      this.slowThresholdMs = slowThresholdMs;
+      this.capturePlans = capturePlans;
+      this.pipelineMaxBytes = pipelineMaxBytes;
+      this.resume = resume;
+      this.retryMaxAttempts = retryMaxAttempts;
+      this.retryInitialBackoffMs = retryInitialBackoffMs;
+      this.retryMaxBackoffMs = retryMaxBackoffMs;
+      this.throttle = throttle;
+      this.gate = gate;
+      this.bindInsertValues = bindInsertValues;
+    }
+  }
+
+  /**
+   * Execution state of one script: counters, batch results, and the pinned connection with its
+   * transaction state.
+   */
+  private static final class ScriptRun {
+    private final String fileName;
+    private final String dataSourceName;
+    private final JdbcTemplate pooledTemplate;
+    private JdbcTemplate jdbcTemplate; // Runs on the pinned connection
+    private Connection connection; // Null if it was lost and could not be replaced
+    private final TransactionMode mode;
+    private final int commitInterval;
+    private final int fileIndex;
+    private final ScriptExecutionListener listener;
+    private final ExecutionMetrics metrics;
+    private final SqlErrorClassifier errorClassifier;
+    private final StatementProfiler profiler;
+    private final boolean capturePlans;
+    private final long slowThresholdMs;
+    private final int pipelineMaxBytes;
+    private final CheckpointStore.Tracker checkpoint;
+    private final int resumeAfter;
+    private final int retryMaxAttempts;
+    private final long retryInitialBackoffMs;
+    private final long retryMaxBackoffMs;
+    private final ExecutionThrottle.Limiter throttle;
+    private final ExecutionGate gate;
+    private final boolean bindInsertValues;
+    private final List<BatchExecutionResult> batches = new ArrayList<>();
+    private final List<StatementRetry> retries = new ArrayList<>();
+    private int executedCount;
+    private int blockCount;
+    private Boolean originalAutoCommit;
+    private int uncommittedCount;
+    private int lastExecutedIndex;
+    private int lastCommittedIndex;
+    private int commitCount;
+    private boolean sessionModified;
+    private long throttledNanos;
+    private long pausedNanos;
+    private int replayedSessionCount;
+    private Boolean oracleDialect; // Looked up on the first plan capture
+
+    private ScriptRun(
+        String fileName,
+        String dataSourceName,
+        JdbcTemplate pooledTemplate,
+        Connection connection,
+        ScriptSettings settings,
+        int fileIndex,
+        ScriptExecutionListener listener,
+        ExecutionMetrics metrics,
+        SqlErrorClassifier errorClassifier,
+        StatementProfiler profiler,
+        CheckpointStore.Tracker checkpoint) {
+      this.fileName = fileName;
+      this.dataSourceName = dataSourceName;
+      this.pooledTemplate = pooledTemplate;
+      this.jdbcTemplate = pin(connection, pooledTemplate);
+      this.connection = connection;
+      this.mode = settings.transactionMode;
+      this.commitInterval = settings.commitInterval;
+      this.fileIndex = fileIndex;
+      this.listener = listener;
+      this.metrics = metrics;
+      this.errorClassifier = errorClassifier;
+      this.profiler = profiler;
+      this.capturePlans = settings.capturePlans;
+      this.slowThresholdMs = settings.slowThresholdMs;
+      this.pipelineMaxBytes = settings.pipelineMaxBytes;
+      this.retryMaxAttempts = settings.retryMaxAttempts;
+      this.retryInitialBackoffMs = settings.retryInitialBackoffMs;
+      this.retryMaxBackoffMs = settings.retryMaxBackoffMs;
+      this.throttle = settings.throttle;
+      this.gate = settings.gate;
+      this.bindInsertValues = settings.bindInsertValues;
+      this.checkpoint = checkpoint;
+      this.resumeAfter = checkpoint.getResumeAfter();
+      this.lastCommittedIndex = resumeAfter;
+    }
+
+    /**
+     * Runs every statement on one connection. Errors are translated by the pooled template, which
+     * resolves the database's error codes once per data source and only on failure.
+     */
+    private static JdbcTemplate pin(Connection connection, JdbcTemplate pooledTemplate) {
+      JdbcTemplate pinned = new JdbcTemplate(new SingleConnectionDataSource(connection, true));
+      pinned.setExceptionTranslator(
+          (task, sql, e) -> pooledTemplate.getExceptionTranslator().translate(task, sql, e));
+      return pinned;
+    }
+
+    /**
+     * Holds the script while its job is paused, then waits for the throttle to admit {@code
+     * statements} more statements. In COMMIT_EVERY_N mode pending work is committed before pausing,
+     * so its locks are not held for the whole pause.
+     */
+    private void awaitTurn(int statements) {
+      try {
+        if (gate.isPaused()) {
+          if (mode == TransactionMode.COMMIT_EVERY_N) {
+            commit();
+          }
+          logger.info("File {} on {} paused before its next statement", fileName, dataSourceName);
+          long start = System.nanoTime();
+          gate.awaitOpen();
+          pausedNanos += System.nanoTime() - start;
+          logger.info("File {} on {} resumed", fileName, dataSourceName);
+        }
+        if (throttle != null) {
+          throttledNanos += throttle.acquire(statements);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("Interrupted while waiting to send the next statement", e);
+      }
+    }
+
+    /** Tells the throttle, if any, what statements that returned cost. */
+    private void throttled(int statements, long rows, long nanos) {
+      if (throttle != null) {
+        throttle.completed(statements, rows, nanos);
+      }
+    }
+
+    private void beginTransaction() throws SQLException {
+      originalAutoCommit = connection.getAutoCommit();
+      boolean autoCommit = mode == TransactionMode.AUTO_COMMIT;
+      if (originalAutoCommit != autoCommit) {
+        connection.setAutoCommit(autoCommit);
+      }
+    }
+
+    /** Records statements that succeeded, committing if the commit interval has been reached. */
+    private void succeeded(int count, int lastIndex) {
+      executedCount += count;
+      metrics.statementsExecuted(dataSourceName, count);
+      lastExecutedIndex = lastIndex;
+      if (mode == TransactionMode.AUTO_COMMIT) {
+        lastCommittedIndex = lastIndex;
+        checkpoint.committed(lastCommittedIndex);
+        return;
+      }
+      uncommittedCount += count;
+      if (mode == TransactionMode.COMMIT_EVERY_N && uncommittedCount >= commitInterval) {
+        commit();
+      }
+    }
+
+    /** Commits the statements executed since the last commit, if any. */
+    private void commit() {
+      if (mode == TransactionMode.AUTO_COMMIT || uncommittedCount == 0) {
+        return;
+      }
+      try {
+        connection.commit();
+      } catch (SQLException e) {
+        throw jdbcTemplate.getExceptionTranslator().translate("commit", null, e);
+      }
+      logger.debug(
+          "Committed {} statement(s) up to #{} of file {} on {}",
+          uncommittedCount,
+          lastExecutedIndex,
+          fileName,
+          dataSourceName);
+      lastCommittedIndex = lastExecutedIndex;
+      uncommittedCount = 0;
+      commitCount++;
+      checkpoint.committed(lastCommittedIndex);
+    }
+
+    /** Rolls back whatever has not been committed; failures are only logged. */
+    private void rollback() {
+      if (mode == TransactionMode.AUTO_COMMIT || originalAutoCommit == null || connection == null) {
+        return;
+      }
+      try {
+        connection.rollback();
+      } catch (SQLException e) {
+        logger.warn(
+            "Rollback failed for file {} on {}: {}", fileName, dataSourceName, e.getMessage());
+      }
+      uncommittedCount = 0;
+    }
+
+    private void restoreAutoCommit() {
+      if (originalAutoCommit == null || connection == null) {
+        return;
+      }
+      try {
+        if (connection.getAutoCommit() != originalAutoCommit) {
+          connection.setAutoCommit(originalAutoCommit);
+        }
+      } catch (SQLException e) {
+        logger.warn("Could not restore auto-commit on {}: {}", dataSourceName, e.getMessage());
+      }
+    }
+
+    /** Explains what a failed script left committed, for the result message. */
+    private String rollbackNote() {
+      switch (mode) {
+        case SINGLE_TRANSACTION:
+          if (lastCommittedIndex == resumeAfter) {
+            return "\nThe transaction was rolled back; no changes from this file were committed.";
+          }
+          // The script committed part of its work itself.
+          return "\nChanges up to statement #"
+              + lastCommittedIndex
+              + " were committed by the script; later changes were rolled back.";
+        case COMMIT_EVERY_N:
+          return lastCommittedIndex > 0
+              ? "\nChanges up to statement #"
+                  + lastCommittedIndex
+                  + " were committed; later changes were rolled back."
+              : "\nNo changes from this file were committed.";
+        default:
+          return "";
+      }
+    }
+
+    private void executeStatement(SqlStatement statement) {
+      awaitTurn(1);
+      listener.statementStarted(fileIndex, statement);
+      long start = System.nanoTime();
+      try {
+        if (statement.isBlock()) {
+          logger.info(
+              "Executing {} #{} (line {}) of file: {} on data source: {}",
+              statement.getType() == SqlStatementType.STORED_PROGRAM
+                  ? "stored program"
+                  : "PL/SQL block",
+              statement.getIndex(),
+              statement.getStartLine(),
+              fileName,
+              dataSourceName);
+          blockCount++;
+        } else {
+          logger.debug("Executing statement on {}: {}", dataSourceName, statement.getText());
+        }
+        boolean sessionModifiedBefore = sessionModified;
+        if (statement.getType() == SqlStatementType.SESSION) {
+          sessionModified = true;
+        }
+        int rows = executeWithRetry(statement, sessionModifiedBefore);
+        metrics.recordStatement(dataSourceName, statement, System.nanoTime() - start, true);
+        throttled(1, Math.max(rows, 0), System.nanoTime() - start);
+        long durationMs = elapsedMs(start);
+        listener.statementFinished(event(statement, rows, durationMs, null, null));
+        profile(statement, rows, durationMs, null, 1, true);
+      } catch (Exception e) {
+        metrics.recordStatement(dataSourceName, statement, System.nanoTime() - start, false);
+        metrics.recordFailure(dataSourceName, e);
+        long durationMs = elapsedMs(start);
+        listener.statementFinished(event(statement, -1, durationMs, null, rootCauseMessage(e)));
+        profile(statement, -1, durationMs, null, 1, false);
+        logger.error(
+            "Error executing statement #{} (line {}) in file {} on data source {}: {}\n"
+                + "Statement: {}",
+            statement.getIndex(),
+            statement.getStartLine(),
+            fileName,
+            dataSourceName,
+            e.getMessage(),
+            excerpt(statement.getText(), FAILED_STATEMENT_EXCERPT_LIMIT),
+            e);
+        throw new StatementFailureException("Problematic statement", statement, e);
+      }
+      succeeded(1, statement.getIndex());
+      if (statement.getType() == SqlStatementType.TRANSACTION_CONTROL) {
+        transactionControlled(statement);
+      }
+    }
+
+    /**
+     * Applies again a session statement that an earlier run executed before the point this run
+     * resumes after, so the statements that follow see the same schema and NLS settings.
+     */
+    private void replaySession(SqlStatement statement) {
+      awaitTurn(1);
+      logger.info(
+          "Applying session statement #{} (line {}) of file {} on {} again before resuming",
+          statement.getIndex(),
+          statement.getStartLine(),
+          fileName,
+          dataSourceName);
+      sessionModified = true;
+      try {
+        jdbcTemplate.execute(new UpdateCountCallback(statement, fileName));
+      } catch (RuntimeException e) {
+        metrics.recordFailure(dataSourceName, e);
+        logger.error(
+            "Error applying session statement #{} (line {}) of file {} on data source {}: {}",
+            statement.getIndex(),
+            statement.getStartLine(),
+            fileName,
+            dataSourceName,
+            e.getMessage(),
+            e);
+        throw new StatementFailureException("Problematic statement", statement, e);
+      }
+      replayedSessionCount++;
+    }
+
+    /**
+     * Executes one statement, sending it again after a failure the error classifier reports as
+     * transient, or after a lost connection if the statement may safely run twice. The failure of
+     * the last attempt is thrown.
+     */
+    private int executeWithRetry(SqlStatement statement, boolean sessionModifiedBefore) {
+      for (int attempt = 1; ; attempt++) {
+        try {
+          return jdbcTemplate.execute(new UpdateCountCallback(statement, fileName));
+        } catch (RuntimeException e) {
+          SQLException cause = null;
+          SqlErrorClassifier.Category category = SqlErrorClassifier.Category.FATAL;
+          for (Throwable t = e; t != null && cause == null; t = t.getCause()) {
+            if (t instanceof SQLException) {
+              category = errorClassifier.classify((SQLException) t);
+              if (category != SqlErrorClassifier.Category.FATAL) {
+                cause = (SQLException) t;
+              }
+            }
+          }
+          if (attempt >= retryMaxAttempts
+              || !retryable(statement, category, sessionModifiedBefore)) {
+            throw e;
+          }
+          long backoffMs = backoffMs(attempt);
+          StatementRetry retry = new StatementRetry();
+          retry.setStatementIndex(statement.getIndex());
+          retry.setLine(statement.getStartLine());
+          retry.setAttempt(attempt);
+          retry.setCategory(category.name());
+          retry.setSqlState(cause.getSQLState());
+          retry.setErrorCode(cause.getErrorCode());
+          retry.setError(cause.getMessage());
+          retry.setBackoffMs(backoffMs);
+          retry.setReconnected(category == SqlErrorClassifier.Category.CONNECTION_LOST);
+          retries.add(retry);
+          metrics.recordRetry(dataSourceName, category.name());
+          logger.warn(
+              "Attempt {} of statement #{} (line {}) in file {} on {} failed ({}): {}; "
+                  + "retrying in {} ms",
+              attempt,
+              statement.getIndex(),
+              statement.getStartLine(),
+              fileName,
+              dataSourceName,
+              category,
+              cause.getMessage(),
+              backoffMs);
+          if (!sleep(backoffMs)) {
+            throw e;
+          }
+          if (category == SqlErrorClassifier.Category.CONNECTION_LOST) {
+            reconnect();
+          } else if (mode != TransactionMode.AUTO_COMMIT) {
+            // The failure may have left the transaction usable only for a rollback; nothing is
+            // uncommitted, so rolling back before sending the statement again loses no work.
+            try {
+              connection.rollback();
+            } catch (SQLException rollbackFailure) {
+              e.addSuppressed(rollbackFailure);
+              throw e;
+            }
+          }
+        }
+      }
+    }
+
+    /**
+     * Whether a statement that failed this way can be sent again. Nothing may be waiting for a
+     * commit, since the database may have rolled back the whole transaction. After a lost
+     * connection the statement may already have taken effect, and session settings made earlier in
+     * the script would be missing on a new connection.
+     */
+    private boolean retryable(
+        SqlStatement statement, SqlErrorClassifier.Category category, boolean sessionModified) {
+      if (uncommittedCount > 0) {
+        return false;
+      }
+      switch (category) {
+        case TRANSIENT:
+          // A block or procedure may have committed part of its work before failing.
+          return statement.getType() != SqlStatementType.PLSQL_BLOCK
+              && statement.getType() != SqlStatementType.CALL
+              && statement.getType() != SqlStatementType.TRANSACTION_CONTROL;
+        case CONNECTION_LOST:
+          return !sessionModified
+              && (statement.getType() == SqlStatementType.QUERY
+                  || statement.getType() == SqlStatementType.SESSION);
+        default:
+          return false;
+      }
+    }
+
+    /** Exponential backoff with jitter, so parallel scripts do not retry in lock step. */
+    private long backoffMs(int attempt) {
+      long ceiling = retryInitialBackoffMs << Math.min(attempt - 1, 20);
+      ceiling = Math.min(ceiling, retryMaxBackoffMs);
+      return ceiling <= 1
+          ? ceiling
+          : ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2);
+    }
+
+    /** Waits before a retry; returns false if the thread was interrupted instead. */
+    private static boolean sleep(long millis) {
+      if (millis <= 0) {
+        return true;
+      }
+      try {
+        Thread.sleep(millis);
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
+    /**
+     * Replaces the lost connection with a new one from the pool, in the transaction mode of the
+     * script. The lost connection is evicted so no one else borrows it.
+     */
+    private void reconnect() {
+      DataSource dataSource = pooledTemplate.getDataSource();
+      if (dataSource instanceof HikariDataSource) {
+        ((HikariDataSource) dataSource).evictConnection(connection);
+      } else {
+        DataSourceUtils.releaseConnection(connection, dataSource);
+      }
+      connection = null;
+      Connection replacement = DataSourceUtils.getConnection(dataSource);
+      try {
+        originalAutoCommit = replacement.getAutoCommit();
+        boolean autoCommit = mode == TransactionMode.AUTO_COMMIT;
+        if (originalAutoCommit != autoCommit) {
+          replacement.setAutoCommit(autoCommit);
+        }
+      } catch (SQLException e) {
+        DataSourceUtils.releaseConnection(replacement, dataSource);
+        throw pooledTemplate.getExceptionTranslator().translate("reconnect", null, e);
+      }
+      connection = replacement;
+      jdbcTemplate = pin(replacement, pooledTemplate);
+      logger.info("Re-acquired a connection to {} for file {}", dataSourceName, fileName);
+    }
+
+    /** Accounts for a COMMIT or ROLLBACK issued by the script itself. */
+    private void transactionControlled(SqlStatement statement) {
+      if (mode == TransactionMode.AUTO_COMMIT) {
+        return;
+      }
+      if ("COMMIT".equals(statement.getKeyword())) {
+        lastCommittedIndex = statement.getIndex();
+        uncommittedCount = 0;
+        checkpoint.committed(lastCommittedIndex);
+      } else if ("ROLLBACK".equals(statement.getKeyword())
+          && !ROLLBACK_TO_SAVEPOINT.matcher(statement.getText()).lookingAt()) {
+        uncommittedCount = 0;
+      }
+    }
+
+    /**
+     * Sends the queued statements as one multi-statement packet and clears the queue. The outcome
+     * of each statement is read back with getMoreResults; a statement's duration is the time until
+     * its result arrived after the previous one.
+     */
+    private void executePipeline(List<SqlStatement> pipeline) {
+      if (pipeline.isEmpty()) {
+        return;
+      }
+      if (pipeline.size() == 1) {
+        executeStatement(pipeline.get(0));
+        pipeline.clear();
+        return;
+      }
+      awaitTurn(pipeline.size());
+      StringBuilder sql = new StringBuilder();
+      for (SqlStatement statement : pipeline) {
+        sql.append(statement.getText()).append(PIPELINE_SEPARATOR);
+        listener.statementStarted(fileIndex, statement);
+        if (statement.getType() == SqlStatementType.SESSION) {
+          sessionModified = true;
+        }
+      }
+      logger.debug(
+          "Sending statements #{}-#{} of file {} to {} as one packet of {} chars",
+          pipeline.get(0).getIndex(),
+          pipeline.get(pipeline.size() - 1).getIndex(),
           fileName,
-          false,
-          "Failed to execute script on " + dataSourceName + ": " + e.getMessage(),
-          sqlContent != null ? sqlContent : "Could not read content");
+          dataSourceName,
+          sql.length());
+      List<Integer> counts = new ArrayList<>();
+      long[] finishedAt = new long[pipeline.size()];
+      long start = System.nanoTime();
+      try {
+        jdbcTemplate.execute(
+            new PipelineCallback(sql.toString(), pipeline.size(), counts, finishedAt));
+      } catch (Exception e) {
+        int done = Math.min(counts.size(), pipeline.size() - 1);
+        reportPipeline(pipeline, counts, done, finishedAt, start);
+        SqlStatement failed = pipeline.get(done);
+        long previous = done > 0 ? finishedAt[done - 1] : start;
+        long nanos = System.nanoTime() - previous;
+        metrics.recordStatement(dataSourceName, failed, nanos, false);
+        metrics.recordFailure(dataSourceName, e);
+        listener.statementFinished(event(failed, -1, nanos / 1_000_000, null, rootCauseMessage(e)));
+        profile(failed, -1, nanos / 1_000_000, null, 1, false);
+        logger.error(
+            "Error executing statement #{} (line {}) of a packet in file {} on data source {}: {}",
+            failed.getIndex(),
+            failed.getStartLine(),
+            fileName,
+            dataSourceName,
+            e.getMessage(),
+            e);
+        pipeline.clear();
+        throw new StatementFailureException("Problematic statement", failed, e);
+      }
+      reportPipeline(pipeline, counts, pipeline.size(), finishedAt, start);
+      long rows = 0;
+      for (int count : counts) {
+        rows += Math.max(count, 0);
+      }
+      throttled(pipeline.size(), rows, System.nanoTime() - start);
+      pipeline.clear();
+    }
+
+    /** Reports the first {@code done} statements of a packet as executed. */
+    private void reportPipeline(
+        List<SqlStatement> pipeline,
+        List<Integer> counts,
+        int done,
+        long[] finishedAt,
+        long start) {
+      long previous = start;
+      for (int i = 0; i < done; i++) {
+        SqlStatement statement = pipeline.get(i);
+        long nanos = finishedAt[i] - previous;
+        previous = finishedAt[i];
+        int rows = i < counts.size() ? counts.get(i) : -1;
+        metrics.recordStatement(dataSourceName, statement, nanos, true);
+        listener.statementFinished(event(statement, rows, nanos / 1_000_000, null, null));
+        profile(statement, rows, nanos / 1_000_000, null, 1, true);
+      }
+      if (done > 0) {
+        succeeded(done, pipeline.get(done - 1).getIndex());
+      }
+    }
+
+    /**
+     * Sends the queued statements as one JDBC batch and clears the queue. If {@code inserts} holds
+     * their values, the batch is one PreparedStatement with the values bound, and is cleared too.
+     */
+    private void executeBatch(List<SqlStatement> batch, List<InsertValues> inserts) {
+      if (batch.isEmpty()) {
+        return;
+      }
+      String boundSql = inserts.isEmpty() ? null : inserts.get(0).getSql();
+      awaitTurn(batch.size());
+      int batchNumber = batches.size() + 1;
+      int first = batch.get(0).getIndex();
+      int last = batch.get(batch.size() - 1).getIndex();
+      String[] sql = new String[batch.size()];
+      for (int i = 0; i < sql.length; i++) {
+        sql[i] = batch.get(i).getText();
+        listener.statementStarted(fileIndex, batch.get(i));
+      }
+      long start = System.nanoTime();
+      try {
+        int[] counts =
+            boundSql == null
+                ? jdbcTemplate.batchUpdate(sql)
+                : jdbcTemplate.batchUpdate(boundSql, new InsertValuesSetter(inserts));
+        metrics.recordBatch(dataSourceName, sql.length, System.nanoTime() - start, true);
+        long rows = 0;
+        for (int count : counts) {
+          rows += Math.max(count, 0);
+        }
+        throttled(sql.length, rows, System.nanoTime() - start);
+        long durationMs = elapsedMs(start);
+        batches.add(
+            new BatchExecutionResult(
+                batchNumber, first, last, rows, durationMs, true, null, boundSql));
+        reportBatch(batch, counts, batch.size(), durationMs, batchNumber);
+        profile(batch.get(0), rows, durationMs, batchNumber, batch.size(), true);
+        logger.debug(
+            "Batch #{} (statements #{}-#{}) of file {} on {}: {} row(s) in {} ms",
+            batchNumber,
+            first,
+            last,
+            fileName,
+            dataSourceName,
+            rows,
+            durationMs);
+      } catch (Exception e) {
+        metrics.recordBatch(dataSourceName, sql.length, System.nanoTime() - start, false);
+        metrics.recordFailure(dataSourceName, e);
+        long durationMs = elapsedMs(start);
+        int offset = failedBatchOffset(e, batch.size());
+        SqlStatement failed = batch.get(Math.max(offset, 0));
+        reportBatch(batch, batchUpdateCounts(e), Math.max(offset, 0), durationMs, batchNumber);
+        listener.statementFinished(event(failed, -1, durationMs, batchNumber, rootCauseMessage(e)));
+        profile(batch.get(0), -1, durationMs, batchNumber, batch.size(), false);
+        batches.add(
+            new BatchExecutionResult(
+                batchNumber,
+                first,
+                last,
+                0,
+                durationMs,
+                false,
+                offset >= 0 ? failed.getIndex() : null,
+                boundSql));
+        executedCount += Math.max(offset, 0);
+        metrics.statementsExecuted(dataSourceName, offset);
+        if (mode == TransactionMode.AUTO_COMMIT && offset > 0) {
+          lastCommittedIndex = batch.get(offset - 1).getIndex();
+        }
+        logger.error(
+            "Batch #{} (statements #{}-#{}) failed in file {} on data source {}: {}",
+            batchNumber,
+            first,
+            last,
+            fileName,
+            dataSourceName,
+            e.getMessage(),
+            e);
+        throw new StatementFailureException(
+            offset >= 0
+                ? "Problematic statement in batch #" + batchNumber
+                : "Batch #"
+                    + batchNumber
+                    + " (statements #"
+                    + first
+                    + "-#"
+                    + last
+                    + ") failed; the driver did not report which statement, first statement",
+            failed,
+            e);
+      } finally {
+        batch.clear();
+        inserts.clear();
+      }
+      succeeded(last - first + 1, last);
+    }
+
+    /** Reports the first {@code executed} statements of a batch as succeeded. */
+    private void reportBatch(
+        List<SqlStatement> batch, int[] counts, int executed, long durationMs, int batchNumber) {
+      for (int i = 0; i < executed; i++) {
+        int rows = counts != null && i < counts.length ? Math.max(counts[i], -1) : -1;
+        listener.statementFinished(event(batch.get(i), rows, durationMs, batchNumber, null));
+      }
+    }
+
+    /** Hands a statement or batch to the profiler if it is slow enough to be reported. */
+    private void profile(
+        SqlStatement statement,
+        long rows,
+        long durationMs,
+        Integer batchNumber,
+        int batchSize,
+        boolean success) {
+      if (!profiler.wouldKeep(durationMs)) {
+        return;
+      }
+      SlowStatement slow = new SlowStatement();
+      slow.setStatementIndex(statement.getIndex());
+      slow.setLine(statement.getStartLine());
+      slow.setKeyword(statement.getKeyword());
+      slow.setDurationMs(durationMs);
+      slow.setRowsAffected(rows);
+      slow.setBatchNumber(batchNumber);
+      slow.setBatchSize(batchSize);
+      slow.setSuccess(success);
+      slow.setSqlExcerpt(excerpt(statement.getText(), FAILED_STATEMENT_EXCERPT_LIMIT));
+      if (capturePlans
+          && success
+          && batchNumber == null
+          && (statement.getType() == SqlStatementType.QUERY
+              || statement.getType() == SqlStatementType.DML)) {
+        slow.setPlan(explain(statement.getText()));
+      }
+      profiler.record(slow);
+    }
+
+    /**
+     * Asks the database for the statement's execution plan on the script's own connection. Oracle
+     * and OceanBase in Oracle mode use EXPLAIN PLAN and DBMS_XPLAN; other databases plain EXPLAIN.
+     */
+    private String explain(String sql) {
+      try {
+        if (oracleDialect == null) {
+          String product = connection.getMetaData().getDatabaseProductName();
+          oracleDialect = product != null && product.toUpperCase(Locale.ROOT).contains("ORACLE");
+        }
+        List<String> lines;
+        if (oracleDialect) {
+          jdbcTemplate.execute("EXPLAIN PLAN FOR " + sql);
+          lines =
+              jdbcTemplate.queryForList(
+                  "SELECT PLAN_TABLE_OUTPUT FROM TABLE(DBMS_XPLAN.DISPLAY())", String.class);
+        } else {
+          lines =
+              jdbcTemplate.query(
+                  "EXPLAIN " + sql,
+                  (rs, rowNum) -> {
+                    ResultSetMetaData columns = rs.getMetaData();
+                    StringBuilder line = new StringBuilder();
+                    for (int i = 1; i <= columns.getColumnCount(); i++) {
+                      Object value = rs.getObject(i);
+                      if (value != null) {
+                        line.append(line.length() > 0 ? " | " : "").append(value);
+                      }
+                    }
+                    return line.toString();
+                  });
+        }
+        return excerpt(String.join("\n", lines), PLAN_LIMIT);
+      } catch (Exception e) {
+        logger.debug("Could not capture plan on {}: {}", dataSourceName, e.getMessage());
+        return "Plan not available: " + rootCauseMessage(e);
+      }
+    }
+
+    private StatementEvent event(
+        SqlStatement statement, int rows, long durationMs, Integer batchNumber, String error) {
+      StatementEvent event = new StatementEvent();
+      event.setFileIndex(fileIndex);
+      event.setFileName(fileName);
+      event.setStatementIndex(statement.getIndex());
+      event.setLine(statement.getStartLine());
+      event.setKeyword(statement.getKeyword());
+      event.setRowsAffected(rows);
+      event.setDurationMs(durationMs);
+      event.setBatchNumber(batchNumber);
+      event.setSuccess(error == null);
+      event.setError(error);
+      return event;
+    }
+  }
+
+  /**
+   * Runs one statement the way its type needs and returns its update count, or -1 if it produced a
+   * result set. A script's queries are only checked for success, so the driver is asked for one row
+   * instead of the whole result; stored programs are checked for compilation errors, which Oracle
+   * reports as a warning rather than a failure.
+   */
+  private static final class UpdateCountCallback
+      implements StatementCallback<Integer>, SqlProvider {
+    private final SqlStatement statement;
+    private final String fileName;
+
+    private UpdateCountCallback(SqlStatement statement, String fileName) {
+      this.statement = statement;
+      this.fileName = fileName;
+    }
+
+    @Override
+    public Integer doInStatement(Statement jdbcStatement) throws SQLException {
+      String sql = statement.getText();
+      if (statement.getType() == SqlStatementType.QUERY && !ROWS_MATTER.matcher(sql).find()) {
+        jdbcStatement.setMaxRows(1);
+      }
+      boolean hasResultSet = jdbcStatement.execute(sql);
+      if (statement.getType() == SqlStatementType.STORED_PROGRAM) {
+        for (SQLWarning warning = jdbcStatement.getWarnings();
+            warning != null;
+            warning = warning.getNextWarning()) {
+          logger.warn(
+              "Stored program #{} (line {}) of file {} may not have compiled: {}",
+              statement.getIndex(),
+              statement.getStartLine(),
+              fileName,
+              warning.getMessage());
+        }
+      }
+      return hasResultSet ? -1 : jdbcStatement.getUpdateCount();
+    }
+
+    // Lets JdbcTemplate name the statement in translated exceptions, as execute(String) does.
+    @Override
+    public String getSql() {
+      return statement.getText();
+    }
+  }
+
+  /** Binds the values of a batch of same-shaped inserts, one insert per batch entry. */
+  private static final class InsertValuesSetter implements BatchPreparedStatementSetter {
+    private final List<InsertValues> inserts;
+
+    private InsertValuesSetter(List<InsertValues> inserts) {
+      this.inserts = inserts;
+    }
+
+    @Override
+    public void setValues(PreparedStatement ps, int i) throws SQLException {
+      List<Object> values = inserts.get(i).getValues();
+      for (int p = 0; p < values.size(); p++) {
+        Object value = values.get(p);
+        if (value == null) {
+          // VARCHAR is accepted for a NULL of any column type by the Oracle and OceanBase drivers.
+          ps.setNull(p + 1, Types.VARCHAR);
+        } else if (value instanceof BigDecimal) {
+          ps.setBigDecimal(p + 1, (BigDecimal) value);
+        } else {
+          ps.setString(p + 1, (String) value);
+        }
+      }
+    }
+
+    @Override
+    public int getBatchSize() {
+      return inserts.size();
+    }
+  }
+
+  /**
+   * Reads the result of each statement of a multi-statement packet: the update count of each, with
+   * the time it arrived. Results past the expected number are drained and ignored.
+   */
+  private static final class PipelineCallback implements StatementCallback<Void>, SqlProvider {
+    private final String sql;
+    private final int expected;
+    private final List<Integer> counts;
+    private final long[] finishedAt;
+
+    private PipelineCallback(String sql, int expected, List<Integer> counts, long[] finishedAt) {
+      this.sql = sql;
+      this.expected = expected;
+      this.counts = counts;
+      this.finishedAt = finishedAt;
+    }
+
+    @Override
+    public Void doInStatement(Statement statement) throws SQLException {
+      boolean hasResultSet = statement.execute(sql);
+      while (true) {
+        int count = hasResultSet ? -1 : statement.getUpdateCount();
+        if (!hasResultSet && count == -1) {
+          return null;
+        }
+        if (counts.size() < expected) {
+          finishedAt[counts.size()] = System.nanoTime();
+          counts.add(count);
+        }
+        hasResultSet = statement.getMoreResults();
+      }
+    }
+
+    @Override
+    public String getSql() {
+      return sql;
+    }
+  }
+
+  /**
+   * Statements that can share a multi-statement packet: plain units without result sets whose
+   * success is all the script needs. Blocks, queries, calls and transaction control go alone.
+   */
+  private static boolean isPipelined(SqlStatement statement) {
+    switch (statement.getType()) {
+      case DDL:
+      case DML:
+      case SESSION:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static int utf8Length(String text) {
+    int length = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        length++;
+      } else if (c < 0x800) {
+        length += 2;
+      } else if (Character.isHighSurrogate(c)) {
+        length += 4;
+        i++;
+      } else {
+        length += 3;
+      }
+    }
+    return length;
+  }
+
+  private static String rootCauseMessage(Throwable error) {
+    return NestedExceptionUtils.getMostSpecificCause(error).getMessage();
+  }
+
+  private static long elapsedMs(long startNanos) {
+    return (System.nanoTime() - startNanos) / 1_000_000;
+  }
+
+  /** Carries the statement that failed out of the per-statement execution loop. */
+  private static final class StatementFailureException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final transient SqlStatement statement;
+
+    private StatementFailureException(String message, SqlStatement statement, Throwable cause) {
+      super(message, cause);
+      this.statement = statement;
     }
   }
 }
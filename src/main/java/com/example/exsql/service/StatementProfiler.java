@@ -0,0 +1,54 @@
+package com.example.exsql.service;
+
+import com.example.exsql.model.SlowStatement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the slowest statements of one script: those that took at least the threshold, at most
+ * {@code limit} of them. Memory stays bounded however many statements the script has.
+ */
+final class StatementProfiler {
+
+  private static final Comparator<SlowStatement> FASTEST_FIRST =
+      Comparator.comparingLong(SlowStatement::getDurationMs)
+          .thenComparing(Comparator.comparingInt(SlowStatement::getStatementIndex).reversed());
+
+  private final long thresholdMs;
+  private final int limit;
+  // Min-heap on duration, so the fastest kept statement is the one to drop.
+  private final PriorityQueue<SlowStatement> slowest;
+
+  StatementProfiler(long thresholdMs, int limit) {
+    this.thresholdMs = thresholdMs;
+    this.limit = limit;
+    this.slowest = new PriorityQueue<>(Math.max(1, Math.min(limit, 64)), FASTEST_FIRST);
+  }
+
+  /** Whether a statement that took {@code durationMs} would make it into the report. */
+  boolean wouldKeep(long durationMs) {
+    if (limit <= 0 || durationMs < thresholdMs) {
+      return false;
+    }
+    return slowest.size() < limit || durationMs > slowest.peek().getDurationMs();
+  }
+
+  void record(SlowStatement statement) {
+    if (!wouldKeep(statement.getDurationMs())) {
+      return;
+    }
+    slowest.add(statement);
+    if (slowest.size() > limit) {
+      slowest.poll();
+    }
+  }
+
+  /** The kept statements, slowest first. */
+  List<SlowStatement> report() {
+    List<SlowStatement> report = new ArrayList<>(slowest);
+    report.sort(FASTEST_FIRST.reversed());
+    return report;
+  }
+}
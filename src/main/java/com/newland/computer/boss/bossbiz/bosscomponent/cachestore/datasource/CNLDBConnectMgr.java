@@ -1,75 +1,128 @@
 package com.newland.computer.boss.bossbiz.bosscomponent.cachestore.datasource;
 
-import com.example.exsql.legacy.newland.DealXMLMgr;
 import com.example.exsql.legacy.newland.DecodeException;
 import com.example.exsql.legacy.newland.DecodeUtil;
 import com.example.exsql.legacy.newland.HostUtil;
 import com.example.exsql.legacy.newland.ReqInfoBean;
 import com.example.exsql.legacy.newland.ResInfoBean;
 import com.example.exsql.legacy.newland.UigClient;
-import com.example.exsql.legacy.newland.XMLUtil;
-import java.io.*;
+import com.example.exsql.legacy.newland.UigXmlCodec;
 import java.net.InetAddress;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-/** 数据库密码解密工具 Created by Owen on 2015/10/27. */
+/**
+ * 数据库密码解密工具 Created by Owen on 2015/10/27.
+ *
+ * <p>One instance per auth file: the application name, check code and UIG server address are read
+ * once and never change, so an instance can be shared by concurrent password requests.
+ */
 public class CNLDBConnectMgr {
-  private static DealXMLMgr dealXMLMgr;
-  // 数据库连接池集合
-  private static String appCheckCode;
-  private static String appName;
-  private static String serverUrl; // This is the UIG server URL
+  private static final Logger logger = LoggerFactory.getLogger(CNLDBConnectMgr.class);
 
-  // TT数据库
+  // Auth file keys
+  public static final String APP_NAME_KEY = "appName";
+  public static final String APP_CODE_KEY = "appCode";
+  public static final String SERVER_URL_KEY = "uigServerUrl";
+
+  // Values used when the auth file does not set them
+  private static final String DEFAULT_APP_CODE = "abcdefg";
+  private static final String DEFAULT_APP_NAME = "测试应用";
+  private static final String DEFAULT_SERVER_URL =
+      "http://10.32.40.72:40001/securityserver-1.0-SNAPSHOT/security/querydbuserinfo.do";
+
+  private final String appCheckCode;
+  private final String appName;
+  private final String serverUrl; // This is the UIG server URL
+  private final UigClient uigClient;
 
   /**
-   * 初始化工具，加载配置文件
-   *
-   * @return
-   * @return
-   * @throws IOException
-   * @throws UnsupportedEncodingException
+   * @param appName 应用名称
+   * @param appCheckCode 应用校验码
+   * @param serverUrl UIG server URL
    */
-  public static synchronized void init() throws Exception // Made synchronized
-      {
-    appCheckCode = "abcdefg";
-    appName = "测试应用";
-    serverUrl =
-        "http://10.32.40.72:40001/securityserver-1.0-SNAPSHOT/security/querydbuserinfo.do"; // UIG
-    // Server URL
+  public CNLDBConnectMgr(String appName, String appCheckCode, String serverUrl) {
+    this.appName = appName;
+    this.appCheckCode = appCheckCode;
+    this.serverUrl = serverUrl;
+    this.uigClient = new UigClient(serverUrl);
+  }
+
+  /** 初始化工具，加载配置文件; keys that are missing fall back to the built-in defaults. */
+  public static CNLDBConnectMgr fromProperties(Properties properties) {
+    return new CNLDBConnectMgr(
+        properties.getProperty(APP_NAME_KEY, DEFAULT_APP_NAME).trim(),
+        properties.getProperty(APP_CODE_KEY, DEFAULT_APP_CODE).trim(),
+        properties.getProperty(SERVER_URL_KEY, DEFAULT_SERVER_URL).trim());
+  }
+
+  public String getServerUrl() {
+    return serverUrl;
   }
 
-  // Overload as specified by user
-  public static String getPasswd(int nDbType, String tns, String sUser, String url, String passwd) {
-    dealXMLMgr = new DealXMLMgr();
+  /**
+   * Fetches and decrypts the password of a database user.
+   *
+   * @return The password, or {@code null} if it could not be retrieved.
+   */
+  public String getPasswd(int nDbType, String tns, String sUser, String url, String passwd) {
     // 初始化REQ
     ReqInfoBean reqInfoBean = setReq(nDbType, tns, sUser, passwd);
-    reqInfoBean.setCfgFileFlag("1"); // 表示配置文件存在
     try {
-      String reqStr = dealXMLMgr.encodeXML(reqInfoBean);
-      UigClient uigClient = new UigClient(reqInfoBean.getUrl());
       // 发送报文
-      String resMsg = uigClient.requestService(reqStr);
-      // 解析返回报文
-      ResInfoBean resInfoBean = dealXMLMgr.decodeXML(XMLUtil.fromXML(resMsg, "UTF-8"));
-
-      if (resInfoBean.getResultCode() == 1) {
-        String randomCode = resInfoBean.getRandomCode();
-        String desKey = randomCode + reqInfoBean.getAppCode();
-        String dbPassword = resInfoBean.getDbUserpwd();
-        String decodePassword = DecodeUtil.decrypt(dbPassword, desKey);
-
-        return decodePassword;
-      } else {
-        throw new DecodeException("获取密码失败！！，错误信息：：" + resInfoBean.getErrorMsg());
-      }
+      String resMsg = uigClient.requestService(UigXmlCodec.encode(reqInfoBean));
+      return decodePassword(reqInfoBean, resMsg);
     } catch (Exception e) {
-      e.printStackTrace();
+      logger.error("Failed to retrieve password for {}@{}: {}", sUser, tns, e.getMessage(), e);
       return null;
     }
   }
 
+  /**
+   * Non-blocking variant of {@link #getPasswd}, so passwords for several data sources can be
+   * fetched concurrently.
+   *
+   * @return Completes with the password, or exceptionally if it could not be retrieved.
+   */
+  public CompletableFuture<String> getPasswdAsync(
+      int nDbType, String tns, String sUser, String url, String passwd) {
+    ReqInfoBean reqInfoBean = setReq(nDbType, tns, sUser, passwd);
+    String reqStr;
+    try {
+      reqStr = UigXmlCodec.encode(reqInfoBean);
+    } catch (IllegalArgumentException e) {
+      CompletableFuture<String> failed = new CompletableFuture<>();
+      failed.completeExceptionally(e);
+      return failed;
+    }
+    return uigClient
+        .requestServiceAsync(reqStr)
+        .thenApply(
+            resMsg -> {
+              try {
+                return decodePassword(reqInfoBean, resMsg);
+              } catch (RuntimeException e) {
+                throw e;
+              } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+              }
+            });
+  }
+
+  // 解析返回报文
+  private String decodePassword(ReqInfoBean reqInfoBean, String resMsg) throws Exception {
+    ResInfoBean resInfoBean = UigXmlCodec.decode(resMsg);
+    if (resInfoBean.getResultCode() != 1) {
+      throw new DecodeException("获取密码失败！！，错误信息：：" + resInfoBean.getErrorMsg());
+    }
+    String desKey = resInfoBean.getRandomCode() + reqInfoBean.getAppCode();
+    return DecodeUtil.decrypt(resInfoBean.getDbUserpwd(), desKey);
+  }
+
   // 初始化REQ
-  private static ReqInfoBean setReq(int nDbType, String tns, String sUser, String passwd) {
+  private ReqInfoBean setReq(int nDbType, String tns, String sUser, String passwd) {
     ReqInfoBean reqInfoBean = new ReqInfoBean();
     reqInfoBean.setDbType(nDbType);
     reqInfoBean.setDbTns(tns);
@@ -78,14 +131,22 @@ public class CNLDBConnectMgr {
     reqInfoBean.setUrl(serverUrl);
     reqInfoBean.setHostApp(appName);
     reqInfoBean.setAppCode(appCheckCode);
-    // 获取部署主机IP+主机名
-    InetAddress netAddress = HostUtil.getInetAddress();
-    // IP
-    String hostIp = HostUtil.getHostIp(netAddress);
-    reqInfoBean.setHostIp(hostIp);
-    // 主机名
-    String hostName = HostUtil.getHostName(netAddress);
-    reqInfoBean.setHostName(hostName);
+    reqInfoBean.setCfgFileFlag("1"); // 表示配置文件存在
+    // 部署主机IP+主机名
+    reqInfoBean.setHostIp(HostIdentity.IP);
+    reqInfoBean.setHostName(HostIdentity.NAME);
     return reqInfoBean;
   }
+
+  /** 部署主机IP+主机名, resolved once; the reverse DNS lookup can take seconds. */
+  private static final class HostIdentity {
+    private static final String IP;
+    private static final String NAME;
+
+    static {
+      InetAddress netAddress = HostUtil.getInetAddress();
+      IP = HostUtil.getHostIp(netAddress);
+      NAME = HostUtil.getHostName(netAddress);
+    }
+  }
 }
@@ -0,0 +1,296 @@
+// Submits the upload form as an asynchronous job, polls its progress and tails its statement
+// events. Without JavaScript the form still posts to /upload and the page shows the results after
+// a redirect.
+(function () {
+    var POLL_INTERVAL_MS = 1000;
+    var TAIL_LENGTH = 10;
+
+    var form = document.getElementById('uploadForm');
+    var status = document.getElementById('jobStatus');
+    if (!form || !status || !window.fetch) {
+        return;
+    }
+
+    form.addEventListener('submit', function (event) {
+        event.preventDefault();
+        var button = form.querySelector('button[type="submit"]');
+        button.disabled = true;
+        status.innerHTML = '';
+        fetch(form.dataset.jobsUrl, {method: 'POST', body: new FormData(form)})
+            .then(function (response) {
+                return response.json().then(function (body) {
+                    if (!response.ok) {
+                        throw new Error(body.message || body.error || response.statusText);
+                    }
+                    return response.headers.get('Location') || form.dataset.jobsUrl + '/' + body.id;
+                });
+            })
+            .then(function (jobUrl) {
+                tail(jobUrl);
+                poll(jobUrl, button);
+            })
+            .catch(function (error) {
+                button.disabled = false;
+                status.appendChild(alert('danger', 'Error: ' + error.message));
+            });
+    });
+
+    function poll(jobUrl, button) {
+        fetch(jobUrl)
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error('Job status unavailable (' + response.status + ')');
+                }
+                return response.json();
+            })
+            .then(function (job) {
+                render(job);
+                if (job.done) {
+                    button.disabled = false;
+                } else {
+                    setTimeout(function () { poll(jobUrl, button); }, POLL_INTERVAL_MS);
+                }
+            })
+            .catch(function (error) {
+                button.disabled = false;
+                status.appendChild(alert('danger', error.message));
+            });
+    }
+
+    // Keeps the last few finished statements, newest first, from the job's event stream.
+    var recent = [];
+
+    function tail(jobUrl) {
+        recent = [];
+        if (!window.EventSource) {
+            return;
+        }
+        var source = new EventSource(jobUrl + '/events');
+        source.addEventListener('statement', function (message) {
+            recent.unshift(JSON.parse(message.data));
+            recent.length = Math.min(recent.length, TAIL_LENGTH);
+        });
+        source.addEventListener('job', function (message) {
+            if (JSON.parse(message.data).done) {
+                source.close();
+            }
+        });
+        source.onerror = function () {
+            source.close();
+        };
+    }
+
+    function renderTail() {
+        var list = element('ul', 'list-group list-group-flush small mb-2');
+        recent.forEach(function (event) {
+            var text = event.fileName + ' #' + event.statementIndex + ' (line ' + event.line + ') '
+                + event.keyword + ': ' + (event.success
+                    ? (event.rowsAffected >= 0 ? event.rowsAffected + ' row(s), ' : '') + event.durationMs + ' ms'
+                    : event.error);
+            list.appendChild(element('li', 'list-group-item py-1' + (event.success ? '' : ' list-group-item-danger'), text));
+        });
+        return list;
+    }
+
+    function render(job) {
+        status.innerHTML = '';
+        var header = element('h5', null, 'Job ' + (job.paused ? 'paused' : job.status.toLowerCase())
+            + ' on ' + job.dataSourceName + ' (' + (job.elapsedMs / 1000).toFixed(1) + ' s)');
+        if (!job.done) {
+            header.appendChild(renderPauseButton(job));
+        }
+        status.appendChild(header);
+        if (job.error) {
+            status.appendChild(alert('danger', 'Error: ' + job.error));
+        }
+        if (recent.length && !job.done) {
+            status.appendChild(renderTail());
+        }
+        job.files.forEach(function (file, index) {
+            var fileUrl = form.dataset.jobsUrl + '/' + job.id + '/files/' + index;
+            status.appendChild(renderFile(file, job.results[index], fileUrl));
+        });
+        if (job.done && !job.error) {
+            var failed = job.results.some(function (result) { return !result.success; });
+            status.appendChild(failed
+                ? alert('danger', 'Some scripts failed to execute. See details above.')
+                : alert('success', 'All scripts processed. See details above.'));
+        }
+    }
+
+    // Pausing takes effect before the next statement of each running file.
+    function renderPauseButton(job) {
+        var button = element('button', 'btn btn-sm btn-outline-secondary ms-2', job.paused ? 'Resume' : 'Pause');
+        button.type = 'button';
+        button.addEventListener('click', function () {
+            button.disabled = true;
+            var action = job.paused ? '/resume' : '/pause';
+            fetch(form.dataset.jobsUrl + '/' + job.id + action, {method: 'POST'})
+                .then(function (response) {
+                    if (response.ok) {
+                        return response.json().then(render);
+                    }
+                    button.disabled = false;
+                });
+        });
+        return button;
+    }
+
+    function renderFile(file, result, fileUrl) {
+        var card = element('div', 'card mb-2');
+        var body = element('div', 'card-body py-2');
+        card.appendChild(body);
+
+        var title = element('div', 'd-flex justify-content-between');
+        title.appendChild(element('span', 'fw-bold', file.fileName));
+        var badgeClass = {PENDING: 'bg-secondary', RUNNING: 'bg-primary', SUCCEEDED: 'bg-success', FAILED: 'bg-danger'};
+        title.appendChild(element('span', 'badge ' + badgeClass[file.status], file.status));
+        body.appendChild(title);
+
+        var total = file.statementsTotal;
+        var percent = total > 0 ? Math.round(100 * file.statementsDone / total) : (file.status === 'SUCCEEDED' ? 100 : 0);
+        var progress = element('div', 'progress my-1');
+        var bar = element('div', 'progress-bar' + (file.status === 'FAILED' ? ' bg-danger' : ''));
+        bar.style.width = percent + '%';
+        progress.appendChild(bar);
+        body.appendChild(progress);
+        body.appendChild(element('small', 'text-muted', file.statementsDone + ' / ' + (total >= 0 ? total : '?')
+            + ' statement(s), ' + (file.elapsedMs / 1000).toFixed(1) + ' s'));
+
+        if (file.currentStatement) {
+            var current = element('pre', 'executed-sql mt-1 mb-0');
+            current.appendChild(element('code', null, file.currentStatement));
+            body.appendChild(current);
+        }
+        if (result) {
+            var message = element('pre', 'result-message mt-2 mb-0');
+            message.appendChild(element('code', null, result.message));
+            body.appendChild(message);
+            if (result.contentHash) {
+                var summary = element('div', 'small text-muted mt-1',
+                    result.statementCount + ' statement(s), SHA-256 ' + result.contentHash + ' ');
+                var link = element('a', 'ms-2', 'View full script');
+                link.href = fileUrl + '/content';
+                link.target = '_blank';
+                summary.appendChild(link);
+                body.appendChild(summary);
+            }
+            if (result.batches && result.batches.length) {
+                body.appendChild(renderBatches(result.batches));
+            }
+            if (result.retries && result.retries.length) {
+                body.appendChild(renderRetries(result.retries));
+            }
+            if (result.slowStatements && result.slowStatements.length) {
+                body.appendChild(renderSlowStatements(result, fileUrl + '/slow-statements'));
+            }
+        }
+        return card;
+    }
+
+    function renderBatches(batches) {
+        var table = element('table', 'table table-sm batch-results mt-2');
+        var head = element('tr');
+        ['Batch', 'Statements', 'Rows', 'Time (ms)', 'Status'].forEach(function (label) {
+            head.appendChild(element('th', null, label));
+        });
+        table.appendChild(element('thead')).appendChild(head);
+        var tbody = table.appendChild(element('tbody'));
+        batches.forEach(function (batch) {
+            var row = element('tr', batch.success ? null : 'table-danger');
+            [batch.batchNumber,
+                '#' + batch.firstStatementIndex + ' - #' + batch.lastStatementIndex,
+                batch.rowsAffected,
+                batch.durationMs,
+                batch.success ? 'OK' : (batch.failedStatementIndex != null ? 'FAILED at #' + batch.failedStatementIndex : 'FAILED')
+            ].forEach(function (value) {
+                row.appendChild(element('td', null, String(value)));
+            });
+            tbody.appendChild(row);
+        });
+        return table;
+    }
+
+    function renderRetries(retries) {
+        var table = element('table', 'table table-sm statement-retries mt-2');
+        var head = element('tr');
+        ['Retried #', 'Line', 'Attempt', 'Error', 'Backoff (ms)'].forEach(function (label) {
+            head.appendChild(element('th', null, label));
+        });
+        table.appendChild(element('thead')).appendChild(head);
+        var tbody = table.appendChild(element('tbody'));
+        retries.forEach(function (retry) {
+            var row = element('tr');
+            [retry.statementIndex,
+                retry.line,
+                retry.attempt,
+                retry.category + (retry.reconnected ? ', reconnected' : '') + ': ' + retry.error,
+                retry.backoffMs
+            ].forEach(function (value) {
+                row.appendChild(element('td', null, String(value)));
+            });
+            tbody.appendChild(row);
+        });
+        return table;
+    }
+
+    function renderSlowStatements(result, reportUrl) {
+        var section = element('div', 'mt-2');
+        var title = element('p', 'small mb-1');
+        title.appendChild(element('strong', null,
+            'Slowest statements (at least ' + result.slowStatementThresholdMs + ' ms)'));
+        ['csv', 'json'].forEach(function (format) {
+            var link = element('a', 'ms-2', format.toUpperCase());
+            link.href = reportUrl + '?format=' + format;
+            title.appendChild(link);
+        });
+        section.appendChild(title);
+
+        var table = element('table', 'table table-sm slow-statements');
+        var head = element('tr');
+        ['#', 'Line', 'Time (ms)', 'Rows', 'Statement'].forEach(function (label) {
+            head.appendChild(element('th', null, label));
+        });
+        table.appendChild(element('thead')).appendChild(head);
+        var tbody = table.appendChild(element('tbody'));
+        result.slowStatements.forEach(function (slow) {
+            var row = element('tr', slow.success ? null : 'table-danger');
+            [slow.batchNumber != null ? slow.statementIndex + ' (batch of ' + slow.batchSize + ')' : slow.statementIndex,
+                slow.line,
+                slow.durationMs,
+                slow.rowsAffected >= 0 ? slow.rowsAffected : ''
+            ].forEach(function (value) {
+                row.appendChild(element('td', null, String(value)));
+            });
+            var statement = element('td');
+            statement.appendChild(element('code', null, slow.sqlExcerpt));
+            if (slow.plan != null) {
+                var plan = element('details');
+                plan.appendChild(element('summary', 'text-muted', 'Plan'));
+                var pre = element('pre', 'executed-sql mt-1');
+                pre.appendChild(element('code', null, slow.plan));
+                plan.appendChild(pre);
+                statement.appendChild(plan);
+            }
+            row.appendChild(statement);
+            tbody.appendChild(row);
+        });
+        section.appendChild(table);
+        return section;
+    }
+
+    function alert(kind, text) {
+        return element('div', 'alert alert-' + kind + ' mt-2', text);
+    }
+
+    function element(tag, className, text) {
+        var node = document.createElement(tag);
+        if (className) {
+            node.className = className;
+        }
+        if (text != null) {
+            node.textContent = text;
+        }
+        return node;
+    }
+})();
@@ -0,0 +1,41 @@
+package com.example.exsql.legacy.newland;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class DecodeUtilTest {
+
+  @Test
+  void encryptThenDecrypt_roundTrips() throws Exception {
+    String encrypted = DecodeUtil.encrypt("s3cret-password", "12345678abcdefg");
+
+    assertTrue(encrypted.matches("[0-9A-F]+"), encrypted);
+    assertEquals("s3cret-password", DecodeUtil.decrypt(encrypted, "12345678abcdefg"));
+  }
+
+  @Test
+  void decrypt_isSafeUnderConcurrentUse() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Callable<Boolean>> tasks = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        String password = "password-" + i;
+        String key = "random" + i + "abcdefg";
+        tasks.add(
+            () -> password.equals(DecodeUtil.decrypt(DecodeUtil.encrypt(password, key), key)));
+      }
+      for (Future<Boolean> result : executor.invokeAll(tasks)) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.exsql.legacy.newland;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class UigClientTest {
+
+  private HttpServer server;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger failuresBeforeSuccess = new AtomicInteger();
+  private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+  // When set, the server holds each request until it is counted down.
+  private volatile CountDownLatch hold;
+  private String url;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/security",
+        exchange -> {
+          requests.incrementAndGet();
+          clientPorts.add(exchange.getRemoteAddress().getPort());
+          byte[] request = readAll(exchange.getRequestBody());
+          CountDownLatch latch = hold;
+          if (latch != null) {
+            try {
+              latch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+          }
+          boolean fail = failuresBeforeSuccess.getAndDecrement() > 0;
+          byte[] body =
+              fail
+                  ? new byte[0]
+                  : ("echo:" + new String(request, StandardCharsets.UTF_8))
+                      .getBytes(StandardCharsets.UTF_8);
+          if (fail) {
+            // Close the connection after an error up front, so the retry never races the server
+            // closing it while the client reuses it from the pool.
+            exchange.getResponseHeaders().set("Connection", "close");
+          }
+          exchange.sendResponseHeaders(fail ? 503 : 200, body.length == 0 ? -1 : body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/security";
+    UigClient.configure(settings(3, 5));
+  }
+
+  @AfterEach
+  void tearDown() {
+    if (hold != null) {
+      hold.countDown();
+    }
+    server.stop(0);
+    UigClient.configure(new UigClient.Settings());
+  }
+
+  private static UigClient.Settings settings(int maxAttempts, int circuitFailureThreshold) {
+    UigClient.Settings settings = new UigClient.Settings();
+    settings.setConnectTimeoutMs(2000);
+    settings.setReadTimeoutMs(2000);
+    settings.setMaxAttempts(maxAttempts);
+    settings.setInitialBackoffMs(1);
+    settings.setMaxBackoffMs(5);
+    settings.setCircuitFailureThreshold(circuitFailureThreshold);
+    settings.setCircuitOpenMs(60000);
+    return settings;
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1024];
+    int n;
+    while ((n = in.read(buffer)) > 0) {
+      out.write(buffer, 0, n);
+    }
+    return out.toByteArray();
+  }
+
+  @Test
+  void requestService_reusesKeepAliveConnection() throws Exception {
+    UigClient client = new UigClient(url);
+
+    assertEquals("echo:<a/>", client.requestService("<a/>"));
+    assertEquals("echo:<b/>", new UigClient(url).requestService("<b/>"));
+
+    assertEquals(2, requests.get());
+    assertEquals(1, clientPorts.size(), "both requests should use the same pooled connection");
+  }
+
+  @Test
+  void requestService_retriesFailedAttempts() throws Exception {
+    failuresBeforeSuccess.set(2);
+
+    assertEquals("echo:<a/>", new UigClient(url).requestService("<a/>"));
+    assertEquals(3, requests.get());
+  }
+
+  @Test
+  void requestService_opensCircuitAfterConsecutiveFailures() throws Exception {
+    UigClient.configure(settings(1, 2));
+    failuresBeforeSuccess.set(Integer.MAX_VALUE);
+    UigClient client = new UigClient(url);
+
+    assertThrows(IOException.class, () -> client.requestService("<a/>"));
+    assertThrows(IOException.class, () -> client.requestService("<a/>"));
+    assertThrows(UigClient.CircuitOpenException.class, () -> client.requestService("<a/>"));
+    assertEquals(2, requests.get(), "an open circuit must not contact the service");
+  }
+
+  @Test
+  void requestService_unexpectedErrorOnTrialRequest_freesTrialSlot() {
+    UigClient.Settings settings = settings(1, 1);
+    settings.setCircuitOpenMs(0);
+    UigClient.configure(settings);
+    // Fails inside the HTTP client with an unchecked exception instead of an IOException.
+    UigClient client = new UigClient("ftp://127.0.0.1/security");
+
+    assertThrows(RuntimeException.class, () -> client.requestService("<a/>"));
+    // The trial request after the open period fails the same way...
+    assertThrows(RuntimeException.class, () -> client.requestService("<a/>"));
+    // ...and the next one is a trial again, not rejected by a circuit stuck open.
+    assertThrows(RuntimeException.class, () -> client.requestService("<a/>"));
+  }
+
+  @Test
+  void requestServiceAsync_completesWithResponseAfterRetry() throws Exception {
+    failuresBeforeSuccess.set(1);
+
+    String response = new UigClient(url).requestServiceAsync("<a/>").get(5, TimeUnit.SECONDS);
+
+    assertEquals("echo:<a/>", response);
+    assertEquals(2, requests.get());
+  }
+
+  @Test
+  void requestServiceAsync_boundsPendingRequestsAndFailsThemOnShutdown() throws Exception {
+    UigClient.Settings settings = settings(3, 5);
+    settings.setAsyncThreads(1);
+    settings.setAsyncQueueCapacity(1);
+    UigClient.configure(settings);
+    hold = new CountDownLatch(1);
+    UigClient client = new UigClient(url);
+
+    CompletableFuture<String> pending = client.requestServiceAsync("<a/>");
+    ExecutionException rejected =
+        assertThrows(
+            ExecutionException.class,
+            () -> client.requestServiceAsync("<b/>").get(5, TimeUnit.SECONDS));
+    assertTrue(rejected.getCause() instanceof RejectedExecutionException);
+
+    // Replacing the client stops its async threads and fails what they had not finished.
+    UigClient.configure(settings(3, 5));
+    ExecutionException stopped =
+        assertThrows(ExecutionException.class, () -> pending.get(5, TimeUnit.SECONDS));
+    assertTrue(stopped.getCause() instanceof RejectedExecutionException);
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.exsql.legacy.newland;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.dom4j.Document;
+import org.dom4j.Element;
+import org.junit.jupiter.api.Test;
+
+class UigXmlCodecTest {
+
+  @Test
+  void encode_producesTheSameFieldsAsDom4j() throws Exception {
+    ReqInfoBean bean = request("scott & <tiger>", "p'w\"d");
+
+    Document document = XMLUtil.fromXML(UigXmlCodec.encode(bean), "UTF-8");
+
+    Element content = document.getRootElement().element("content");
+    assertEquals("operation_in", document.getRootElement().getName());
+    assertEquals("2", content.elementText("dbtype"));
+    assertEquals("ORCL", content.elementText("dbtns"));
+    assertEquals("scott & <tiger>", content.elementText("dbuser"));
+    assertEquals("p'w\"d", content.elementText("dbuserpwd"));
+    assertEquals("测试应用", content.elementText("hostapp"));
+    assertEquals("1", content.elementText("remark"));
+    Element dom4jContent =
+        XMLUtil.fromXML(new DealXMLMgr().encodeXML(bean), "UTF-8")
+            .getRootElement()
+            .element("content");
+    assertEquals(dom4jContent.elements().size(), content.elements().size());
+    for (Object child : dom4jContent.elements()) {
+      Element field = (Element) child;
+      assertEquals(field.getText(), content.elementText(field.getName()), field.getName());
+    }
+  }
+
+  @Test
+  void encode_rejectsControlCharacters() {
+    assertThrows(
+        IllegalArgumentException.class, () -> UigXmlCodec.encode(request("scott\u0001", "pwd")));
+  }
+
+  @Test
+  void decode_readsSuccessResponse() throws Exception {
+    String xml =
+        "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<operation_out>\n  <content>\n"
+            + "    <resultcode>1</resultcode>\n    <dbtns>ORCL</dbtns>\n"
+            + "    <dbuser>scott</dbuser>\n    <dbuserpwd>A1&amp;B2</dbuserpwd>\n"
+            + "    <randomcode><![CDATA[12345678]]></randomcode>\n  </content>\n</operation_out>";
+
+    ResInfoBean res = UigXmlCodec.decode(xml);
+
+    assertEquals(1, res.getResultCode());
+    assertEquals("ORCL", res.getDbTns());
+    assertEquals("scott", res.getDbUser());
+    assertEquals("A1&B2", res.getDbUserpwd());
+    assertEquals("12345678", res.getRandomCode());
+    ResInfoBean viaDom4j = new DealXMLMgr().decodeXML(XMLUtil.fromXML(xml, "UTF-8"));
+    assertEquals(viaDom4j.getDbUserpwd(), res.getDbUserpwd());
+    assertEquals(viaDom4j.getRandomCode(), res.getRandomCode());
+  }
+
+  @Test
+  void decode_readsErrorResponse() throws Exception {
+    ResInfoBean res =
+        UigXmlCodec.decode(
+            "<operation_out><content><resultcode>0</resultcode>"
+                + "<errormsg>用户不存在</errormsg></content></operation_out>");
+
+    assertEquals(0, res.getResultCode());
+    assertEquals("用户不存在", res.getErrorMsg());
+  }
+
+  @Test
+  void decode_reportsMissingElementsAndMalformedInput() {
+    DecodeException missing =
+        assertThrows(
+            DecodeException.class,
+            () ->
+                UigXmlCodec.decode(
+                    "<operation_out><content><resultcode>1</resultcode></content></operation_out>"));
+    assertTrue(missing.getMessage().contains("dbtns"), missing.getMessage());
+    assertThrows(
+        DecodeException.class, () -> UigXmlCodec.decode("<operation_out></operation_out>"));
+    assertThrows(DecodeException.class, () -> UigXmlCodec.decode("<operation_out><content>"));
+  }
+
+  @Test
+  void decode_doesNotResolveDoctypeEntities() {
+    String xml =
+        "<?xml version=\"1.0\"?><!DOCTYPE r [<!ENTITY x SYSTEM \"file:///etc/passwd\">]>"
+            + "<operation_out><content><resultcode>0</resultcode>"
+            + "<errormsg>&x;</errormsg></content></operation_out>";
+
+    assertThrows(DecodeException.class, () -> UigXmlCodec.decode(xml));
+  }
+
+  private static ReqInfoBean request(String user, String password) {
+    ReqInfoBean bean = new ReqInfoBean();
+    bean.setDbType(2);
+    bean.setDbTns("ORCL");
+    bean.setDbUser(user);
+    bean.setDbUserpwd(password);
+    bean.setHostName("host");
+    bean.setHostIp("10.0.0.1");
+    bean.setHostApp("测试应用");
+    bean.setAppCode("abcdefg");
+    bean.setCfgFileFlag("1");
+    return bean;
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.exsql.script;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+public class InsertValuesTest {
+
+  private static InsertValues parse(String text) {
+    return InsertValues.parse(new SqlStatement(text, 1, 1, SqlStatementType.DML, "INSERT"));
+  }
+
+  @Test
+  void parse_splitsLiteralsFromTheStatement() {
+    InsertValues insert =
+        parse("insert into app.\"Orders\" (id, note, amount)\n  values (42, 'O''Brien', -1.5e2)");
+
+    assertNotNull(insert);
+    assertEquals("insert into app.\"Orders\" (id, note, amount) VALUES (?, ?, ?)", insert.getSql());
+    assertEquals(
+        Arrays.asList(new BigDecimal("42"), "O'Brien", new BigDecimal("-1.5e2")),
+        insert.getValues());
+    assertEquals(
+        insert.getShape(),
+        parse("insert into  app.\"Orders\" (id, note, amount) values (1, NULL, 2)").getShape());
+    assertNotEquals(insert.getShape(), parse("INSERT INTO t VALUES (1, 2, 3)").getShape());
+  }
+
+  @Test
+  void parse_rejectsAnythingButPlainLiterals() {
+    assertNull(parse("INSERT INTO t VALUES (SYSDATE)"));
+    assertNull(parse("INSERT INTO t VALUES (1), (2)"));
+    assertNull(parse("INSERT INTO t SELECT * FROM s"));
+    assertNull(parse("INSERT INTO t VALUES ('a' || 'b')"));
+    assertNull(parse("INSERT INTO t VALUES ('it\\'s')"));
+    assertNull(parse("INSERT INTO t VALUES (1) -- trailing comment"));
+    assertNull(parse("INSERT INTO t VALUES (1"));
+    assertNull(
+        InsertValues.parse(
+            new SqlStatement("UPDATE t SET a = 1", 1, 1, SqlStatementType.DML, "UPDATE")));
+  }
+}
@@ -0,0 +1,181 @@
+package com.example.exsql.script;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class SqlScriptReaderTest {
+
+  private static List<SqlStatement> readAll(String script) throws IOException {
+    List<SqlStatement> statements = new ArrayList<>();
+    try (SqlScriptReader reader = new SqlScriptReader(new StringReader(script))) {
+      SqlStatement statement;
+      while ((statement = reader.next()) != null) {
+        statements.add(statement);
+      }
+    }
+    return statements;
+  }
+
+  @Test
+  void next_splitsPlainStatementsOnSemicolons() throws IOException {
+    List<SqlStatement> statements =
+        readAll("\uFEFFINSERT INTO t VALUES (1);\nUPDATE t SET a = 2;\n\nDELETE FROM t");
+
+    assertEquals(3, statements.size());
+    assertEquals("INSERT INTO t VALUES (1)", statements.get(0).getText());
+    assertEquals("UPDATE t SET a = 2", statements.get(1).getText());
+    assertEquals("DELETE FROM t", statements.get(2).getText());
+    assertEquals(3, statements.get(2).getIndex());
+    assertEquals(4, statements.get(2).getStartLine());
+    assertFalse(statements.get(0).isBlock());
+  }
+
+  @Test
+  void next_ignoresSemicolonsInLiteralsIdentifiersAndComments() throws IOException {
+    List<SqlStatement> statements =
+        readAll(
+            "-- leading; comment\n"
+                + "INSERT INTO \"A;B\" VALUES ('x;y', 'it''s; fine'); /* c; */\n"
+                + "SELECT q'[a;']b]' FROM dual;\n"
+                + "SELECT nq'{z;}' /* hint; */ FROM dual;");
+
+    assertEquals(3, statements.size());
+    assertEquals("INSERT INTO \"A;B\" VALUES ('x;y', 'it''s; fine')", statements.get(0).getText());
+    assertEquals("SELECT q'[a;']b]' FROM dual", statements.get(1).getText());
+    assertEquals("SELECT nq'{z;}' /* hint; */ FROM dual", statements.get(2).getText());
+  }
+
+  @Test
+  void next_readsPlSqlBlocksUpToSlashTerminator() throws IOException {
+    List<SqlStatement> statements =
+        readAll(
+            "CREATE TABLE t (a NUMBER);\n"
+                + "DECLARE\n  v NUMBER;\nBEGIN\n  v := 10 / 2;\n  INSERT INTO t VALUES (v);\nEND;\n"
+                + "/\n"
+                + "CREATE OR REPLACE PROCEDURE p IS\nBEGIN\n  NULL;\nEND;\n/\n"
+                + "INSERT INTO t VALUES (3);\n"
+                + "BEGIN NULL; END; /");
+
+    assertEquals(5, statements.size());
+    assertFalse(statements.get(0).isBlock());
+    assertTrue(statements.get(1).isBlock());
+    assertEquals(
+        "DECLARE\n  v NUMBER;\nBEGIN\n  v := 10 / 2;\n  INSERT INTO t VALUES (v);\nEND;",
+        statements.get(1).getText());
+    assertTrue(statements.get(2).isBlock());
+    assertTrue(statements.get(2).getText().endsWith("END;"));
+    assertEquals("INSERT INTO t VALUES (3)", statements.get(3).getText());
+    assertEquals("BEGIN NULL; END;", statements.get(4).getText());
+  }
+
+  @Test
+  void next_blockKeywordsInsideNamesOrCommentsDoNotStartBlocks() throws IOException {
+    List<SqlStatement> statements =
+        readAll("/* BEGIN */ UPDATE t SET begin_date = SYSDATE;\nBEGIN;\nSELECT 1 FROM dual;");
+
+    assertEquals(3, statements.size());
+    assertFalse(statements.get(0).isBlock());
+    assertEquals("BEGIN", statements.get(1).getText());
+    assertFalse(statements.get(1).isBlock());
+    assertEquals(SqlStatementType.TRANSACTION_CONTROL, statements.get(1).getType());
+  }
+
+  @Test
+  void next_classifiesEachUnitOfAMixedScript() throws IOException {
+    List<SqlStatement> statements =
+        readAll(
+            "ALTER SESSION SET NLS_DATE_FORMAT = 'YYYY-MM-DD';\n"
+                + "CREATE TABLE t (a NUMBER);\n"
+                + "CREATE OR REPLACE PACKAGE BODY pkg AS\n"
+                + "  PROCEDURE p IS BEGIN NULL; END;\n"
+                + "END;\n"
+                + "/\n"
+                + "DECLARE v NUMBER; BEGIN v := 1; END;\n"
+                + "/\n"
+                + "-- DECLARE in a comment\n"
+                + "INSERT INTO t VALUES (1);\n"
+                + "WITH x AS (SELECT 1 a FROM dual) SELECT a FROM x;\n"
+                + "CALL p();\n"
+                + "ROLLBACK TO SAVEPOINT s;\n"
+                + "set transaction read only;\n"
+                + "use app;\n"
+                + "ALTER TABLE t ADD (b NUMBER);\n"
+                + "EXPLAIN PLAN FOR SELECT 1 FROM dual");
+
+    SqlStatementType[] expected = {
+      SqlStatementType.SESSION,
+      SqlStatementType.DDL,
+      SqlStatementType.STORED_PROGRAM,
+      SqlStatementType.PLSQL_BLOCK,
+      SqlStatementType.DML,
+      SqlStatementType.QUERY,
+      SqlStatementType.CALL,
+      SqlStatementType.TRANSACTION_CONTROL,
+      SqlStatementType.TRANSACTION_CONTROL,
+      SqlStatementType.SESSION,
+      SqlStatementType.DDL,
+      SqlStatementType.OTHER
+    };
+    assertEquals(expected.length, statements.size());
+    for (int i = 0; i < expected.length; i++) {
+      assertEquals(expected[i], statements.get(i).getType(), statements.get(i).getText());
+    }
+    assertTrue(statements.get(2).isBlock());
+    assertTrue(statements.get(4).isDml());
+  }
+
+  @Test
+  void next_slashLineAfterPlainStatementIsIgnored() throws IOException {
+    List<SqlStatement> statements = readAll("SELECT 1 FROM dual;\n/\nSELECT 10\n/ 2 FROM dual;");
+
+    assertEquals(2, statements.size());
+    assertEquals("SELECT 10\n/ 2 FROM dual", statements.get(1).getText());
+  }
+
+  @Test
+  void next_emptyOrCommentOnlyScriptYieldsNothing() throws IOException {
+    assertTrue(readAll("  \n-- nothing here\n/* still nothing */ ;\n").isEmpty());
+  }
+
+  @Test
+  void forUtf8_decodesMultiByteCharactersAcrossBufferBoundaries() throws IOException {
+    StringBuilder script = new StringBuilder();
+    for (int i = 0; i < 20000; i++) {
+      script.append("INSERT INTO t VALUES ('\u4e2d\u6587');\n");
+    }
+    int count = 0;
+    try (SqlScriptReader reader =
+        SqlScriptReader.forUtf8(
+            new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.UTF_8)))) {
+      SqlStatement statement;
+      while ((statement = reader.next()) != null) {
+        assertEquals("INSERT INTO t VALUES ('\u4e2d\u6587')", statement.getText());
+        count++;
+      }
+    }
+    assertEquals(20000, count);
+  }
+
+  @Test
+  void forUtf8_rejectsInvalidUtf8() {
+    byte[] latin1 = "INSERT INTO t VALUES ('caf\u00e9');".getBytes(StandardCharsets.ISO_8859_1);
+
+    IOException error =
+        assertThrows(
+            IOException.class,
+            () -> {
+              try (SqlScriptReader reader =
+                  SqlScriptReader.forUtf8(new ByteArrayInputStream(latin1))) {
+                reader.next();
+              }
+            });
+    assertTrue(error.getMessage().contains("UTF-8"), error.getMessage());
+  }
+}
@@ -0,0 +1,131 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.config.DataSourcesProperties;
+import com.example.exsql.model.BroadcastJob;
+import com.example.exsql.model.BroadcastOptions;
+import com.example.exsql.model.BroadcastPolicy;
+import com.example.exsql.model.BroadcastTarget;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.ScriptExecutionResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+public class BroadcastServiceTest {
+
+  @TempDir Path spoolDir;
+
+  private SqlExecutionService sqlExecutionService;
+  private BroadcastService service;
+
+  @BeforeEach
+  void setUp() {
+    sqlExecutionService = mock(SqlExecutionService.class);
+    ScriptSpool scriptSpool = new ScriptSpool();
+    ReflectionTestUtils.setField(scriptSpool, "spoolDir", spoolDir.toString());
+    DataSourceCatalog catalog =
+        new DataSourceCatalog(
+            new DataSourcesProperties(), mock(DataSourceRegistry.class), new StandardEnvironment());
+    catalog.apply(
+        Arrays.asList(
+            definition("tenant_a", "tenant"),
+            definition("tenant_b", "tenant"),
+            definition("tenant_c", "tenant"),
+            definition("reporting")));
+    service = new BroadcastService(sqlExecutionService, catalog, scriptSpool, Runnable::run);
+  }
+
+  private static DataSourceDefinition definition(String name, String... tags) {
+    DataSourceDefinition definition =
+        new DataSourceDefinition(name, "url", "user", "driver", "auth", 2, "tns", "url", "dummy");
+    definition.setTags(Arrays.asList(tags));
+    return definition;
+  }
+
+  private void stubOutcome(String dataSourceName, boolean success) {
+    when(sqlExecutionService.executeScripts(anyList(), eq(dataSourceName), any(), any()))
+        .thenReturn(
+            Arrays.asList(
+                new ScriptExecutionResult("a.sql", true, "ok", ""),
+                new ScriptExecutionResult("b.sql", success, success ? "ok" : "ORA-00955", "")));
+  }
+
+  @Test
+  void submit_continue_runsEveryTaggedDataSourceAndReportsTheMatrix() throws Exception {
+    stubOutcome("tenant_a", true);
+    stubOutcome("tenant_b", false);
+    stubOutcome("tenant_c", true);
+    BroadcastOptions broadcast = new BroadcastOptions();
+    broadcast.setDataSourceTag("TENANT");
+
+    BroadcastJob job = service.submit(files(), broadcast, new ExecutionOptions());
+
+    assertEquals(ExecutionJob.Status.COMPLETED, job.getStatus());
+    assertEquals(Arrays.asList("a.sql", "b.sql"), job.getFileNames());
+    assertEquals(3, job.getTargets().size());
+    assertEquals(BroadcastTarget.Status.SUCCEEDED, job.getTargets().get(0).getStatus());
+    assertEquals(BroadcastTarget.Status.FAILED, job.getTargets().get(1).getStatus());
+    assertEquals(BroadcastTarget.Status.SUCCEEDED, job.getTargets().get(2).getStatus());
+    assertFalse(job.getTargets().get(1).getResults().get(1).isSuccess());
+    verify(sqlExecutionService, never()).executeScripts(anyList(), eq("reporting"), any(), any());
+  }
+
+  @Test
+  void submit_failFast_skipsDataSourcesThatHaveNotStarted() throws Exception {
+    stubOutcome("tenant_a", false);
+    BroadcastOptions broadcast = new BroadcastOptions();
+    broadcast.setDataSourceNames(Arrays.asList("tenant_a", "Tenant_B"));
+    broadcast.setDataSourceTag("tenant");
+    broadcast.setFailurePolicy(BroadcastPolicy.FAIL_FAST);
+    broadcast.setParallelism(1);
+
+    BroadcastJob job = service.submit(files(), broadcast, new ExecutionOptions());
+
+    assertEquals(3, job.getTargets().size());
+    assertEquals(BroadcastTarget.Status.FAILED, job.getTargets().get(0).getStatus());
+    assertEquals("tenant_b", job.getTargets().get(1).getDataSourceName());
+    assertEquals(BroadcastTarget.Status.SKIPPED, job.getTargets().get(1).getStatus());
+    assertEquals(2, job.count(BroadcastTarget.Status.SKIPPED));
+    verify(sqlExecutionService, times(1)).executeScripts(anyList(), anyString(), any(), any());
+  }
+
+  @Test
+  void resolveTargets_rejectsUnknownNamesAndEmptySelections() {
+    BroadcastOptions unknown = new BroadcastOptions();
+    unknown.setDataSourceNames(Collections.singletonList("missing"));
+    assertThrows(IllegalArgumentException.class, () -> service.resolveTargets(unknown));
+
+    BroadcastOptions untagged = new BroadcastOptions();
+    untagged.setDataSourceTag("nothing");
+    assertThrows(IllegalArgumentException.class, () -> service.resolveTargets(untagged));
+
+    assertThrows(
+        IllegalArgumentException.class, () -> service.resolveTargets(new BroadcastOptions()));
+  }
+
+  private static List<MultipartFile> files() {
+    return Arrays.asList(
+        new MockMultipartFile(
+            "files", "a.sql", "text/plain", "SELECT 1;".getBytes(StandardCharsets.UTF_8)),
+        new MockMultipartFile(
+            "files",
+            "b.sql",
+            "text/plain",
+            "CREATE TABLE t (x INT);".getBytes(StandardCharsets.UTF_8)));
+  }
+}
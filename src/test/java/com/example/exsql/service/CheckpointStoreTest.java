@@ -0,0 +1,99 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exsql.model.ExecutionCheckpoint;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class CheckpointStoreTest {
+
+  @TempDir Path directory;
+
+  private CheckpointStore store;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    store = new CheckpointStore(new ObjectMapper());
+    ReflectionTestUtils.setField(store, "directory", directory.toString());
+    ReflectionTestUtils.setField(store, "saveIntervalMs", 60_000L);
+    store.initialize();
+  }
+
+  private static ExecutionCheckpoint checkpoint(int lastCommitted) {
+    ExecutionCheckpoint checkpoint = new ExecutionCheckpoint();
+    checkpoint.setDataSourceName("primary");
+    checkpoint.setContentHash("abc123");
+    checkpoint.setFileName("migration.sql");
+    checkpoint.setLastCommittedStatementIndex(lastCommitted);
+    return checkpoint;
+  }
+
+  @Test
+  void saveFindDelete_roundTrip() {
+    store.save(checkpoint(8000));
+
+    ExecutionCheckpoint found = store.find("primary", "abc123");
+    assertEquals(8000, found.getLastCommittedStatementIndex());
+    assertEquals("migration.sql", found.getFileName());
+    assertNull(store.find("secondary", "abc123"));
+
+    store.delete("primary", "abc123");
+    assertNull(store.find("primary", "abc123"));
+  }
+
+  @Test
+  void tracker_savesFirstCommitThenThrottlesUntilFailure() {
+    CheckpointStore.Tracker tracker = store.track(checkpoint(0), false);
+
+    tracker.committed(1);
+    tracker.committed(2);
+    assertEquals(1, store.find("primary", "abc123").getLastCommittedStatementIndex());
+
+    tracker.failed(2, 3, "ORA-00001: unique constraint");
+    ExecutionCheckpoint saved = store.find("primary", "abc123");
+    assertEquals(2, saved.getLastCommittedStatementIndex());
+    assertEquals(Integer.valueOf(3), saved.getFailedStatementIndex());
+    assertEquals("ORA-00001: unique constraint", saved.getError());
+
+    tracker.finished();
+    assertNull(store.find("primary", "abc123"));
+  }
+
+  @Test
+  void tracker_savingEveryCommit_isNotThrottled() {
+    CheckpointStore.Tracker tracker = store.track(checkpoint(0), true);
+
+    tracker.committed(1000);
+    tracker.committed(2000);
+
+    assertEquals(2000, store.find("primary", "abc123").getLastCommittedStatementIndex());
+  }
+
+  @Test
+  void tracker_withoutContentHash_savesOnceIdentified() {
+    ExecutionCheckpoint unhashed = checkpoint(0);
+    unhashed.setContentHash(null);
+    CheckpointStore.Tracker tracker = store.track(unhashed, true);
+
+    tracker.committed(5);
+    assertNull(store.find("primary", "abc123"));
+
+    tracker.identify("abc123");
+    tracker.failed(5, 6, "ORA-00001: unique constraint");
+    assertEquals(5, store.find("primary", "abc123").getLastCommittedStatementIndex());
+  }
+
+  @Test
+  void disabledStore_keepsNothing() {
+    CheckpointStore disabled = CheckpointStore.disabled();
+    disabled.save(checkpoint(5));
+
+    assertNull(disabled.find("primary", "abc123"));
+    assertEquals(0, disabled.untracked().getResumeAfter());
+  }
+}
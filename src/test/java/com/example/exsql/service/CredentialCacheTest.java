@@ -0,0 +1,178 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class CredentialCacheTest {
+
+  private static final CredentialCache.Key KEY = new CredentialCache.Key("primary", "tns", "user");
+
+  private CredentialCache cache;
+
+  @AfterEach
+  void tearDown() {
+    if (cache != null) {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  void get_concurrentMisses_shareSingleLoad() throws Exception {
+    cache = new CredentialCache(60000, 0, 60000);
+    AtomicInteger loads = new AtomicInteger();
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Future<String> first =
+          executor.submit(
+              () ->
+                  cache.get(
+                      KEY,
+                      () -> {
+                        loads.incrementAndGet();
+                        loaderStarted.countDown();
+                        awaitQuietly(releaseLoader);
+                        return "secret";
+                      }));
+      assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+      Future<String> second = executor.submit(() -> cache.get(KEY, () -> "other"));
+      Thread.sleep(50);
+      releaseLoader.countDown();
+
+      assertEquals("secret", first.get(5, TimeUnit.SECONDS));
+      assertEquals("secret", second.get(5, TimeUnit.SECONDS));
+      assertEquals(1, loads.get());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void get_failedLoad_isNotCached() {
+    cache = new CredentialCache(60000, 0, 60000);
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            cache.get(
+                KEY,
+                () -> {
+                  throw new IllegalStateException("UIG unavailable");
+                }));
+    assertEquals("secret", cache.get(KEY, () -> "secret"));
+  }
+
+  @Test
+  void invalidate_dropsEntriesForUser() {
+    cache = new CredentialCache(60000, 0, 60000);
+    cache.get(KEY, () -> "old");
+
+    cache.invalidate("primary", "user");
+
+    assertEquals("new", cache.get(KEY, () -> "new"));
+    assertEquals(2, cache.getMissCount());
+  }
+
+  @Test
+  void backgroundRefresh_reloadsEntriesCloseToExpiry() throws Exception {
+    // Every entry is "close to expiry", so the refresher reloads it on each check.
+    cache = new CredentialCache(60000, 60000, 20);
+    AtomicInteger loads = new AtomicInteger();
+    cache.get(KEY, () -> "v" + loads.incrementAndGet());
+
+    long deadline = System.currentTimeMillis() + 5000;
+    while (loads.get() < 2 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+
+    assertTrue(loads.get() >= 2);
+    assertNotEquals("v1", cache.get(KEY, () -> "unused"));
+  }
+
+  @Test
+  void invalidate_duringLoad_doesNotCacheStaleValue() throws Exception {
+    cache = new CredentialCache(60000, 0, 60000);
+    CountDownLatch loaderStarted = new CountDownLatch(1);
+    CountDownLatch releaseLoader = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<String> stale =
+          executor.submit(
+              () ->
+                  cache.get(
+                      KEY,
+                      () -> {
+                        loaderStarted.countDown();
+                        awaitQuietly(releaseLoader);
+                        return "old";
+                      }));
+      assertTrue(loaderStarted.await(5, TimeUnit.SECONDS));
+      cache.invalidate("primary", "user");
+      releaseLoader.countDown();
+
+      assertEquals("old", stale.get(5, TimeUnit.SECONDS));
+      assertEquals("new", cache.get(KEY, () -> "new"));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void backgroundRefresh_dropsExpiredEntriesInsteadOfReloadingThem() throws Exception {
+    cache = new CredentialCache(30, 30, 10);
+    AtomicInteger loads = new AtomicInteger();
+    cache.get(KEY, () -> "v" + loads.incrementAndGet());
+
+    // Never read again: refreshed only within a TTL of its last read, then dropped on expiry.
+    Thread.sleep(300);
+    int loadsAfterExpiry = loads.get();
+    Thread.sleep(200);
+
+    assertEquals(loadsAfterExpiry, loads.get());
+    assertEquals("v" + (loadsAfterExpiry + 1), cache.get(KEY, () -> "v" + loads.incrementAndGet()));
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Test
+  void getAsync_missLoadsWithoutBlockingAndCachesForBothPaths() throws Exception {
+    cache = new CredentialCache(60000, 0, 60000);
+    CompletableFuture<String> pending = new CompletableFuture<>();
+    AtomicInteger asyncLoads = new AtomicInteger();
+
+    CompletableFuture<String> first =
+        cache.getAsync(
+            KEY,
+            () -> {
+              asyncLoads.incrementAndGet();
+              return pending;
+            },
+            () -> "blocking");
+    // A second miss while the first load runs shares it.
+    CompletableFuture<String> second =
+        cache.getAsync(KEY, () -> CompletableFuture.completedFuture("other"), () -> "blocking");
+    assertFalse(first.isDone());
+    pending.complete("secret");
+
+    assertEquals("secret", first.get(5, TimeUnit.SECONDS));
+    assertEquals("secret", second.get(5, TimeUnit.SECONDS));
+    assertEquals(1, asyncLoads.get());
+    assertEquals("secret", cache.get(KEY, () -> "other"));
+  }
+}
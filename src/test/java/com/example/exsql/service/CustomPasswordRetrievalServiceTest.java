@@ -1,16 +1,34 @@
 package com.example.exsql.service;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 import com.newland.computer.boss.bossbiz.bosscomponent.cachestore.datasource.CNLDBConnectMgr;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
-import org.mockito.MockedStatic;
+import org.mockito.MockedConstruction;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.springframework.test.util.ReflectionTestUtils;
 
 @ExtendWith(MockitoExtension.class)
@@ -18,95 +36,59 @@ public class CustomPasswordRetrievalServiceTest {
 
   @InjectMocks private CustomPasswordRetrievalService customPasswordRetrievalService;
 
-  private MockedStatic<CNLDBConnectMgr> mockedCNLDBConnectMgr;
+  // Data sources without an auth file use the built-in application settings.
+  private static final String NO_AUTH_FILE = "";
+
+  // Stands in for every CNLDBConnectMgr the service creates, whatever its auth file.
+  private final CNLDBConnectMgr cndl = mock(CNLDBConnectMgr.class);
+
+  private final List<List<?>> constructorArguments = new ArrayList<>();
+
+  private MockedConstruction<CNLDBConnectMgr> mockedCNLDBConnectMgr;
 
   @BeforeEach
   void setUp() {
-    // Mock static CNLDBConnectMgr methods
-    mockedCNLDBConnectMgr = Mockito.mockStatic(CNLDBConnectMgr.class);
+    // Route calls on the managers the service builds from auth files to the shared mock.
+    mockedCNLDBConnectMgr =
+        Mockito.mockConstruction(
+            CNLDBConnectMgr.class,
+            (manager, context) -> {
+              constructorArguments.add(context.arguments());
+              lenient()
+                  .when(manager.getPasswd(anyInt(), anyString(), anyString(), anyString(), any()))
+                  .thenAnswer(
+                      invocation ->
+                          cndl.getPasswd(
+                              invocation.getArgument(0),
+                              invocation.getArgument(1),
+                              invocation.getArgument(2),
+                              invocation.getArgument(3),
+                              invocation.getArgument(4)));
+              lenient()
+                  .when(
+                      manager.getPasswdAsync(
+                          anyInt(), anyString(), anyString(), anyString(), any()))
+                  .thenAnswer(
+                      invocation ->
+                          cndl.getPasswdAsync(
+                              invocation.getArgument(0),
+                              invocation.getArgument(1),
+                              invocation.getArgument(2),
+                              invocation.getArgument(3),
+                              invocation.getArgument(4)));
+            });
 
-    // Initialize the service, which calls CNLDBConnectMgr.init() via @PostConstruct
-    // We need to set the private fields that would normally be injected by @Value
-    ReflectionTestUtils.setField(
-        customPasswordRetrievalService, "cndlAuthFilePath", "test-auth-file-path");
-    ReflectionTestUtils.setField(customPasswordRetrievalService, "primaryCndlNDbType", 1);
-    ReflectionTestUtils.setField(customPasswordRetrievalService, "primaryCndlTns", "primaryTns");
-    ReflectionTestUtils.setField(
-        customPasswordRetrievalService, "primaryCndlGetPasswdUrl", "primaryUrl");
-    ReflectionTestUtils.setField(
-        customPasswordRetrievalService, "primaryCndlGetPasswdDummyPassword", "primaryDummy");
-
-    // Call initialize manually as @PostConstruct might not run in this unit test setup without
-    // Spring context
-    // Or, ensure cndlMgrInitialized is true after mocking init
-    mockedCNLDBConnectMgr
-        .when(CNLDBConnectMgr::init)
-        .thenAnswer(invocation -> null); // Make init() do nothing
-    customPasswordRetrievalService.initialize(); // Manually call to set cndlMgrInitialized = true
+    // Call initialize manually as @PostConstruct does not run without a Spring context; it sets
+    // cndlMgrInitialized = true.
+    customPasswordRetrievalService.initialize();
   }
 
   @AfterEach
   void tearDown() {
+    customPasswordRetrievalService.shutdown();
     mockedCNLDBConnectMgr.close();
   }
 
-  @Test
-  void retrievePrimaryPassword_success() throws Exception {
-    String expectedPassword = "primaryTestPassword";
-    String username = "primaryUser";
-
-    mockedCNLDBConnectMgr
-        .when(
-            () ->
-                CNLDBConnectMgr.getPasswd(1, "primaryTns", username, "primaryUrl", "primaryDummy"))
-        .thenReturn(expectedPassword);
-
-    String actualPassword = customPasswordRetrievalService.retrievePrimaryPassword(username);
-
-    assertEquals(expectedPassword, actualPassword);
-    mockedCNLDBConnectMgr.verify(
-        () -> CNLDBConnectMgr.getPasswd(1, "primaryTns", username, "primaryUrl", "primaryDummy"));
-  }
-
-  @Test
-  void retrievePrimaryPassword_CNLDBReturnsNull_throwsRuntimeException() {
-    String username = "primaryUserNull";
-    mockedCNLDBConnectMgr
-        .when(
-            () ->
-                CNLDBConnectMgr.getPasswd(1, "primaryTns", username, "primaryUrl", "primaryDummy"))
-        .thenReturn(null);
-
-    Exception exception =
-        assertThrows(
-            RuntimeException.class,
-            () -> {
-              customPasswordRetrievalService.retrievePrimaryPassword(username);
-            });
-    assertTrue(exception.getMessage().contains("CNLDBConnectMgr returned null for primary user"));
-  }
-
-  @Test
-  void retrievePrimaryPassword_CNLDBThrowsException_rethrowsRuntimeException() {
-    String username = "primaryUserError";
-    mockedCNLDBConnectMgr
-        .when(
-            () ->
-                CNLDBConnectMgr.getPasswd(1, "primaryTns", username, "primaryUrl", "primaryDummy"))
-        .thenThrow(new Exception("CNLDB Error"));
-
-    Exception exception =
-        assertThrows(
-            RuntimeException.class,
-            () -> {
-              customPasswordRetrievalService.retrievePrimaryPassword(username);
-            });
-    assertTrue(
-        exception
-            .getMessage()
-            .contains("Error retrieving password for primary datasource via CNLDBConnectMgr"));
-  }
-
   @Test
   void retrievePassword_secondaryDatasource_success() throws Exception {
     String expectedPassword = "secondaryTestPassword";
@@ -117,16 +99,14 @@ public class CustomPasswordRetrievalServiceTest {
     String dummy = "secondaryDummy";
     String dsName = "secondary";
 
-    mockedCNLDBConnectMgr
-        .when(() -> CNLDBConnectMgr.getPasswd(nDbType, tns, username, url, dummy))
-        .thenReturn(expectedPassword);
+    when(cndl.getPasswd(nDbType, tns, username, url, dummy)).thenReturn(expectedPassword);
 
     String actualPassword =
-        customPasswordRetrievalService.retrievePassword(username, nDbType, tns, url, dummy, dsName);
+        customPasswordRetrievalService.retrievePassword(
+            username, nDbType, tns, url, dummy, dsName, NO_AUTH_FILE);
 
     assertEquals(expectedPassword, actualPassword);
-    mockedCNLDBConnectMgr.verify(
-        () -> CNLDBConnectMgr.getPasswd(nDbType, tns, username, url, dummy));
+    verify(cndl).getPasswd(nDbType, tns, username, url, dummy);
   }
 
   @Test
@@ -138,16 +118,14 @@ public class CustomPasswordRetrievalServiceTest {
     String dummy = "secondaryDummy";
     String dsName = "secondary";
 
-    mockedCNLDBConnectMgr
-        .when(() -> CNLDBConnectMgr.getPasswd(nDbType, tns, username, url, dummy))
-        .thenReturn(null);
+    when(cndl.getPasswd(nDbType, tns, username, url, dummy)).thenReturn(null);
 
     Exception exception =
         assertThrows(
             RuntimeException.class,
             () -> {
               customPasswordRetrievalService.retrievePassword(
-                  username, nDbType, tns, url, dummy, dsName);
+                  username, nDbType, tns, url, dummy, dsName, NO_AUTH_FILE);
             });
     assertTrue(exception.getMessage().contains("CNLDBConnectMgr returned null for secondary user"));
   }
@@ -161,16 +139,15 @@ public class CustomPasswordRetrievalServiceTest {
     String dummy = "secondaryDummy";
     String dsName = "secondary";
 
-    mockedCNLDBConnectMgr
-        .when(() -> CNLDBConnectMgr.getPasswd(nDbType, tns, username, url, dummy))
-        .thenThrow(new Exception("CNLDB Error"));
+    when(cndl.getPasswd(nDbType, tns, username, url, dummy))
+        .thenThrow(new RuntimeException("CNLDB Error"));
 
     Exception exception =
         assertThrows(
             RuntimeException.class,
             () -> {
               customPasswordRetrievalService.retrievePassword(
-                  username, nDbType, tns, url, dummy, dsName);
+                  username, nDbType, tns, url, dummy, dsName, NO_AUTH_FILE);
             });
     assertTrue(
         exception
@@ -187,16 +164,153 @@ public class CustomPasswordRetrievalServiceTest {
         assertThrows(
             IllegalStateException.class,
             () -> {
-              customPasswordRetrievalService.retrievePrimaryPassword("anyUser");
+              customPasswordRetrievalService.retrievePassword(
+                  "anyUser", 1, "t", "u", "d", "ds", NO_AUTH_FILE);
             });
-    assertEquals("CNLDBConnectMgr not initialized for primary datasource.", exception.getMessage());
+    assertEquals("CNLDBConnectMgr not initialized for datasource: ds", exception.getMessage());
+  }
+
+  @Test
+  void retrievePassword_cacheEnabled_servesRepeatedCallsFromCache() {
+    enableCredentialCache();
+    when(cndl.getPasswd(2, "tns", "cachedUser", "url", "dummy")).thenReturn("cachedPassword");
 
-    Exception exception2 =
+    assertEquals(
+        "cachedPassword",
+        customPasswordRetrievalService.retrievePassword(
+            "cachedUser", 2, "tns", "url", "dummy", "secondary", NO_AUTH_FILE));
+    assertEquals(
+        "cachedPassword",
+        customPasswordRetrievalService.retrievePassword(
+            "cachedUser", 2, "tns", "url", "dummy", "secondary", NO_AUTH_FILE));
+
+    verify(cndl, times(1)).getPasswd(2, "tns", "cachedUser", "url", "dummy");
+  }
+
+  @Test
+  void retrievePasswordAsync_cachesPasswordForLaterBlockingCalls() throws Exception {
+    enableCredentialCache();
+    when(cndl.getPasswdAsync(2, "tns", "asyncUser", "url", "dummy"))
+        .thenReturn(CompletableFuture.completedFuture("asyncPassword"));
+
+    assertEquals(
+        "asyncPassword",
+        customPasswordRetrievalService
+            .retrievePasswordAsync("asyncUser", 2, "tns", "url", "dummy", "secondary", NO_AUTH_FILE)
+            .get(5, TimeUnit.SECONDS));
+    assertEquals(
+        "asyncPassword",
+        customPasswordRetrievalService.retrievePassword(
+            "asyncUser", 2, "tns", "url", "dummy", "secondary", NO_AUTH_FILE));
+
+    verify(cndl, never()).getPasswd(anyInt(), anyString(), anyString(), anyString(), any());
+  }
+
+  @Test
+  void retrievePasswordAsync_failedRequest_completesExceptionally() {
+    CompletableFuture<String> unavailable = new CompletableFuture<>();
+    unavailable.completeExceptionally(new IOException("UIG unavailable"));
+    when(cndl.getPasswdAsync(1, "tns", "user", "url", "dummy")).thenReturn(unavailable);
+
+    ExecutionException exception =
         assertThrows(
-            IllegalStateException.class,
-            () -> {
-              customPasswordRetrievalService.retrievePassword("anyUser", 1, "t", "u", "d", "ds");
-            });
-    assertEquals("CNLDBConnectMgr not initialized for datasource: ds", exception2.getMessage());
+            ExecutionException.class,
+            () ->
+                customPasswordRetrievalService
+                    .retrievePasswordAsync(
+                        "user", 1, "tns", "url", "dummy", "primary", NO_AUTH_FILE)
+                    .get(5, TimeUnit.SECONDS));
+
+    assertEquals(
+        "Error retrieving password for primary datasource via CNLDBConnectMgr: UIG unavailable",
+        exception.getCause().getMessage());
+  }
+
+  @Test
+  void invalidatePassword_forcesFreshRetrieval() {
+    enableCredentialCache();
+    when(cndl.getPasswd(1, "tns", "rotated", "url", "dummy"))
+        .thenReturn("oldPassword", "newPassword");
+
+    assertEquals("oldPassword", retrieveRotated());
+    customPasswordRetrievalService.invalidatePassword("primary", "rotated");
+    assertEquals("newPassword", retrieveRotated());
+  }
+
+  private String retrieveRotated() {
+    return customPasswordRetrievalService.retrievePassword(
+        "rotated", 1, "tns", "url", "dummy", "primary", NO_AUTH_FILE);
+  }
+
+  private void enableCredentialCache() {
+    ReflectionTestUtils.setField(customPasswordRetrievalService, "credentialCacheEnabled", true);
+    ReflectionTestUtils.setField(customPasswordRetrievalService, "credentialCacheTtlMs", 60000L);
+    ReflectionTestUtils.setField(
+        customPasswordRetrievalService, "credentialCacheRefreshAheadMs", 0L);
+    ReflectionTestUtils.setField(
+        customPasswordRetrievalService, "credentialCacheRefreshCheckIntervalMs", 60000L);
+    customPasswordRetrievalService.initialize();
+  }
+
+  @Test
+  void retrievePassword_loadsOneManagerPerAuthFile(@TempDir Path tempDir) throws Exception {
+    Path authFile = tempDir.resolve("cndl-auth.properties");
+    Files.write(
+        authFile,
+        Arrays.asList("appName=exsql", "appCode=code2", "uigServerUrl=http://uig2/query.do"),
+        StandardCharsets.UTF_8);
+    String authPath = authFile.toUri().toString();
+    when(cndl.getPasswd(2, "tns2", "user2", "url2", "dummy2")).thenReturn("pw2");
+
+    customPasswordRetrievalService.retrievePassword(
+        "user2", 2, "tns2", "url2", "dummy2", "secondary", authPath);
+    customPasswordRetrievalService.retrievePassword(
+        "user2", 2, "tns2", "url2", "dummy2", "secondary", authPath);
+
+    assertEquals(1, mockedCNLDBConnectMgr.constructed().size());
+    assertEquals(
+        Arrays.asList("exsql", "code2", "http://uig2/query.do"), constructorArguments.get(0));
+  }
+
+  @Test
+  void retrievePassword_missingAuthFile_failsInsteadOfUsingBuiltInSettings(@TempDir Path tempDir) {
+    String missing = tempDir.resolve("typo.properties").toUri().toString();
+
+    RuntimeException exception =
+        assertThrows(
+            RuntimeException.class,
+            () ->
+                customPasswordRetrievalService.retrievePassword(
+                    "user", 1, "tns", "url", "dummy", "primary", missing));
+
+    assertTrue(exception.getMessage().contains("CNLDB auth file not found"));
+    assertTrue(mockedCNLDBConnectMgr.constructed().isEmpty());
+  }
+
+  @Test
+  void shippedConfiguration_everyAuthFileResolves() throws Exception {
+    Properties application =
+        PropertiesLoaderUtils.loadProperties(new ClassPathResource("application.properties"));
+    List<String> authPaths = new ArrayList<>();
+    for (String name : application.stringPropertyNames()) {
+      if (name.endsWith(".cndl-auth-file-path")) {
+        authPaths.add(application.getProperty(name));
+      }
+    }
+    assertFalse(authPaths.isEmpty());
+    when(cndl.getPasswd(1, "tns", "user", "url", "dummy")).thenReturn("pw");
+
+    for (String authPath : authPaths) {
+      assertEquals(
+          "pw",
+          customPasswordRetrievalService.retrievePassword(
+              "user", 1, "tns", "url", "dummy", "primary", authPath),
+          authPath);
+    }
+    for (List<?> arguments : constructorArguments) {
+      for (Object argument : arguments) {
+        assertFalse(((String) argument).isEmpty(), "auth file setting is blank: " + arguments);
+      }
+    }
   }
 }
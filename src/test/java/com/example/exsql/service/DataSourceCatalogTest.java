@@ -0,0 +1,116 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.config.DataSourcesProperties;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.DataSourceReloadResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class DataSourceCatalogTest {
+
+  @Mock private DataSourceRegistry dataSourceRegistry;
+
+  private final DataSourcesProperties properties = new DataSourcesProperties();
+
+  private DataSourceCatalog catalog;
+
+  @BeforeEach
+  void setUp() {
+    catalog = new DataSourceCatalog(properties, dataSourceRegistry, new StandardEnvironment());
+  }
+
+  private static DataSourceDefinition definition(String name, String tns) {
+    return new DataSourceDefinition(name, "url", "user", "driver", "auth", 2, tns, "url", "dummy");
+  }
+
+  @Test
+  void apply_keepsUnchangedPoolsAndDrainsChangedAndRemovedOnes() {
+    DataSourceDefinition tenantA = definition("Tenant_A", "tns_a");
+    properties.setDatasources(
+        Arrays.asList(tenantA, definition("tenant_b", "tns_b"), definition("tenant_c", "tns_c")));
+    catalog.initialize();
+
+    assertEquals(Arrays.asList("tenant_a", "tenant_b", "tenant_c"), list(catalog));
+    assertEquals("tenant_a", catalog.resolveName(null));
+    assertSame(tenantA, catalog.get("TENANT_A"));
+
+    DataSourceReloadResult result =
+        catalog.apply(
+            Arrays.asList(
+                definition("tenant_a", "tns_a"),
+                definition("tenant_b", "tns_b2"),
+                definition("tenant_d", "tns_d"),
+                definition("", "tns_e"),
+                definition("tenant_d", "tns_d2")));
+
+    assertEquals(Collections.singletonList("tenant_a"), result.getUnchanged());
+    assertEquals(Collections.singletonList("tenant_b"), result.getChanged());
+    assertEquals(Collections.singletonList("tenant_c"), result.getRemoved());
+    assertEquals(Collections.singletonList("tenant_d"), result.getAdded());
+    assertEquals(2, result.getRejected().size());
+    // The unchanged entry keeps its instance, so its pool matches it.
+    assertSame(tenantA, catalog.get("tenant_a"));
+    assertEquals("tns_b2", catalog.get("tenant_b").getCndlTns());
+    assertNull(catalog.get("tenant_c"));
+    verify(dataSourceRegistry).drain("tenant_b");
+    verify(dataSourceRegistry).drain("tenant_c");
+    verifyNoMoreInteractions(dataSourceRegistry);
+  }
+
+  @Test
+  void reload_readsTheReloadFileInsteadOfTheApplicationList(@TempDir Path tempDir)
+      throws Exception {
+    properties.setDatasources(Collections.singletonList(definition("primary", "tns")));
+    Path file = tempDir.resolve("datasources.properties");
+    Files.write(
+        file,
+        Arrays.asList(
+            "app.datasources[0].name=tenant_x",
+            "app.datasources[0].url=jdbc:oceanbase://ob:2883/x",
+            "app.datasources[0].username=x_user",
+            "app.datasources[0].driver-class-name=com.oceanbase.jdbc.Driver",
+            "app.datasources[0].cndl-ndb-type=2",
+            "app.datasources[0].cndl-tns=tns_x"),
+        StandardCharsets.UTF_8);
+    ReflectionTestUtils.setField(catalog, "reloadFile", file.toUri().toString());
+    catalog.initialize();
+
+    assertEquals(Collections.singletonList("tenant_x"), list(catalog));
+    assertEquals(2, catalog.get("tenant_x").getCndlNdbType());
+
+    Files.write(
+        file,
+        Arrays.asList(
+            "app.datasources[0].name=tenant_y",
+            "app.datasources[0].url=jdbc:oceanbase://ob:2883/y",
+            "app.datasources[0].username=y_user",
+            "app.datasources[0].driver-class-name=com.oceanbase.jdbc.Driver"),
+        StandardCharsets.UTF_8);
+    DataSourceReloadResult result = catalog.reload();
+
+    assertEquals(Collections.singletonList("tenant_y"), result.getAdded());
+    assertEquals(Collections.singletonList("tenant_x"), result.getRemoved());
+    verify(dataSourceRegistry).drain("tenant_x");
+  }
+
+  private static List<String> list(DataSourceCatalog catalog) {
+    return new ArrayList<>(catalog.getNames());
+  }
+}
@@ -0,0 +1,50 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.model.DataSourceReadiness;
+import com.example.exsql.model.DataSourceWarmupStatus;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+
+class DataSourceWarmupHealthIndicatorTest {
+
+  private final DataSourceWarmupService warmupService = mock(DataSourceWarmupService.class);
+
+  private final DataSourceWarmupHealthIndicator indicator =
+      new DataSourceWarmupHealthIndicator(warmupService);
+
+  private static DataSourceReadiness readiness(DataSourceReadiness.Status status) {
+    DataSourceReadiness readiness = new DataSourceReadiness();
+    readiness.setStatus(status);
+    readiness.setDataSources(Collections.singletonList(new DataSourceWarmupStatus("primary")));
+    return readiness;
+  }
+
+  @Test
+  void health_outOfServiceWhileWarming() {
+    when(warmupService.getReadiness()).thenReturn(readiness(DataSourceReadiness.Status.WARMING));
+
+    Health health = indicator.health();
+
+    assertEquals(Status.OUT_OF_SERVICE, health.getStatus());
+    assertEquals(DataSourceReadiness.Status.WARMING, health.getDetails().get("warmup"));
+  }
+
+  @Test
+  void health_upOnceFinishedEvenIfSomeDataSourcesFailed() {
+    for (DataSourceReadiness.Status status :
+        new DataSourceReadiness.Status[] {
+          DataSourceReadiness.Status.DISABLED,
+          DataSourceReadiness.Status.READY,
+          DataSourceReadiness.Status.DEGRADED
+        }) {
+      when(warmupService.getReadiness()).thenReturn(readiness(status));
+
+      assertEquals(Status.UP, indicator.health().getStatus(), status.name());
+    }
+  }
+}
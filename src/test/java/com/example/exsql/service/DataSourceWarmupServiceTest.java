@@ -0,0 +1,98 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.config.DataSourcesProperties;
+import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.DataSourceReadiness;
+import com.example.exsql.model.DataSourceWarmupStatus;
+import java.sql.Connection;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.env.StandardEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@ExtendWith(MockitoExtension.class)
+class DataSourceWarmupServiceTest {
+
+  @Mock private SqlExecutionService sqlExecutionService;
+
+  @Mock private DataSourceRegistry dataSourceRegistry;
+
+  @Mock private DataSource primaryDataSource;
+
+  private DataSourceDefinition primary;
+  private DataSourceDefinition secondary;
+  private DataSourceWarmupService warmupService;
+
+  @BeforeEach
+  void setUp() {
+    primary =
+        new DataSourceDefinition(
+            "primary", "url", "p_user", "driver", "auth", 1, "tns", "url", "dummy");
+    secondary =
+        new DataSourceDefinition(
+            "secondary", "url2", "s_user", "driver", "auth2", 2, "tns2", "url2", "dummy2");
+    DataSourceCatalog catalog =
+        new DataSourceCatalog(
+            new DataSourcesProperties(), dataSourceRegistry, new StandardEnvironment());
+    catalog.apply(Arrays.asList(primary, secondary));
+    warmupService = new DataSourceWarmupService(catalog, sqlExecutionService, dataSourceRegistry);
+    ReflectionTestUtils.setField(warmupService, "enabled", true);
+    ReflectionTestUtils.setField(warmupService, "minConnections", 2);
+  }
+
+  @Test
+  void getReadiness_disabled() {
+    ReflectionTestUtils.setField(warmupService, "enabled", false);
+
+    warmupService.onApplicationReady();
+
+    assertEquals(DataSourceReadiness.Status.DISABLED, warmupService.getReadiness().getStatus());
+    verifyNoInteractions(sqlExecutionService, dataSourceRegistry);
+  }
+
+  @Test
+  void warmUpAll_opensMinimumConnectionsAndReportsFailuresSeparately() throws Exception {
+    Connection first = mock(Connection.class);
+    Connection second = mock(Connection.class);
+    CompletableFuture<String> unavailable = new CompletableFuture<>();
+    unavailable.completeExceptionally(new RuntimeException("UIG unavailable"));
+    when(sqlExecutionService.retrievePasswordAsync(primary))
+        .thenReturn(CompletableFuture.completedFuture("pwd"));
+    when(sqlExecutionService.retrievePasswordAsync(secondary)).thenReturn(unavailable);
+    when(dataSourceRegistry.getDataSource(primary, "pwd")).thenReturn(primaryDataSource);
+    when(dataSourceRegistry.getMaximumPoolSize("primary")).thenReturn(10);
+    when(primaryDataSource.getConnection()).thenReturn(first, second);
+
+    assertEquals(DataSourceReadiness.Status.WARMING, warmupService.getReadiness().getStatus());
+    warmupService.warmUpAll();
+
+    DataSourceReadiness readiness = warmupService.getReadiness();
+    assertEquals(DataSourceReadiness.Status.DEGRADED, readiness.getStatus());
+    DataSourceWarmupStatus primaryStatus = readiness.getDataSources().get(0);
+    assertEquals("primary", primaryStatus.getName());
+    assertEquals(DataSourceWarmupStatus.State.READY, primaryStatus.getState());
+    assertEquals(2, primaryStatus.getOpenedConnections());
+    verify(dataSourceRegistry).keepWarm("primary", 2);
+    DataSourceWarmupStatus secondaryStatus = readiness.getDataSources().get(1);
+    assertEquals(DataSourceWarmupStatus.State.FAILED, secondaryStatus.getState());
+    assertEquals("UIG unavailable", secondaryStatus.getError());
+    // Both connections were held together, then returned to the pool.
+    verify(first).close();
+    verify(second).close();
+    verify(dataSourceRegistry, never()).keepWarm(eq("secondary"), anyInt());
+    // Passwords are fetched through the non-blocking UIG client only.
+    verify(sqlExecutionService, never()).retrievePassword(any());
+  }
+}
@@ -0,0 +1,232 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.model.ExecutionJob;
+import com.example.exsql.model.ExecutionOptions;
+import com.example.exsql.model.FileProgress;
+import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.model.StatementEvent;
+import com.example.exsql.script.ScriptSource;
+import com.example.exsql.script.SpooledScriptSource;
+import com.example.exsql.script.SqlStatement;
+import com.example.exsql.script.SqlStatementType;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+public class ExecutionJobServiceTest {
+
+  @TempDir Path spoolDir;
+
+  private SqlExecutionService sqlExecutionService;
+  private ScriptSpool scriptSpool;
+  private JobEventPublisher jobEventPublisher;
+
+  @BeforeEach
+  void setUp() {
+    sqlExecutionService = mock(SqlExecutionService.class);
+    jobEventPublisher = mock(JobEventPublisher.class);
+    scriptSpool = new ScriptSpool();
+    ReflectionTestUtils.setField(scriptSpool, "spoolDir", spoolDir.toString());
+  }
+
+  @Test
+  void submit_runsJobAndTracksProgress() throws Exception {
+    ExecutionJobService service =
+        new ExecutionJobService(sqlExecutionService, scriptSpool, jobEventPublisher, Runnable::run);
+    SqlStatement first =
+        new SqlStatement("SELECT 1 FROM DUAL", 1, 1, SqlStatementType.QUERY, "SELECT");
+    when(sqlExecutionService.executeScripts(anyList(), eq("primary"), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              List<ScriptSource> scripts = invocation.getArgument(0);
+              try (InputStream in = scripts.get(0).openStream()) {
+                assertTrue(new String(readAll(in), StandardCharsets.UTF_8).startsWith("SELECT 1"));
+              }
+              ScriptExecutionListener listener = invocation.getArgument(3);
+              listener.scriptStarted(0);
+              listener.statementStarted(0, first);
+              StatementEvent event = new StatementEvent();
+              event.setFileIndex(0);
+              event.setStatementIndex(1);
+              event.setSuccess(true);
+              listener.statementFinished(event);
+              ScriptExecutionResult result = new ScriptExecutionResult("a.sql", true, "ok", "");
+              listener.scriptFinished(0, result);
+              return Collections.singletonList(result);
+            });
+
+    ExecutionJob job =
+        service.submit(
+            files(sqlFile("a.sql", "SELECT 1 FROM DUAL;\nSELECT 2 FROM DUAL;\n")),
+            "primary",
+            new ExecutionOptions());
+
+    assertSame(job, service.getJob(job.getId()));
+    assertEquals(ExecutionJob.Status.COMPLETED, job.getStatus());
+    assertTrue(job.isDone());
+    FileProgress file = job.getFiles().get(0);
+    assertEquals(FileProgress.Status.SUCCEEDED, file.getStatus());
+    assertEquals(2, file.getStatementsTotal());
+    assertEquals(1, file.getStatementsDone());
+    assertNull(file.getCurrentStatement());
+    assertEquals("ok", job.getResults().get(0).getMessage());
+    verify(jobEventPublisher).statementFinished(eq(job.getId()), any(StatementEvent.class));
+    verify(jobEventPublisher).fileFinished(job.getId(), file);
+    verify(jobEventPublisher).jobFinished(job);
+  }
+
+  @Test
+  void submit_marksFilesThatNeverStartedFromResults() throws Exception {
+    ExecutionJobService service =
+        new ExecutionJobService(sqlExecutionService, scriptSpool, jobEventPublisher, Runnable::run);
+    when(sqlExecutionService.executeScripts(anyList(), eq("missing"), any(), any(), any()))
+        .thenReturn(
+            Arrays.asList(
+                new ScriptExecutionResult("a.sql", false, "not found", ""),
+                new ScriptExecutionResult("b.sql", false, "not found", "")));
+
+    ExecutionJob job =
+        service.submit(
+            files(sqlFile("a.sql", "SELECT 1;"), sqlFile("b.sql", "SELECT 2;")),
+            "missing",
+            new ExecutionOptions());
+
+    assertEquals(ExecutionJob.Status.COMPLETED, job.getStatus());
+    assertEquals(FileProgress.Status.FAILED, job.getFiles().get(0).getStatus());
+    assertEquals(FileProgress.Status.FAILED, job.getFiles().get(1).getStatus());
+  }
+
+  @Test
+  void execute_runsOnCallerAndKeepsFullScriptForDownload() throws Exception {
+    ExecutionJobService service =
+        new ExecutionJobService(
+            sqlExecutionService,
+            scriptSpool,
+            jobEventPublisher,
+            task -> fail("synchronous execution must not use the scheduler"));
+    ScriptExecutionResult result = new ScriptExecutionResult("a.sql", true, "ok", "");
+    result.setStatementCount(2);
+    when(sqlExecutionService.executeScripts(anyList(), eq("primary"), any(), any(), any()))
+        .thenReturn(Collections.singletonList(result));
+
+    ExecutionJob job =
+        service.execute(
+            files(sqlFile("a.sql", "SELECT 1;\nSELECT 2;")), "primary", new ExecutionOptions());
+
+    assertTrue(job.isDone());
+    assertEquals(2, job.getFiles().get(0).getStatementsTotal());
+    SpooledScriptSource script = service.getScript(job.getId(), 0);
+    assertEquals("a.sql", script.getFileName());
+    try (InputStream in = script.openStream()) {
+      assertEquals("SELECT 1;\nSELECT 2;", new String(readAll(in), StandardCharsets.UTF_8));
+    }
+    assertNull(service.getScript(job.getId(), 1));
+    assertNull(service.getScript("unknown", 0));
+  }
+
+  @Test
+  void submit_rejectedJobIsNotKept() throws Exception {
+    TaskExecutor full =
+        task -> {
+          throw new TaskRejectedException("queue full");
+        };
+    ExecutionJobService service =
+        new ExecutionJobService(sqlExecutionService, scriptSpool, jobEventPublisher, full);
+
+    assertThrows(
+        TaskRejectedException.class,
+        () ->
+            service.submit(
+                files(sqlFile("a.sql", "SELECT 1;")), "primary", new ExecutionOptions()));
+
+    try (Stream<Path> leftovers = Files.list(spoolDir)) {
+      assertEquals(0, leftovers.count());
+    }
+    verifyNoInteractions(sqlExecutionService);
+  }
+
+  @Test
+  void pauseAndResume_holdTheJobUntilItFinishes() throws Exception {
+    List<Runnable> queue = new ArrayList<>();
+    ExecutionJobService service =
+        new ExecutionJobService(sqlExecutionService, scriptSpool, jobEventPublisher, queue::add);
+    AtomicReference<String> jobId = new AtomicReference<>();
+    when(sqlExecutionService.executeScripts(anyList(), any(), any(), any(), any()))
+        .thenAnswer(
+            invocation -> {
+              ExecutionGate gate = invocation.getArgument(4);
+              // Paused while it was still queued.
+              assertTrue(gate.isPaused());
+              service.resume(jobId.get());
+              assertFalse(gate.isPaused());
+              return Collections.singletonList(new ScriptExecutionResult("a.sql", true, "ok", ""));
+            });
+    ExecutionJob job =
+        service.submit(files(sqlFile("a.sql", "SELECT 1;")), "primary", new ExecutionOptions());
+    jobId.set(job.getId());
+
+    assertTrue(service.pause(job.getId()).isPaused());
+    queue.get(0).run();
+
+    assertEquals(ExecutionJob.Status.COMPLETED, job.getStatus());
+    assertFalse(job.isPaused());
+    assertThrows(IllegalStateException.class, () -> service.pause(job.getId()));
+    assertNull(service.pause("unknown"));
+  }
+
+  @Test
+  void shutdown_deletesSpooledFiles() throws Exception {
+    ExecutionJobService service =
+        new ExecutionJobService(sqlExecutionService, scriptSpool, jobEventPublisher, Runnable::run);
+    when(sqlExecutionService.executeScripts(anyList(), any(), any(), any(), any()))
+        .thenReturn(Collections.singletonList(new ScriptExecutionResult("a.sql", true, "ok", "")));
+    ExecutionJob job =
+        service.submit(files(sqlFile("a.sql", "SELECT 1;")), "primary", new ExecutionOptions());
+    assertTrue(Files.exists(spoolDir.resolve(job.getId())));
+
+    service.shutdown();
+
+    assertFalse(Files.exists(spoolDir.resolve(job.getId())));
+    assertNull(service.getJob(job.getId()));
+  }
+
+  private static List<MultipartFile> files(MultipartFile... files) {
+    return Arrays.asList(files);
+  }
+
+  private static MultipartFile sqlFile(String name, String content) {
+    return new MockMultipartFile(
+        "files", name, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static byte[] readAll(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+}
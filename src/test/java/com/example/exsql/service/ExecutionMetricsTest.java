@@ -0,0 +1,96 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exsql.script.SqlStatement;
+import com.example.exsql.script.SqlStatementType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.sql.SQLException;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.UncategorizedSQLException;
+
+class ExecutionMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final ExecutionMetrics metrics = new ExecutionMetrics(registry);
+
+  @Test
+  void statementType_keepsTagValuesBounded() {
+    assertEquals("insert", ExecutionMetrics.statementType(statement("INSERT", false)));
+    assertEquals("select", ExecutionMetrics.statementType(statement("WITH", false)));
+    assertEquals("plsql", ExecutionMetrics.statementType(statement("CREATE", true)));
+    assertEquals("other", ExecutionMetrics.statementType(statement("EXPLAIN", false)));
+  }
+
+  @Test
+  void sqlState_isTakenFromTheCauseChain() {
+    SQLException cause = new SQLException("ORA-00942", "42000", 942);
+
+    assertEquals(
+        "42000", ExecutionMetrics.sqlState(new UncategorizedSQLException("x", "sql", cause)));
+    assertEquals("unknown", ExecutionMetrics.sqlState(new RuntimeException("no SQL")));
+  }
+
+  @Test
+  void timePasswordFetch_recordsFailuresAndRethrows() {
+    assertEquals("pwd", metrics.timePasswordFetch("ds", () -> "pwd"));
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            metrics.timePasswordFetch(
+                "ds",
+                () -> {
+                  throw new IllegalStateException("UIG down");
+                }));
+
+    assertEquals(
+        1, registry.get("exsql.credentials.fetch").tag("outcome", "success").timer().count());
+    assertEquals(
+        1, registry.get("exsql.credentials.fetch").tag("outcome", "failure").timer().count());
+  }
+
+  @Test
+  void bindCredentialCache_exposesHitsAndMisses() {
+    CredentialCache cache = new CredentialCache(60000, 0, 60000);
+    try {
+      metrics.bindCredentialCache(cache);
+      CredentialCache.Key key = new CredentialCache.Key("ds", "tns", "user");
+      cache.get(key, () -> "pwd");
+      cache.get(key, () -> "pwd");
+
+      assertEquals(
+          1.0,
+          registry.get("exsql.credentials.cache").tag("result", "hit").functionCounter().count());
+      assertEquals(
+          1.0,
+          registry.get("exsql.credentials.cache").tag("result", "miss").functionCounter().count());
+    } finally {
+      cache.shutdown();
+    }
+  }
+
+  @Test
+  void recordStatement_reusesOneMeterPerTagCombination() {
+    SqlStatement insert = statement("INSERT", false);
+
+    metrics.recordStatement("ds", insert, 1_000_000, true);
+    metrics.recordStatement("ds", insert, 2_000_000, true);
+    metrics.recordStatement("ds", insert, 3_000_000, false);
+    metrics.recordBatch("ds", 10, 1_000_000, true);
+    metrics.recordBatch("ds", 20, 1_000_000, true);
+    metrics.statementsExecuted("ds", 2);
+    metrics.statementsExecuted("ds", 30);
+
+    assertEquals(2, registry.get("exsql.statement.duration").timers().size());
+    assertEquals(
+        2, registry.get("exsql.statement.duration").tag("outcome", "success").timer().count());
+    assertEquals(30.0, registry.get("exsql.batch.size").summary().totalAmount());
+    assertEquals(2, registry.get("exsql.batch.duration").timer().count());
+    assertEquals(32.0, registry.get("exsql.statements.executed").counter().count());
+  }
+
+  private static SqlStatement statement(String keyword, boolean block) {
+    SqlStatementType type = block ? SqlStatementType.PLSQL_BLOCK : SqlStatementType.OTHER;
+    return new SqlStatement(keyword + " ...", 1, 1, type, keyword);
+  }
+}
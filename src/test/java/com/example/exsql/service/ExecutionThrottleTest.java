@@ -0,0 +1,52 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExecutionThrottleTest {
+
+  private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final AtomicLong clock = new AtomicLong(1_000_000_000L);
+
+  @Test
+  void reserve_spacesStatementsAndRowsByTheirCaps() {
+    ExecutionThrottle.Limiter limiter = new ExecutionThrottle.Limiter("primary", clock::get);
+    limiter.configure(100, 1000, 0);
+
+    assertEquals(0, limiter.reserve(1));
+    // 100 statements per second: one every 10 ms.
+    assertEquals(10 * MS, limiter.reserve(1));
+    assertEquals(20 * MS, limiter.reserve(5));
+    clock.addAndGet(70 * MS);
+    assertEquals(0, limiter.reserve(1));
+    // 500 rows at 1000 rows per second hold the next statement back for half a second.
+    limiter.completed(1, 500, MS);
+    assertEquals(500 * MS, limiter.reserve(1));
+  }
+
+  @Test
+  void completed_slowStatementsLowerTheRateUntilLatencyRecovers() {
+    ExecutionThrottle.Limiter limiter = new ExecutionThrottle.Limiter("primary", clock::get);
+    limiter.configure(100, 0, 50 * MS);
+
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    limiter.completed(1, 0, 200 * MS);
+    assertEquals(0.5, limiter.getLoadFactor(), 0.001);
+    clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+    limiter.completed(1, 0, 200 * MS);
+    assertEquals(0.25, limiter.getLoadFactor(), 0.001);
+    // At a quarter of the cap, statements are 40 ms apart.
+    limiter.reserve(1);
+    assertEquals(40 * MS, limiter.reserve(1));
+
+    for (int i = 0; i < 20; i++) {
+      clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      limiter.completed(1, 0, MS);
+    }
+    assertEquals(1.0, limiter.getLoadFactor(), 0.001);
+  }
+}
@@ -0,0 +1,44 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exsql.service.SqlErrorClassifier.Category;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransactionRollbackException;
+import org.junit.jupiter.api.Test;
+
+class OceanBaseOracleErrorClassifierTest {
+
+  private final OceanBaseOracleErrorClassifier classifier = new OceanBaseOracleErrorClassifier();
+
+  @Test
+  void classify_oracleErrors() {
+    assertEquals(Category.TRANSIENT, classify("ORA-00060: deadlock detected", "61000", 60));
+    assertEquals(Category.TRANSIENT, classify("ORA-30006: resource busy", "61000", 30006));
+    assertEquals(
+        Category.CONNECTION_LOST, classify("ORA-03113: end-of-file on channel", null, 3113));
+    assertEquals(
+        Category.CONNECTION_LOST,
+        classifier.classify(new SQLRecoverableException("IO Error: Broken pipe", null, 17002)));
+    assertEquals(Category.FATAL, classify("ORA-00001: unique constraint", "23000", 1));
+    assertEquals(Category.FATAL, classify("ORA-00942: table does not exist", "42000", 942));
+  }
+
+  @Test
+  void classify_oceanBaseErrors() {
+    // Native codes arrive positive, or negative from some driver versions.
+    assertEquals(Category.TRANSIENT, classify("Timeout", "HY000", 4012));
+    assertEquals(Category.TRANSIENT, classify("Transaction is killed", "HY000", -6211));
+    assertEquals(Category.TRANSIENT, classify("Lock wait timeout exceeded", "HY000", 1205));
+    assertEquals(Category.CONNECTION_LOST, classify("Communications link failure", "08S01", 0));
+    assertEquals(
+        Category.TRANSIENT,
+        classifier.classify(new SQLTransactionRollbackException("Deadlock", "40001")));
+    assertEquals(Category.FATAL, classify("Duplicate entry", "23000", 1062));
+  }
+
+  private Category classify(String message, String sqlState, int errorCode) {
+    return classifier.classify(new SQLException(message, sqlState, errorCode));
+  }
+}
@@ -0,0 +1,113 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import com.example.exsql.model.ScriptExecutionResult;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ParallelScriptExecutorTest {
+
+  private ParallelScriptExecutor executor;
+
+  @BeforeEach
+  void setUp() {
+    DataSourceRegistry registry = mock(DataSourceRegistry.class);
+    when(registry.getMaximumPoolSize("primary")).thenReturn(4);
+    executor = new ParallelScriptExecutor(registry);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void resolveDependencies_numericPrefixesFormStages() {
+    List<Set<Integer>> dependencies =
+        ParallelScriptExecutor.resolveDependencies(
+            Arrays.asList("01_ddl.sql", "02_a.sql", "02_b.sql", "03_idx.sql", "misc.sql"), null);
+
+    assertTrue(dependencies.get(0).isEmpty());
+    assertEquals(Collections.singleton(0), dependencies.get(1));
+    assertEquals(Collections.singleton(0), dependencies.get(2));
+    assertEquals(new HashSet<>(Arrays.asList(1, 2)), dependencies.get(3));
+    assertTrue(dependencies.get(4).isEmpty());
+  }
+
+  @Test
+  void resolveDependencies_explicitListAndUnknownFile() {
+    List<Set<Integer>> dependencies =
+        ParallelScriptExecutor.resolveDependencies(
+            Arrays.asList("a.sql", "b.sql", "c.sql"), "b.sql: a.sql\nc.sql: a.sql, b.sql");
+
+    assertEquals(Collections.singleton(0), dependencies.get(1));
+    assertEquals(new HashSet<>(Arrays.asList(0, 1)), dependencies.get(2));
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            ParallelScriptExecutor.resolveDependencies(
+                Arrays.asList("a.sql"), "a.sql: missing.sql"));
+  }
+
+  @Test
+  void execute_runsDependentsAfterDependenciesAndKeepsUploadOrder() {
+    List<String> names = Arrays.asList("02_load.sql", "01_create.sql", "02_other.sql");
+    Map<String, Integer> finishedAt = new ConcurrentHashMap<>();
+    AtomicInteger clock = new AtomicInteger();
+
+    List<ScriptExecutionResult> results =
+        executor.execute(
+            "primary",
+            names,
+            "",
+            index -> {
+              finishedAt.put(names.get(index), clock.incrementAndGet());
+              return new ScriptExecutionResult(names.get(index), true, "ok", "");
+            });
+
+    assertEquals(names.get(0), results.get(0).getFileName());
+    assertEquals(names.get(1), results.get(1).getFileName());
+    assertEquals(names.get(2), results.get(2).getFileName());
+    assertEquals(1, finishedAt.get("01_create.sql"));
+  }
+
+  @Test
+  void execute_skipsFilesWhoseDependencyFailed() {
+    List<String> names = Arrays.asList("a.sql", "b.sql");
+
+    List<ScriptExecutionResult> results =
+        executor.execute(
+            "primary",
+            names,
+            "b.sql: a.sql",
+            index -> new ScriptExecutionResult(names.get(index), index != 0, "done", ""));
+
+    assertFalse(results.get(0).isSuccess());
+    assertFalse(results.get(1).isSuccess());
+    assertTrue(results.get(1).getMessage().startsWith("Skipped: dependency a.sql"));
+  }
+
+  @Test
+  void execute_circularDependencyFailsEveryFile() {
+    List<ScriptExecutionResult> results =
+        executor.execute(
+            "primary",
+            Arrays.asList("a.sql", "b.sql"),
+            "a.sql: b.sql; b.sql: a.sql",
+            index -> fail("must not run"));
+
+    assertTrue(results.stream().noneMatch(ScriptExecutionResult::isSuccess));
+    assertTrue(results.get(0).getMessage().contains("Circular dependency"));
+  }
+}
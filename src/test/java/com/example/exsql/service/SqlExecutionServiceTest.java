@@ -4,65 +4,84 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
+import com.example.exsql.config.DataSourcesProperties;
 import com.example.exsql.model.DataSourceDefinition;
+import com.example.exsql.model.ExecutionOptions;
 import com.example.exsql.model.ScriptExecutionResult;
+import com.example.exsql.model.SlowStatement;
+import com.example.exsql.model.StatementEvent;
+import com.example.exsql.model.StatementRetry;
+import com.example.exsql.model.TransactionMode;
+import com.example.exsql.script.MultipartScriptSource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.sql.DataSource;
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
-import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.jdbc.DataSourceBuilder;
-import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.core.env.StandardEnvironment;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 @ExtendWith(MockitoExtension.class)
 public class SqlExecutionServiceTest {
 
-  @Mock private Map<String, DataSourceDefinition> dataSourceDefinitions;
-
   @Mock private CustomPasswordRetrievalService passwordRetrievalService;
 
-  @Mock private DataSource mockDataSource; // Mocked DataSource returned by DataSourceBuilder
+  @Mock private DataSourceRegistry dataSourceRegistry;
+
+  @Mock private ParallelScriptExecutor parallelScriptExecutor;
+
+  @Mock private DataSource mockDataSource; // Pooled DataSource returned by the registry
+
+  private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-  // We need to mock JdbcTemplate as it's created dynamically.
-  // We can't inject a mock JdbcTemplate directly if the service creates it internally.
-  // Instead, we'll mock its behavior after it's theoretically created.
-  // For verifying calls on JdbcTemplate, we'd need a more complex setup or pass a mock JdbcTemplate
-  // factory.
-  // However, we can verify the calls leading up to its creation and the data passed to it.
+  private DataSourceCatalog dataSourceCatalog;
 
   private SqlExecutionService sqlExecutionService;
 
-  private MockedStatic<DataSourceBuilder> mockedDsBuilder;
-  private DataSourceBuilder<?> mockBuilderInstance; // To mock chained calls
+  private Connection connection; // Set by stubPrimaryConnection()
 
   @BeforeEach
   void setUp() {
-    sqlExecutionService = new SqlExecutionService(dataSourceDefinitions, passwordRetrievalService);
-
-    // Setup static mock for DataSourceBuilder
-    mockedDsBuilder = Mockito.mockStatic(DataSourceBuilder.class);
-    mockBuilderInstance = Mockito.mock(DataSourceBuilder.class); // Typed for chained calls
-
-    mockedDsBuilder.when(DataSourceBuilder::create).thenReturn(mockBuilderInstance);
-    when(mockBuilderInstance.url(anyString())).thenReturn(mockBuilderInstance);
-    when(mockBuilderInstance.username(anyString())).thenReturn(mockBuilderInstance);
-    when(mockBuilderInstance.password(anyString())).thenReturn(mockBuilderInstance);
-    when(mockBuilderInstance.driverClassName(anyString())).thenReturn(mockBuilderInstance);
-    when(mockBuilderInstance.build()).thenReturn(mockDataSource);
+    dataSourceCatalog =
+        new DataSourceCatalog(
+            new DataSourcesProperties(), dataSourceRegistry, new StandardEnvironment());
+    sqlExecutionService =
+        new SqlExecutionService(
+            dataSourceCatalog,
+            passwordRetrievalService,
+            dataSourceRegistry,
+            parallelScriptExecutor,
+            new ExecutionMetrics(meterRegistry));
   }
 
-  @AfterEach
-  void tearDown() {
-    mockedDsBuilder.close();
+  private void register(DataSourceDefinition definition) {
+    dataSourceCatalog.apply(Collections.singletonList(definition));
   }
 
   private MockMultipartFile createFile(String name, String content) {
@@ -73,7 +92,6 @@ public class SqlExecutionServiceTest {
   @Test
   void executeSqlScripts_dataSourceDefinitionNotFound_returnsError() {
     MultipartFile[] files = {createFile("test_def_not_found", "SELECT 1;")};
-    when(dataSourceDefinitions.get("unknown_ds")).thenReturn(null);
 
     List<ScriptExecutionResult> results =
         sqlExecutionService.executeSqlScripts(files, "unknown_ds");
@@ -91,8 +109,9 @@ public class SqlExecutionServiceTest {
     DataSourceDefinition primaryDef =
         new DataSourceDefinition(
             "primary", "url", "user", "driver", "auth", 1, "tns", "url", "dummy");
-    when(dataSourceDefinitions.get("primary")).thenReturn(primaryDef);
-    when(passwordRetrievalService.retrievePrimaryPassword("user"))
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user", 1, "tns", "url", "dummy", "primary", "auth"))
         .thenThrow(new RuntimeException("Primary password error"));
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "primary");
@@ -114,8 +133,10 @@ public class SqlExecutionServiceTest {
     DataSourceDefinition primaryDef =
         new DataSourceDefinition(
             "primary", "url", "user", "driver", "auth", 1, "tns", "url", "dummy");
-    when(dataSourceDefinitions.get("primary")).thenReturn(primaryDef);
-    when(passwordRetrievalService.retrievePrimaryPassword("user")).thenReturn(null);
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user", 1, "tns", "url", "dummy", "primary", "auth"))
+        .thenReturn(null);
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "primary");
 
@@ -143,9 +164,9 @@ public class SqlExecutionServiceTest {
             "s_tns",
             "s_cn_url",
             "s_dummy");
-    when(dataSourceDefinitions.get("secondary")).thenReturn(secondaryDef);
+    register(secondaryDef);
     when(passwordRetrievalService.retrievePassword(
-            "s_user", 2, "s_tns", "s_cn_url", "s_dummy", "secondary"))
+            "s_user", 2, "s_tns", "s_cn_url", "s_dummy", "secondary", "s_auth"))
         .thenThrow(new RuntimeException("Secondary password error"));
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "secondary");
@@ -167,10 +188,12 @@ public class SqlExecutionServiceTest {
     DataSourceDefinition primaryDef =
         new DataSourceDefinition(
             "primary", "url", "user", "driver", "auth", 1, "tns", "url", "dummy");
-    when(dataSourceDefinitions.get("primary")).thenReturn(primaryDef);
-    when(passwordRetrievalService.retrievePrimaryPassword("user")).thenReturn("pwd");
-    // Mock DataSourceBuilder chain to throw exception at build()
-    when(mockBuilderInstance.build()).thenThrow(new RuntimeException("DS build error"));
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user", 1, "tns", "url", "dummy", "primary", "auth"))
+        .thenReturn("pwd");
+    when(dataSourceRegistry.getDataSource(primaryDef, "pwd"))
+        .thenThrow(new RuntimeException("DS build error"));
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "primary");
 
@@ -185,7 +208,7 @@ public class SqlExecutionServiceTest {
   }
 
   @Test
-  void executeSqlScripts_successfulPath_primary() {
+  void executeSqlScripts_successfulPath_primary() throws Exception {
     MultipartFile[] files = {createFile("test_success_primary", "SELECT 1;")};
     DataSourceDefinition primaryDef =
         new DataSourceDefinition(
@@ -198,49 +221,38 @@ public class SqlExecutionServiceTest {
             "tns_primary",
             "cnurl_primary",
             "dummy_primary");
-    when(dataSourceDefinitions.get("primary")).thenReturn(primaryDef);
-    when(passwordRetrievalService.retrievePrimaryPassword("user_primary"))
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user_primary",
+            1,
+            "tns_primary",
+            "cnurl_primary",
+            "dummy_primary",
+            "primary",
+            "auth_primary"))
         .thenReturn("pass_primary");
-
-    // We can't easily mock the JdbcTemplate that the service creates internally without more
-    // refactoring.
-    // So, this test will go up to the point of dynamic DataSource creation.
-    // To test SQL execution, we'd need to mock the actual jdbcTemplate.execute calls.
-    // For now, we assume if DataSource is built, JdbcTemplate would be too.
-    // The actual SQL execution part is tested in other tests assuming a valid JdbcTemplate.
+    when(dataSourceRegistry.getDataSource(primaryDef, "pass_primary")).thenReturn(mockDataSource);
+    when(mockDataSource.getConnection()).thenThrow(new SQLException("No connection in test"));
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "primary");
 
-    // Since executeSingleScript will run with a real JdbcTemplate wrapping a mock DataSource,
-    // it will likely fail when trying to get a connection from the mock DataSource unless further
-    // mocking is done.
-    // For this test, let's focus on the setup and password retrieval.
-    // If we want to verify the SQL execution part, we need to mock what jdbcTemplate.execute()
-    // does.
-    // This can be done if we could inject a mock JdbcTemplate.
-    // Due to `new JdbcTemplate(dynamicDataSource)`, this is hard.
-
-    // For now, let's verify the interactions up to DataSource creation.
-    verify(passwordRetrievalService).retrievePrimaryPassword("user_primary");
-    mockedDsBuilder.verify(DataSourceBuilder::create);
-    verify(mockBuilderInstance).url("jdbc:testurl_primary");
-    verify(mockBuilderInstance).username("user_primary");
-    verify(mockBuilderInstance).password("pass_primary");
-    verify(mockBuilderInstance).driverClassName("com.driver.Primary");
-    verify(mockBuilderInstance).build();
-
-    // The result will likely be an error from trying to use the mockDataSource with a real
-    // JdbcTemplate
-    // unless we mock the behavior of mockDataSource.getConnection() etc.
-    // For this test, we are primarily concerned with the dynamic setup.
+    // The pooled DataSource is looked up with the freshly retrieved password.
+    verify(passwordRetrievalService)
+        .retrievePassword(
+            "user_primary",
+            1,
+            "tns_primary",
+            "cnurl_primary",
+            "dummy_primary",
+            "primary",
+            "auth_primary");
+    verify(dataSourceRegistry).getDataSource(primaryDef, "pass_primary");
     assertNotNull(results);
-    // The success/failure of results.get(0) depends on how deep the mocking of
-    // DataSource/Connection goes.
-    // Given the current setup, it's expected to fail when jdbcTemplate.execute is called.
+    assertEquals(1, results.size());
   }
 
   @Test
-  void executeSqlScripts_successfulPath_secondary() {
+  void executeSqlScripts_successfulPath_secondary() throws Exception {
     MultipartFile[] files = {createFile("test_success_secondary", "SELECT 2;")};
     DataSourceDefinition secondaryDef =
         new DataSourceDefinition(
@@ -253,15 +265,19 @@ public class SqlExecutionServiceTest {
             "tns_secondary",
             "cnurl_secondary",
             "dummy_secondary");
-    when(dataSourceDefinitions.get("secondary")).thenReturn(secondaryDef);
+    register(secondaryDef);
     when(passwordRetrievalService.retrievePassword(
             "user_secondary",
             2,
             "tns_secondary",
             "cnurl_secondary",
             "dummy_secondary",
-            "secondary"))
+            "secondary",
+            "auth_secondary"))
         .thenReturn("pass_secondary");
+    when(dataSourceRegistry.getDataSource(secondaryDef, "pass_secondary"))
+        .thenReturn(mockDataSource);
+    when(mockDataSource.getConnection()).thenThrow(new SQLException("No connection in test"));
 
     List<ScriptExecutionResult> results = sqlExecutionService.executeSqlScripts(files, "secondary");
 
@@ -272,16 +288,806 @@ public class SqlExecutionServiceTest {
             "tns_secondary",
             "cnurl_secondary",
             "dummy_secondary",
-            "secondary");
-    mockedDsBuilder.verify(DataSourceBuilder::create);
-    verify(mockBuilderInstance).url("jdbc:testurl_secondary");
-    verify(mockBuilderInstance).username("user_secondary");
-    verify(mockBuilderInstance).password("pass_secondary");
-    verify(mockBuilderInstance).driverClassName("com.driver.Secondary");
-    verify(mockBuilderInstance).build();
+            "secondary",
+            "auth_secondary");
+    verify(dataSourceRegistry).getDataSource(secondaryDef, "pass_secondary");
     assertNotNull(results);
   }
 
+  @Test
+  void executeSqlScripts_reusesPooledDataSourceAcrossUploads() throws Exception {
+    DataSourceDefinition primaryDef =
+        new DataSourceDefinition(
+            "primary", "url", "user", "driver", "auth", 1, "tns", "url", "dummy");
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user", 1, "tns", "url", "dummy", "primary", "auth"))
+        .thenReturn("pwd");
+    when(dataSourceRegistry.getDataSource(primaryDef, "pwd")).thenReturn(mockDataSource);
+    when(mockDataSource.getConnection()).thenThrow(new SQLException("No connection in test"));
+
+    sqlExecutionService.executeSqlScripts(
+        new MultipartFile[] {createFile("first", "SELECT 1;")}, "primary");
+    sqlExecutionService.executeSqlScripts(
+        new MultipartFile[] {createFile("second", "SELECT 1;")}, "primary");
+
+    // Both uploads go through the registry; no per-request DataSource is built.
+    verify(dataSourceRegistry, times(2)).getDataSource(primaryDef, "pwd");
+  }
+
+  @Test
+  void executeSqlScripts_rejectedPassword_invalidatesCacheAndRetries() throws Exception {
+    DataSourceDefinition secondaryDef =
+        new DataSourceDefinition(
+            "secondary", "url", "s_user", "driver", "auth", 2, "s_tns", "s_url", "s_dummy");
+    register(secondaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "s_user", 2, "s_tns", "s_url", "s_dummy", "secondary", "auth"))
+        .thenReturn("stale", "fresh");
+    DataSource rotatedDataSource = mock(DataSource.class);
+    when(dataSourceRegistry.getDataSource(secondaryDef, "stale")).thenReturn(mockDataSource);
+    when(dataSourceRegistry.getDataSource(secondaryDef, "fresh")).thenReturn(rotatedDataSource);
+    when(mockDataSource.getConnection())
+        .thenThrow(new SQLException("ORA-01017: invalid username/password", "28000", 1017));
+    when(rotatedDataSource.getConnection()).thenThrow(new SQLException("No connection in test"));
+
+    sqlExecutionService.executeSqlScripts(
+        new MultipartFile[] {createFile("rotated", "SELECT 1;")}, "secondary");
+
+    verify(passwordRetrievalService).invalidatePassword("secondary", "s_user");
+    verify(dataSourceRegistry).getDataSource(secondaryDef, "fresh");
+    // The script's own borrow detected the stale password; there is no separate probe.
+    verify(mockDataSource).getConnection();
+    verify(rotatedDataSource).getConnection();
+  }
+
+  private Statement stubPrimaryConnection() throws Exception {
+    DataSourceDefinition primaryDef =
+        new DataSourceDefinition(
+            "primary",
+            "jdbc:oceanbase://ob:2883/db?allowMultiQueries=true",
+            "user",
+            "driver",
+            "auth",
+            1,
+            "tns",
+            "url",
+            "dummy");
+    register(primaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "user", 1, "tns", "url", "dummy", "primary", "auth"))
+        .thenReturn("pwd");
+    when(dataSourceRegistry.getDataSource(primaryDef, "pwd")).thenReturn(mockDataSource);
+    connection = mock(Connection.class);
+    DatabaseMetaData metaData = mock(DatabaseMetaData.class);
+    Statement statement = mock(Statement.class);
+    when(mockDataSource.getConnection()).thenReturn(connection);
+    lenient().when(connection.getMetaData()).thenReturn(metaData);
+    lenient().when(metaData.supportsBatchUpdates()).thenReturn(true);
+    when(connection.createStatement()).thenReturn(statement);
+    lenient().when(statement.getConnection()).thenReturn(connection);
+    return statement;
+  }
+
+  private static ExecutionOptions batchOptions(int batchSize) {
+    ExecutionOptions options = new ExecutionOptions();
+    options.setBatchDml(true);
+    options.setBatchSize(batchSize);
+    return options;
+  }
+
+  @Test
+  void executeSqlScripts_batchMode_groupsConsecutiveDmlIntoBatches() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.executeBatch()).thenReturn(new int[] {1, 1}, new int[] {1});
+    MultipartFile file =
+        createFile(
+            "batched",
+            "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);\n"
+                + "CREATE TABLE x (a INT);\nUPDATE t SET a = 3;");
+
+    List<ScriptExecutionResult> results =
+        sqlExecutionService.executeSqlScripts(
+            new MultipartFile[] {file}, "primary", batchOptions(2));
+
+    ScriptExecutionResult result = results.get(0);
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertTrue(result.getMessage().startsWith("4 plain SQL statement(s)"));
+    assertEquals(2, result.getBatches().size());
+    assertEquals(1, result.getBatches().get(0).getFirstStatementIndex());
+    assertEquals(2, result.getBatches().get(0).getLastStatementIndex());
+    assertEquals(2, result.getBatches().get(0).getRowsAffected());
+    assertEquals(4, result.getBatches().get(1).getFirstStatementIndex());
+    verify(statement).addBatch("INSERT INTO t VALUES (1)");
+    verify(statement).addBatch("INSERT INTO t VALUES (2)");
+    verify(statement).addBatch("UPDATE t SET a = 3");
+    verify(statement).execute("CREATE TABLE x (a INT)");
+    verify(statement, times(2)).executeBatch();
+  }
+
+  @Test
+  void executeSqlScripts_bindInsertValues_sendsSameShapedInsertsAsPreparedBatches()
+      throws Exception {
+    Statement statement = stubPrimaryConnection();
+    PreparedStatement items = mock(PreparedStatement.class);
+    when(connection.prepareStatement("INSERT INTO items (id, name) VALUES (?, ?)"))
+        .thenReturn(items);
+    when(items.getConnection()).thenReturn(connection);
+    when(items.executeBatch()).thenReturn(new int[] {1, 1, 1});
+    when(statement.executeBatch()).thenReturn(new int[] {1, 1});
+    ExecutionOptions options = new ExecutionOptions();
+    options.setBindInsertValues(true);
+    MultipartFile file =
+        createFile(
+            "dump",
+            "INSERT INTO items (id, name) VALUES (1, 'a');\n"
+                + "INSERT INTO items (id, name) VALUES (2, 'it''s');\n"
+                + "INSERT INTO  items (id, name)  VALUES (3, NULL);\n"
+                + "INSERT INTO items (id, name) VALUES (4, UPPER('d'));\n"
+                + "UPDATE items SET name = 'e' WHERE id = 1;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "primary", options)
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertEquals(2, result.getBatches().size());
+    assertEquals(
+        "INSERT INTO items (id, name) VALUES (?, ?)", result.getBatches().get(0).getBoundSql());
+    assertEquals(3, result.getBatches().get(0).getLastStatementIndex());
+    // The insert with a function call is sent as text, batched with the update.
+    assertNull(result.getBatches().get(1).getBoundSql());
+    verify(items).setBigDecimal(1, new BigDecimal("1"));
+    verify(items).setString(2, "it's");
+    verify(items).setNull(2, Types.VARCHAR);
+    verify(items, times(3)).addBatch();
+    verify(statement).addBatch("INSERT INTO items (id, name) VALUES (4, UPPER('d'))");
+    verify(statement).addBatch("UPDATE items SET name = 'e' WHERE id = 1");
+  }
+
+  @Test
+  void executeSqlScripts_batchMode_reportsFailingStatementInBatch() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.executeBatch())
+        .thenThrow(new BatchUpdateException("ORA-00001: unique constraint", new int[] {1}));
+    MultipartFile file =
+        createFile(
+            "batch_failure",
+            "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);");
+
+    List<ScriptExecutionResult> results =
+        sqlExecutionService.executeSqlScripts(
+            new MultipartFile[] {file}, "primary", batchOptions(10));
+
+    ScriptExecutionResult result = results.get(0);
+    assertFalse(result.isSuccess());
+    assertEquals(1, result.getBatches().size());
+    assertFalse(result.getBatches().get(0).isSuccess());
+    assertEquals(2, result.getBatches().get(0).getFailedStatementIndex());
+    assertTrue(result.getMessage().contains("(#2, line 2): INSERT INTO t VALUES (1)"));
+    assertEquals(Integer.valueOf(2), result.getFailedStatementIndex());
+    assertEquals(Integer.valueOf(2), result.getFailedStatementLine());
+    assertEquals("INSERT INTO t VALUES (1)", result.getFailedStatementExcerpt());
+    // Counted over the whole file, not only up to the failure.
+    assertEquals(3, result.getStatementCount());
+  }
+
+  @Test
+  void executeSqlScripts_recordsStatementBatchAndFailureMetrics() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.executeBatch())
+        .thenThrow(new BatchUpdateException("ORA-00001", "23000", 1, new int[] {1}));
+    MultipartFile file =
+        createFile(
+            "metrics",
+            "CREATE TABLE t (a INT);\nINSERT INTO t VALUES (1);\nINSERT INTO t VALUES (1);");
+
+    sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary", batchOptions(10));
+
+    assertEquals(
+        1,
+        meterRegistry
+            .get("exsql.statement.duration")
+            .tags("datasource", "primary", "type", "create", "outcome", "success")
+            .timer()
+            .count());
+    assertEquals(2.0, meterRegistry.get("exsql.batch.size").summary().totalAmount());
+    assertEquals(
+        1.0,
+        meterRegistry.get("exsql.statement.failures").tag("sqlstate", "23000").counter().count());
+    // The CREATE and the first INSERT of the failed batch.
+    assertEquals(2.0, meterRegistry.get("exsql.statements.executed").counter().count());
+    assertEquals(
+        1, meterRegistry.get("exsql.script.duration").tag("outcome", "failure").timer().count());
+  }
+
+  @Test
+  void executeSqlScripts_reportsSlowStatementsWithPlans() throws Exception {
+    ReflectionTestUtils.setField(sqlExecutionService, "defaultSlowThresholdMs", 0L);
+    Statement statement = stubPrimaryConnection();
+    when(connection.getMetaData().getDatabaseProductName()).thenReturn("MySQL");
+    ResultSet plan = mock(ResultSet.class);
+    ResultSetMetaData planColumns = mock(ResultSetMetaData.class);
+    when(statement.executeQuery("EXPLAIN SELECT * FROM t")).thenReturn(plan);
+    when(plan.next()).thenReturn(true, false);
+    when(plan.getMetaData()).thenReturn(planColumns);
+    when(planColumns.getColumnCount()).thenReturn(2);
+    when(plan.getObject(1)).thenReturn("SIMPLE");
+    when(plan.getObject(2)).thenReturn("t");
+    MultipartFile file =
+        createFile("slow", "CREATE TABLE t (a INT);\nUPDATE t SET a = 1;\nSELECT * FROM t;");
+    ExecutionOptions options = new ExecutionOptions();
+    options.setCapturePlans(true);
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "primary", options)
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertEquals(0, result.getSlowStatementThresholdMs());
+    List<SlowStatement> slow = result.getSlowStatements();
+    assertEquals(3, slow.size());
+    SlowStatement select =
+        slow.stream().filter(s -> "SELECT".equals(s.getKeyword())).findFirst().get();
+    assertEquals(3, select.getStatementIndex());
+    assertEquals(3, select.getLine());
+    assertEquals("SELECT * FROM t", select.getSqlExcerpt());
+    assertEquals("SIMPLE | t", select.getPlan());
+    SlowStatement create =
+        slow.stream().filter(s -> "CREATE".equals(s.getKeyword())).findFirst().get();
+    // DDL has no plan to capture.
+    assertNull(create.getPlan());
+  }
+
+  private static ExecutionOptions pipelineOptions() {
+    ExecutionOptions options = new ExecutionOptions();
+    options.setPipelineStatements(true);
+    return options;
+  }
+
+  @Test
+  void executeSqlScripts_pipelining_sendsConsecutiveStatementsAsOnePacket() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    String packet =
+        "CREATE TABLE a (x INT)\n;\nCREATE INDEX i ON a (x)\n;\nINSERT INTO a VALUES (1)\n;\n";
+    when(statement.getUpdateCount()).thenReturn(0, 0, 1, -1, 0);
+    MultipartFile file =
+        createFile(
+            "pipelined",
+            "CREATE TABLE a (x INT);\nCREATE INDEX i ON a (x);\nINSERT INTO a VALUES (1);\n"
+                + "BEGIN NULL; END;\n/\nDROP TABLE a;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "primary", pipelineOptions())
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    verify(statement).execute(packet);
+    verify(statement, times(3)).getMoreResults();
+    verify(statement).execute("BEGIN NULL; END;");
+    // A packet of one is sent as a plain statement.
+    verify(statement).execute("DROP TABLE a");
+    assertEquals(5.0, meterRegistry.get("exsql.statements.executed").counter().count());
+  }
+
+  @Test
+  void executeSqlScripts_pipelining_attributesFailureToItsStatement() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.getUpdateCount()).thenReturn(0);
+    when(statement.getMoreResults())
+        .thenThrow(new SQLException("ORA-00955: name is already used by an existing object"));
+    MultipartFile file =
+        createFile(
+            "pipeline_failure", "CREATE TABLE a (x INT);\nCREATE TABLE a (x INT);\nDROP TABLE b;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "primary", pipelineOptions())
+            .get(0);
+
+    assertFalse(result.isSuccess());
+    assertEquals(Integer.valueOf(2), result.getFailedStatementIndex());
+    assertEquals(Integer.valueOf(1), result.getLastCommittedStatementIndex());
+    assertTrue(result.getMessage().contains("ORA-00955"), result.getMessage());
+  }
+
+  @Test
+  void executeSqlScripts_pipelining_needsAllowMultiQueries() throws Exception {
+    DataSourceDefinition secondaryDef =
+        new DataSourceDefinition(
+            "secondary",
+            "jdbc:oceanbase://ob:2883/db",
+            "s_user",
+            "driver",
+            "auth",
+            2,
+            "tns",
+            "url",
+            "dummy");
+    register(secondaryDef);
+    when(passwordRetrievalService.retrievePassword(
+            "s_user", 2, "tns", "url", "dummy", "secondary", "auth"))
+        .thenReturn("pwd");
+    when(dataSourceRegistry.getDataSource(secondaryDef, "pwd")).thenReturn(mockDataSource);
+    connection = mock(Connection.class);
+    Statement statement = mock(Statement.class);
+    when(mockDataSource.getConnection()).thenReturn(connection);
+    when(connection.createStatement()).thenReturn(statement);
+    lenient().when(statement.getConnection()).thenReturn(connection);
+    MultipartFile file = createFile("no_multi", "CREATE TABLE a (x INT);\nDROP TABLE a;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "secondary", pipelineOptions())
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    verify(statement).execute("CREATE TABLE a (x INT)");
+    verify(statement).execute("DROP TABLE a");
+  }
+
+  @Test
+  void executeSqlScripts_resume_skipsStatementsCommittedByFailedRun(@TempDir Path checkpoints)
+      throws Exception {
+    CheckpointStore checkpointStore = new CheckpointStore(new ObjectMapper());
+    ReflectionTestUtils.setField(checkpointStore, "directory", checkpoints.toString());
+    ReflectionTestUtils.setField(sqlExecutionService, "checkpointStore", checkpointStore);
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (3)"))
+        .thenThrow(new SQLException("ORA-00001: unique constraint"))
+        .thenReturn(false);
+    String script =
+        "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);\nINSERT INTO t VALUES (3);\n"
+            + "INSERT INTO t VALUES (4);";
+    ExecutionOptions options = new ExecutionOptions();
+    options.setResume(true);
+
+    ScriptExecutionResult failed =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {createFile("resume", script)}, "primary", options)
+            .get(0);
+    ScriptExecutionResult resumed =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {createFile("resume", script)}, "primary", options)
+            .get(0);
+
+    assertFalse(failed.isSuccess());
+    assertNull(failed.getResumedAfterStatementIndex());
+    assertTrue(resumed.isSuccess(), resumed.getMessage());
+    assertEquals(Integer.valueOf(2), resumed.getResumedAfterStatementIndex());
+    assertTrue(resumed.getMessage().startsWith("Resumed after statement #2"));
+    assertEquals(Integer.valueOf(4), resumed.getLastCommittedStatementIndex());
+    verify(statement, times(1)).execute("INSERT INTO t VALUES (1)");
+    verify(statement, times(2)).execute("INSERT INTO t VALUES (3)");
+    // The finished script no longer has a checkpoint.
+    assertNull(checkpointStore.find("primary", resumed.getContentHash()));
+  }
+
+  @Test
+  void executeSqlScripts_resume_appliesSessionStatementsAgainBeforeResumePoint(
+      @TempDir Path checkpoints) throws Exception {
+    CheckpointStore checkpointStore = new CheckpointStore(new ObjectMapper());
+    ReflectionTestUtils.setField(checkpointStore, "directory", checkpoints.toString());
+    ReflectionTestUtils.setField(sqlExecutionService, "checkpointStore", checkpointStore);
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (3)"))
+        .thenThrow(new SQLException("ORA-00001: unique constraint"))
+        .thenReturn(false);
+    String script =
+        "ALTER SESSION SET CURRENT_SCHEMA = app;\nINSERT INTO t VALUES (1);\n"
+            + "INSERT INTO t VALUES (2);\nINSERT INTO t VALUES (3);";
+    ExecutionOptions resume = new ExecutionOptions();
+    resume.setResume(true);
+
+    // The first run does not ask to resume, so it is hashed by the execution pass alone.
+    ScriptExecutionResult failed =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {createFile("session", script)}, "primary")
+            .get(0);
+    ScriptExecutionResult resumed =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {createFile("session", script)}, "primary", resume)
+            .get(0);
+
+    assertFalse(failed.isSuccess());
+    assertTrue(resumed.isSuccess(), resumed.getMessage());
+    assertEquals(Integer.valueOf(3), resumed.getResumedAfterStatementIndex());
+    assertTrue(resumed.getMessage().contains("1 session statement(s) applied again"));
+    verify(statement, times(2)).execute("ALTER SESSION SET CURRENT_SCHEMA = app");
+    verify(statement, times(1)).execute("INSERT INTO t VALUES (1)");
+    verify(statement, times(1)).execute("INSERT INTO t VALUES (2)");
+    verify(statement, times(2)).execute("INSERT INTO t VALUES (3)");
+  }
+
+  private static ExecutionOptions transactionOptions(TransactionMode mode, int commitInterval) {
+    ExecutionOptions options = new ExecutionOptions();
+    options.setTransactionMode(mode);
+    options.setCommitInterval(commitInterval);
+    return options;
+  }
+
+  @Test
+  void executeSqlScripts_autoCommit_runsEveryStatementOnOneConnection() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    MultipartFile file = createFile("auto", "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary").get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertEquals(Integer.valueOf(2), result.getLastCommittedStatementIndex());
+    // One borrow, held for the whole script.
+    verify(mockDataSource).getConnection();
+    verify(connection).setAutoCommit(true);
+    verify(connection, never()).commit();
+    verify(statement, times(2)).execute(anyString());
+  }
+
+  @Test
+  void executeSqlScripts_singleTransaction_rollsBackOnFailure() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (2)"))
+        .thenThrow(new SQLException("ORA-00001: unique constraint"));
+    MultipartFile file =
+        createFile("single", "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {file},
+                "primary",
+                transactionOptions(TransactionMode.SINGLE_TRANSACTION, 0))
+            .get(0);
+
+    assertFalse(result.isSuccess());
+    assertTrue(result.getMessage().contains("The transaction was rolled back"));
+    assertNull(result.getLastCommittedStatementIndex());
+    verify(connection, never()).commit();
+    verify(connection).rollback();
+  }
+
+  @Test
+  void executeSqlScripts_singleTransaction_scriptCommitIsReported() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (2)"))
+        .thenThrow(new SQLException("ORA-00001: unique constraint"));
+    MultipartFile file =
+        createFile(
+            "script_commit", "INSERT INTO t VALUES (1);\nCOMMIT;\nINSERT INTO t VALUES (2);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {file},
+                "primary",
+                transactionOptions(TransactionMode.SINGLE_TRANSACTION, 0))
+            .get(0);
+
+    assertFalse(result.isSuccess());
+    assertEquals(Integer.valueOf(2), result.getLastCommittedStatementIndex());
+    assertTrue(
+        result.getMessage().contains("Changes up to statement #2 were committed by the script"));
+    verify(statement).execute("COMMIT");
+  }
+
+  @Test
+  void executeSqlScripts_queriesFetchOneRowUnlessTheyLock() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    MultipartFile file =
+        createFile("queries", "SELECT * FROM t;\nSELECT * FROM t FOR UPDATE;\nDELETE FROM t;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary").get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    // Each statement runs on its own JDBC statement; only the plain query is limited.
+    verify(statement, times(1)).setMaxRows(1);
+    verify(statement, times(3)).execute(anyString());
+  }
+
+  @Test
+  void executeSqlScripts_commitEveryN_commitsAtIntervalAndReportsProgress() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(connection.getAutoCommit()).thenReturn(true);
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (4)"))
+        .thenThrow(new SQLException("ORA-00001: unique constraint"));
+    MultipartFile file =
+        createFile(
+            "chunked",
+            "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);\n"
+                + "INSERT INTO t VALUES (3);\nINSERT INTO t VALUES (4);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {file},
+                "primary",
+                transactionOptions(TransactionMode.COMMIT_EVERY_N, 2))
+            .get(0);
+
+    assertFalse(result.isSuccess());
+    assertEquals(Integer.valueOf(2), result.getLastCommittedStatementIndex());
+    assertTrue(result.getMessage().contains("Changes up to statement #2 were committed"));
+    verify(connection).setAutoCommit(false);
+    verify(connection, times(1)).commit();
+    verify(connection).rollback();
+  }
+
+  @Test
+  void executeSqlScripts_transientError_retriesStatementAndReportsAttempt() throws Exception {
+    ReflectionTestUtils.setField(sqlExecutionService, "retryInitialBackoffMs", 0L);
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (2)"))
+        .thenThrow(new SQLException("ORA-00060: deadlock detected", "61000", 60))
+        .thenReturn(false);
+    MultipartFile file =
+        createFile("deadlock", "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary").get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertTrue(result.getMessage().contains("1 retried attempt(s)"));
+    assertEquals(1, result.getRetries().size());
+    StatementRetry retry = result.getRetries().get(0);
+    assertEquals(2, retry.getStatementIndex());
+    assertEquals(1, retry.getAttempt());
+    assertEquals("TRANSIENT", retry.getCategory());
+    assertEquals(60, retry.getErrorCode());
+    assertFalse(retry.isReconnected());
+    verify(statement, times(2)).execute("INSERT INTO t VALUES (2)");
+    assertEquals(
+        1.0,
+        meterRegistry
+            .get("exsql.statement.retries")
+            .tag("category", "transient")
+            .counter()
+            .count());
+  }
+
+  @Test
+  void executeSqlScripts_transientErrorInTransaction_rollsBackBeforeRetry() throws Exception {
+    ReflectionTestUtils.setField(sqlExecutionService, "retryInitialBackoffMs", 0L);
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (1)"))
+        .thenThrow(new SQLException("Transaction needs rollback", "HY000", -6002))
+        .thenReturn(false);
+    MultipartFile file =
+        createFile("needs_rollback", "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (2);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(
+                new MultipartFile[] {file},
+                "primary",
+                transactionOptions(TransactionMode.SINGLE_TRANSACTION, 0))
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertEquals(1, result.getRetries().size());
+    assertEquals("TRANSIENT", result.getRetries().get(0).getCategory());
+    InOrder inOrder = inOrder(statement, connection);
+    inOrder.verify(statement).execute("INSERT INTO t VALUES (1)");
+    inOrder.verify(connection).rollback();
+    inOrder.verify(statement).execute("INSERT INTO t VALUES (1)");
+    inOrder.verify(statement).execute("INSERT INTO t VALUES (2)");
+    inOrder.verify(connection).commit();
+  }
+
+  @Test
+  void executeSqlScripts_lostConnection_reconnectsForQueriesOnly() throws Exception {
+    ReflectionTestUtils.setField(sqlExecutionService, "retryInitialBackoffMs", 0L);
+    Statement statement = stubPrimaryConnection();
+    AtomicBoolean lost = new AtomicBoolean();
+    lenient()
+        .when(statement.execute("SELECT * FROM t"))
+        .thenAnswer(
+            invocation -> {
+              lost.set(true);
+              throw new SQLRecoverableException("IO Error: Broken pipe", "08006", 17002);
+            });
+    Connection replacement = mock(Connection.class);
+    Statement replacementStatement = mock(Statement.class);
+    when(replacement.createStatement()).thenReturn(replacementStatement);
+    lenient().when(replacementStatement.getConnection()).thenReturn(replacement);
+    when(mockDataSource.getConnection())
+        .thenAnswer(invocation -> lost.get() ? replacement : connection);
+    MultipartFile file = createFile("lost", "SELECT * FROM t;\nINSERT INTO t VALUES (1);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary").get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertEquals(1, result.getRetries().size());
+    assertEquals("CONNECTION_LOST", result.getRetries().get(0).getCategory());
+    assertTrue(result.getRetries().get(0).isReconnected());
+    verify(replacementStatement).execute("SELECT * FROM t");
+    verify(replacementStatement).execute("INSERT INTO t VALUES (1)");
+    verify(replacement, atLeastOnce()).close();
+  }
+
+  @Test
+  void executeSqlScripts_lostConnectionDuringDml_failsWithoutRetry() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    lenient()
+        .when(statement.execute("INSERT INTO t VALUES (1)"))
+        .thenThrow(new SQLRecoverableException("IO Error: Broken pipe", "08006", 17002));
+    MultipartFile file = createFile("lost_dml", "INSERT INTO t VALUES (1);");
+
+    ScriptExecutionResult result =
+        sqlExecutionService.executeSqlScripts(new MultipartFile[] {file}, "primary").get(0);
+
+    // The insert may have been committed before the connection broke.
+    assertFalse(result.isSuccess());
+    assertTrue(result.getRetries().isEmpty());
+    verify(statement, times(1)).execute("INSERT INTO t VALUES (1)");
+  }
+
+  @Test
+  void executeSqlScripts_resultCarriesHashAndBoundedExcerpts() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    StringBuilder longStatement = new StringBuilder("INSERT INTO t VALUES ('");
+    for (int i = 0; i < 2000; i++) {
+      longStatement.append('x');
+    }
+    longStatement.append("')");
+    String content =
+        "CREATE TABLE t (a VARCHAR2(4000));\n" + longStatement + ";\nSELECT 1 FROM DUAL;";
+    when(statement.execute(anyString()))
+        .thenReturn(false)
+        .thenThrow(new SQLException("ORA-12899: value too large"));
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {createFile("large", content)}, "primary")
+            .get(0);
+
+    assertFalse(result.isSuccess());
+    assertEquals(3, result.getStatementCount());
+    StringBuilder expectedHash = new StringBuilder();
+    for (byte b :
+        MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8))) {
+      expectedHash.append(String.format("%02x", b));
+    }
+    assertEquals(expectedHash.toString(), result.getContentHash());
+    assertEquals(503, result.getFailedStatementExcerpt().length());
+    assertTrue(result.getMessage().length() < 1000, result.getMessage());
+    assertTrue(result.getSqlPreview().length() <= 1003);
+  }
+
+  @Test
+  void executeScripts_reportsEveryStatementWithItsUpdateCount() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.execute(anyString())).thenReturn(false);
+    when(statement.getUpdateCount()).thenReturn(0, 3);
+    List<StatementEvent> events = new ArrayList<>();
+
+    List<ScriptExecutionResult> results =
+        sqlExecutionService.executeScripts(
+            Collections.singletonList(
+                new MultipartScriptSource(
+                    createFile("events", "CREATE TABLE x (a INT);\nUPDATE t SET a = 1;"))),
+            "primary",
+            new ExecutionOptions(),
+            new ScriptExecutionListener() {
+              @Override
+              public void statementFinished(StatementEvent event) {
+                events.add(event);
+              }
+            });
+
+    assertTrue(results.get(0).isSuccess(), results.get(0).getMessage());
+    assertEquals(2, events.size());
+    assertEquals("CREATE", events.get(0).getKeyword());
+    assertEquals(0, events.get(0).getRowsAffected());
+    assertEquals(2, events.get(1).getStatementIndex());
+    assertEquals(2, events.get(1).getLine());
+    assertEquals(3, events.get(1).getRowsAffected());
+    assertTrue(events.get(1).isSuccess());
+    assertNull(events.get(1).getBatchNumber());
+  }
+
+  @Test
+  void executeSqlScripts_throttled_spacesStatementsByTheDataSourceCap() throws Exception {
+    ExecutionThrottle throttle = new ExecutionThrottle();
+    ReflectionTestUtils.setField(throttle, "statementsPerSecond", 20.0);
+    ReflectionTestUtils.setField(sqlExecutionService, "executionThrottle", throttle);
+    stubPrimaryConnection();
+    ExecutionOptions options = new ExecutionOptions();
+    options.setThrottled(true);
+    MultipartFile file =
+        createFile("throttled", "UPDATE t SET a = 1;\nUPDATE t SET a = 2;\nUPDATE t SET a = 3;");
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeSqlScripts(new MultipartFile[] {file}, "primary", options)
+            .get(0);
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    // Three statements at 20 per second: the last two wait about 50 ms each.
+    assertTrue(result.getThrottledMs() >= 50, String.valueOf(result.getThrottledMs()));
+    assertTrue(result.getMessage().contains("throttled for"));
+  }
+
+  @Test
+  void executeScripts_pausedGate_holdsScriptUntilResumed() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    ExecutionGate gate = new ExecutionGate();
+    gate.pause();
+    Thread resumer =
+        new Thread(
+            () -> {
+              try {
+                Thread.sleep(100);
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              gate.resume();
+            });
+    resumer.start();
+
+    ScriptExecutionResult result =
+        sqlExecutionService
+            .executeScripts(
+                Collections.singletonList(
+                    new MultipartScriptSource(createFile("paused", "DELETE FROM t;"))),
+                "primary",
+                new ExecutionOptions(),
+                ScriptExecutionListener.NONE,
+                gate)
+            .get(0);
+    resumer.join();
+
+    assertTrue(result.isSuccess(), result.getMessage());
+    assertTrue(result.getPausedMs() >= 50, String.valueOf(result.getPausedMs()));
+    verify(statement).execute("DELETE FROM t");
+  }
+
+  @Test
+  void executeScripts_failedBatchReportsExecutedAndFailedStatements() throws Exception {
+    Statement statement = stubPrimaryConnection();
+    when(statement.executeBatch())
+        .thenThrow(new BatchUpdateException("ORA-00001: unique constraint", new int[] {1}));
+    List<StatementEvent> events = new ArrayList<>();
+
+    sqlExecutionService.executeScripts(
+        Collections.singletonList(
+            new MultipartScriptSource(
+                createFile(
+                    "batch_events",
+                    "INSERT INTO t VALUES (1);\nINSERT INTO t VALUES (1);\n"
+                        + "INSERT INTO t VALUES (2);"))),
+        "primary",
+        batchOptions(10),
+        new ScriptExecutionListener() {
+          @Override
+          public void statementFinished(StatementEvent event) {
+            events.add(event);
+          }
+        });
+
+    assertEquals(2, events.size());
+    assertTrue(events.get(0).isSuccess());
+    assertEquals(1, events.get(0).getRowsAffected());
+    assertEquals(Integer.valueOf(1), events.get(0).getBatchNumber());
+    assertFalse(events.get(1).isSuccess());
+    assertEquals(2, events.get(1).getStatementIndex());
+    assertEquals("ORA-00001: unique constraint", events.get(1).getError());
+  }
+
   // Test for executeSingleScript - this now indirectly tests the dynamic JdbcTemplate
   // To make this more robust, we need to ensure the mocked DataSource (mockDataSource)
   // behaves correctly when the dynamically created JdbcTemplate tries to use it.
@@ -291,9 +1097,7 @@ public class SqlExecutionServiceTest {
   // parts.
 
   @Test
-  void executeSingleScript_plSqlBlock_mockedJdbcTemplate() {
-    // This test requires a JdbcTemplate. We simulate that it was created.
-    JdbcTemplate mockJdbc = Mockito.mock(JdbcTemplate.class);
+  void executeSingleScript_plSqlBlock_mockedJdbcTemplate() throws Exception {
     MultipartFile file = createFile("plsql_block", "BEGIN NULL; END; /");
 
     // This is how we would test executeSingleScript if we could pass a mock JdbcTemplate
@@ -312,12 +1116,11 @@ public class SqlExecutionServiceTest {
     DataSourceDefinition testDef =
         new DataSourceDefinition(
             "testds", "url", "user", "driver", "auth", 1, "tns", "cn_url", "dummy");
-    when(dataSourceDefinitions.get("testds")).thenReturn(testDef);
+    register(testDef);
     when(passwordRetrievalService.retrievePassword(
-            anyString(), anyInt(), anyString(), anyString(), anyString(), eq("testds")))
+            anyString(), anyInt(), anyString(), anyString(), anyString(), eq("testds"), eq("auth")))
         .thenReturn("pwd");
-    // The static mock for DataSourceBuilder is already configured in @BeforeEach to return
-    // mockDataSource
+    when(dataSourceRegistry.getDataSource(testDef, "pwd")).thenReturn(mockDataSource);
 
     // Now, how to make the 'new JdbcTemplate(mockDataSource)' work with 'mockJdbc.execute()'?
     // This is the tricky part. We can't easily substitute the 'new JdbcTemplate' instance.
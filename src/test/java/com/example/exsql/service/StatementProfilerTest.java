@@ -0,0 +1,59 @@
+package com.example.exsql.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.example.exsql.model.SlowStatement;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class StatementProfilerTest {
+
+  private static SlowStatement statement(int index, long durationMs) {
+    SlowStatement statement = new SlowStatement();
+    statement.setStatementIndex(index);
+    statement.setDurationMs(durationMs);
+    return statement;
+  }
+
+  @Test
+  void report_keepsSlowestAboveThreshold_slowestFirst() {
+    StatementProfiler profiler = new StatementProfiler(100, 3);
+    long[] durations = {50, 300, 120, 99, 800, 100, 450};
+    for (int i = 0; i < durations.length; i++) {
+      if (profiler.wouldKeep(durations[i])) {
+        profiler.record(statement(i + 1, durations[i]));
+      }
+    }
+
+    List<SlowStatement> report = profiler.report();
+
+    assertEquals(3, report.size());
+    assertEquals(800, report.get(0).getDurationMs());
+    assertEquals(450, report.get(1).getDurationMs());
+    assertEquals(300, report.get(2).getDurationMs());
+    assertFalse(profiler.wouldKeep(300));
+    assertTrue(profiler.wouldKeep(301));
+  }
+
+  @Test
+  void report_equalDurations_keepsEarlierStatements() {
+    StatementProfiler profiler = new StatementProfiler(0, 2);
+    profiler.record(statement(1, 10));
+    profiler.record(statement(2, 10));
+    profiler.record(statement(3, 10));
+
+    List<SlowStatement> report = profiler.report();
+
+    assertEquals(2, report.size());
+    assertEquals(1, report.get(0).getStatementIndex());
+    assertEquals(2, report.get(1).getStatementIndex());
+  }
+
+  @Test
+  void record_zeroLimit_keepsNothing() {
+    StatementProfiler profiler = new StatementProfiler(0, 0);
+    profiler.record(statement(1, 5000));
+
+    assertTrue(profiler.report().isEmpty());
+  }
+}